@@ -18,7 +18,9 @@ package org.jclouds.abiquo.config;
 
 import org.jclouds.abiquo.AbiquoApi;
 import org.jclouds.abiquo.handlers.AbiquoErrorHandler;
+import org.jclouds.abiquo.handlers.RetryOnExpiredToken;
 import org.jclouds.http.HttpErrorHandler;
+import org.jclouds.http.HttpRetryHandler;
 import org.jclouds.http.annotation.ClientError;
 import org.jclouds.http.annotation.Redirection;
 import org.jclouds.http.annotation.ServerError;
@@ -37,4 +39,9 @@ public class AbiquoHttpApiModule extends HttpApiModule<AbiquoApi> {
       bind(HttpErrorHandler.class).annotatedWith(ClientError.class).to(AbiquoErrorHandler.class);
       bind(HttpErrorHandler.class).annotatedWith(ServerError.class).to(AbiquoErrorHandler.class);
    }
+
+   @Override
+   protected void bindRetryHandlers() {
+      bind(HttpRetryHandler.class).annotatedWith(ClientError.class).to(RetryOnExpiredToken.class);
+   }
 }
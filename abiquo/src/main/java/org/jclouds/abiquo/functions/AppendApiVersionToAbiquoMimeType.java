@@ -18,6 +18,9 @@ package org.jclouds.abiquo.functions;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -27,15 +30,22 @@ import com.google.common.base.Function;
 
 /**
  * Appends the Api version to the given mime type.
+ * <p>
+ * The result is memoised per input mime type, as requests keep using the same few types.
  */
 @Singleton
 public class AppendApiVersionToAbiquoMimeType implements Function<String, String> {
    /** The prefix for Abiquo custom media types. */
    private static final String ABIQUO_MIME_TYPE_PREFIX = "application/vnd.abiquo.";
 
+   /** The maximum number of mime types to memoise. */
+   private static final int MAX_MEMOISED = 512;
+
    /** The version to append to media types without version. */
    protected String apiVersion;
 
+   private final ConcurrentMap<String, String> versioned = new ConcurrentHashMap<String, String>();
+
    @Inject
    AppendApiVersionToAbiquoMimeType(@ApiVersion final String apiVersion) {
       this.apiVersion = checkNotNull(apiVersion, "apiVersion");
@@ -44,6 +54,18 @@ public class AppendApiVersionToAbiquoMimeType implements Function<String, String
    @Override
    public String apply(final String input) {
       checkNotNull(input, "input");
+      String result = versioned.get(input);
+      if (result == null) {
+         result = appendVersion(input);
+         // Stop memoising if callers build mime types dynamically, so the map does not grow unbounded
+         if (versioned.size() < MAX_MEMOISED) {
+            versioned.putIfAbsent(input, result);
+         }
+      }
+      return result;
+   }
+
+   private String appendVersion(final String input) {
       if (input.startsWith(ABIQUO_MIME_TYPE_PREFIX) && !input.contains("version")) {
          return input + ";version=" + apiVersion;
       } else {
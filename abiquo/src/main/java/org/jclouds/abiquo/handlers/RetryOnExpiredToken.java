@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.handlers;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.abiquo.config.AbiquoAuthenticationModule.AUTH_TOKEN_NAME;
+import static org.jclouds.util.Closeables2.closeQuietly;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.abiquo.config.AbiquoProperties;
+import org.jclouds.domain.Credentials;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpRetryHandler;
+import org.jclouds.location.Provider;
+import org.jclouds.logging.Logger;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.cache.LoadingCache;
+import com.google.common.net.HttpHeaders;
+
+/**
+ * Logs in again and retries the requests rejected because their
+ * authentication token has been invalidated in the server.
+ * <p>
+ * Only the first request that fails with a given token removes it from the
+ * token cache, so concurrent failures trigger a single login: the cache loads
+ * the new token once and the other requests wait for it. The requests are then
+ * retried, and the authentication filter adds the new token to them.
+ */
+@Singleton
+public class RetryOnExpiredToken implements HttpRetryHandler {
+
+   @Resource
+   @Named(AbiquoProperties.ABIQUO_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final LoadingCache<Credentials, String> tokens;
+
+   private final Supplier<Credentials> credentials;
+
+   private final int retryCountLimit;
+
+   @Inject
+   RetryOnExpiredToken(final LoadingCache<Credentials, String> tokens,
+         @Provider final Supplier<Credentials> credentials,
+         @Named(Constants.PROPERTY_MAX_RETRIES) final int retryCountLimit) {
+      this.tokens = checkNotNull(tokens, "tokens must not be null");
+      this.credentials = checkNotNull(credentials, "credentials must not be null");
+      this.retryCountLimit = retryCountLimit;
+   }
+
+   @Override
+   public boolean shouldRetryRequest(final HttpCommand command, final HttpResponse response) {
+      if (response.getStatusCode() != 401) {
+         return false;
+      }
+      // Requests without a token, such as the login itself, are not retried
+      Optional<String> expired = token(command.getCurrentRequest());
+      if (!expired.isPresent() || command.incrementFailureCount() > retryCountLimit) {
+         return false;
+      }
+
+      Credentials current = credentials.get();
+      if (tokens.asMap().remove(current, expired.get())) {
+         logger.debug("<< Authentication token rejected for user: %s", current.identity);
+      }
+
+      String renewed;
+      try {
+         renewed = tokens.getUnchecked(current);
+      } catch (RuntimeException e) {
+         logger.warn(e, "<< Could not obtain a new authentication token");
+         return false;
+      }
+      // Retrying with the same token, as the "token" credential type does, would fail again
+      if (renewed.equals(expired.get())) {
+         return false;
+      }
+
+      closeQuietly(response.getPayload());
+      return true;
+   }
+
+   private static Optional<String> token(final HttpRequest request) {
+      String prefix = AUTH_TOKEN_NAME + "=";
+      for (String cookie : request.getHeaders().get(HttpHeaders.COOKIE)) {
+         if (cookie.startsWith(prefix)) {
+            return Optional.of(cookie.substring(prefix.length()));
+         }
+      }
+      return Optional.absent();
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.http.filters;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.abiquo.config.AbiquoAuthenticationModule.AUTH_TOKEN_NAME;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.abiquo.config.Authentication;
+import org.jclouds.abiquo.functions.AppendApiVersionToAbiquoMimeType;
+import org.jclouds.http.HttpException;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpRequestFilter;
+import org.jclouds.io.ContentMetadata;
+
+import com.google.common.base.Supplier;
+import com.google.common.net.HttpHeaders;
+
+/**
+ * Applies {@link AbiquoAuthentication} and {@link AppendApiVersionToMediaType}
+ * with a single rebuild of the request.
+ * <p>
+ * Use it instead of both filters. The Cookie header is only rebuilt when the
+ * token changes, and the versioned media types are memoised by
+ * {@link AppendApiVersionToAbiquoMimeType}.
+ */
+@Singleton
+public class AuthenticateAndAppendApiVersion implements HttpRequestFilter {
+   private final Supplier<String> authTokenProvider;
+
+   private final AppendApiVersionToAbiquoMimeType versionAppender;
+
+   /** The Cookie header built for the last token. */
+   private volatile Cookie cookie = new Cookie(null);
+
+   @Inject
+   AuthenticateAndAppendApiVersion(@Authentication Supplier<String> authTokenProvider,
+         AppendApiVersionToAbiquoMimeType versionAppender) {
+      this.authTokenProvider = checkNotNull(authTokenProvider, "authTokenProvider must not be null");
+      this.versionAppender = checkNotNull(versionAppender, "versionAppender must not be null");
+   }
+
+   @Override
+   public HttpRequest filter(final HttpRequest request) throws HttpException {
+      HttpRequest.Builder<?> builder = request.toBuilder().replaceHeader(HttpHeaders.COOKIE,
+            cookie(authTokenProvider.get()));
+
+      Collection<String> accept = request.getHeaders().get(HttpHeaders.ACCEPT);
+      if (!accept.isEmpty()) {
+         String[] versioned = new String[accept.size()];
+         Iterator<String> mediaTypes = accept.iterator();
+         for (int i = 0; i < versioned.length; i++) {
+            versioned[i] = versionAppender.apply(mediaTypes.next());
+         }
+         builder.replaceHeader(HttpHeaders.ACCEPT, versioned);
+      }
+
+      if (request.getPayload() != null) {
+         ContentMetadata metadata = request.getPayload().getContentMetadata();
+         metadata.setContentType(versionAppender.apply(metadata.getContentType()));
+      }
+
+      return builder.build();
+   }
+
+   private String cookie(final String token) {
+      checkNotNull(token, "missing authentication token");
+      Cookie current = cookie;
+      if (!token.equals(current.token)) {
+         current = new Cookie(token);
+         cookie = current;
+      }
+      return current.header;
+   }
+
+   private static final class Cookie {
+      private final String token;
+
+      private final String header;
+
+      private Cookie(final String token) {
+         this.token = token;
+         this.header = AUTH_TOKEN_NAME + "=" + token;
+      }
+   }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.handlers;
+
+import static org.jclouds.util.Closeables2.closeQuietly;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.abiquo.http.filters.AbiquoAuthentication;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpRequestFilter;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.lifecycle.Closer;
+import org.jclouds.rest.AuthorizationException;
+import org.jclouds.rest.HttpClient;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.net.HttpHeaders;
+import com.google.inject.Injector;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+/**
+ * Mock tests for the {@link RetryOnExpiredToken} retry handler.
+ */
+@Test(groups = "unit", testName = "RetryOnExpiredTokenMockTest", singleThreaded = true)
+public class RetryOnExpiredTokenMockTest {
+
+   private static final int CALLERS = 50;
+
+   private MockWebServer server;
+
+   private Sessions sessions;
+
+   private Injector injector;
+
+   @BeforeMethod
+   public void start() throws IOException {
+      sessions = new Sessions();
+      server = new MockWebServer();
+      server.setDispatcher(sessions);
+      server.play();
+      injector = ContextBuilder.newBuilder("abiquo").credentials("user", "password")
+            .endpoint(server.getUrl("/api").toString()).buildInjector();
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void stop() throws IOException {
+      injector.getInstance(Closer.class).close();
+      server.shutdown();
+   }
+
+   public void testRejectedTokenIsRenewedAndTheRequestReplayed() {
+      assertEquals(get(), 200);
+      assertEquals(sessions.logins.get(), 1);
+
+      sessions.invalidate();
+
+      assertEquals(get(), 200);
+      assertEquals(sessions.logins.get(), 2);
+   }
+
+   public void testConcurrentCallersTriggerASingleLogin() throws Exception {
+      assertEquals(get(), 200);
+      sessions.invalidate();
+      sessions.loginDelayMillis = 500;
+
+      final CountDownLatch start = new CountDownLatch(1);
+      ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+      try {
+         List<Future<Integer>> responses = Lists.newArrayList();
+         for (int i = 0; i < CALLERS; i++) {
+            responses.add(callers.submit(new Callable<Integer>() {
+               @Override
+               public Integer call() throws InterruptedException {
+                  start.await();
+                  return get();
+               }
+            }));
+         }
+         start.countDown();
+
+         for (Future<Integer> response : responses) {
+            assertEquals(response.get().intValue(), 200);
+         }
+      } finally {
+         callers.shutdownNow();
+      }
+
+      assertEquals(sessions.logins.get(), 2);
+   }
+
+   public void testRequestIsNotRetriedWhenTheLoginFails() {
+      assertEquals(get(), 200);
+      sessions.invalidate();
+      sessions.acceptLogins = false;
+
+      try {
+         get();
+         fail("the request should have been rejected");
+      } catch (AuthorizationException expected) {
+         // The original 401 is reported
+      }
+      assertEquals(sessions.logins.get(), 2);
+      assertEquals(sessions.rejected.get(), 1);
+   }
+
+   private int get() {
+      HttpRequest request = HttpRequest.builder().method("GET")
+            .endpoint(URI.create(server.getUrl("/api/cloud/virtualdatacenters").toString()))
+            .filters(ImmutableList.<HttpRequestFilter> of(injector.getInstance(AbiquoAuthentication.class))).build();
+      HttpResponse response = injector.getInstance(HttpClient.class).invoke(request);
+      try {
+         return response.getStatusCode();
+      } finally {
+         closeQuietly(response.getPayload());
+      }
+   }
+
+   /**
+    * Accepts the token of the last login, and rejects any other token.
+    */
+   private static class Sessions extends Dispatcher {
+      private final AtomicInteger logins = new AtomicInteger();
+
+      private final AtomicInteger rejected = new AtomicInteger();
+
+      private volatile String validToken;
+
+      private volatile long loginDelayMillis;
+
+      private volatile boolean acceptLogins = true;
+
+      void invalidate() {
+         validToken = null;
+      }
+
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+         if (request.getPath().equals("/api/login")) {
+            String token = "token-" + logins.incrementAndGet();
+            Thread.sleep(loginDelayMillis);
+            if (!acceptLogins) {
+               return new MockResponse().setResponseCode(401);
+            }
+            validToken = token;
+            return new MockResponse().addHeader(HttpHeaders.SET_COOKIE, "auth=" + token + "; Path=/api");
+         }
+         if (validToken != null && ("auth=" + validToken).equals(request.getHeader(HttpHeaders.COOKIE))) {
+            return new MockResponse().setBody("{}");
+         }
+         rejected.incrementAndGet();
+         return new MockResponse().setResponseCode(401);
+      }
+   }
+}
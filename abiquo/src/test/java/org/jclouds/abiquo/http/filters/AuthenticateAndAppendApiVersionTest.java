@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.http.filters;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URI;
+
+import org.jclouds.abiquo.AbiquoApiMetadata;
+import org.jclouds.abiquo.config.Authentication;
+import org.jclouds.abiquo.functions.AppendApiVersionToAbiquoMimeType;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.jclouds.rest.annotations.ApiVersion;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.io.ByteSource;
+import com.google.common.net.HttpHeaders;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+
+/**
+ * Unit tests for the {@link AuthenticateAndAppendApiVersion} filter.
+ */
+@Test(groups = "unit", testName = "AuthenticateAndAppendApiVersionTest")
+public class AuthenticateAndAppendApiVersionTest {
+
+   private AbiquoApiMetadata metadata;
+
+   private Injector injector;
+
+   @BeforeMethod
+   public void setup() {
+      metadata = new AbiquoApiMetadata();
+      injector = Guice.createInjector(new AbstractModule() {
+         @Override
+         protected void configure() {
+            bind(String.class).annotatedWith(ApiVersion.class).toInstance(metadata.getVersion());
+            bind(new TypeLiteral<Supplier<String>>() {
+            }).annotatedWith(Authentication.class).toInstance(Suppliers.ofInstance("the-token"));
+         }
+      });
+   }
+
+   @Test(expectedExceptions = NullPointerException.class, expectedExceptionsMessageRegExp = "missing authentication token")
+   public void testAuthenticateWithoutToken() {
+      HttpRequest request = HttpRequest.builder().method("GET").endpoint(URI.create("http://foo")).build();
+      AuthenticateAndAppendApiVersion filter = new AuthenticateAndAppendApiVersion(
+            Suppliers.<String> ofInstance(null), injector.getInstance(AppendApiVersionToAbiquoMimeType.class));
+      filter.filter(request);
+   }
+
+   public void testSameRequestAsTheFilterChain() {
+      AuthenticateAndAppendApiVersion fused = injector.getInstance(AuthenticateAndAppendApiVersion.class);
+
+      HttpRequest filtered = fused.filter(request());
+      HttpRequest expected = chain(request());
+
+      assertEquals(filtered.getHeaders(), expected.getHeaders());
+      assertEquals(filtered.getHeaders().get(HttpHeaders.ACCEPT).iterator().next(),
+            "application/vnd.abiquo.virtualmachine+json;version=" + metadata.getVersion());
+      assertEquals(filtered.getFirstHeaderOrNull(HttpHeaders.COOKIE), "auth=the-token");
+      assertEquals(filtered.getPayload().getContentMetadata().getContentType(),
+            expected.getPayload().getContentMetadata().getContentType());
+   }
+
+   public void testRequestWithoutAcceptOrPayload() {
+      AuthenticateAndAppendApiVersion fused = injector.getInstance(AuthenticateAndAppendApiVersion.class);
+      HttpRequest request = HttpRequest.builder().method("GET").endpoint(URI.create("http://foo")).build();
+
+      HttpRequest filtered = fused.filter(request);
+
+      assertTrue(filtered.getHeaders().get(HttpHeaders.ACCEPT).isEmpty());
+      assertEquals(filtered.getHeaders(), chain(request).getHeaders());
+   }
+
+   public void testTokenChangesAreApplied() {
+      final String[] token = { "first" };
+      AuthenticateAndAppendApiVersion fused = new AuthenticateAndAppendApiVersion(new Supplier<String>() {
+         @Override
+         public String get() {
+            return token[0];
+         }
+      }, injector.getInstance(AppendApiVersionToAbiquoMimeType.class));
+
+      assertEquals(fused.filter(request()).getFirstHeaderOrNull(HttpHeaders.COOKIE), "auth=first");
+      token[0] = "second";
+      assertEquals(fused.filter(request()).getFirstHeaderOrNull(HttpHeaders.COOKIE), "auth=second");
+   }
+
+   public void testVersionedMediaTypesAreMemoised() {
+      AppendApiVersionToAbiquoMimeType versionAppender = injector.getInstance(AppendApiVersionToAbiquoMimeType.class);
+
+      String first = versionAppender.apply("application/vnd.abiquo.virtualmachine+json");
+      String second = versionAppender.apply(new String("application/vnd.abiquo.virtualmachine+json"));
+
+      assertSame(second, first);
+   }
+
+   private HttpRequest chain(HttpRequest request) {
+      AbiquoAuthentication authentication = new AbiquoAuthentication(Suppliers.ofInstance("the-token"));
+      AppendApiVersionToMediaType appendApiVersion = injector.getInstance(AppendApiVersionToMediaType.class);
+      return appendApiVersion.filter(authentication.filter(request));
+   }
+
+   private static HttpRequest request() {
+      Payload payload = Payloads.newByteSourcePayload(ByteSource.wrap(new byte[0]));
+      payload.getContentMetadata().setContentType("application/vnd.abiquo.virtualmachine+json");
+      return HttpRequest.builder().method("POST").endpoint(URI.create("http://foo"))
+            .addHeader(HttpHeaders.ACCEPT, "application/vnd.abiquo.virtualmachine+json").payload(payload).build();
+   }
+}
@@ -16,6 +16,9 @@
  */
 package org.jclouds.snia.cdmi.v1;
 
+import static org.jclouds.snia.cdmi.v1.config.CDMIProperties.WALK_PAGE_SIZE;
+import static org.jclouds.snia.cdmi.v1.config.CDMIProperties.WALK_PARALLELISM;
+
 import java.net.URI;
 import java.util.Properties;
 
@@ -45,6 +48,8 @@ public class CDMIApiMetadata extends BaseHttpApiMetadata {
 
    public static Properties defaultProperties() {
       Properties properties = BaseHttpApiMetadata.defaultProperties();
+      properties.setProperty(WALK_PAGE_SIZE, "1000");
+      properties.setProperty(WALK_PARALLELISM, "8");
       return properties;
    }
 
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.domain;
+
+import static com.google.common.base.Objects.equal;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A range of the children of a container, as returned for the {@code childrenrange} and
+ * {@code children:<from>-<to>} query parameters.
+ */
+public class ContainerChildren {
+
+   private final int childCount;
+   private final List<String> children;
+
+   public ContainerChildren(int childCount, List<String> children) {
+      checkArgument(childCount >= 0, "childCount must not be negative");
+      this.childCount = childCount;
+      this.children = ImmutableList.copyOf(checkNotNull(children, "children"));
+   }
+
+   /**
+    * Number of children covered by the returned {@code childrenrange}. When only the
+    * {@code childrenrange} field is requested this is the number of children of the container.
+    */
+   public int getChildCount() {
+      return childCount;
+   }
+
+   /**
+    * Names of the returned children. Child container objects end with "/".
+    */
+   public List<String> getChildren() {
+      return children;
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o)
+         return true;
+      if (o == null || getClass() != o.getClass())
+         return false;
+      ContainerChildren that = ContainerChildren.class.cast(o);
+      return childCount == that.childCount && equal(this.children, that.children);
+   }
+
+   @Override
+   public int hashCode() {
+      return Objects.hashCode(childCount, children);
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper(this).add("childCount", childCount).add("children", children).toString();
+   }
+}
@@ -34,10 +34,13 @@ import org.jclouds.rest.annotations.BinderParam;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.Headers;
 import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.ResponseParser;
 import org.jclouds.snia.cdmi.v1.binders.BindQueryParmsToSuffix;
 import org.jclouds.snia.cdmi.v1.domain.Container;
+import org.jclouds.snia.cdmi.v1.domain.ContainerChildren;
 import org.jclouds.snia.cdmi.v1.filters.BasicAuthenticationAndTenantId;
 import org.jclouds.snia.cdmi.v1.filters.StripExtraAcceptHeader;
+import org.jclouds.snia.cdmi.v1.functions.ParseContainerChildren;
 import org.jclouds.snia.cdmi.v1.options.CreateContainerOptions;
 import org.jclouds.snia.cdmi.v1.queryparams.ContainerQueryParams;
 
@@ -92,6 +95,31 @@ public interface ContainerApi extends Closeable {
    Container get(@PathParam("containerName") String containerName,
          @BinderParam(BindQueryParmsToSuffix.class) ContainerQueryParams queryParams);
 
+   /**
+    * get a range of the children of a CDMI Container
+    * 
+    * @param containerName
+    * @param queryParams
+    *           the children range and the childrenrange field to request
+    * @return the children, read from the response stream without parsing the rest of the container
+    * 
+    *         <pre>
+    * Examples: 
+    * {@code
+    * count = getChildren("myContainer/",ContainerQueryParams.Builder.field("childrenrange")).getChildCount()
+    * children = getChildren("myContainer/",ContainerQueryParams.Builder.children(0,999)).getChildren()
+    * }
+    * </pre>
+    * @see ContainerQueryParams
+    */
+   @GET
+   @Consumes({ CONTAINER, APPLICATION_JSON })
+   @Fallback(NullOnNotFoundOr404.class)
+   @Path("/{containerName}")
+   @ResponseParser(ParseContainerChildren.class)
+   ContainerChildren getChildren(@PathParam("containerName") String containerName,
+         @BinderParam(BindQueryParmsToSuffix.class) ContainerQueryParams queryParams);
+
    /**
     * Create CDMI Container
     * 
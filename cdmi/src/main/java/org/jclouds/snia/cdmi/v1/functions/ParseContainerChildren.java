@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.functions;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.jclouds.http.HttpUtils.releasePayload;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpResponse;
+import org.jclouds.snia.cdmi.v1.domain.ContainerChildren;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Reads the {@code childrenrange} and {@code children} fields of a container response straight
+ * from the payload stream, skipping every other field without building a tree for it.
+ */
+@Singleton
+public class ParseContainerChildren implements Function<HttpResponse, ContainerChildren> {
+
+   @Override
+   public ContainerChildren apply(HttpResponse response) {
+      if (response.getPayload() == null) {
+         return null;
+      }
+      JsonReader reader = null;
+      try {
+         reader = new JsonReader(new InputStreamReader(response.getPayload().openStream(), UTF_8));
+         String childrenRange = null;
+         List<String> children = Lists.newArrayList();
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("childrenrange".equals(name)) {
+               childrenRange = reader.nextString();
+            } else if ("children".equals(name)) {
+               reader.beginArray();
+               while (reader.hasNext()) {
+                  children.add(reader.nextString());
+               }
+               reader.endArray();
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+         return new ContainerChildren(childCount(childrenRange, children.size()), children);
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      } finally {
+         if (reader != null) {
+            try {
+               reader.close();
+            } catch (IOException ignored) {
+            }
+         }
+         releasePayload(response);
+      }
+   }
+
+   /**
+    * Converts a {@code <from>-<to>} range into a count. An empty container reports an empty range.
+    */
+   static int childCount(String childrenRange, int returned) {
+      if (childrenRange == null) {
+         return returned;
+      }
+      int separator = childrenRange.indexOf('-');
+      if (separator <= 0) {
+         return 0;
+      }
+      int from = Integer.parseInt(childrenRange.substring(0, separator).trim());
+      int to = Integer.parseInt(childrenRange.substring(separator + 1).trim());
+      return to - from + 1;
+   }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.strategy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import static org.jclouds.snia.cdmi.v1.config.CDMIProperties.WALK_PAGE_SIZE;
+import static org.jclouds.snia.cdmi.v1.config.CDMIProperties.WALK_PARALLELISM;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.snia.cdmi.v1.CDMIApi;
+import org.jclouds.snia.cdmi.v1.domain.ContainerChildren;
+import org.jclouds.snia.cdmi.v1.queryparams.ContainerQueryParams;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Walks a container tree by reading the children of every container in
+ * {@code children:<from>-<to>} ranges.
+ * <p>
+ * Each container is first asked for its {@code childrenrange}, then all of its ranges are requested
+ * independently. Ranges and sub containers share a single queue that is drained with at most
+ * {@link org.jclouds.snia.cdmi.v1.config.CDMIProperties#WALK_PARALLELISM} requests in flight, so
+ * neither a wide container nor a deep tree is fetched serially, and no more than one page of
+ * children per request is held in memory.
+ */
+@Singleton
+public class ContainerWalker {
+
+   /**
+    * Receives every object found during a walk. Invoked from several threads at once.
+    */
+   public interface Visitor {
+
+      /**
+       * @param path
+       *           the path of the object relative to the endpoint; container paths end with "/".
+       */
+      void visit(String path);
+   }
+
+   private static final Runnable DONE = new Runnable() {
+      @Override
+      public void run() {
+      }
+   };
+
+   private final CDMIApi api;
+   private final ListeningExecutorService userExecutor;
+   private final int pageSize;
+   private final int parallelism;
+
+   @Inject
+   ContainerWalker(CDMIApi api, @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named(WALK_PAGE_SIZE) int pageSize, @Named(WALK_PARALLELISM) int parallelism) {
+      checkArgument(pageSize > 0, "pageSize must be positive");
+      checkArgument(parallelism > 0, "parallelism must be positive");
+      this.api = checkNotNull(api, "api");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.pageSize = pageSize;
+      this.parallelism = parallelism;
+   }
+
+   /**
+    * Visits every object below the given container and returns once the whole tree has been read.
+    * 
+    * @param containerName
+    *           containerName must end with a forward slash, /.
+    */
+   public void walk(String containerName, Visitor visitor) {
+      checkArgument(checkNotNull(containerName, "containerName").endsWith("/"), "containerName must end with /");
+      new Walk(checkNotNull(visitor, "visitor")).run(containerName);
+   }
+
+   private final class Walk {
+
+      private final Visitor visitor;
+      private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
+      private final AtomicInteger pending = new AtomicInteger();
+      private final Semaphore permits = new Semaphore(parallelism);
+      private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+      Walk(Visitor visitor) {
+         this.visitor = visitor;
+      }
+
+      void run(String containerName) {
+         schedule(listRanges(containerName));
+         try {
+            while (true) {
+               Runnable task = queue.take();
+               if (task == DONE || failure.get() != null) {
+                  break;
+               }
+               permits.acquire();
+               try {
+                  userExecutor.execute(track(task));
+               } catch (RejectedExecutionException e) {
+                  // the task never ran, so it won't give its permit back
+                  permits.release();
+                  failure.compareAndSet(null, e);
+                  break;
+               }
+            }
+            // let the requests that are still running finish before returning
+            permits.acquire(parallelism);
+            permits.release(parallelism);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+         }
+         Throwable t = failure.get();
+         if (t != null) {
+            throw Throwables.propagate(t);
+         }
+      }
+
+      private void schedule(Runnable task) {
+         pending.incrementAndGet();
+         queue.add(task);
+      }
+
+      private Runnable track(final Runnable task) {
+         return new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  task.run();
+               } catch (Throwable t) {
+                  failure.compareAndSet(null, t);
+                  queue.add(DONE);
+               } finally {
+                  permits.release();
+                  if (pending.decrementAndGet() == 0) {
+                     queue.add(DONE);
+                  }
+               }
+            }
+         };
+      }
+
+      private Runnable listRanges(final String containerName) {
+         return new Runnable() {
+            @Override
+            public void run() {
+               ContainerChildren range = api.getContainerApi().getChildren(containerName,
+                     ContainerQueryParams.Builder.field("childrenrange"));
+               if (range == null) {
+                  // removed while walking
+                  return;
+               }
+               int count = range.getChildCount();
+               for (int from = 0; from < count; from += pageSize) {
+                  schedule(listChildren(containerName, from, Math.min(from + pageSize, count) - 1));
+               }
+            }
+         };
+      }
+
+      private Runnable listChildren(final String containerName, final int from, final int to) {
+         return new Runnable() {
+            @Override
+            public void run() {
+               ContainerChildren children = api.getContainerApi().getChildren(containerName,
+                     ContainerQueryParams.Builder.children(from, to));
+               if (children == null) {
+                  return;
+               }
+               for (String child : children.getChildren()) {
+                  String path = containerName + child;
+                  visitor.visit(path);
+                  if (child.endsWith("/")) {
+                     schedule(listRanges(path));
+                  }
+               }
+            }
+         };
+      }
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.strategy;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.io.BaseEncoding.base64;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.snia.cdmi.v1.CDMIApi;
+import org.jclouds.snia.cdmi.v1.internal.BaseCDMIApiExpectTest;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+@Test(groups = "unit", testName = "ContainerWalkerExpectTest")
+public class ContainerWalkerExpectTest extends BaseCDMIApiExpectTest {
+
+   private static HttpRequest get(String path) {
+      return HttpRequest
+               .builder()
+               .method("GET")
+               .endpoint("http://localhost:8080/" + path)
+               .headers(ImmutableMultimap.<String, String> builder().put("X-CDMI-Specification-Version", "1.0.1")
+                        .put("TID", "tenantId")
+                        .put("Authorization", "Basic " + base64().encode("username:password".getBytes(UTF_8)))
+                        .put("Accept", "application/cdmi-container").build()).build();
+   }
+
+   private static HttpResponse ok(String json) {
+      return HttpResponse.builder().statusCode(200).payload(payloadFromStringWithContentType(json, "application/cdmi-container")).build();
+   }
+
+   public void testWalkReadsEveryRangeAndSubContainer() {
+      CDMIApi api = requestsSendResponses(ImmutableMap.<HttpRequest, HttpResponse> builder()
+               .put(get("MyContainer/?childrenrange;"), ok("{\"childrenrange\":\"0-2\"}"))
+               .put(get("MyContainer/?children:0-1;"),
+                        ok("{\"objectName\":\"MyContainer/\",\"childrenrange\":\"0-1\",\"children\":[\"a.txt\",\"sub/\"]}"))
+               .put(get("MyContainer/?children:2-2;"), ok("{\"childrenrange\":\"2-2\",\"children\":[\"b.txt\"]}"))
+               .put(get("MyContainer/sub/?childrenrange;"), ok("{\"childrenrange\":\"0-0\"}"))
+               .put(get("MyContainer/sub/?children:0-0;"), ok("{\"children\":[\"c.txt\"],\"childrenrange\":\"0-0\"}"))
+               .build());
+
+      final Set<String> visited = Sets.newConcurrentHashSet();
+      new ContainerWalker(api, newDirectExecutorService(), 2, 2).walk("MyContainer/", new ContainerWalker.Visitor() {
+         @Override
+         public void visit(String path) {
+            visited.add(path);
+         }
+      });
+
+      assertEquals(visited, ImmutableSet.of("MyContainer/a.txt", "MyContainer/sub/", "MyContainer/b.txt",
+               "MyContainer/sub/c.txt"));
+   }
+
+   public void testWalkEmptyContainer() {
+      CDMIApi api = requestSendsResponse(get("MyContainer/?childrenrange;"), ok("{\"childrenrange\":\"\"}"));
+
+      final Set<String> visited = Sets.newConcurrentHashSet();
+      new ContainerWalker(api, newDirectExecutorService(), 2, 2).walk("MyContainer/", new ContainerWalker.Visitor() {
+         @Override
+         public void visit(String path) {
+            visited.add(path);
+         }
+      });
+
+      assertEquals(visited, ImmutableSet.of());
+   }
+
+   @Test(expectedExceptions = RejectedExecutionException.class, timeOut = 10000)
+   public void testWalkFailsWhenTheExecutorRejectsRequests() {
+      CDMIApi api = requestSendsResponse(get("MyContainer/?childrenrange;"), ok("{\"childrenrange\":\"\"}"));
+
+      ListeningExecutorService executor = newDirectExecutorService();
+      executor.shutdown();
+      new ContainerWalker(api, executor, 2, 1).walk("MyContainer/", new ContainerWalker.Visitor() {
+         @Override
+         public void visit(String path) {
+         }
+      });
+   }
+}
@@ -1013,6 +1013,16 @@ public interface CloudSigma2Api extends Closeable {
    @Path("/pricing/")
    Pricing getPricing();
 
+   /**
+    * Gets a page of the pricing information that are applicable to the cloud. A limit of 0 returns all the prices.
+    *
+    * @return pricing information that are applicable to the cloud.
+    */
+   @Named("pricing:getPricing")
+   @GET
+   @Path("/pricing/")
+   Pricing getPricing(PaginationOptions options);
+
    /**
     * Get discount information.
     *
@@ -17,6 +17,12 @@
 package org.jclouds.cloudsigma2;
 
 import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_DELETE_DRIVES;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_DRIVE_POOL_SIZE;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_PAGING_CONCURRENCY;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_PAGING_MAX_LIMIT;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_PAGING_TARGET_LATENCY;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_PRICING_TTL;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_STATS_HISTORY_SIZE;
 import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_VNC_PASSWORD;
 import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.TIMEOUT_DRIVE_CLONED;
 import static org.jclouds.compute.config.ComputeServiceProperties.TEMPLATE;
@@ -59,6 +65,12 @@ public class CloudSigma2ApiMetadata extends BaseHttpApiMetadata<CloudSigma2Api>
       properties.setProperty(PROPERTY_VNC_PASSWORD, "IL9vs34d");
       properties.setProperty(TIMEOUT_DRIVE_CLONED, "60000");
       properties.setProperty(PROPERTY_DELETE_DRIVES, "true");
+      properties.setProperty(PROPERTY_DRIVE_POOL_SIZE, "0");
+      properties.setProperty(PROPERTY_PAGING_CONCURRENCY, "4");
+      properties.setProperty(PROPERTY_PAGING_MAX_LIMIT, "500");
+      properties.setProperty(PROPERTY_PAGING_TARGET_LATENCY, "1000");
+      properties.setProperty(PROPERTY_STATS_HISTORY_SIZE, "60");
+      properties.setProperty(PROPERTY_PRICING_TTL, "3600");
       properties.setProperty(TEMPLATE, "imageNameMatches=Ubuntu.*[Cc]loud [Ii]mage.*,loginUser=ubuntu");
       return properties;
    }
@@ -16,17 +16,14 @@
  */
 package org.jclouds.cloudsigma2.binders;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-
 import org.jclouds.cloudsigma2.domain.CreateSubscriptionRequest;
 import org.jclouds.cloudsigma2.functions.CreateSubscriptionRequestToJson;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.rest.Binder;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import javax.ws.rs.core.MediaType;
 
 import java.util.List;
 
@@ -36,10 +33,13 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class BindCreateSubscriptionRequestList implements Binder {
 
    private final CreateSubscriptionRequestToJson subscriptionRequestJsonObjectFunction;
+   private final JsonPayloads jsonPayloads;
 
    @Inject
-   public BindCreateSubscriptionRequestList(CreateSubscriptionRequestToJson subscriptionRequestJsonObjectFunction) {
+   public BindCreateSubscriptionRequestList(CreateSubscriptionRequestToJson subscriptionRequestJsonObjectFunction,
+                                            JsonPayloads jsonPayloads) {
       this.subscriptionRequestJsonObjectFunction = subscriptionRequestJsonObjectFunction;
+      this.jsonPayloads = jsonPayloads;
    }
 
    @SuppressWarnings("unchecked")
@@ -52,18 +52,8 @@ public class BindCreateSubscriptionRequestList implements Binder {
                "this binder is only valid for List<CreateSubscriptionRequest>!");
       }
       List<CreateSubscriptionRequest> createSubscriptionRequests = (List<CreateSubscriptionRequest>) input;
-      JsonArray subscriptionsJsonArray = new JsonArray();
-
-      for (CreateSubscriptionRequest createSubscriptionRequest : createSubscriptionRequests) {
-         JsonObject sunbscriptionRequestObject = subscriptionRequestJsonObjectFunction.apply(createSubscriptionRequest);
-         subscriptionsJsonArray.add(sunbscriptionRequestObject);
-      }
-
-      JsonObject json = new JsonObject();
-      json.add("objects", subscriptionsJsonArray);
 
-      request.setPayload(json.toString());
-      request.getPayload().getContentMetadata().setContentType(MediaType.APPLICATION_JSON);
-      return request;
+      return jsonPayloads.bindObjectsToRequest(request, createSubscriptionRequests,
+            subscriptionRequestJsonObjectFunction);
    }
 }
@@ -16,17 +16,14 @@
  */
 package org.jclouds.cloudsigma2.binders;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-
 import org.jclouds.cloudsigma2.domain.DriveInfo;
 import org.jclouds.cloudsigma2.functions.DriveToJson;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.rest.Binder;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import javax.ws.rs.core.MediaType;
 
 import java.util.List;
 
@@ -35,10 +32,12 @@ import static com.google.common.base.Preconditions.checkArgument;
 @Singleton
 public class BindDrivesToJson implements Binder {
    private final DriveToJson createDriveRequestJson;
+   private final JsonPayloads jsonPayloads;
 
    @Inject
-   public BindDrivesToJson(DriveToJson createDriveRequestToMap) {
+   public BindDrivesToJson(DriveToJson createDriveRequestToMap, JsonPayloads jsonPayloads) {
       this.createDriveRequestJson = createDriveRequestToMap;
+      this.jsonPayloads = jsonPayloads;
    }
 
    @SuppressWarnings("unchecked")
@@ -50,18 +49,7 @@ public class BindDrivesToJson implements Binder {
          checkArgument(o instanceof DriveInfo, "this binder is only valid for List<DriveInfo>!");
       }
       List<DriveInfo> drivesList = (List<DriveInfo>) payload;
-      JsonArray drivesJsonArray = new JsonArray();
-
-      for (DriveInfo drive : drivesList) {
-         JsonObject driveObject = createDriveRequestJson.apply(drive);
-         drivesJsonArray.add(driveObject);
-      }
-
-      JsonObject json = new JsonObject();
-      json.add("objects", drivesJsonArray);
 
-      request.setPayload(json.toString());
-      request.getPayload().getContentMetadata().setContentType(MediaType.APPLICATION_JSON);
-      return request;
+      return jsonPayloads.bindObjectsToRequest(request, drivesList, createDriveRequestJson);
    }
 }
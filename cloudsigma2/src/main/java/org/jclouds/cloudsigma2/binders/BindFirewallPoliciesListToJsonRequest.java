@@ -16,16 +16,13 @@
  */
 package org.jclouds.cloudsigma2.binders;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-
 import org.jclouds.cloudsigma2.domain.FirewallPolicy;
 import org.jclouds.cloudsigma2.functions.FirewallPolicyToJson;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.rest.Binder;
 
 import javax.inject.Inject;
-import javax.ws.rs.core.MediaType;
 
 import java.util.List;
 
@@ -34,10 +31,13 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class BindFirewallPoliciesListToJsonRequest implements Binder {
 
    private final FirewallPolicyToJson policyJsonObjectFunction;
+   private final JsonPayloads jsonPayloads;
 
    @Inject
-   public BindFirewallPoliciesListToJsonRequest(FirewallPolicyToJson policyJsonObjectFunction) {
+   public BindFirewallPoliciesListToJsonRequest(FirewallPolicyToJson policyJsonObjectFunction,
+                                                JsonPayloads jsonPayloads) {
       this.policyJsonObjectFunction = policyJsonObjectFunction;
+      this.jsonPayloads = jsonPayloads;
    }
 
    @SuppressWarnings("unchecked")
@@ -49,18 +49,7 @@ public class BindFirewallPoliciesListToJsonRequest implements Binder {
          checkArgument(o instanceof FirewallPolicy, "this binder is only valid for List<FirewallPolicy>!");
       }
       List<FirewallPolicy> firewallPolicies = (List<FirewallPolicy>) input;
-      JsonArray firewalsJsonArray = new JsonArray();
-
-      for (FirewallPolicy firewallPolicy : firewallPolicies) {
-         JsonObject firewallObject = policyJsonObjectFunction.apply(firewallPolicy);
-         firewalsJsonArray.add(firewallObject);
-      }
-
-      JsonObject json = new JsonObject();
-      json.add("objects", firewalsJsonArray);
 
-      request.setPayload(json.toString());
-      request.getPayload().getContentMetadata().setContentType(MediaType.APPLICATION_JSON);
-      return request;
+      return jsonPayloads.bindObjectsToRequest(request, firewallPolicies, policyJsonObjectFunction);
    }
 }
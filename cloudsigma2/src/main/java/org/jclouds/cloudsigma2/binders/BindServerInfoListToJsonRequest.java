@@ -16,17 +16,13 @@
  */
 package org.jclouds.cloudsigma2.binders;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-
 import org.jclouds.cloudsigma2.domain.ServerInfo;
-import org.jclouds.cloudsigma2.functions.ServerInfoToJson;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.rest.Binder;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import javax.ws.rs.core.MediaType;
 
 import java.util.List;
 
@@ -34,11 +30,11 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 @Singleton
 public class BindServerInfoListToJsonRequest implements Binder {
-   private final ServerInfoToJson createServerInfoRequestToJson;
+   private final JsonPayloads jsonPayloads;
 
    @Inject
-   public BindServerInfoListToJsonRequest(ServerInfoToJson createServerInfoRequestToJson) {
-      this.createServerInfoRequestToJson = createServerInfoRequestToJson;
+   public BindServerInfoListToJsonRequest(JsonPayloads jsonPayloads) {
+      this.jsonPayloads = jsonPayloads;
    }
 
    @SuppressWarnings("unchecked")
@@ -50,18 +46,7 @@ public class BindServerInfoListToJsonRequest implements Binder {
          checkArgument(o instanceof ServerInfo, "this binder is only valid for List<ServerInfo>!");
       }
       Iterable<ServerInfo> serverInfoList = (Iterable<ServerInfo>) payload;
-      JsonArray serversJsonArray = new JsonArray();
-
-      for (ServerInfo serverInfo : serverInfoList) {
-         JsonObject driveObject = createServerInfoRequestToJson.apply(serverInfo);
-         serversJsonArray.add(driveObject);
-      }
-
-      JsonObject json = new JsonObject();
-      json.add("objects", serversJsonArray);
 
-      request.setPayload(json.toString());
-      request.getPayload().getContentMetadata().setContentType(MediaType.APPLICATION_JSON);
-      return request;
+      return jsonPayloads.bindObjectsToRequest(request, serverInfoList);
    }
 }
@@ -16,25 +16,23 @@
  */
 package org.jclouds.cloudsigma2.binders;
 
-import com.google.gson.JsonObject;
 import org.jclouds.cloudsigma2.domain.ServerInfo;
-import org.jclouds.cloudsigma2.functions.ServerInfoToJson;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.rest.Binder;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import javax.ws.rs.core.MediaType;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 @Singleton
 public class BindServerInfoToJsonRequest implements Binder {
-   private final ServerInfoToJson createServerInfoRequestToJson;
+   private final JsonPayloads jsonPayloads;
 
    @Inject
-   public BindServerInfoToJsonRequest(ServerInfoToJson createServerInfoRequestToJson) {
-      this.createServerInfoRequestToJson = createServerInfoRequestToJson;
+   public BindServerInfoToJsonRequest(JsonPayloads jsonPayloads) {
+      this.jsonPayloads = jsonPayloads;
    }
 
    @Override
@@ -42,9 +40,6 @@ public class BindServerInfoToJsonRequest implements Binder {
       checkArgument(input instanceof ServerInfo, "this binder is only valid for ServerInfo!");
       ServerInfo create = ServerInfo.class.cast(input);
 
-      JsonObject serverInfoJson = createServerInfoRequestToJson.apply(create);
-      request.setPayload(serverInfoJson.toString());
-      request.getPayload().getContentMetadata().setContentType(MediaType.APPLICATION_JSON);
-      return request;
+      return jsonPayloads.bindToRequest(request, create);
    }
 }
@@ -16,17 +16,14 @@
  */
 package org.jclouds.cloudsigma2.binders;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-
 import org.jclouds.cloudsigma2.domain.Tag;
 import org.jclouds.cloudsigma2.functions.TagToJson;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.rest.Binder;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import javax.ws.rs.core.MediaType;
 
 import java.util.List;
 
@@ -35,10 +32,12 @@ import static com.google.common.base.Preconditions.checkArgument;
 @Singleton
 public class BindTagListToJsonRequest implements Binder {
    private final TagToJson tagJsonObjectFunction;
+   private final JsonPayloads jsonPayloads;
 
    @Inject
-   public BindTagListToJsonRequest(TagToJson tagJsonObjectFunction) {
+   public BindTagListToJsonRequest(TagToJson tagJsonObjectFunction, JsonPayloads jsonPayloads) {
       this.tagJsonObjectFunction = tagJsonObjectFunction;
+      this.jsonPayloads = jsonPayloads;
    }
 
    @SuppressWarnings("unchecked")
@@ -50,18 +49,7 @@ public class BindTagListToJsonRequest implements Binder {
          checkArgument(o instanceof Tag, "this binder is only valid for List<Tag>!");
       }
       Iterable<Tag> tags = (Iterable<Tag>) payload;
-      JsonArray tagJsonArray = new JsonArray();
-
-      for (Tag tag : tags) {
-         JsonObject driveObject = tagJsonObjectFunction.apply(tag);
-         tagJsonArray.add(driveObject);
-      }
-
-      JsonObject json = new JsonObject();
-      json.add("objects", tagJsonArray);
 
-      request.setPayload(json.toString());
-      request.getPayload().getContentMetadata().setContentType(MediaType.APPLICATION_JSON);
-      return request;
+      return jsonPayloads.bindObjectsToRequest(request, tags, tagJsonObjectFunction);
    }
 }
@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.compute.internal;
+
+import com.google.common.base.Function;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+
+import org.jclouds.Constants;
+import org.jclouds.cloudsigma2.CloudSigma2Api;
+import org.jclouds.cloudsigma2.domain.AccountUsage;
+import org.jclouds.cloudsigma2.domain.BurstLevel;
+import org.jclouds.cloudsigma2.domain.CurrentUsage;
+import org.jclouds.cloudsigma2.domain.Discount;
+import org.jclouds.cloudsigma2.domain.PaginatedCollection;
+import org.jclouds.cloudsigma2.domain.Price;
+import org.jclouds.cloudsigma2.domain.Pricing;
+import org.jclouds.cloudsigma2.domain.SubscriptionResource;
+import org.jclouds.cloudsigma2.domain.Usage;
+import org.jclouds.cloudsigma2.functions.internal.ConcurrentPager;
+import org.jclouds.cloudsigma2.options.PaginationOptions;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Processor;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.Volume;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_PRICING_TTL;
+
+/**
+ * Estimates the cost of running servers, in memory.
+ * <p>
+ * The pricing, the discounts and the subscribed capacity of the account are loaded once and then reloaded in the
+ * background every {@code jclouds.cloudsigma.pricing.ttl} seconds, so the estimates never wait for the API once the
+ * first load has completed.
+ * <p>
+ * Running costs are marginal: the CPU, memory and disk that fit in the subscribed capacity the account is not using
+ * are free, and the rest is billed at the burst price of the current burst level. All prices are in the currency of
+ * the account balance.
+ */
+@Singleton
+public class CostEstimator {
+
+   private static final String PRICES = "prices";
+   private static final double SECONDS_PER_HOUR = 3600;
+   private static final double BYTES_PER_MB = 1024 * 1024;
+   private static final double BYTES_PER_GB = 1024 * 1024 * 1024;
+   private static final List<SubscriptionResource> METERED = ImmutableList.of(SubscriptionResource.CPU,
+         SubscriptionResource.MEM, SubscriptionResource.DSSD);
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final CloudSigma2Api api;
+   private final ConcurrentPager pager;
+   private final ListeningExecutorService userExecutor;
+   private final LoadingCache<String, Prices> prices;
+
+   @Inject
+   CostEstimator(CloudSigma2Api api, ConcurrentPager pager,
+                 @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+                 @Named(PROPERTY_PRICING_TTL) long ttlSeconds) {
+      checkArgument(ttlSeconds > 0, "ttl must be positive");
+      this.api = checkNotNull(api, "api");
+      this.pager = checkNotNull(pager, "pager");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.prices = CacheBuilder.newBuilder().refreshAfterWrite(ttlSeconds, SECONDS)
+            .build(new CacheLoader<String, Prices>() {
+               @Override
+               public Prices load(String key) {
+                  return loadPrices();
+               }
+
+               @Override
+               public ListenableFuture<Prices> reload(String key, Prices oldValue) {
+                  // Keep answering with the old prices while the new ones are loaded
+                  return CostEstimator.this.userExecutor.submit(new Callable<Prices>() {
+                     @Override
+                     public Prices call() {
+                        return loadPrices();
+                     }
+                  });
+               }
+            });
+   }
+
+   /**
+    * @return the currency of the estimates
+    */
+   public String getCurrency() {
+      return prices().currency;
+   }
+
+   /**
+    * @return the cost per hour of running a server with the hardware of the template
+    */
+   public double costPerHour(Template template) {
+      return costPerHour(checkNotNull(template, "template").getHardware());
+   }
+
+   /**
+    * @return the cost per hour of running a server with the given hardware
+    */
+   public double costPerHour(Hardware hardware) {
+      return prices().burstCostPerHour(amounts(hardware));
+   }
+
+   /**
+    * @param period a subscription period, as listed by the discounts, such as "1 year"
+    * @return the cost per hour of subscribing to the capacity of the given hardware for the given period
+    */
+   public double subscriptionCostPerHour(Hardware hardware, String period) {
+      return prices().subscriptionCostPerHour(amounts(hardware), checkNotNull(period, "period"));
+   }
+
+   /**
+    * @return the candidates, cheapest to run first. Candidates with the same cost keep their order.
+    */
+   public List<Hardware> rankByCost(Iterable<? extends Hardware> candidates) {
+      // Use the same prices for all the candidates, even if they are reloaded meanwhile
+      Prices current = prices();
+      List<Costed> costed = Lists.newArrayList();
+      for (Hardware hardware : candidates) {
+         costed.add(new Costed(hardware, current.burstCostPerHour(amounts(hardware))));
+      }
+      Collections.sort(costed, new Comparator<Costed>() {
+         @Override
+         public int compare(Costed left, Costed right) {
+            return Double.compare(left.cost, right.cost);
+         }
+      });
+      ImmutableList.Builder<Hardware> ranked = ImmutableList.builder();
+      for (Costed candidate : costed) {
+         ranked.add(candidate.hardware);
+      }
+      return ranked.build();
+   }
+
+   /**
+    * Starts loading the prices again in the background.
+    */
+   public void refresh() {
+      prices.refresh(PRICES);
+   }
+
+   private Prices prices() {
+      try {
+         return prices.getUnchecked(PRICES);
+      } catch (UncheckedExecutionException e) {
+         throw propagate(e.getCause());
+      }
+   }
+
+   private Prices loadPrices() {
+      logger.debug(">> loading pricing information");
+      Pricing pricing = api.getPricing(new PaginationOptions.Builder().limit(0).build());
+      CurrentUsage usage = api.getCurrentUsage();
+      List<Discount> discounts = pager.list("discounts",
+            new Function<PaginationOptions, PaginatedCollection<Discount>>() {
+               @Override
+               public PaginatedCollection<Discount> apply(PaginationOptions input) {
+                  return api.listDiscounts(input);
+               }
+            });
+
+      String currency = usage.getBalance() != null && usage.getBalance().getCurrency() != null
+            ? usage.getBalance().getCurrency() : "USD";
+      Map<SubscriptionResource, Double> burstRates = Maps.newEnumMap(SubscriptionResource.class);
+      Map<SubscriptionResource, Double> subscriptionRates = Maps.newEnumMap(SubscriptionResource.class);
+      Map<SubscriptionResource, Double> free = Maps.newEnumMap(SubscriptionResource.class);
+      for (SubscriptionResource resource : METERED) {
+         Double subscriptionRate = hourlyRate(pricing, resource, currency, 0);
+         Double burstRate = hourlyRate(pricing, resource, currency, currentLevel(pricing.getCurrent(), resource));
+         if (burstRate == null) {
+            logger.debug("<< no burst price for %s in %s, using the subscription price", resource, currency);
+            burstRate = subscriptionRate;
+         }
+         subscriptionRates.put(resource, subscriptionRate == null ? 0 : subscriptionRate);
+         burstRates.put(resource, burstRate == null ? 0 : burstRate);
+         free.put(resource, unusedSubscribed(usage.getUsage(), resource));
+      }
+
+      Map<String, Double> discountsByPeriod = Maps.newHashMap();
+      for (Discount discount : discounts) {
+         if (discount.getPeriod() != null && discount.getValue() != null) {
+            discountsByPeriod.put(discount.getPeriod(), discount.getValue());
+         }
+      }
+      logger.debug("<< loaded pricing information in %s", currency);
+      return new Prices(currency, burstRates, subscriptionRates, free, ImmutableMap.copyOf(discountsByPeriod));
+   }
+
+   /**
+    * The API prices resources per unit and month, and the multiplier turns the price into the price per second of
+    * the unit the resource is measured in: MHz for the CPU and bytes for the memory and the disks.
+    */
+   private static Double hourlyRate(Pricing pricing, SubscriptionResource resource, String currency, int level) {
+      for (Price price : pricing.getPriceList()) {
+         if (price.getResource() == resource && currency.equals(price.getCurrency()) && price.getLevel() != null
+               && price.getLevel() == level && price.getMultiplier() != null
+               && price.getMultiplier().signum() > 0) {
+            return price.getPrice() * SECONDS_PER_HOUR / price.getMultiplier().doubleValue();
+         }
+      }
+      return null;
+   }
+
+   private static int currentLevel(BurstLevel current, SubscriptionResource resource) {
+      if (current == null) {
+         return 0;
+      }
+      switch (resource) {
+         case CPU:
+            return current.getCpu();
+         case MEM:
+            return current.getMem();
+         case DSSD:
+            return current.getDssd();
+         default:
+            return 0;
+      }
+   }
+
+   private static double unusedSubscribed(AccountUsage usage, SubscriptionResource resource) {
+      Usage resourceUsage = null;
+      if (usage != null) {
+         switch (resource) {
+            case CPU:
+               resourceUsage = usage.getCpu();
+               break;
+            case MEM:
+               resourceUsage = usage.getMem();
+               break;
+            case DSSD:
+               resourceUsage = usage.getDssd();
+               break;
+            default:
+               break;
+         }
+      }
+      if (resourceUsage == null || resourceUsage.getSubscribed() == null) {
+         return 0;
+      }
+      BigInteger using = resourceUsage.getUsing() == null ? BigInteger.ZERO : resourceUsage.getUsing();
+      return Math.max(0, resourceUsage.getSubscribed().subtract(using).doubleValue());
+   }
+
+   private static Map<SubscriptionResource, Double> amounts(Hardware hardware) {
+      checkNotNull(hardware, "hardware");
+      double cpu = 0;
+      for (Processor processor : hardware.getProcessors()) {
+         cpu += processor.getCores() * processor.getSpeed();
+      }
+      double disk = 0;
+      for (Volume volume : hardware.getVolumes()) {
+         if (volume.getSize() != null) {
+            disk += volume.getSize() * BYTES_PER_GB;
+         }
+      }
+      Map<SubscriptionResource, Double> amounts = Maps.newEnumMap(SubscriptionResource.class);
+      amounts.put(SubscriptionResource.CPU, cpu);
+      amounts.put(SubscriptionResource.MEM, hardware.getRam() * BYTES_PER_MB);
+      amounts.put(SubscriptionResource.DSSD, disk);
+      return amounts;
+   }
+
+   private static final class Prices {
+      private final String currency;
+      private final Map<SubscriptionResource, Double> burstRates;
+      private final Map<SubscriptionResource, Double> subscriptionRates;
+      private final Map<SubscriptionResource, Double> free;
+      private final Map<String, Double> discounts;
+
+      Prices(String currency, Map<SubscriptionResource, Double> burstRates,
+             Map<SubscriptionResource, Double> subscriptionRates, Map<SubscriptionResource, Double> free,
+             Map<String, Double> discounts) {
+         this.currency = currency;
+         this.burstRates = burstRates;
+         this.subscriptionRates = subscriptionRates;
+         this.free = free;
+         this.discounts = discounts;
+      }
+
+      double burstCostPerHour(Map<SubscriptionResource, Double> amounts) {
+         double cost = 0;
+         for (Map.Entry<SubscriptionResource, Double> amount : amounts.entrySet()) {
+            double billed = Math.max(0, amount.getValue() - free.get(amount.getKey()));
+            cost += billed * burstRates.get(amount.getKey());
+         }
+         return cost;
+      }
+
+      double subscriptionCostPerHour(Map<SubscriptionResource, Double> amounts, String period) {
+         double cost = 0;
+         for (Map.Entry<SubscriptionResource, Double> amount : amounts.entrySet()) {
+            cost += amount.getValue() * subscriptionRates.get(amount.getKey());
+         }
+         Double discount = discounts.get(period);
+         return discount == null ? cost : cost * (1 - discount);
+      }
+   }
+
+   private static final class Costed {
+      private final Hardware hardware;
+      private final double cost;
+
+      Costed(Hardware hardware, double cost) {
+         this.hardware = hardware;
+         this.cost = cost;
+      }
+   }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.compute.internal;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+
+import org.jclouds.Constants;
+import org.jclouds.cloudsigma2.CloudSigma2Api;
+import org.jclouds.cloudsigma2.domain.DriveInfo;
+import org.jclouds.cloudsigma2.domain.DriveStatus;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_DRIVE_POOL_SIZE;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.TIMEOUT_DRIVE_CLONED;
+
+/**
+ * Keeps clones of library drives ready to be attached to new servers.
+ * <p>
+ * Once a library drive has been used to create a node, {@code jclouds.cloudsigma.drive-pool.size} clones of it are
+ * kept ready: every clone taken from the pool is replaced by a new one, cloned on the user executor. The drives still
+ * in the pool are deleted when the context is closed.
+ */
+@Singleton
+public class DrivePool {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final CloudSigma2Api api;
+   private final ListeningExecutorService userExecutor;
+   private final Predicate<DriveInfo> driveCloned;
+   private final int size;
+   private final ConcurrentMap<String, Clones> pools = new ConcurrentHashMap<String, Clones>();
+   private volatile boolean closed;
+
+   @Inject
+   DrivePool(CloudSigma2Api api, @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+             @Named(TIMEOUT_DRIVE_CLONED) Predicate<DriveInfo> driveCloned, @Named(PROPERTY_DRIVE_POOL_SIZE) int size) {
+      checkArgument(size >= 0, "size must not be negative");
+      this.api = checkNotNull(api, "api");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.driveCloned = checkNotNull(driveCloned, "driveCloned");
+      this.size = size;
+   }
+
+   /**
+    * Takes a ready clone of the library drive out of the pool, and starts cloning its replacement.
+    *
+    * @return the cloned drive, or absent if there is no ready clone of the library drive
+    */
+   public Optional<DriveInfo> take(String libraryDriveUuid) {
+      Clones clones = pools.get(libraryDriveUuid);
+      if (clones == null || closed) {
+         return Optional.absent();
+      }
+      try {
+         for (DriveInfo drive = clones.ready.poll(); drive != null; drive = clones.ready.poll()) {
+            // Make sure the drive has not been removed or attached since it was cloned
+            DriveInfo current = api.getDriveInfo(drive.getUuid());
+            if (current != null && current.getStatus() == DriveStatus.UNMOUNTED) {
+               logger.debug(">> using pooled clone %s of library drive %s", current.getUuid(), libraryDriveUuid);
+               return Optional.of(current);
+            }
+            logger.debug(">> discarding pooled clone %s of library drive %s", drive.getUuid(), libraryDriveUuid);
+         }
+         return Optional.absent();
+      } finally {
+         refill(libraryDriveUuid, clones);
+      }
+   }
+
+   /**
+    * Starts keeping clones of the library drive ready, if the pool is enabled.
+    */
+   public void warm(String libraryDriveUuid) {
+      if (size == 0 || closed) {
+         return;
+      }
+      Clones clones = pools.get(libraryDriveUuid);
+      if (clones == null) {
+         Clones created = new Clones();
+         clones = pools.putIfAbsent(libraryDriveUuid, created);
+         if (clones == null) {
+            clones = created;
+         }
+      }
+      refill(libraryDriveUuid, clones);
+   }
+
+   /**
+    * The number of clones of the library drive ready to be taken.
+    */
+   public int available(String libraryDriveUuid) {
+      Clones clones = pools.get(libraryDriveUuid);
+      return clones == null ? 0 : clones.ready.size();
+   }
+
+   @PreDestroy
+   public void close() {
+      closed = true;
+      ImmutableList.Builder<String> uuids = ImmutableList.builder();
+      for (Clones clones : pools.values()) {
+         for (DriveInfo drive = clones.ready.poll(); drive != null; drive = clones.ready.poll()) {
+            uuids.add(drive.getUuid());
+         }
+      }
+      deleteDrives(uuids.build());
+   }
+
+   private void refill(final String libraryDriveUuid, final Clones clones) {
+      int missing = size - clones.ready.size() - clones.cloning.get();
+      for (int i = 0; i < missing && !closed; i++) {
+         clones.cloning.incrementAndGet();
+         try {
+            userExecutor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     DriveInfo drive = cloneDrive(libraryDriveUuid);
+                     if (drive != null) {
+                        clones.ready.offer(drive);
+                        if (closed && clones.ready.remove(drive)) {
+                           deleteDrives(ImmutableList.of(drive.getUuid()));
+                        }
+                     }
+                  } catch (RuntimeException e) {
+                     logger.warn(e, ">> could not clone library drive %s for the pool", libraryDriveUuid);
+                  } finally {
+                     clones.cloning.decrementAndGet();
+                  }
+               }
+            });
+         } catch (RejectedExecutionException e) {
+            clones.cloning.decrementAndGet();
+            return;
+         }
+      }
+   }
+
+   private DriveInfo cloneDrive(String libraryDriveUuid) {
+      logger.debug(">> cloning library drive %s for the pool...", libraryDriveUuid);
+      DriveInfo drive = api.cloneLibraryDrive(libraryDriveUuid, null);
+      driveCloned.apply(drive);
+
+      // Refresh the drive object and verify the clone operation didn't time out
+      drive = api.getDriveInfo(drive.getUuid());
+      if (drive == null) {
+         return null;
+      }
+      if (drive.getStatus() != DriveStatus.UNMOUNTED) {
+         logger.warn(">> pooled clone %s is in invalid status: %s", drive.getUuid(), drive.getStatus());
+         deleteDrives(ImmutableList.of(drive.getUuid()));
+         return null;
+      }
+      logger.debug(">> drive cloned for the pool (%s)...", drive);
+      return drive;
+   }
+
+   private void deleteDrives(List<String> uuids) {
+      if (uuids.isEmpty()) {
+         return;
+      }
+      try {
+         api.deleteDrives(uuids);
+      } catch (Exception ex) {
+         logger.warn(ex, ">> could not delete pooled drives: [%s]", Joiner.on(',').join(uuids));
+      }
+   }
+
+   private static class Clones {
+      private final Queue<DriveInfo> ready = new ConcurrentLinkedQueue<DriveInfo>();
+      private final AtomicInteger cloning = new AtomicInteger();
+   }
+}
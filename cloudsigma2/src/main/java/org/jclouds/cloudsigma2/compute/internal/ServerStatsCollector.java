@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.compute.internal;
+
+import com.google.common.base.Function;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
+import com.google.inject.Inject;
+
+import org.jclouds.Constants;
+import org.jclouds.cloudsigma2.CloudSigma2Api;
+import org.jclouds.cloudsigma2.domain.IOStats;
+import org.jclouds.cloudsigma2.domain.NICStats;
+import org.jclouds.cloudsigma2.domain.PaginatedCollection;
+import org.jclouds.cloudsigma2.domain.ServerInfo;
+import org.jclouds.cloudsigma2.domain.ServerRuntime;
+import org.jclouds.cloudsigma2.functions.internal.ConcurrentPager;
+import org.jclouds.cloudsigma2.options.PaginationOptions;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_STATS_HISTORY_SIZE;
+
+/**
+ * Samples the network traffic of all the servers of the account.
+ * <p>
+ * Every collection lists the detailed information of all the servers at once and turns the difference between the
+ * NIC counters of two successive listings into per-second rates. Counters of a server that has been restarted, because
+ * its start time has changed or the counters went backwards, are counted from zero. The last
+ * {@code jclouds.cloudsigma.stats.history-size} samples are kept for each server, and servers that are no longer listed
+ * are forgotten.
+ */
+@Singleton
+public class ServerStatsCollector {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final CloudSigma2Api api;
+   private final ConcurrentPager pager;
+   private final ScheduledExecutorService scheduler;
+   private final int historySize;
+   private final Ticker ticker;
+   private final ConcurrentMap<String, History> histories = new ConcurrentHashMap<String, History>();
+   private ScheduledFuture<?> collecting;
+
+   @Inject
+   ServerStatsCollector(CloudSigma2Api api, ConcurrentPager pager,
+                        @Named(Constants.PROPERTY_SCHEDULER_THREADS) ScheduledExecutorService scheduler,
+                        @Named(PROPERTY_STATS_HISTORY_SIZE) int historySize) {
+      this(api, pager, scheduler, historySize, Ticker.systemTicker());
+   }
+
+   ServerStatsCollector(CloudSigma2Api api, ConcurrentPager pager, ScheduledExecutorService scheduler,
+                        int historySize, Ticker ticker) {
+      checkArgument(historySize > 0, "historySize must be positive");
+      this.api = checkNotNull(api, "api");
+      this.pager = checkNotNull(pager, "pager");
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      this.historySize = historySize;
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   /**
+    * Starts collecting the statistics in the background, once per period.
+    */
+   public synchronized void start(long period, TimeUnit unit) {
+      checkArgument(period > 0, "period must be positive");
+      checkState(collecting == null, "the statistics are already being collected");
+      collecting = scheduler.scheduleAtFixedRate(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               collect();
+            } catch (RuntimeException e) {
+               // Keep collecting: a failed listing only leaves a longer interval for the next sample
+               logger.warn(e, "<< error collecting server statistics");
+            }
+         }
+      }, 0, period, unit);
+   }
+
+   /**
+    * Stops collecting the statistics in the background. The samples already taken are kept.
+    */
+   @PreDestroy
+   public synchronized void stop() {
+      if (collecting != null) {
+         collecting.cancel(false);
+         collecting = null;
+      }
+   }
+
+   /**
+    * Lists all the servers and takes a sample of the traffic of the ones that have been running since the previous
+    * collection.
+    */
+   public void collect() {
+      List<ServerInfo> servers = pager.list("servers/detail",
+            new Function<PaginationOptions, PaginatedCollection<ServerInfo>>() {
+               @Override
+               public PaginatedCollection<ServerInfo> apply(PaginationOptions input) {
+                  return api.listServersInfo(input);
+               }
+            });
+      record(servers, ticker.read());
+   }
+
+   /**
+    * The samples of the server, oldest first.
+    */
+   public List<Sample> history(String serverUuid) {
+      History history = histories.get(serverUuid);
+      return history == null ? ImmutableList.<Sample>of() : history.samples();
+   }
+
+   /**
+    * The uuids of the servers seen by the last collection.
+    */
+   public Set<String> servers() {
+      return ImmutableSet.copyOf(histories.keySet());
+   }
+
+   void record(Iterable<ServerInfo> servers, long nanos) {
+      Set<String> listed = Sets.newHashSet();
+      for (ServerInfo server : servers) {
+         listed.add(server.getUuid());
+         History history = histories.get(server.getUuid());
+         if (history == null) {
+            History created = new History();
+            history = histories.putIfAbsent(server.getUuid(), created);
+            if (history == null) {
+               history = created;
+            }
+         }
+         history.record(server.getRuntime(), nanos);
+      }
+      histories.keySet().retainAll(listed);
+   }
+
+   private final class History {
+      private final Deque<Sample> samples = new ArrayDeque<Sample>();
+      private Map<String, Counters> counters = ImmutableMap.of();
+      private Date activeSince;
+      private long nanos;
+
+      synchronized void record(ServerRuntime runtime, long now) {
+         Map<String, Counters> current = counters(runtime);
+         Date currentActiveSince = runtime == null ? null : runtime.getActiveSince();
+         // A server started again since the previous collection has counters that start from zero, even when they
+         // have already grown past the previous values
+         boolean restarted = activeSince != null && currentActiveSince != null
+               && !activeSince.equals(currentActiveSince);
+         long elapsed = now - nanos;
+         if (elapsed > 0) {
+            Counters traffic = null;
+            for (Map.Entry<String, Counters> nic : current.entrySet()) {
+               Counters previous = counters.get(nic.getKey());
+               if (previous != null) {
+                  Counters delta = restarted ? nic.getValue() : nic.getValue().since(previous);
+                  traffic = traffic == null ? delta : traffic.plus(delta);
+               }
+            }
+            // Servers that were not running in the previous collection have nothing to compare with yet
+            if (traffic != null) {
+               if (samples.size() == historySize) {
+                  samples.removeFirst();
+               }
+               samples.addLast(new Sample(new Date(), traffic, elapsed));
+            }
+         }
+         counters = current;
+         activeSince = currentActiveSince;
+         nanos = now;
+      }
+
+      synchronized List<Sample> samples() {
+         return ImmutableList.copyOf(samples);
+      }
+   }
+
+   private static Map<String, Counters> counters(ServerRuntime runtime) {
+      if (runtime == null || runtime.getNicStats() == null) {
+         return ImmutableMap.of();
+      }
+      ImmutableMap.Builder<String, Counters> counters = ImmutableMap.builder();
+      int index = 0;
+      for (NICStats nic : runtime.getNicStats()) {
+         IOStats io = nic.getIoStats();
+         if (io != null) {
+            counters.put(nic.getMac() != null ? nic.getMac() : "nic-" + index, new Counters(
+                  parse(io.getBytesReceived()), parse(io.getBytesSent()),
+                  parse(io.getPacketsReceived()), parse(io.getPacketsSent())));
+         }
+         index++;
+      }
+      return counters.build();
+   }
+
+   private static long parse(String counter) {
+      Long value = counter == null ? null : Longs.tryParse(counter.trim());
+      return value == null ? 0 : value;
+   }
+
+   private static final class Counters {
+      private final long bytesReceived;
+      private final long bytesSent;
+      private final long packetsReceived;
+      private final long packetsSent;
+
+      Counters(long bytesReceived, long bytesSent, long packetsReceived, long packetsSent) {
+         this.bytesReceived = bytesReceived;
+         this.bytesSent = bytesSent;
+         this.packetsReceived = packetsReceived;
+         this.packetsSent = packetsSent;
+      }
+
+      Counters since(Counters previous) {
+         return new Counters(delta(bytesReceived, previous.bytesReceived), delta(bytesSent, previous.bytesSent),
+               delta(packetsReceived, previous.packetsReceived), delta(packetsSent, previous.packetsSent));
+      }
+
+      Counters plus(Counters other) {
+         return new Counters(bytesReceived + other.bytesReceived, bytesSent + other.bytesSent,
+               packetsReceived + other.packetsReceived, packetsSent + other.packetsSent);
+      }
+
+      private static long delta(long current, long previous) {
+         // A counter lower than before has been reset, and counts from zero
+         return current >= previous ? current - previous : current;
+      }
+   }
+
+   /**
+    * The traffic of all the NICs of a server between two collections.
+    */
+   public static final class Sample {
+      private final Date timestamp;
+      private final long intervalMillis;
+      private final double bytesReceivedPerSecond;
+      private final double bytesSentPerSecond;
+      private final double packetsReceivedPerSecond;
+      private final double packetsSentPerSecond;
+
+      private Sample(Date timestamp, Counters traffic, long elapsedNanos) {
+         double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+         this.timestamp = timestamp;
+         this.intervalMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+         this.bytesReceivedPerSecond = traffic.bytesReceived / seconds;
+         this.bytesSentPerSecond = traffic.bytesSent / seconds;
+         this.packetsReceivedPerSecond = traffic.packetsReceived / seconds;
+         this.packetsSentPerSecond = traffic.packetsSent / seconds;
+      }
+
+      /**
+       * @return when the sample was taken
+       */
+      public Date getTimestamp() {
+         return timestamp;
+      }
+
+      /**
+       * @return the time since the previous sample, in milliseconds
+       */
+      public long getIntervalMillis() {
+         return intervalMillis;
+      }
+
+      public double getBytesReceivedPerSecond() {
+         return bytesReceivedPerSecond;
+      }
+
+      public double getBytesSentPerSecond() {
+         return bytesSentPerSecond;
+      }
+
+      public double getPacketsReceivedPerSecond() {
+         return packetsReceivedPerSecond;
+      }
+
+      public double getPacketsSentPerSecond() {
+         return packetsSentPerSecond;
+      }
+
+      @Override
+      public String toString() {
+         return "[timestamp=" + timestamp + ", intervalMillis=" + intervalMillis
+               + ", bytesReceivedPerSecond=" + bytesReceivedPerSecond + ", bytesSentPerSecond=" + bytesSentPerSecond
+               + ", packetsReceivedPerSecond=" + packetsReceivedPerSecond
+               + ", packetsSentPerSecond=" + packetsSentPerSecond + "]";
+      }
+   }
+}
@@ -31,6 +31,7 @@ import com.google.inject.Inject;
 
 import org.jclouds.Constants;
 import org.jclouds.cloudsigma2.CloudSigma2Api;
+import org.jclouds.cloudsigma2.compute.internal.DrivePool;
 import org.jclouds.cloudsigma2.compute.options.CloudSigma2TemplateOptions;
 import org.jclouds.cloudsigma2.domain.DriveInfo;
 import org.jclouds.cloudsigma2.domain.DriveStatus;
@@ -44,11 +45,14 @@ import org.jclouds.cloudsigma2.domain.IPConfigurationType;
 import org.jclouds.cloudsigma2.domain.LibraryDrive;
 import org.jclouds.cloudsigma2.domain.MediaType;
 import org.jclouds.cloudsigma2.domain.NIC;
+import org.jclouds.cloudsigma2.domain.PaginatedCollection;
 import org.jclouds.cloudsigma2.domain.ServerDrive;
 import org.jclouds.cloudsigma2.domain.ServerInfo;
 import org.jclouds.cloudsigma2.domain.ServerStatus;
 import org.jclouds.cloudsigma2.domain.Tag;
 import org.jclouds.cloudsigma2.domain.VLANInfo;
+import org.jclouds.cloudsigma2.functions.internal.ConcurrentPager;
+import org.jclouds.cloudsigma2.options.PaginationOptions;
 import org.jclouds.compute.ComputeServiceAdapter;
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.HardwareBuilder;
@@ -101,6 +105,8 @@ public class CloudSigma2ComputeServiceAdapter implements
    private final Predicate<String> serverStopped;
    private final boolean destroyDrives;
    private final GroupNamingConvention groupNamingConvention;
+   private final DrivePool drivePool;
+   private final ConcurrentPager pager;
 
    @Inject
    public CloudSigma2ComputeServiceAdapter(CloudSigma2Api api,
@@ -110,7 +116,8 @@ public class CloudSigma2ComputeServiceAdapter implements
                                            @Named(TIMEOUT_DRIVE_CLONED) Predicate<DriveInfo> driveCloned,
                                            @Named(TIMEOUT_NODE_SUSPENDED) Predicate<String> serverStopped,
                                            @Named(PROPERTY_DELETE_DRIVES) boolean destroyDrives,
-                                           GroupNamingConvention.Factory groupNamingConvention) {
+                                           GroupNamingConvention.Factory groupNamingConvention,
+                                           DrivePool drivePool, ConcurrentPager pager) {
       this.api = checkNotNull(api, "api");
       this.userExecutor = checkNotNull(userExecutor, "userExecutor");
       this.defaultVncPassword = checkNotNull(defaultVncPassword, "defaultVncPassword");
@@ -118,6 +125,8 @@ public class CloudSigma2ComputeServiceAdapter implements
       this.serverStopped = checkNotNull(serverStopped, "serverStopped");
       this.destroyDrives = destroyDrives;
       this.groupNamingConvention = checkNotNull(groupNamingConvention, "groupNamingConvention").create();
+      this.drivePool = checkNotNull(drivePool, "drivePool");
+      this.pager = checkNotNull(pager, "pager");
    }
 
    @Override
@@ -127,9 +136,12 @@ public class CloudSigma2ComputeServiceAdapter implements
       Image image = template.getImage();
       Hardware hardware = template.getHardware();
 
-      DriveInfo drive = api.getLibraryDrive(image.getProviderId());
+      // Only clones of disk drives are pooled, and they are ready to be attached
+      Optional<DriveInfo> pooledDrive = drivePool.take(image.getProviderId());
+      DriveInfo drive = pooledDrive.isPresent() ? pooledDrive.get() : api.getLibraryDrive(image.getProviderId());
 
-      if (!drive.getMedia().equals(MediaType.CDROM)) {
+      if (!pooledDrive.isPresent() && !drive.getMedia().equals(MediaType.CDROM)) {
+         drivePool.warm(image.getProviderId());
          logger.debug(">> cloning library drive %s...", image.getProviderId());
 
          drive = api.cloneLibraryDrive(image.getProviderId(), null);
@@ -244,7 +256,12 @@ public class CloudSigma2ComputeServiceAdapter implements
 
    @Override
    public Iterable<LibraryDrive> listImages() {
-      return api.listLibraryDrives().concat();
+      return pager.list("libdrives", new Function<PaginationOptions, PaginatedCollection<LibraryDrive>>() {
+         @Override
+         public PaginatedCollection<LibraryDrive> apply(PaginationOptions input) {
+            return api.listLibraryDrives(input);
+         }
+      });
    }
 
    @Override
@@ -309,7 +326,12 @@ public class CloudSigma2ComputeServiceAdapter implements
 
    @Override
    public Iterable<ServerInfo> listNodes() {
-      return api.listServersInfo().concat();
+      return pager.list("servers/detail", new Function<PaginationOptions, PaginatedCollection<ServerInfo>>() {
+         @Override
+         public PaginatedCollection<ServerInfo> apply(PaginationOptions input) {
+            return api.listServersInfo(input);
+         }
+      });
    }
 
    @Override
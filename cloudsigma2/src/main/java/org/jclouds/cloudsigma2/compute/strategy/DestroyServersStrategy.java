@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.compute.strategy;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+
+import org.jclouds.Constants;
+import org.jclouds.cloudsigma2.CloudSigma2Api;
+import org.jclouds.cloudsigma2.domain.ServerDrive;
+import org.jclouds.cloudsigma2.domain.ServerInfo;
+import org.jclouds.cloudsigma2.domain.ServerStatus;
+import org.jclouds.cloudsigma2.domain.Tag;
+import org.jclouds.cloudsigma2.domain.TagResource;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.compute.reference.ComputeServiceConstants.PollPeriod;
+import org.jclouds.compute.reference.ComputeServiceConstants.Timeouts;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static com.google.common.util.concurrent.Futures.successfulAsList;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_DELETE_DRIVES;
+import static org.jclouds.util.Predicates2.retry;
+
+/**
+ * Destroys a set of servers with a fixed number of requests, instead of going through
+ * {@link CloudSigma2ComputeServiceAdapter#destroyNode(String)} once per server.
+ * <p>
+ * The servers are read from a single listing, the running ones are stopped in parallel and then a
+ * single listing per poll waits for all of them to stop. Servers and drives are removed with the bulk
+ * delete calls, and the tags set by jclouds are deleted only when a single listing of the tags shows
+ * they are not used by anything else.
+ */
+@Singleton
+public class DestroyServersStrategy {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final CloudSigma2Api api;
+   private final ListeningExecutorService userExecutor;
+   private final boolean destroyDrives;
+   private final Timeouts timeouts;
+   private final PollPeriod pollPeriod;
+   private final GroupNamingConvention groupNamingConvention;
+
+   @Inject
+   public DestroyServersStrategy(CloudSigma2Api api,
+                                 @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+                                 @Named(PROPERTY_DELETE_DRIVES) boolean destroyDrives,
+                                 Timeouts timeouts, PollPeriod pollPeriod,
+                                 GroupNamingConvention.Factory groupNamingConvention) {
+      this.api = checkNotNull(api, "api");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.destroyDrives = destroyDrives;
+      this.timeouts = checkNotNull(timeouts, "timeouts");
+      this.pollPeriod = checkNotNull(pollPeriod, "pollPeriod");
+      this.groupNamingConvention = checkNotNull(groupNamingConvention, "groupNamingConvention").create();
+   }
+
+   /**
+    * @return the uuids of the servers that no longer exist. Servers that could not be stopped in time
+    *         are left in place and are not part of the result.
+    */
+   public Set<String> destroyServers(Iterable<String> uuids) {
+      Set<String> requested = ImmutableSet.copyOf(uuids);
+      if (requested.isEmpty()) {
+         return requested;
+      }
+
+      Map<String, ServerInfo> servers = Maps.newLinkedHashMap();
+      for (ServerInfo server : api.listServersInfo().concat()) {
+         if (requested.contains(server.getUuid())) {
+            servers.put(server.getUuid(), server);
+         }
+      }
+
+      Set<String> stopped = stopServers(servers);
+      Set<String> toDelete = Sets.newLinkedHashSet();
+      for (ServerInfo server : servers.values()) {
+         if (ServerStatus.RUNNING != server.getStatus() || stopped.contains(server.getUuid())) {
+            toDelete.add(server.getUuid());
+         }
+      }
+
+      ImmutableSet.Builder<String> destroyed = ImmutableSet.builder();
+      destroyed.addAll(Sets.difference(requested, servers.keySet()));
+      if (toDelete.isEmpty()) {
+         return destroyed.build();
+      }
+
+      logger.debug(">> deleting servers: [%s]", Joiner.on(',').join(toDelete));
+      api.deleteServers(ImmutableList.copyOf(toDelete));
+      destroyed.addAll(toDelete);
+
+      Set<String> deletedResources = Sets.newHashSet(toDelete);
+      List<String> driveIds = Lists.newArrayList();
+      Set<String> tagIds = Sets.newHashSet();
+      for (String uuid : toDelete) {
+         ServerInfo server = servers.get(uuid);
+         for (ServerDrive drive : server.getDrives()) {
+            driveIds.add(drive.getDriveUuid());
+         }
+         for (Tag tag : server.getTags()) {
+            tagIds.add(tag.getUuid());
+         }
+      }
+
+      if (destroyDrives && !driveIds.isEmpty()) {
+         logger.debug(">> deleting server drives...");
+         try {
+            // Try to delete the drives but don't fail if they can't be deleted, as the servers are already gone
+            api.deleteDrives(driveIds);
+            deletedResources.addAll(driveIds);
+         } catch (Exception ex) {
+            logger.warn(ex, ">> could not delete drives: [%s]", Joiner.on(',').join(driveIds));
+         }
+      }
+
+      deleteTags(tagIds, deletedResources);
+      return destroyed.build();
+   }
+
+   /**
+    * Stops the running servers and waits for them with a single listing per poll.
+    *
+    * @return the uuids of the servers that have been stopped or no longer exist
+    */
+   private Set<String> stopServers(Map<String, ServerInfo> servers) {
+      List<ListenableFuture<String>> stops = Lists.newArrayList();
+      for (final ServerInfo server : servers.values()) {
+         if (ServerStatus.RUNNING == server.getStatus()) {
+            stops.add(userExecutor.submit(new Callable<String>() {
+               @Override
+               public String call() {
+                  api.stopServer(server.getUuid());
+                  return server.getUuid();
+               }
+            }));
+         }
+      }
+      if (stops.isEmpty()) {
+         return ImmutableSet.of();
+      }
+
+      final Set<String> pending = Sets.newHashSet();
+      for (String uuid : getUnchecked(successfulAsList(stops))) {
+         if (uuid != null) {
+            pending.add(uuid);
+         }
+      }
+      if (pending.size() < stops.size()) {
+         logger.warn(">> could not stop %d servers", stops.size() - pending.size());
+      }
+
+      final Set<String> stopped = Sets.newHashSet(pending);
+      Predicate<Set<String>> allStopped = new Predicate<Set<String>>() {
+         @Override
+         public boolean apply(Set<String> input) {
+            Set<String> remaining = Sets.newHashSet();
+            for (ServerInfo server : api.listServersInfo().concat()) {
+               if (input.contains(server.getUuid()) && ServerStatus.STOPPED != server.getStatus()) {
+                  remaining.add(server.getUuid());
+               }
+            }
+            input.retainAll(remaining);
+            return input.isEmpty();
+         }
+      };
+
+      if (!retry(allStopped, timeouts.nodeSuspended, pollPeriod.pollInitialPeriod, pollPeriod.pollMaxPeriod)
+            .apply(pending)) {
+         logger.warn(">> servers not stopped in time: [%s]", Joiner.on(',').join(pending));
+         stopped.removeAll(pending);
+      }
+      return stopped;
+   }
+
+   private void deleteTags(Set<String> tagIds, Set<String> deletedResources) {
+      if (tagIds.isEmpty()) {
+         return;
+      }
+      logger.debug(">> deleting server tags...");
+      List<Tag> unusedTags = Lists.newArrayList();
+      for (Tag tag : api.listTags().concat()) {
+         // Only delete the tags jclouds has set, and only once nothing else is tagged with them
+         if (tagIds.contains(tag.getUuid()) && groupNamingConvention.groupInSharedNameOrNull(tag.getName()) != null
+               && isUnused(tag, deletedResources)) {
+            unusedTags.add(tag);
+         }
+      }
+
+      for (Tag tag : unusedTags) {
+         try {
+            // Try to delete the tags but don't fail if the can't be deleted
+            api.deleteTag(tag.getUuid());
+         } catch (Exception ex) {
+            logger.warn(ex, ">> could not delete tag: %s", tag);
+         }
+      }
+   }
+
+   private static boolean isUnused(Tag tag, Set<String> deletedResources) {
+      if (tag.getResources() == null) {
+         return true;
+      }
+      for (TagResource resource : tag.getResources()) {
+         if (!deletedResources.contains(resource.getUuid())) {
+            return false;
+         }
+      }
+      return true;
+   }
+}
@@ -34,4 +34,45 @@ public class CloudSigma2Properties {
     * Default: true 
     */
    public static final String PROPERTY_DELETE_DRIVES = "jclouds.cloudsigma.delete-drives";
+
+   /**
+    * Number of cloned drives kept ready, in the background, for each library drive used to create nodes.
+    * Zero disables the pool and clones the drive when the node is created.
+    * Default: 0
+    */
+   public static final String PROPERTY_DRIVE_POOL_SIZE = "jclouds.cloudsigma.drive-pool.size";
+
+   /**
+    * Maximum number of pages of a listing fetched at the same time, once the first page has told how many objects
+    * there are.
+    * Default: 4
+    */
+   public static final String PROPERTY_PAGING_CONCURRENCY = "jclouds.cloudsigma.paging.concurrency";
+
+   /**
+    * Largest number of objects requested in a single page. The page size grows from the API default up to this value
+    * while pages come back faster than {@link #PROPERTY_PAGING_TARGET_LATENCY}.
+    * Default: 500
+    */
+   public static final String PROPERTY_PAGING_MAX_LIMIT = "jclouds.cloudsigma.paging.max-limit";
+
+   /**
+    * Time in milliseconds a single page of a listing should take to be fetched. Used to tune the page size.
+    * Default: 1000
+    */
+   public static final String PROPERTY_PAGING_TARGET_LATENCY = "jclouds.cloudsigma.paging.target-latency";
+
+   /**
+    * Number of traffic samples kept for each server by the
+    * {@link org.jclouds.cloudsigma2.compute.internal.ServerStatsCollector}.
+    * Default: 60
+    */
+   public static final String PROPERTY_STATS_HISTORY_SIZE = "jclouds.cloudsigma.stats.history-size";
+
+   /**
+    * Time in seconds the pricing, discounts and subscribed capacity used to estimate costs are kept before they are
+    * loaded again. The previous values keep being used while they are reloaded in the background.
+    * Default: 3600
+    */
+   public static final String PROPERTY_PRICING_TTL = "jclouds.cloudsigma.pricing.ttl";
 }
@@ -32,6 +32,13 @@ public class PaginatedCollection<T> extends IterableWithMarker<T> {
       this.paginationOptions = paginationOptions;
    }
 
+   /**
+    * The pagination metadata of the response: the limit and offset of this page and the total number of objects.
+    */
+   public PaginationOptions getPaginationOptions() {
+      return paginationOptions;
+   }
+
    @Override
    public Optional<Object> nextMarker() {
       if (paginationOptions.getLimit() == 0) {
@@ -55,6 +55,14 @@ public class ServerRuntime {
       this.nicStats = nicStats;
    }
 
+   public Date getActiveSince() {
+      return activeSince;
+   }
+
+   public Iterable<NICStats> getNicStats() {
+      return nicStats;
+   }
+
    @Override
    public int hashCode() {
       final int prime = 31;
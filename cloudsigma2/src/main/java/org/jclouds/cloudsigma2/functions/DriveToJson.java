@@ -17,15 +17,22 @@
 package org.jclouds.cloudsigma2.functions;
 
 import com.google.common.base.Function;
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import org.jclouds.cloudsigma2.domain.DriveInfo;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
 public class DriveToJson implements Function<DriveInfo, JsonObject> {
+   private final JsonPayloads jsonPayloads;
+
+   @Inject
+   public DriveToJson(JsonPayloads jsonPayloads) {
+      this.jsonPayloads = jsonPayloads;
+   }
+
    @Override
    public JsonObject apply(DriveInfo input) {
       JsonObject driveObject = new JsonObject();
@@ -43,15 +50,15 @@ public class DriveToJson implements Function<DriveInfo, JsonObject> {
       }
 
       if (input.getAffinities() != null) {
-         driveObject.add("affinities", new JsonParser().parse(new Gson().toJson(input.getAffinities())));
+         driveObject.add("affinities", jsonPayloads.toJsonTree(input.getAffinities()));
       }
 
       if (input.getMeta() != null) {
-         driveObject.add("meta", new JsonParser().parse(new Gson().toJson(input.getMeta())));
+         driveObject.add("meta", jsonPayloads.toJsonTree(input.getMeta()));
       }
 
       if (input.getTags() != null) {
-         driveObject.add("tags", new JsonParser().parse(new Gson().toJson(input.getTags())));
+         driveObject.add("tags", jsonPayloads.toJsonTree(input.getTags()));
       }
 
       driveObject.addProperty("allow_multimount", input.isAllowMultimount());
@@ -17,18 +17,25 @@
 package org.jclouds.cloudsigma2.functions;
 
 import com.google.common.base.Function;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import org.jclouds.cloudsigma2.domain.FirewallPolicy;
 import org.jclouds.cloudsigma2.domain.FirewallRule;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.javax.annotation.Nullable;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
 public class FirewallPolicyToJson implements Function<FirewallPolicy, JsonObject> {
+   private final JsonPayloads jsonPayloads;
+
+   @Inject
+   public FirewallPolicyToJson(JsonPayloads jsonPayloads) {
+      this.jsonPayloads = jsonPayloads;
+   }
+
    @Override
    public JsonObject apply(@Nullable FirewallPolicy input) {
       JsonObject firewallObject = new JsonObject();
@@ -38,7 +45,7 @@ public class FirewallPolicyToJson implements Function<FirewallPolicy, JsonObject
       }
 
       if (input.getMeta() != null) {
-         firewallObject.add("meta", new JsonParser().parse(new Gson().toJson(input.getMeta())));
+         firewallObject.add("meta", jsonPayloads.toJsonTree(input.getMeta()));
       }
 
       if (input.getRules() != null) {
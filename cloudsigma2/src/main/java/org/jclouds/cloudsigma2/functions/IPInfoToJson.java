@@ -17,16 +17,23 @@
 package org.jclouds.cloudsigma2.functions;
 
 import com.google.common.base.Function;
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import org.jclouds.cloudsigma2.domain.IPInfo;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.javax.annotation.Nullable;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
 public class IPInfoToJson implements Function<IPInfo, JsonObject> {
+   private final JsonPayloads jsonPayloads;
+
+   @Inject
+   public IPInfoToJson(JsonPayloads jsonPayloads) {
+      this.jsonPayloads = jsonPayloads;
+   }
+
    @Override
    public JsonObject apply(@Nullable IPInfo input) {
       if (input == null) {
@@ -36,7 +43,7 @@ public class IPInfoToJson implements Function<IPInfo, JsonObject> {
       JsonObject ipObject = new JsonObject();
 
       if (input.getMeta() != null) {
-         ipObject.add("meta", new JsonParser().parse(new Gson().toJson(input.getMeta())));
+         ipObject.add("meta", jsonPayloads.toJsonTree(input.getMeta()));
       }
 
       return ipObject;
@@ -17,16 +17,23 @@
 package org.jclouds.cloudsigma2.functions;
 
 import com.google.common.base.Function;
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import org.jclouds.cloudsigma2.domain.ProfileInfo;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.javax.annotation.Nullable;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
 public class ProfileInfoToJson implements Function<ProfileInfo, JsonObject> {
+   private final JsonPayloads jsonPayloads;
+
+   @Inject
+   public ProfileInfoToJson(JsonPayloads jsonPayloads) {
+      this.jsonPayloads = jsonPayloads;
+   }
+
    @Override
    public JsonObject apply(@Nullable ProfileInfo input) {
       if (input == null) {
@@ -64,7 +71,7 @@ public class ProfileInfoToJson implements Function<ProfileInfo, JsonObject> {
       }
 
       if (input.getMeta() != null) {
-         profileJson.add("meta", new JsonParser().parse(new Gson().toJson(input.getMeta())));
+         profileJson.add("meta", jsonPayloads.toJsonTree(input.getMeta()));
       }
 
       if (input.getMyNotes() != null) {
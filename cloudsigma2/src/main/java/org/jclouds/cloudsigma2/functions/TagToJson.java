@@ -17,19 +17,26 @@
 package org.jclouds.cloudsigma2.functions;
 
 import com.google.common.base.Function;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import org.jclouds.cloudsigma2.domain.Tag;
 import org.jclouds.cloudsigma2.domain.TagResource;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.javax.annotation.Nullable;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
 public class TagToJson implements Function<Tag, JsonObject> {
+   private final JsonPayloads jsonPayloads;
+
+   @Inject
+   public TagToJson(JsonPayloads jsonPayloads) {
+      this.jsonPayloads = jsonPayloads;
+   }
+
    @Override
    public JsonObject apply(@Nullable Tag input) {
       JsonObject jsonTag = new JsonObject();
@@ -39,7 +46,7 @@ public class TagToJson implements Function<Tag, JsonObject> {
       }
 
       if (input.getMeta() != null) {
-         jsonTag.add("meta", new JsonParser().parse(new Gson().toJson(input.getMeta())));
+         jsonTag.add("meta", jsonPayloads.toJsonTree(input.getMeta()));
       }
 
       if (input.getResources() != null && input.getResources().size() != 0) {
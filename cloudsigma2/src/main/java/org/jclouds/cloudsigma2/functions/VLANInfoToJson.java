@@ -17,15 +17,22 @@
 package org.jclouds.cloudsigma2.functions;
 
 import com.google.common.base.Function;
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.jclouds.cloudsigma2.domain.VLANInfo;
+import org.jclouds.cloudsigma2.functions.internal.JsonPayloads;
 import org.jclouds.javax.annotation.Nullable;
 
 @Singleton
 public class VLANInfoToJson implements Function<VLANInfo, JsonObject> {
+   private final JsonPayloads jsonPayloads;
+
+   @Inject
+   public VLANInfoToJson(JsonPayloads jsonPayloads) {
+      this.jsonPayloads = jsonPayloads;
+   }
+
 
    @Override
    public JsonObject apply(@Nullable VLANInfo input) {
@@ -36,7 +43,7 @@ public class VLANInfoToJson implements Function<VLANInfo, JsonObject> {
       JsonObject vlanObject = new JsonObject();
 
       if (input.getMeta() != null) {
-         vlanObject.add("meta", new JsonParser().parse(new Gson().toJson(input.getMeta())));
+         vlanObject.add("meta", jsonPayloads.toJsonTree(input.getMeta()));
       }
 
       return vlanObject;
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.functions.internal;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+
+import org.jclouds.Constants;
+import org.jclouds.cloudsigma2.domain.PaginatedCollection;
+import org.jclouds.cloudsigma2.options.PaginationOptions;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.util.concurrent.Futures.allAsList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_PAGING_CONCURRENCY;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_PAGING_MAX_LIMIT;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_PAGING_TARGET_LATENCY;
+
+/**
+ * Lists all the objects of a paginated collection, fetching its pages concurrently.
+ * <p>
+ * The first page tells how many objects there are. The offsets of the remaining pages are then fetched on the user
+ * executor, with at most {@code jclouds.cloudsigma.paging.concurrency} requests at the same time, and the objects are
+ * returned in the order the API lists them.
+ * <p>
+ * The page size is tuned per listing: it starts at {@link PaginationOptions#DEFAULT_LIMIT} and moves towards the
+ * number of objects that can be fetched in {@code jclouds.cloudsigma.paging.target-latency}, measured on the previous
+ * full pages, up to {@code jclouds.cloudsigma.paging.max-limit}.
+ */
+@Singleton
+public class ConcurrentPager {
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final ListeningExecutorService userExecutor;
+   private final int concurrency;
+   private final int maxLimit;
+   private final long targetLatencyNanos;
+   private final ConcurrentMap<String, AtomicInteger> limits = new ConcurrentHashMap<String, AtomicInteger>();
+
+   @Inject
+   ConcurrentPager(@Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+                   @Named(PROPERTY_PAGING_CONCURRENCY) int concurrency,
+                   @Named(PROPERTY_PAGING_MAX_LIMIT) int maxLimit,
+                   @Named(PROPERTY_PAGING_TARGET_LATENCY) long targetLatencyMillis) {
+      checkArgument(concurrency > 0, "concurrency must be positive");
+      checkArgument(maxLimit >= PaginationOptions.DEFAULT_LIMIT, "maxLimit must be at least %s",
+            PaginationOptions.DEFAULT_LIMIT);
+      checkArgument(targetLatencyMillis > 0, "targetLatency must be positive");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.concurrency = concurrency;
+      this.maxLimit = maxLimit;
+      this.targetLatencyNanos = MILLISECONDS.toNanos(targetLatencyMillis);
+   }
+
+   /**
+    * Lists all the objects of a paginated collection.
+    *
+    * @param listing the name of the listing, used to keep the page size tuned for it
+    * @param pages   fetches the page with the given limit and offset
+    */
+   public <T> List<T> list(String listing, final Function<PaginationOptions, ? extends PaginatedCollection<T>> pages) {
+      checkNotNull(listing, "listing");
+      checkNotNull(pages, "pages");
+      final AtomicInteger limit = limitFor(listing);
+
+      int requested = limit.get();
+      PaginatedCollection<T> first = fetch(pages, limit, requested, 0);
+      PaginationOptions meta = first.getPaginationOptions();
+      List<T> objects = ImmutableList.copyOf(first);
+      // A zero limit in the response means the whole collection has been returned
+      if (meta == null || meta.getLimit() == 0 || objects.isEmpty()
+            || meta.getTotalCount() <= meta.getOffset() + objects.size()) {
+         return objects;
+      }
+
+      final int start = meta.getOffset() + objects.size();
+      final int total = meta.getTotalCount();
+      // The API may return fewer objects than requested, so the remaining pages are never larger than the first one
+      final int pageSize = Math.min(limit.get(), objects.size());
+      final int pageCount = (total - start + pageSize - 1) / pageSize;
+      final AtomicReferenceArray<List<T>> results = new AtomicReferenceArray<List<T>>(pageCount);
+      final AtomicInteger nextPage = new AtomicInteger();
+      logger.trace(">> listing %s: %s objects in %s more pages of %s", listing, total, pageCount, pageSize);
+
+      final Runnable worker = new Runnable() {
+         @Override
+         public void run() {
+            for (int page = nextPage.getAndIncrement(); page < pageCount; page = nextPage.getAndIncrement()) {
+               int offset = start + page * pageSize;
+               results.set(page, fetchRange(pages, limit, offset, Math.min(pageSize, total - offset)));
+            }
+         }
+      };
+
+      // The calling thread fetches pages too, so at most concurrency - 1 workers are submitted
+      List<ListenableFuture<?>> workers = Lists.newArrayList();
+      List<AtomicBoolean> claims = Lists.newArrayList();
+      for (int i = 1; i < Math.min(concurrency, pageCount); i++) {
+         final AtomicBoolean claimed = new AtomicBoolean();
+         claims.add(claimed);
+         workers.add(userExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+               if (claimed.compareAndSet(false, true)) {
+                  worker.run();
+               }
+            }
+         }));
+      }
+      try {
+         worker.run();
+         // Every page has been taken, so the workers that have not started yet have nothing left to fetch and
+         // only the ones fetching a page are waited for
+         List<ListenableFuture<?>> running = Lists.newArrayList();
+         for (int i = 0; i < workers.size(); i++) {
+            if (claims.get(i).compareAndSet(false, true)) {
+               workers.get(i).cancel(false);
+            } else {
+               running.add(workers.get(i));
+            }
+         }
+         allAsList(running).get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw propagate(e);
+      } catch (ExecutionException e) {
+         throw propagate(e.getCause());
+      } finally {
+         for (ListenableFuture<?> future : workers) {
+            future.cancel(true);
+         }
+      }
+
+      ImmutableList.Builder<T> builder = ImmutableList.<T>builder().addAll(objects);
+      for (int page = 0; page < pageCount; page++) {
+         builder.addAll(results.get(page));
+      }
+      return builder.build();
+   }
+
+   /**
+    * The page size currently used for the given listing.
+    */
+   public int limit(String listing) {
+      return limitFor(listing).get();
+   }
+
+   private AtomicInteger limitFor(String listing) {
+      AtomicInteger limit = limits.get(listing);
+      if (limit == null) {
+         AtomicInteger created = new AtomicInteger(PaginationOptions.DEFAULT_LIMIT);
+         limit = limits.putIfAbsent(listing, created);
+         if (limit == null) {
+            limit = created;
+         }
+      }
+      return limit;
+   }
+
+   /**
+    * Fetches all the objects between the offset and offset + size. Objects removed while the collection is being
+    * listed can make a page shorter than requested; in that case the rest of the range is requested again.
+    */
+   private <T> List<T> fetchRange(Function<PaginationOptions, ? extends PaginatedCollection<T>> pages,
+                                  AtomicInteger limit, int offset, int size) {
+      ImmutableList.Builder<T> objects = ImmutableList.builder();
+      int fetched = 0;
+      while (fetched < size) {
+         List<T> page = ImmutableList.copyOf(fetch(pages, limit, size - fetched, offset + fetched));
+         if (page.isEmpty()) {
+            break;
+         }
+         objects.addAll(page);
+         fetched += page.size();
+      }
+      return objects.build();
+   }
+
+   private <T> PaginatedCollection<T> fetch(Function<PaginationOptions, ? extends PaginatedCollection<T>> pages,
+                                            AtomicInteger limit, int requested, int offset) {
+      long start = System.nanoTime();
+      PaginationOptions options = new PaginationOptions.Builder().limit(requested).offset(offset).build();
+      PaginatedCollection<T> page = pages.apply(options);
+      tune(limit, requested, page, System.nanoTime() - start);
+      return page;
+   }
+
+   /**
+    * Moves the page size half way towards the number of objects that can be fetched in the target latency. Only full
+    * pages are measured, as the last page of a listing says little about the cost of a full one.
+    */
+   private void tune(AtomicInteger limit, int requested, Iterable<?> page, long elapsedNanos) {
+      int returned = Iterables.size(page);
+      if (returned == 0 || returned < requested) {
+         return;
+      }
+      long target = returned * targetLatencyNanos / Math.max(elapsedNanos, 1);
+      int wanted = (int) Math.max(PaginationOptions.DEFAULT_LIMIT, Math.min(maxLimit, target));
+      int current = limit.get();
+      limit.compareAndSet(current, current + (wanted - current) / 2);
+   }
+}
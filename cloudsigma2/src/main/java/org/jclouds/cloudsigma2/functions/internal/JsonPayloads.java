@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.functions.internal;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import org.jclouds.cloudsigma2.domain.ServerInfo;
+import org.jclouds.http.HttpRequest;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Serialises request payloads.
+ * <p>
+ * All the payload functions and binders share the {@link Gson} instance held here, instead of creating
+ * one per call and parsing its output back into a tree. {@link ServerInfo} requests are written straight
+ * to the payload {@link JsonWriter} without building an intermediate tree.
+ * <p>
+ * The settings match the ones the payloads have always been produced with: {@code null} values are
+ * skipped and HTML characters are not escaped.
+ */
+@Singleton
+public class JsonPayloads {
+
+   private final Gson gson;
+   private final ServerInfoPayloadWriter serverInfoWriter;
+
+   @Inject
+   public JsonPayloads() {
+      this.gson = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
+      this.serverInfoWriter = new ServerInfoPayloadWriter(gson);
+   }
+
+   /**
+    * Serialises a value that has no payload specific representation, such as metadata maps.
+    */
+   public JsonElement toJsonTree(Object src) {
+      return gson.toJsonTree(src);
+   }
+
+   /**
+    * Builds the tree of a server request. The binders write servers without it.
+    */
+   public JsonObject toJsonObject(ServerInfo server) {
+      return new JsonParser().parse(toJson(server)).getAsJsonObject();
+   }
+
+   /**
+    * Sets the payload of the request to the given server.
+    */
+   public <R extends HttpRequest> R bindToRequest(R request, ServerInfo server) {
+      return setPayload(request, toJson(server));
+   }
+
+   /**
+    * Sets the payload of the request to an {@code objects} list with the given servers.
+    */
+   public <R extends HttpRequest> R bindObjectsToRequest(R request, Iterable<? extends ServerInfo> servers) {
+      return bindObjectsToRequest(request, servers, new ObjectWriter<ServerInfo>() {
+         @Override
+         public void write(JsonWriter writer, ServerInfo server) throws IOException {
+            serverInfoWriter.write(writer, server);
+         }
+      });
+   }
+
+   /**
+    * Sets the payload of the request to an {@code objects} list with the trees built by the given
+    * function.
+    */
+   public <R extends HttpRequest, T> R bindObjectsToRequest(R request, Iterable<? extends T> objects,
+         final Function<? super T, JsonObject> toJson) {
+      final TypeAdapter<JsonElement> adapter = gson.getAdapter(JsonElement.class);
+      return bindObjectsToRequest(request, objects, new ObjectWriter<T>() {
+         @Override
+         public void write(JsonWriter writer, T object) throws IOException {
+            // Trees keep explicit nulls, as when they were written with JsonObject.toString()
+            writer.setSerializeNulls(true);
+            adapter.write(writer, toJson.apply(object));
+            writer.setSerializeNulls(false);
+         }
+      });
+   }
+
+   private <R extends HttpRequest, T> R bindObjectsToRequest(R request, Iterable<? extends T> objects,
+         ObjectWriter<T> objectWriter) {
+      StringWriter payload = new StringWriter();
+      try {
+         JsonWriter writer = gson.newJsonWriter(payload);
+         writer.beginObject();
+         writer.name("objects");
+         writer.beginArray();
+         for (T object : objects) {
+            objectWriter.write(writer, object);
+         }
+         writer.endArray();
+         writer.endObject();
+         writer.flush();
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      }
+      return setPayload(request, payload.toString());
+   }
+
+   private String toJson(ServerInfo server) {
+      StringWriter payload = new StringWriter();
+      try {
+         JsonWriter writer = gson.newJsonWriter(payload);
+         serverInfoWriter.write(writer, server);
+         writer.flush();
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      }
+      return payload.toString();
+   }
+
+   private static <R extends HttpRequest> R setPayload(R request, String payload) {
+      request.setPayload(payload);
+      request.getPayload().getContentMetadata().setContentType(MediaType.APPLICATION_JSON);
+      return request;
+   }
+
+   private interface ObjectWriter<T> {
+      void write(JsonWriter writer, T object) throws IOException;
+   }
+}
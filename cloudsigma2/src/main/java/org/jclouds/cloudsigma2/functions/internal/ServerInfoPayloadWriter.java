@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.functions.internal;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import org.jclouds.cloudsigma2.domain.IPConfiguration;
+import org.jclouds.cloudsigma2.domain.NIC;
+import org.jclouds.cloudsigma2.domain.ServerDrive;
+import org.jclouds.cloudsigma2.domain.ServerInfo;
+import org.jclouds.cloudsigma2.domain.Tag;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the server create and edit requests. Servers are only ever written, so this is not registered with
+ * {@link Gson} as a type adapter.
+ */
+final class ServerInfoPayloadWriter {
+
+   private final TypeAdapter<Map<String, String>> metaAdapter;
+   private final TypeAdapter<List<String>> requirementsAdapter;
+   private final TypeAdapter<List<Tag>> tagsAdapter;
+
+   ServerInfoPayloadWriter(Gson gson) {
+      this.metaAdapter = gson.getAdapter(new TypeToken<Map<String, String>>() {
+      });
+      this.requirementsAdapter = gson.getAdapter(new TypeToken<List<String>>() {
+      });
+      this.tagsAdapter = gson.getAdapter(new TypeToken<List<Tag>>() {
+      });
+   }
+
+   void write(JsonWriter out, ServerInfo input) throws IOException {
+      out.beginObject();
+
+      if (input.getName() != null) {
+         out.name("name").value(input.getName());
+      }
+
+      if (input.getCpu() > 0) {
+         out.name("cpu").value(input.getCpu());
+      }
+
+      if (input.getMemory() != null) {
+         out.name("mem").value(input.getMemory().toString());
+      }
+
+      if (input.getMeta() != null) {
+         metaAdapter.write(out.name("meta"), input.getMeta());
+      }
+
+      if (input.getRequirements() != null) {
+         requirementsAdapter.write(out.name("requirements"), input.getRequirements());
+      }
+
+      if (input.getTags() != null) {
+         tagsAdapter.write(out.name("tags"), input.getTags());
+      }
+
+      if (input.getVncPassword() != null) {
+         out.name("vnc_password").value(input.getVncPassword());
+      }
+
+      if (input.getNics() != null) {
+         out.name("nics").beginArray();
+         for (NIC nic : input.getNics()) {
+            writeNic(out, nic);
+         }
+         out.endArray();
+      }
+
+      if (input.getDrives() != null) {
+         out.name("drives").beginArray();
+         for (ServerDrive serverDrive : input.getDrives()) {
+            writeDrive(out, serverDrive);
+         }
+         out.endArray();
+      }
+
+      out.endObject();
+   }
+
+   private static void writeNic(JsonWriter out, NIC nic) throws IOException {
+      out.beginObject();
+
+      if (nic.getFirewallPolicy() != null) {
+         out.name("firewall_policy").value(nic.getFirewallPolicy().getUuid());
+      }
+
+      if (nic.getVlan() != null) {
+         out.name("vlan").value(nic.getVlan().getUuid());
+      } else if (nic.getIpV4Configuration() != null) {
+         writeIpConfiguration(out.name("ip_v4_conf"), nic.getIpV4Configuration());
+         writeModelAndMac(out, nic);
+      } else if (nic.getIpV6Configuration() != null) {
+         writeIpConfiguration(out.name("ip_v6_conf"), nic.getIpV6Configuration());
+         writeModelAndMac(out, nic);
+      }
+
+      out.endObject();
+   }
+
+   private static void writeModelAndMac(JsonWriter out, NIC nic) throws IOException {
+      if (nic.getModel() != null) {
+         out.name("model").value(nic.getModel().value());
+      }
+      if (nic.getMac() != null) {
+         out.name("mac").value(nic.getMac());
+      }
+   }
+
+   private static void writeIpConfiguration(JsonWriter out, IPConfiguration ipConfiguration) throws IOException {
+      out.beginObject();
+      if (ipConfiguration.getConfigurationType() != null) {
+         out.name("conf").value(ipConfiguration.getConfigurationType().value());
+      }
+      if (ipConfiguration.getIp() != null) {
+         out.name("ip").value(ipConfiguration.getIp().getUuid());
+      }
+      out.endObject();
+   }
+
+   private static void writeDrive(JsonWriter out, ServerDrive serverDrive) throws IOException {
+      out.beginObject();
+
+      // The boot order is always sent, even when it is null
+      boolean serializeNulls = out.getSerializeNulls();
+      out.setSerializeNulls(true);
+      out.name("boot_order").value(serverDrive.getBootOrder());
+      out.setSerializeNulls(serializeNulls);
+
+      if (serverDrive.getDeviceChannel() != null) {
+         out.name("dev_channel").value(serverDrive.getDeviceChannel());
+      }
+
+      if (serverDrive.getDeviceEmulationType() != null) {
+         out.name("device").value(serverDrive.getDeviceEmulationType().value());
+      }
+
+      if (serverDrive.getDriveUuid() != null) {
+         out.name("drive").value(serverDrive.getDriveUuid());
+      } else if (serverDrive.getDrive() != null) {
+         out.name("drive").value(serverDrive.getDrive().getUuid());
+      }
+
+      out.endObject();
+   }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.compute;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.io.Resources;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import org.jclouds.ContextBuilder;
+import org.jclouds.cloudsigma2.compute.options.CloudSigma2TemplateOptions;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.HardwareBuilder;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.Processor;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.internal.TemplateImpl;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.labs.load.LoadHarness;
+import org.jclouds.labs.load.LoadOperation;
+import org.jclouds.labs.load.LoadResult;
+import org.jclouds.labs.load.Routes;
+import org.jclouds.labs.load.ScriptedDispatcher;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.Constants.PROPERTY_MAX_RETRIES;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Reports how many requests the compute service makes, and how long it takes, as the number of concurrent
+ * callers grows. The smoke test runs each operation at a small concurrency with the unit tests.
+ */
+@Test(testName = "CloudSigma2ComputeServiceLoadTest")
+public class CloudSigma2ComputeServiceLoadTest {
+
+   private static final String LIBRARY_DRIVE = "6d53b92c-42dc-472b-a7b6-7021f45f377a";
+   private static final String SERVER = "a19a425f-9e92-42f6-89fb-6361203071bb";
+
+   /**
+    * The fewest requests a node creation makes: getting the library drive, cloning it, polling and getting the
+    * clone, creating the firewall policy and the server, starting it and polling it until it runs.
+    */
+   private static final int CREATE_REQUESTS = 8;
+
+   private static final MockResponse NO_CONTENT = new MockResponse().setStatus("HTTP/1.1 204 No Content");
+   private static final MockResponse ACCEPTED = new MockResponse().setStatus("HTTP/1.1 202 Accepted");
+
+   @Test(groups = "unit")
+   public void testSmoke() throws IOException {
+      List<LoadResult> results = LoadHarness.builder()
+            .context(contextFactory())
+            .dispatcher(ScriptedDispatcher.builder(routes()).build())
+            .concurrency(2)
+            .iterations(4)
+            .build()
+            .run(createNodesInGroup("load"), LoadOperation.listNodes(), LoadOperation.destroyNodesMatching("web"));
+
+      assertEquals(results.size(), 3);
+      for (LoadResult result : results) {
+         assertEquals(result.getCalls(), 4, result.toString());
+         assertEquals(result.getErrors(), 0, result.toString());
+      }
+      assertTrue(results.get(0).getRequestsPerCall() >= CREATE_REQUESTS, results.get(0).toString());
+   }
+
+   @Test(groups = "performance")
+   public void testCreateNodesInGroup() throws IOException {
+      List<LoadResult> results = LoadHarness.builder()
+            .context(contextFactory())
+            .dispatcher(ScriptedDispatcher.builder(routes()).latency(1, 5, TimeUnit.MILLISECONDS).build())
+            .concurrency(1, 4, 16)
+            .iterations(32)
+            .warmup(2)
+            .build()
+            .run(createNodesInGroup("load"));
+
+      for (LoadResult result : results) {
+         report(result);
+         assertEquals(result.getErrors(), 0, result.toString());
+         assertTrue(result.getRequestsPerCall() >= CREATE_REQUESTS, result.toString());
+      }
+   }
+
+   @Test(groups = "performance")
+   public void testListAndDestroyNodes() throws IOException {
+      List<LoadResult> results = LoadHarness.builder()
+            .context(contextFactory())
+            .dispatcher(ScriptedDispatcher.builder(routes()).latency(1, 5, TimeUnit.MILLISECONDS).build())
+            .concurrency(1, 4, 16)
+            .iterations(32)
+            .warmup(2)
+            .build()
+            .run(LoadOperation.listNodes(), LoadOperation.destroyNodesMatching("web"));
+
+      for (LoadResult result : results) {
+         report(result);
+         assertEquals(result.getErrors(), 0, result.toString());
+      }
+   }
+
+   /**
+    * Creates one node per call from a cloned library drive. The template is built up front, so the calls don't
+    * list the images and hardware profiles first.
+    */
+   private static LoadOperation createNodesInGroup(final String group) {
+      return new LoadOperation("createNodesInGroup") {
+         @Override
+         public void execute(ComputeService computeService) throws Exception {
+            computeService.createNodesInGroup(group, 1, template());
+         }
+      };
+   }
+
+   private static Template template() {
+      Image image = new ImageBuilder().ids(LIBRARY_DRIVE).name("Ubuntu")
+            .operatingSystem(OperatingSystem.builder().description("Ubuntu").build())
+            .status(Image.Status.AVAILABLE).build();
+      Hardware hardware = new HardwareBuilder().ids("cpu=1000,ram=1024").processor(new Processor(1, 1000))
+            .ram(1024).build();
+      Location location = new LocationBuilder().id("cloudsigma2").description("cloudsigma2")
+            .scope(LocationScope.PROVIDER).build();
+      return new TemplateImpl(image, hardware, location, new CloudSigma2TemplateOptions());
+   }
+
+   private static Function<String, ComputeServiceContext> contextFactory() {
+      return new Function<String, ComputeServiceContext>() {
+         @Override
+         public ComputeServiceContext apply(String endpoint) {
+            Properties overrides = new Properties();
+            overrides.put(PROPERTY_MAX_RETRIES, "0");
+            return ContextBuilder.newBuilder("cloudsigma2").credentials("user", "password").endpoint(endpoint)
+                  .overrides(overrides).buildView(ComputeServiceContext.class);
+         }
+      };
+   }
+
+   private Routes routes() {
+      return Routes.builder()
+            .on("GET", "/servers/detail/.*", jsonResponse("/servers-teardown-stopped.json"))
+            .on("GET", "/servers/" + SERVER + "/", jsonResponse("/servers-running.json"))
+            .on("POST", "/servers/", jsonResponse("/servers-single.json"))
+            .on("POST", "/servers/[^/]+/action/\\?do=start", ACCEPTED)
+            .on("GET", "/libdrives/[^/]+/", new MockResponse().addHeader("Content-Type", "application/json")
+                  .setBody(stringFromResource("/libdrives-single.json").replace("\"cdrom\"", "\"disk\"")))
+            .on("POST", "/libdrives/[^/]+/action/\\?do=clone", jsonResponse("/libdrives-cloned.json"))
+            .on("GET", "/drives/[^/]+/", jsonResponse("/drive-info.json"))
+            .on("POST", "/fwpolicies/", jsonResponse("/fwpolicies-single.json"))
+            .on("GET", "/tags/(\\?.*)?", jsonResponse("/tags-teardown.json"))
+            .on("GET", "/tags/[^/?]+/.*", jsonResponse("/tags-single.json"))
+            .on("DELETE", "/servers/.*", NO_CONTENT)
+            .on("DELETE", "/drives/.*", NO_CONTENT)
+            .on("DELETE", "/tags/.*", NO_CONTENT)
+            .build();
+   }
+
+   private static void report(LoadResult result) {
+      Reporter.log(result.toString());
+   }
+
+   private MockResponse jsonResponse(String resource) {
+      return new MockResponse().addHeader("Content-Type", "application/json").setBody(stringFromResource(resource));
+   }
+
+   private String stringFromResource(String resource) {
+      try {
+         return Resources.toString(getClass().getResource(resource), Charsets.UTF_8);
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      }
+   }
+}
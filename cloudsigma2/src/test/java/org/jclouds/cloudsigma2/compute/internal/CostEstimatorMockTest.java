@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.compute.internal;
+
+import com.google.common.collect.ImmutableList;
+import org.jclouds.cloudsigma2.internal.BaseCloudSigma2ApiMockTest;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.HardwareBuilder;
+import org.jclouds.compute.domain.Processor;
+import org.jclouds.compute.domain.Volume;
+import org.jclouds.compute.domain.internal.VolumeImpl;
+import org.jclouds.labs.load.Routes;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = "unit", testName = "CostEstimatorMockTest", singleThreaded = true)
+public class CostEstimatorMockTest extends BaseCloudSigma2ApiMockTest {
+
+   private static final double DELTA = 0.000001;
+
+   // 500 MHz of subscribed CPU and no memory or disk are left unused by the account
+   private static final Hardware SMALL = hardware("small", 1000, 1024);
+   private static final Hardware CPU_HEAVY = hardware("cpu-heavy", 2000, 512);
+   private static final Hardware MEMORY_HEAVY = hardware("memory-heavy", 500, 2048);
+
+   @BeforeMethod
+   public void routeRequests() {
+      server.setDispatcher(Routes.builder()
+            .on("GET", "/pricing/\\?limit=0&offset=0", jsonResponse("/pricing-estimates.json"))
+            .on("GET", "/currentusage/", jsonResponse("/currentusage-estimates.json"))
+            .on("GET", "/discount/\\?limit=\\d+&offset=0", jsonResponse("/discount.json"))
+            .on("GET", "/discount/\\?limit=\\d+&offset=3", jsonResponse("/discount-last-page.json"))
+            .build());
+   }
+
+   public void testBurstCostUsesTheCurrentLevelAndUnusedSubscriptions() {
+      CostEstimator estimator = estimator();
+
+      // (1000 - 500) MHz * 0.02 + 1024 MB * 0.002
+      assertEquals(estimator.costPerHour(SMALL), 12.048, DELTA);
+      assertEquals(estimator.costPerHour(MEMORY_HEAVY), 4.096, DELTA);
+      assertEquals(estimator.getCurrency(), "USD");
+   }
+
+   public void testDiskVolumesAreBilled() {
+      Hardware withDisk = new HardwareBuilder().ids("with-disk").processor(new Processor(1, 500)).ram(0)
+            .volumes(ImmutableList.<Volume>of(new VolumeImpl(10f, true, false))).build();
+
+      assertEquals(estimator().costPerHour(withDisk), 0.002, DELTA);
+   }
+
+   public void testSubscriptionCostAppliesThePeriodDiscount() {
+      CostEstimator estimator = estimator();
+
+      // (1000 MHz * 0.01 + 1024 MB * 0.001) * (1 - 0.25)
+      assertEquals(estimator.subscriptionCostPerHour(SMALL, "1 year"), 8.268, DELTA);
+      assertEquals(estimator.subscriptionCostPerHour(SMALL, "3 years"), 11.024 * 0.55, DELTA);
+      assertEquals(estimator.subscriptionCostPerHour(SMALL, "1 week"), 11.024, DELTA);
+   }
+
+   public void testRanksHardwareByCost() {
+      assertEquals(estimator().rankByCost(ImmutableList.of(CPU_HEAVY, SMALL, MEMORY_HEAVY)),
+            ImmutableList.of(MEMORY_HEAVY, SMALL, CPU_HEAVY));
+   }
+
+   public void testEstimatesDoNotCallTheApi() {
+      CostEstimator estimator = estimator();
+      estimator.costPerHour(SMALL);
+      int loadRequests = server.getRequestCount();
+
+      for (int i = 0; i < 1000; i++) {
+         estimator.costPerHour(CPU_HEAVY);
+         estimator.rankByCost(ImmutableList.of(CPU_HEAVY, SMALL, MEMORY_HEAVY));
+      }
+
+      assertEquals(loadRequests, 4);
+      assertEquals(server.getRequestCount(), loadRequests);
+   }
+
+   public void testRefreshLoadsThePricesAgain() {
+      CostEstimator estimator = estimator();
+      estimator.costPerHour(SMALL);
+
+      estimator.refresh();
+
+      assertEquals(server.getRequestCount(), 8);
+      assertEquals(estimator.costPerHour(SMALL), 12.048, DELTA);
+   }
+
+   private CostEstimator estimator() {
+      return ctx.utils().injector().getInstance(CostEstimator.class);
+   }
+
+   private static Hardware hardware(String id, double cpu, int ram) {
+      return new HardwareBuilder().ids(id).processor(new Processor(1, cpu)).ram(ram).build();
+   }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.compute.internal;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+import org.jclouds.ContextBuilder;
+import org.jclouds.cloudsigma2.compute.options.CloudSigma2TemplateOptions;
+import org.jclouds.cloudsigma2.compute.strategy.CloudSigma2ComputeServiceAdapter;
+import org.jclouds.cloudsigma2.internal.BaseCloudSigma2ApiMockTest;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.HardwareBuilder;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.Processor;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.internal.TemplateImpl;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.labs.load.Routes;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_DRIVE_POOL_SIZE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "DrivePoolMockTest", singleThreaded = true)
+public class DrivePoolMockTest extends BaseCloudSigma2ApiMockTest {
+
+   private static final String LIBRARY_DRIVE = "6d53b92c-42dc-472b-a7b6-7021f45f377a";
+   private static final String CLONED_DRIVE = "f17cce62-bcc9-4e0b-a57b-a5582b05aff0";
+   private static final long CLONE_LATENCY_MILLIS = 1000;
+
+   private final List<RecordedRequest> requests = new CopyOnWriteArrayList<RecordedRequest>();
+
+   @BeforeMethod
+   public void routeRequests() {
+      requests.clear();
+      final Routes routes = Routes.builder()
+            .on("POST", "/libdrives/[^/]+/action/\\?do=clone", jsonResponse("/libdrives-cloned.json"))
+            .on("GET", "/libdrives/[^/]+/", new MockResponse().addHeader("Content-Type", "application/json")
+                  .setBody(stringFromResource("/libdrives-single.json").replace("\"cdrom\"", "\"disk\"")))
+            .on("GET", "/drives/[^/]+/", jsonResponse("/drive-info.json"))
+            .on("POST", "/fwpolicies/", jsonResponse("/fwpolicies-single.json"))
+            .on("POST", "/servers/", jsonResponse("/servers-single.json"))
+            .on("POST", "/servers/[^/]+/action/\\?do=start", response202())
+            .on("DELETE", "/drives/", response204())
+            .build();
+      server.setDispatcher(new Dispatcher() {
+         @Override
+         public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            requests.add(request);
+            if (request.getPath().endsWith("?do=clone")) {
+               Thread.sleep(CLONE_LATENCY_MILLIS);
+            }
+            return routes.dispatch(request);
+         }
+      });
+   }
+
+   public void testCreationWaitsForTheCloneWhenThePoolIsCold() {
+      ComputeServiceContext pooled = pooledContext(1);
+      try {
+         long start = System.nanoTime();
+         adapter(pooled).createNodeWithGroupEncodedIntoName("group", "node", template());
+         long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+         assertTrue(elapsedMillis >= CLONE_LATENCY_MILLIS, "creation took " + elapsedMillis + "ms");
+         assertTrue(Iterables.any(requests, path("/libdrives/" + LIBRARY_DRIVE + "/")));
+      } finally {
+         pooled.close();
+      }
+   }
+
+   public void testCreationDoesNotWaitForClonesWhenThePoolIsWarm() throws InterruptedException {
+      ComputeServiceContext pooled = pooledContext(1);
+      try {
+         DrivePool pool = pooled.utils().injector().getInstance(DrivePool.class);
+         pool.warm(LIBRARY_DRIVE);
+         awaitReadyClone(pool);
+         requests.clear();
+
+         long start = System.nanoTime();
+         adapter(pooled).createNodeWithGroupEncodedIntoName("group", "node", template());
+         long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+         assertTrue(elapsedMillis < CLONE_LATENCY_MILLIS, "creation took " + elapsedMillis + "ms");
+         assertFalse(Iterables.any(requests, path("/libdrives/" + LIBRARY_DRIVE + "/")));
+         RecordedRequest createServer = Iterables.find(requests, path("/servers/"));
+         assertTrue(createServer.getUtf8Body().contains(CLONED_DRIVE), createServer.getUtf8Body());
+      } finally {
+         pooled.close();
+      }
+   }
+
+   public void testPooledDrivesAreDeletedOnClose() throws InterruptedException {
+      ComputeServiceContext pooled = pooledContext(1);
+      DrivePool pool = pooled.utils().injector().getInstance(DrivePool.class);
+      pool.warm(LIBRARY_DRIVE);
+      awaitReadyClone(pool);
+
+      pooled.close();
+
+      RecordedRequest delete = Iterables.find(requests, new Predicate<RecordedRequest>() {
+         @Override
+         public boolean apply(RecordedRequest input) {
+            return input.getMethod().equals("DELETE") && input.getPath().equals("/drives/");
+         }
+      });
+      assertEquals(delete.getUtf8Body(), "{\"objects\":[{\"uuid\":\"" + CLONED_DRIVE + "\"}]}");
+      assertEquals(pool.available(LIBRARY_DRIVE), 0);
+   }
+
+   public void testDisabledPoolDoesNotClone() {
+      DrivePool pool = ctx.utils().injector().getInstance(DrivePool.class);
+      pool.warm(LIBRARY_DRIVE);
+
+      assertFalse(pool.take(LIBRARY_DRIVE).isPresent());
+      assertTrue(requests.isEmpty());
+   }
+
+   private ComputeServiceContext pooledContext(int size) {
+      Properties overrides = overrides();
+      overrides.put(PROPERTY_DRIVE_POOL_SIZE, String.valueOf(size));
+      // Use the default executors, so the pool is refilled in the background
+      return ContextBuilder.newBuilder("cloudsigma2").credentials("user", "password").endpoint(url(""))
+            .overrides(overrides).buildView(ComputeServiceContext.class);
+   }
+
+   private static CloudSigma2ComputeServiceAdapter adapter(ComputeServiceContext context) {
+      return context.utils().injector().getInstance(CloudSigma2ComputeServiceAdapter.class);
+   }
+
+   private static void awaitReadyClone(DrivePool pool) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (pool.available(LIBRARY_DRIVE) == 0 && System.nanoTime() < deadline) {
+         Thread.sleep(10);
+      }
+      assertEquals(pool.available(LIBRARY_DRIVE), 1);
+   }
+
+   private static Template template() {
+      Image image = new ImageBuilder().ids(LIBRARY_DRIVE).name("Ubuntu")
+            .operatingSystem(OperatingSystem.builder().description("Ubuntu").build())
+            .status(Image.Status.AVAILABLE).build();
+      Hardware hardware = new HardwareBuilder().ids("cpu=1000,ram=1024").processor(new Processor(1, 1000))
+            .ram(1024).build();
+      Location location = new LocationBuilder().id("zrh").description("Zurich").scope(LocationScope.ZONE).build();
+      return new TemplateImpl(image, hardware, location, new CloudSigma2TemplateOptions());
+   }
+
+   private static Predicate<RecordedRequest> path(final String path) {
+      return new Predicate<RecordedRequest>() {
+         @Override
+         public boolean apply(RecordedRequest input) {
+            return input.getPath().equals(path);
+         }
+      };
+   }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.compute.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import org.jclouds.cloudsigma2.compute.internal.ServerStatsCollector.Sample;
+import org.jclouds.cloudsigma2.domain.IOStats;
+import org.jclouds.cloudsigma2.domain.InterfaceType;
+import org.jclouds.cloudsigma2.domain.NICStats;
+import org.jclouds.cloudsigma2.domain.ServerInfo;
+import org.jclouds.cloudsigma2.domain.ServerRuntime;
+import org.jclouds.cloudsigma2.internal.BaseCloudSigma2ApiMockTest;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_STATS_HISTORY_SIZE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "ServerStatsCollectorMockTest", singleThreaded = true)
+public class ServerStatsCollectorMockTest extends BaseCloudSigma2ApiMockTest {
+
+   private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+   @Override
+   protected Properties overrides() {
+      Properties overrides = super.overrides();
+      overrides.put(PROPERTY_STATS_HISTORY_SIZE, "3");
+      return overrides;
+   }
+
+   public void testRatesFromSuccessiveCounters() {
+      ServerStatsCollector collector = collector();
+      collector.record(ImmutableList.of(server("server-1", nic("mac-1", 1000, 2000, 10, 20))), 0);
+      assertTrue(collector.history("server-1").isEmpty());
+
+      collector.record(ImmutableList.of(server("server-1", nic("mac-1", 5000, 4000, 50, 40))), 2 * SECOND);
+
+      Sample sample = collector.history("server-1").get(0);
+      assertEquals(sample.getIntervalMillis(), 2000);
+      assertEquals(sample.getBytesReceivedPerSecond(), 2000.0);
+      assertEquals(sample.getBytesSentPerSecond(), 1000.0);
+      assertEquals(sample.getPacketsReceivedPerSecond(), 20.0);
+      assertEquals(sample.getPacketsSentPerSecond(), 10.0);
+   }
+
+   public void testAggregatesAllNics() {
+      ServerStatsCollector collector = collector();
+      collector.record(ImmutableList.of(server("server-1", nic("mac-1", 0, 0, 0, 0), nic("mac-2", 0, 0, 0, 0))), 0);
+      collector.record(ImmutableList.of(server("server-1", nic("mac-1", 100, 0, 0, 0), nic("mac-2", 300, 0, 0, 0))),
+            SECOND);
+
+      assertEquals(collector.history("server-1").get(0).getBytesReceivedPerSecond(), 400.0);
+   }
+
+   public void testCounterResetCountsFromZero() {
+      ServerStatsCollector collector = collector();
+      collector.record(ImmutableList.of(server("server-1", nic("mac-1", 9000, 9000, 90, 90))), 0);
+      collector.record(ImmutableList.of(server("server-1", nic("mac-1", 500, 9100, 5, 91))), SECOND);
+
+      Sample sample = collector.history("server-1").get(0);
+      assertEquals(sample.getBytesReceivedPerSecond(), 500.0);
+      assertEquals(sample.getBytesSentPerSecond(), 100.0);
+      assertEquals(sample.getPacketsReceivedPerSecond(), 5.0);
+      assertEquals(sample.getPacketsSentPerSecond(), 1.0);
+   }
+
+   public void testRestartCountsFromZeroEvenWhenCountersGrew() {
+      ServerStatsCollector collector = collector();
+      collector.record(ImmutableList.of(server("server-1", new Date(1000), nic("mac-1", 100, 0, 0, 0))), 0);
+      collector.record(ImmutableList.of(server("server-1", new Date(5000), nic("mac-1", 700, 0, 0, 0))), SECOND);
+
+      assertEquals(collector.history("server-1").get(0).getBytesReceivedPerSecond(), 700.0);
+   }
+
+   public void testKeepsTheLastSamples() {
+      ServerStatsCollector collector = collector();
+      for (int i = 0; i <= 5; i++) {
+         collector.record(ImmutableList.of(server("server-1", nic("mac-1", i * i * 100, 0, 0, 0))), i * SECOND);
+      }
+
+      List<Sample> history = collector.history("server-1");
+      assertEquals(history.size(), 3);
+      assertEquals(history.get(0).getBytesReceivedPerSecond(), 500.0);
+      assertEquals(history.get(2).getBytesReceivedPerSecond(), 900.0);
+   }
+
+   public void testStoppedServersHaveNoSamples() {
+      ServerStatsCollector collector = collector();
+      collector.record(ImmutableList.of(server("server-1", nic("mac-1", 1000, 0, 0, 0))), 0);
+      collector.record(ImmutableList.of(stopped("server-1")), SECOND);
+      collector.record(ImmutableList.of(server("server-1", nic("mac-1", 100, 0, 0, 0))), 2 * SECOND);
+      assertTrue(collector.history("server-1").isEmpty());
+
+      collector.record(ImmutableList.of(server("server-1", nic("mac-1", 300, 0, 0, 0))), 3 * SECOND);
+      assertEquals(collector.history("server-1").get(0).getBytesReceivedPerSecond(), 200.0);
+   }
+
+   public void testForgetsServersNoLongerListed() {
+      ServerStatsCollector collector = collector();
+      collector.record(ImmutableList.of(stopped("server-1"), stopped("server-2")), 0);
+      assertEquals(collector.servers(), ImmutableSet.of("server-1", "server-2"));
+
+      collector.record(ImmutableList.of(stopped("server-2")), SECOND);
+      assertEquals(collector.servers(), ImmutableSet.of("server-2"));
+      assertTrue(collector.history("server-1").isEmpty());
+   }
+
+   public void testCollectListsAllServersInOneCall() throws InterruptedException {
+      server.enqueue(listing(1000));
+      server.enqueue(listing(3000));
+      ServerStatsCollector collector = collector();
+
+      collector.collect();
+      collector.collect();
+
+      assertEquals(server.getRequestCount(), 2);
+      assertSent("GET", "/servers/detail/?limit=20&offset=0");
+      assertSent("GET", "/servers/detail/?limit=20&offset=0");
+      List<Sample> history = collector.history("server-1");
+      assertEquals(history.size(), 1);
+      assertTrue(history.get(0).getBytesReceivedPerSecond() > 0, history.toString());
+   }
+
+   private ServerStatsCollector collector() {
+      return ctx.utils().injector().getInstance(ServerStatsCollector.class);
+   }
+
+   private static MockResponse listing(long bytesReceived) {
+      return new MockResponse().addHeader("Content-Type", "application/json").setBody(
+            "{\"meta\":{\"limit\":20,\"offset\":0,\"total_count\":1},\"objects\":[{\"uuid\":\"server-1\","
+                  + "\"name\":\"web-1\",\"status\":\"running\",\"runtime\":{\"nics\":[{\"interface_type\":\"public\","
+                  + "\"io\":{\"bytes_recv\":\"" + bytesReceived + "\",\"bytes_sent\":\"0\",\"packets_recv\":\"0\","
+                  + "\"packets_sent\":\"0\"},\"mac\":\"22:a7:a0:0e:43:94\"}]}}]}");
+   }
+
+   private static ServerInfo server(String uuid, NICStats... nics) {
+      return server(uuid, (Date) null, nics);
+   }
+
+   private static ServerInfo server(String uuid, Date activeSince, NICStats... nics) {
+      return new ServerInfo.Builder().uuid(uuid).runtime(new ServerRuntime(activeSince, ImmutableList.copyOf(nics)))
+            .build();
+   }
+
+   private static ServerInfo stopped(String uuid) {
+      return new ServerInfo.Builder().uuid(uuid).build();
+   }
+
+   private static NICStats nic(String mac, long bytesReceived, long bytesSent, long packetsReceived,
+                               long packetsSent) {
+      IOStats io = new IOStats(String.valueOf(bytesReceived), String.valueOf(bytesSent),
+            String.valueOf(packetsReceived), String.valueOf(packetsSent));
+      return new NICStats(InterfaceType.PUBLIC, io, null, null, mac);
+   }
+}
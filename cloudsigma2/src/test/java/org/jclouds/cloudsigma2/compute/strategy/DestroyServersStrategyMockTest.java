@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.compute.strategy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.jclouds.cloudsigma2.compute.CloudSigma2ComputeService;
+import org.jclouds.cloudsigma2.internal.BaseCloudSigma2ApiMockTest;
+import org.jclouds.compute.ComputeService;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "DestroyServersStrategyMockTest", singleThreaded = true)
+public class DestroyServersStrategyMockTest extends BaseCloudSigma2ApiMockTest {
+
+   public void testComputeServiceDestroysGroupsInBulk() {
+      assertTrue(ctx.utils().injector().getInstance(ComputeService.class) instanceof CloudSigma2ComputeService);
+   }
+
+   public void testDestroyServers() throws InterruptedException {
+      server.enqueue(jsonResponse("/servers-teardown-running.json"));
+      server.enqueue(response202());
+      server.enqueue(response202());
+      server.enqueue(jsonResponse("/servers-teardown-stopping.json"));
+      server.enqueue(jsonResponse("/servers-teardown-stopped.json"));
+      server.enqueue(response204());
+      server.enqueue(response204());
+      server.enqueue(jsonResponse("/tags-teardown.json"));
+      server.enqueue(response204());
+
+      Set<String> destroyed = strategy().destroyServers(ImmutableList.of("server-1", "server-2", "server-gone"));
+
+      assertEquals(destroyed, ImmutableSet.of("server-1", "server-2", "server-gone"));
+      assertEquals(server.getRequestCount(), 9);
+      assertSent("GET", "/servers/detail/");
+      assertSent("POST", "/servers/server-1/action/?do=stop");
+      assertSent("POST", "/servers/server-2/action/?do=stop");
+      assertSent("GET", "/servers/detail/");
+      assertSent("GET", "/servers/detail/");
+      assertEquals(assertSent("DELETE", "/servers/").getUtf8Body(),
+            "{\"objects\":[{\"uuid\":\"server-1\"},{\"uuid\":\"server-2\"}]}");
+      assertEquals(assertSent("DELETE", "/drives/").getUtf8Body(),
+            "{\"objects\":[{\"uuid\":\"drive-1\"},{\"uuid\":\"drive-2\"}]}");
+      assertSent("GET", "/tags/");
+      // Only the jclouds tag that is no longer in use is deleted
+      assertSent("DELETE", "/tags/tag-group/");
+   }
+
+   public void testNothingToDestroy() {
+      server.enqueue(jsonResponse("/servers-teardown-stopped.json"));
+
+      Set<String> destroyed = strategy().destroyServers(ImmutableList.of("server-gone"));
+
+      assertEquals(destroyed, ImmutableSet.of("server-gone"));
+      assertEquals(server.getRequestCount(), 1);
+   }
+
+   private DestroyServersStrategy strategy() {
+      return ctx.utils().injector().getInstance(DestroyServersStrategy.class);
+   }
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.functions.internal;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+import org.jclouds.ContextBuilder;
+import org.jclouds.cloudsigma2.CloudSigma2Api;
+import org.jclouds.cloudsigma2.domain.PaginatedCollection;
+import org.jclouds.cloudsigma2.domain.Tag;
+import org.jclouds.cloudsigma2.internal.BaseCloudSigma2ApiMockTest;
+import org.jclouds.cloudsigma2.options.PaginationOptions;
+import org.jclouds.compute.ComputeServiceContext;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_PAGING_CONCURRENCY;
+import static org.jclouds.cloudsigma2.config.CloudSigma2Properties.PROPERTY_PAGING_TARGET_LATENCY;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "ConcurrentPagerMockTest", singleThreaded = true)
+public class ConcurrentPagerMockTest extends BaseCloudSigma2ApiMockTest {
+
+   private static final Pattern LIMIT = Pattern.compile("[?&]limit=(\\d+)");
+   private static final Pattern OFFSET = Pattern.compile("[?&]offset=(\\d+)");
+
+   public void testListsAllObjectsInOrder() {
+      TagListing listing = new TagListing(250, Integer.MAX_VALUE);
+      server.setDispatcher(listing);
+      ComputeServiceContext context = concurrentContext(4, 1000);
+      try {
+         List<String> names = names(pager(context).list("tags", listTags(context)));
+
+         assertEquals(names, expectedNames(250));
+         assertEquals(server.getRequestCount(), 1 + (250 - 20 + 19) / 20);
+      } finally {
+         context.close();
+      }
+   }
+
+   public void testFetchesPagesConcurrently() {
+      TagListing listing = new TagListing(200, Integer.MAX_VALUE);
+      server.setDispatcher(listing);
+      ComputeServiceContext context = concurrentContext(4, 1000);
+      try {
+         pager(context).list("tags", listTags(context));
+
+         assertTrue(listing.maxInFlight.get() > 1, "max in flight: " + listing.maxInFlight.get());
+         assertTrue(listing.maxInFlight.get() <= 4, "max in flight: " + listing.maxInFlight.get());
+      } finally {
+         context.close();
+      }
+   }
+
+   public void testListsAllObjectsWhenTheApiCapsThePageSize() {
+      server.setDispatcher(new TagListing(95, 15));
+
+      List<String> names = names(pager(ctx).list("tags", listTags(ctx)));
+
+      assertEquals(names, expectedNames(95));
+   }
+
+   public void testSinglePageListing() throws InterruptedException {
+      server.setDispatcher(new TagListing(5, Integer.MAX_VALUE));
+
+      List<String> names = names(pager(ctx).list("tags", listTags(ctx)));
+
+      assertEquals(names, expectedNames(5));
+      assertEquals(server.getRequestCount(), 1);
+      assertSent("GET", "/tags/?limit=20&offset=0");
+   }
+
+   @Test(timeOut = 10000)
+   public void testDoesNotWaitForWorkersThatNeverStarted() throws InterruptedException {
+      server.setDispatcher(new TagListing(100, Integer.MAX_VALUE));
+      final CountDownLatch release = new CountDownLatch(1);
+      ListeningExecutorService busy = listeningDecorator(Executors.newSingleThreadExecutor());
+      // Keep the only user thread busy, so the workers stay queued while the caller fetches every page
+      busy.submit(new Callable<Void>() {
+         @Override
+         public Void call() throws InterruptedException {
+            release.await();
+            return null;
+         }
+      });
+      try {
+         ConcurrentPager pager = new ConcurrentPager(busy, 4, PaginationOptions.DEFAULT_LIMIT, 1000);
+
+         List<String> names = names(pager.list("tags", listTags(ctx)));
+
+         assertEquals(names, expectedNames(100));
+      } finally {
+         release.countDown();
+         busy.shutdownNow();
+      }
+   }
+
+   public void testPageSizeGrowsWhenPagesAreFast() {
+      server.setDispatcher(new TagListing(1000, Integer.MAX_VALUE));
+      ComputeServiceContext context = concurrentContext(4, 60000);
+      try {
+         ConcurrentPager pager = pager(context);
+         pager.list("tags", listTags(context));
+         int firstRequests = server.getRequestCount();
+         assertTrue(pager.limit("tags") > PaginationOptions.DEFAULT_LIMIT, "limit: " + pager.limit("tags"));
+
+         List<String> names = names(pager.list("tags", listTags(context)));
+
+         assertEquals(names, expectedNames(1000));
+         assertTrue(server.getRequestCount() - firstRequests < firstRequests,
+               "requests: " + firstRequests + " then " + (server.getRequestCount() - firstRequests));
+      } finally {
+         context.close();
+      }
+   }
+
+   private ComputeServiceContext concurrentContext(int concurrency, long targetLatencyMillis) {
+      Properties overrides = overrides();
+      overrides.put(PROPERTY_PAGING_CONCURRENCY, String.valueOf(concurrency));
+      overrides.put(PROPERTY_PAGING_TARGET_LATENCY, String.valueOf(targetLatencyMillis));
+      // Use the default executors, so the pages are really fetched in parallel
+      return ContextBuilder.newBuilder("cloudsigma2").credentials("user", "password").endpoint(url(""))
+            .overrides(overrides).buildView(ComputeServiceContext.class);
+   }
+
+   private static ConcurrentPager pager(ComputeServiceContext context) {
+      return context.utils().injector().getInstance(ConcurrentPager.class);
+   }
+
+   private static Function<PaginationOptions, PaginatedCollection<Tag>> listTags(ComputeServiceContext context) {
+      final CloudSigma2Api api = context.unwrapApi(CloudSigma2Api.class);
+      return new Function<PaginationOptions, PaginatedCollection<Tag>>() {
+         @Override
+         public PaginatedCollection<Tag> apply(PaginationOptions input) {
+            return api.listTags(input);
+         }
+      };
+   }
+
+   private static List<String> names(List<Tag> tags) {
+      List<String> names = Lists.newArrayList();
+      for (Tag tag : tags) {
+         names.add(tag.getName());
+      }
+      return names;
+   }
+
+   private static List<String> expectedNames(int total) {
+      ImmutableList.Builder<String> names = ImmutableList.builder();
+      for (int i = 0; i < total; i++) {
+         names.add(name(i));
+      }
+      return names.build();
+   }
+
+   private static String name(int index) {
+      return String.format("tag-%04d", index);
+   }
+
+   /**
+    * Serves a collection of tags. The later pages are answered first, so the order of the result does not depend on
+    * the order the responses arrive in.
+    */
+   private static class TagListing extends Dispatcher {
+      private final int total;
+      private final int maxLimit;
+      private final AtomicInteger inFlight = new AtomicInteger();
+      private final AtomicInteger maxInFlight = new AtomicInteger();
+
+      TagListing(int total, int maxLimit) {
+         this.total = total;
+         this.maxLimit = maxLimit;
+      }
+
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+         int current = inFlight.incrementAndGet();
+         try {
+            for (int max = maxInFlight.get(); current > max; max = maxInFlight.get()) {
+               maxInFlight.compareAndSet(max, current);
+            }
+            int limit = Math.min(param(LIMIT, request.getPath()), maxLimit);
+            int offset = param(OFFSET, request.getPath());
+            Thread.sleep(Math.max(0, 50 - offset / 10));
+            return new MockResponse().addHeader("Content-Type", "application/json").setBody(page(limit, offset));
+         } finally {
+            inFlight.decrementAndGet();
+         }
+      }
+
+      private String page(int limit, int offset) {
+         StringBuilder body = new StringBuilder();
+         body.append("{\"meta\":{\"limit\":").append(limit).append(",\"offset\":").append(offset)
+               .append(",\"total_count\":").append(total).append("},\"objects\":[");
+         for (int i = offset; i < Math.min(total, offset + limit); i++) {
+            if (i > offset) {
+               body.append(',');
+            }
+            body.append("{\"meta\":{},\"name\":\"").append(name(i)).append("\",\"resources\":[],\"uuid\":\"")
+                  .append(name(i)).append("\"}");
+         }
+         return body.append("]}").toString();
+      }
+
+      private static int param(Pattern pattern, String path) {
+         Matcher matcher = pattern.matcher(path);
+         if (!matcher.find()) {
+            throw new IllegalArgumentException("missing pagination parameter in " + path);
+         }
+         return Integer.parseInt(matcher.group(1));
+      }
+   }
+}
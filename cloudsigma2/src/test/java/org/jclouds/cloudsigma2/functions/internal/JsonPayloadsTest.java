@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudsigma2.functions.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jclouds.cloudsigma2.domain.DeviceEmulationType;
+import org.jclouds.cloudsigma2.domain.Drive;
+import org.jclouds.cloudsigma2.domain.FirewallPolicy;
+import org.jclouds.cloudsigma2.domain.IPConfiguration;
+import org.jclouds.cloudsigma2.domain.IPConfigurationType;
+import org.jclouds.cloudsigma2.domain.Model;
+import org.jclouds.cloudsigma2.domain.NIC;
+import org.jclouds.cloudsigma2.domain.ServerDrive;
+import org.jclouds.cloudsigma2.domain.ServerInfo;
+import org.jclouds.cloudsigma2.domain.Tag;
+import org.jclouds.cloudsigma2.functions.ServerInfoToJson;
+import org.jclouds.http.HttpRequest;
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = "unit", testName = "JsonPayloadsTest")
+public class JsonPayloadsTest {
+
+   private final JsonPayloads jsonPayloads = new JsonPayloads();
+   private final ServerInfoToJson serverInfoToJson = new ServerInfoToJson(jsonPayloads);
+
+   public void testServerPayloadMatchesTree() {
+      ServerInfo server = server(0);
+
+      String payload = payload(jsonPayloads.bindToRequest(request(), server));
+
+      assertEquals(payload, serverInfoToJson.apply(server).toString());
+      assertEquals(new JsonParser().parse(payload), new JsonParser().parse(legacyPayload(server).toString()));
+   }
+
+   public void testNullBootOrderIsSent() {
+      ServerInfo server = new ServerInfo.Builder()
+            .name("no-boot-order")
+            .drives(ImmutableList.of(new ServerDrive.Builder().deviceChannel("0:0").drive(drive("drive")).build()))
+            .build();
+
+      String payload = payload(jsonPayloads.bindToRequest(request(), server));
+
+      assertEquals(payload,
+            "{\"name\":\"no-boot-order\",\"nics\":[],"
+                  + "\"drives\":[{\"boot_order\":null,\"dev_channel\":\"0:0\",\"drive\":\"drive\"}]}");
+   }
+
+   public void testHtmlCharactersAreNotEscaped() {
+      ServerInfo server = new ServerInfo.Builder().name("<a & b>").build();
+
+      assertEquals(payload(jsonPayloads.bindToRequest(request(), server)),
+            "{\"name\":\"<a & b>\",\"nics\":[],\"drives\":[]}");
+   }
+
+   public void testObjectsPayloadMatchesTree() {
+      List<ServerInfo> servers = servers(3);
+
+      String typed = payload(jsonPayloads.bindObjectsToRequest(request(), servers));
+      String trees = payload(jsonPayloads.bindObjectsToRequest(request(), servers, serverInfoToJson));
+
+      assertEquals(typed, legacyObjectsPayload(servers));
+      assertEquals(trees, typed);
+   }
+
+   /**
+    * Builds the payload the way the binders used to, with a new {@link com.google.gson.Gson} for every nested
+    * value and the output parsed back into a tree.
+    */
+   private static String legacyObjectsPayload(List<ServerInfo> servers) {
+      JsonArray objects = new JsonArray();
+      for (ServerInfo server : servers) {
+         objects.add(legacyPayload(server));
+      }
+      JsonObject json = new JsonObject();
+      json.add("objects", objects);
+      return json.toString();
+   }
+
+   private static JsonObject legacyPayload(ServerInfo server) {
+      JsonObject json = new JsonObject();
+      json.addProperty("name", server.getName());
+      json.addProperty("cpu", server.getCpu());
+      json.addProperty("mem", server.getMemory().toString());
+      json.add("meta", new JsonParser().parse(new com.google.gson.Gson().toJson(server.getMeta())));
+      json.add("requirements", new JsonParser().parse(new com.google.gson.Gson().toJson(server.getRequirements())));
+      json.add("tags", new JsonParser().parse(new com.google.gson.Gson().toJson(server.getTags())));
+      json.addProperty("vnc_password", server.getVncPassword());
+
+      JsonArray nics = new JsonArray();
+      for (NIC nic : server.getNics()) {
+         JsonObject nicJson = new JsonObject();
+         nicJson.addProperty("firewall_policy", nic.getFirewallPolicy().getUuid());
+         JsonObject ipConfiguration = new JsonObject();
+         ipConfiguration.addProperty("conf", nic.getIpV4Configuration().getConfigurationType().value());
+         nicJson.add("ip_v4_conf", ipConfiguration);
+         nicJson.addProperty("model", nic.getModel().value());
+         nicJson.addProperty("mac", nic.getMac());
+         nics.add(nicJson);
+      }
+      json.add("nics", nics);
+
+      JsonArray drives = new JsonArray();
+      for (ServerDrive drive : server.getDrives()) {
+         JsonObject driveJson = new JsonObject();
+         driveJson.addProperty("boot_order", drive.getBootOrder());
+         driveJson.addProperty("dev_channel", drive.getDeviceChannel());
+         driveJson.addProperty("device", drive.getDeviceEmulationType().value());
+         driveJson.addProperty("drive", drive.getDriveUuid());
+         drives.add(driveJson);
+      }
+      json.add("drives", drives);
+      return json;
+   }
+
+   private static List<ServerInfo> servers(int count) {
+      ImmutableList.Builder<ServerInfo> servers = ImmutableList.builder();
+      for (int i = 0; i < count; i++) {
+         servers.add(server(i));
+      }
+      return servers.build();
+   }
+
+   private static ServerInfo server(int index) {
+      return new ServerInfo.Builder()
+            .name("server-" + index)
+            .cpu(2000)
+            .memory(BigInteger.valueOf(2147483648L))
+            .meta(ImmutableMap.of("description", "server " + index, "jclouds-group", "group"))
+            .requirements(ImmutableList.<String>of())
+            .tags(ImmutableList.of(new Tag.Builder().uuid("tag-" + index).build()))
+            .vncPassword("secret")
+            .nics(ImmutableList.of(new NIC.Builder()
+                  .firewallPolicy(new FirewallPolicy.Builder().uuid("policy").build())
+                  .ipV4Configuration(new IPConfiguration(IPConfigurationType.DHCP, null))
+                  .model(Model.VIRTIO)
+                  .mac("22:a7:a0:0d:43:99")
+                  .build()))
+            .drives(ImmutableList.of(
+                  new ServerDrive(1, "0:0", DeviceEmulationType.VIRTIO, "drive-" + index),
+                  new ServerDrive(null, "0:1", DeviceEmulationType.IDE, drive("cdrom-" + index))))
+            .build();
+   }
+
+   private static Drive drive(String uuid) {
+      return new Drive.Builder().uuid(uuid).build();
+   }
+
+   private static HttpRequest request() {
+      return HttpRequest.builder().method("POST").endpoint("https://zrh.cloudsigma.com/api/2.0/servers/").build();
+   }
+
+   private static String payload(HttpRequest request) {
+      return (String) request.getPayload().getRawContent();
+   }
+}
@@ -17,8 +17,10 @@
 package org.jclouds.dimensiondata.cloudcontrol.compute.functions;
 
 import com.google.common.base.Function;
+import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.compute.reference.ComputeServiceConstants.Timeouts;
 import org.jclouds.dimensiondata.cloudcontrol.DimensionDataCloudControlApi;
@@ -34,6 +36,7 @@ import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.Collection;
 import java.util.List;
 
 import static java.lang.String.format;
@@ -121,21 +124,29 @@ public class CleanupServer implements Function<String, Boolean> {
          attemptDeleteFirewallRule(serverId, networkApi, firewallRule);
       }
 
+      powerOffServer(serverApi, serverId);
+      deleteServer(serverApi, serverId);
+      return true;
+   }
+
+   void powerOffServer(final ServerApi serverApi, final String serverId) {
       serverApi.powerOffServer(serverId);
       String message = format("Server(%s) not terminated within %d ms.", serverId, timeouts.nodeTerminated);
       if (!serverStoppedPredicate.apply(serverId)) {
          throw new IllegalStateException(message);
       }
+   }
+
+   void deleteServer(final ServerApi serverApi, final String serverId) {
       serverApi.deleteServer(serverId);
       String deleteFailureMessage = format("Server(%s) not deleted within %d ms.", serverId, timeouts.nodeTerminated);
 
       if (!serverDeletedPredicate.apply(serverId)) {
          throw new IllegalStateException(deleteFailureMessage);
       }
-      return true;
    }
 
-   private void attemptDeleteFirewallRule(final String serverId, final NetworkApi networkApi,
+   boolean attemptDeleteFirewallRule(final String serverId, final NetworkApi networkApi,
          final FirewallRule firewallRule) {
       try {
          if (firewallRule.state().isNormal()) {
@@ -149,6 +160,7 @@ public class CleanupServer implements Function<String, Boolean> {
                         firewallRule.destination().portList().id(), firewallRule.id(), serverId, t.getMessage()));
                }
             }
+            return true;
          } else {
             logger.warn(
                   format("Server(%s) has an associated FirewallRule(%s) that was not deleted as it is in state(%s).",
@@ -159,28 +171,41 @@ public class CleanupServer implements Function<String, Boolean> {
                format("Failed to delete FirewallRule(%s) associated with Server(%s). Due to - (%s)", firewallRule.id(),
                      serverId, t.getMessage()));
       }
+      return false;
    }
 
-   private void attemptDeletePublicIpBlock(final String serverId, final NetworkApi networkApi,
+   boolean attemptDeletePublicIpBlock(final String serverId, final NetworkApi networkApi,
          final PublicIpBlock publicIpBlock) {
+      return attemptDeletePublicIpBlock(ImmutableList.of(serverId), networkApi, publicIpBlock);
+   }
+
+   /**
+    * Releases a public IP block shared by the NAT rules of several servers.
+    */
+   boolean attemptDeletePublicIpBlock(final Collection<String> serverIds, final NetworkApi networkApi,
+         final PublicIpBlock publicIpBlock) {
+      String servers = Joiner.on(", ").join(serverIds);
       try {
          if (publicIpBlock.state().isNormal()) {
             networkApi.removePublicIpBlock(publicIpBlock.id());
+            return true;
          } else {
             logger.warn(format("Server(%s) has an associated IpBlock(%s) that was not deleted as it was in state(%s).",
-                  serverId, publicIpBlock.id(), publicIpBlock.state()));
+                  servers, publicIpBlock.id(), publicIpBlock.state()));
          }
       } catch (Throwable t) {
          logger.warn(t,
                format("Failed to delete IpBlock(%s) associated with Server(%s). Due to - (%s)", publicIpBlock.id(),
-                     serverId, t.getMessage()));
+                     servers, t.getMessage()));
       }
+      return false;
    }
 
-   private void attemptDeleteNatRule(final String serverId, final NetworkApi networkApi, final NatRule natRule) {
+   boolean attemptDeleteNatRule(final String serverId, final NetworkApi networkApi, final NatRule natRule) {
       try {
          if (natRule.state().isNormal()) {
             networkApi.deleteNatRule(natRule.id());
+            return true;
          } else {
             logger.warn(format("Server(%s) has an associated NatRule(%s) that was not deleted as it was in state(%s).",
                   serverId, natRule.id(), natRule.state()));
@@ -190,6 +215,7 @@ public class CleanupServer implements Function<String, Boolean> {
                format("Failed to delete NatRule(%s) associated with Server(%s). Due to - (%s)", natRule.id(), serverId,
                      t.getMessage()));
       }
+      return false;
    }
 
    private void rollbackOperation(final String message) {
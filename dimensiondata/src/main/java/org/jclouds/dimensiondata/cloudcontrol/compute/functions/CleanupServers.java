@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.compute.functions;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.net.InetAddresses;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.dimensiondata.cloudcontrol.DimensionDataCloudControlApi;
+import org.jclouds.dimensiondata.cloudcontrol.domain.FirewallRule;
+import org.jclouds.dimensiondata.cloudcontrol.domain.NatRule;
+import org.jclouds.dimensiondata.cloudcontrol.domain.PublicIpBlock;
+import org.jclouds.dimensiondata.cloudcontrol.domain.Server;
+import org.jclouds.dimensiondata.cloudcontrol.features.NetworkApi;
+import org.jclouds.dimensiondata.cloudcontrol.features.ServerApi;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import static java.lang.String.format;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import static org.jclouds.dimensiondata.cloudcontrol.utils.DimensionDataCloudControlResponseUtils.generateFirewallRuleName;
+
+/**
+ * Destroys a batch of servers together with the NAT rules, public IP blocks and firewall rules that
+ * were created for them.
+ * <p>
+ * {@link CleanupServer} lists the networking resources of the network domain once per server (and the
+ * public IP blocks once per NAT rule) and deletes them one by one. Here the NAT rules, public IP blocks
+ * and firewall rules of each network domain are listed once, the deletions for all the servers are
+ * planned from that snapshot and then run concurrently:
+ * <ul>
+ * <li>NAT rules, firewall rules and power-offs don't depend on each other and start straight away;</li>
+ * <li>a server is deleted once it is stopped and its own NAT and firewall rules are gone;</li>
+ * <li>a public IP block is released once every NAT rule pointing into it has been deleted, so blocks
+ * still used by servers outside the batch are kept.</li>
+ * </ul>
+ * The result maps each server id to {@code true} if the server is gone and {@code false} if it was left
+ * in place, either because it wasn't in a state that allows deletion or because a step failed.
+ * <p>
+ * As with {@link CleanupServer}, a server in a failed state aborts the cleanup with an
+ * {@link IllegalStateException}; this happens before anything in the batch is deleted.
+ */
+@Singleton
+public class CleanupServers implements Function<Iterable<String>, Map<String, Boolean>> {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final DimensionDataCloudControlApi api;
+   private final ListeningExecutorService userExecutor;
+   private final CleanupServer cleanupServer;
+
+   @Inject
+   CleanupServers(final DimensionDataCloudControlApi api,
+         @Named(PROPERTY_USER_THREADS) final ListeningExecutorService userExecutor,
+         final CleanupServer cleanupServer) {
+      this.api = api;
+      this.userExecutor = userExecutor;
+      this.cleanupServer = cleanupServer;
+   }
+
+   @Override
+   public Map<String, Boolean> apply(final Iterable<String> serverIds) {
+      final ServerApi serverApi = api.getServerApi();
+      Map<String, ListenableFuture<Server>> servers = Maps.newLinkedHashMap();
+      for (final String serverId : serverIds) {
+         servers.put(serverId, userExecutor.submit(new Callable<Server>() {
+            @Override
+            public Server call() {
+               return serverApi.getServer(serverId);
+            }
+         }));
+      }
+
+      Map<String, ListenableFuture<Boolean>> results = Maps.newLinkedHashMap();
+      ListMultimap<String, Server> serversByNetworkDomain = ArrayListMultimap.create();
+      List<String> failed = Lists.newArrayList();
+      for (Map.Entry<String, ListenableFuture<Server>> entry : servers.entrySet()) {
+         Server server = await(entry.getValue());
+         if (server == null) {
+            results.put(entry.getKey(), Futures.immediateFuture(true));
+         } else if (server.state().isFailed()) {
+            failed.add(format("Server(%s) not deleted as it is in state(%s).", server.id(), server.state()));
+         } else if (!server.state().isNormal()) {
+            results.put(entry.getKey(), Futures.immediateFuture(false));
+         } else {
+            serversByNetworkDomain.put(server.networkInfo().networkDomainId(), server);
+         }
+      }
+      if (!failed.isEmpty()) {
+         throw new IllegalStateException(Joiner.on(' ').join(failed));
+      }
+
+      List<ListenableFuture<?>> ipBlockReleases = Lists.newArrayList();
+      for (String networkDomainId : serversByNetworkDomain.keySet()) {
+         results.putAll(cleanupNetworkDomain(serverApi, networkDomainId, serversByNetworkDomain.get(networkDomainId),
+               ipBlockReleases));
+      }
+
+      ImmutableMap.Builder<String, Boolean> deleted = ImmutableMap.builder();
+      for (Map.Entry<String, ListenableFuture<Boolean>> entry : results.entrySet()) {
+         try {
+            deleted.put(entry.getKey(), await(entry.getValue()));
+         } catch (RuntimeException e) {
+            logger.warn(e, format("Failed to delete Server(%s). Due to - (%s)", entry.getKey(), e.getMessage()));
+            deleted.put(entry.getKey(), false);
+         }
+      }
+      await(Futures.successfulAsList(ipBlockReleases));
+      return deleted.build();
+   }
+
+   private Map<String, ListenableFuture<Boolean>> cleanupNetworkDomain(final ServerApi serverApi,
+         final String networkDomainId, final List<Server> servers, final List<ListenableFuture<?>> ipBlockReleases) {
+      final NetworkApi networkApi = api.getNetworkApi();
+
+      // Snapshot of the networking resources of the domain, shared by all the servers being deleted
+      ListenableFuture<List<NatRule>> natRulesSnapshot = userExecutor.submit(new Callable<List<NatRule>>() {
+         @Override
+         public List<NatRule> call() {
+            return networkApi.listNatRules(networkDomainId).concat().toList();
+         }
+      });
+      ListenableFuture<List<PublicIpBlock>> publicIpBlocksSnapshot = userExecutor
+            .submit(new Callable<List<PublicIpBlock>>() {
+               @Override
+               public List<PublicIpBlock> call() {
+                  return networkApi.listPublicIPv4AddressBlocks(networkDomainId).concat().toList();
+               }
+            });
+      ListenableFuture<List<FirewallRule>> firewallRulesSnapshot = userExecutor
+            .submit(new Callable<List<FirewallRule>>() {
+               @Override
+               public List<FirewallRule> call() {
+                  return networkApi.listFirewallRules(networkDomainId).concat().toList();
+               }
+            });
+      List<NatRule> natRules = await(natRulesSnapshot);
+      List<PublicIpBlock> publicIpBlocks = await(publicIpBlocksSnapshot);
+      List<FirewallRule> firewallRules = await(firewallRulesSnapshot);
+
+      Map<String, ListenableFuture<Boolean>> natRuleDeletions = Maps.newHashMap();
+      Map<String, String> natRuleServers = Maps.newHashMap();
+      Map<String, ListenableFuture<Boolean>> results = Maps.newLinkedHashMap();
+      for (final Server server : servers) {
+         final String serverId = server.id();
+         String internalIp = server.networkInfo().primaryNic().privateIpv4();
+         List<ListenableFuture<Boolean>> ruleDeletions = Lists.newArrayList();
+
+         for (final NatRule natRule : natRules) {
+            if (natRule.internalIp().equals(internalIp)) {
+               ListenableFuture<Boolean> deletion = userExecutor.submit(new Callable<Boolean>() {
+                  @Override
+                  public Boolean call() {
+                     return cleanupServer.attemptDeleteNatRule(serverId, networkApi, natRule);
+                  }
+               });
+               natRuleDeletions.put(natRule.id(), deletion);
+               natRuleServers.put(natRule.id(), serverId);
+               ruleDeletions.add(deletion);
+            }
+         }
+         String firewallRuleName = generateFirewallRuleName(serverId);
+         for (final FirewallRule firewallRule : firewallRules) {
+            if (firewallRule.name().equals(firewallRuleName)) {
+               ruleDeletions.add(userExecutor.submit(new Callable<Boolean>() {
+                  @Override
+                  public Boolean call() {
+                     return cleanupServer.attemptDeleteFirewallRule(serverId, networkApi, firewallRule);
+                  }
+               }));
+            }
+         }
+
+         ListenableFuture<Void> powerOff = userExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+               cleanupServer.powerOffServer(serverApi, serverId);
+               return null;
+            }
+         });
+         // Failed rule deletions are only logged, as in CleanupServer, but the server must be stopped
+         ListenableFuture<List<Object>> ready = Futures.allAsList(ImmutableList.<ListenableFuture<?>>builder()
+               .add(powerOff).add(Futures.successfulAsList(ruleDeletions)).build());
+         results.put(serverId, Futures.transform(ready, new Function<List<Object>, Boolean>() {
+            @Override
+            public Boolean apply(List<Object> input) {
+               cleanupServer.deleteServer(serverApi, serverId);
+               return true;
+            }
+         }, userExecutor));
+      }
+
+      for (final PublicIpBlock publicIpBlock : publicIpBlocks) {
+         List<ListenableFuture<Boolean>> referencingRuleDeletions = Lists.newArrayList();
+         final Set<String> referencingServers = Sets.newLinkedHashSet();
+         boolean referencedOutsideBatch = false;
+         for (NatRule natRule : natRules) {
+            if (isInBlock(natRule.externalIp(), publicIpBlock)) {
+               ListenableFuture<Boolean> deletion = natRuleDeletions.get(natRule.id());
+               if (deletion == null) {
+                  referencedOutsideBatch = true;
+                  break;
+               }
+               referencingRuleDeletions.add(deletion);
+               referencingServers.add(natRuleServers.get(natRule.id()));
+            }
+         }
+         if (referencedOutsideBatch || referencingRuleDeletions.isEmpty()) {
+            continue;
+         }
+         ipBlockReleases.add(Futures.transform(Futures.allAsList(referencingRuleDeletions),
+               new Function<List<Boolean>, Boolean>() {
+                  @Override
+                  public Boolean apply(List<Boolean> deleted) {
+                     if (deleted.contains(false)) {
+                        logger.warn(format("IpBlock(%s) not deleted as some of its NatRules are still in place.",
+                              publicIpBlock.id()));
+                        return false;
+                     }
+                     return cleanupServer.attemptDeletePublicIpBlock(referencingServers, networkApi,
+                           publicIpBlock);
+                  }
+               }, userExecutor));
+      }
+      return results;
+   }
+
+   /**
+    * Whether the NAT rule external address falls within the block, which starts at its base address.
+    */
+   private static boolean isInBlock(String externalIp, PublicIpBlock publicIpBlock) {
+      if (externalIp == null) {
+         return false;
+      }
+      if (externalIp.equals(publicIpBlock.baseIp())) {
+         return true;
+      }
+      if (!InetAddresses.isInetAddress(externalIp) || !InetAddresses.isInetAddress(publicIpBlock.baseIp())) {
+         return false;
+      }
+      long address = toLong(externalIp);
+      long base = toLong(publicIpBlock.baseIp());
+      return address >= base && address < base + publicIpBlock.size();
+   }
+
+   private static long toLong(String ipv4) {
+      return InetAddresses.coerceToInteger(InetAddresses.forString(ipv4)) & 0xffffffffL;
+   }
+
+   private static <T> T await(ListenableFuture<T> future) {
+      try {
+         return future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      } catch (ExecutionException e) {
+         throw Throwables.propagate(e.getCause());
+      }
+   }
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.compute.functions;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.easymock.EasyMock;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.dimensiondata.cloudcontrol.DimensionDataCloudControlApi;
+import org.jclouds.dimensiondata.cloudcontrol.config.DimensionDataCloudControlComputeServiceContextModule;
+import org.jclouds.dimensiondata.cloudcontrol.domain.CPU;
+import org.jclouds.dimensiondata.cloudcontrol.domain.CpuSpeed;
+import org.jclouds.dimensiondata.cloudcontrol.domain.FirewallRule;
+import org.jclouds.dimensiondata.cloudcontrol.domain.FirewallRuleTarget;
+import org.jclouds.dimensiondata.cloudcontrol.domain.Guest;
+import org.jclouds.dimensiondata.cloudcontrol.domain.NIC;
+import org.jclouds.dimensiondata.cloudcontrol.domain.NatRule;
+import org.jclouds.dimensiondata.cloudcontrol.domain.NetworkInfo;
+import org.jclouds.dimensiondata.cloudcontrol.domain.OperatingSystem;
+import org.jclouds.dimensiondata.cloudcontrol.domain.PublicIpBlock;
+import org.jclouds.dimensiondata.cloudcontrol.domain.Server;
+import org.jclouds.dimensiondata.cloudcontrol.domain.State;
+import org.jclouds.dimensiondata.cloudcontrol.domain.VmTools;
+import org.jclouds.dimensiondata.cloudcontrol.features.NetworkApi;
+import org.jclouds.dimensiondata.cloudcontrol.features.ServerApi;
+import org.jclouds.dimensiondata.cloudcontrol.utils.DimensionDataCloudControlResponseUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.fail;
+
+@Test(groups = "unit", testName = "CleanupServersTest", singleThreaded = true)
+public class CleanupServersTest {
+
+   private final String jcloudsNetworkDomainId = "jcloudsNetworkDomainId";
+   private final String datacenterId = "EU10";
+   private DimensionDataCloudControlApi api;
+   private ServerApi serverApi;
+   private NetworkApi networkApi;
+   private DimensionDataCloudControlComputeServiceContextModule contextModule;
+
+   @BeforeMethod
+   public void setUp() throws Exception {
+      serverApi = EasyMock.createMock(ServerApi.class);
+      networkApi = EasyMock.createMock(NetworkApi.class);
+      api = EasyMock.createMock(DimensionDataCloudControlApi.class);
+      contextModule = new DimensionDataCloudControlComputeServiceContextModule();
+      expect(api.getServerApi()).andReturn(serverApi).anyTimes();
+      expect(api.getNetworkApi()).andReturn(networkApi).anyTimes();
+   }
+
+   @Test
+   public void testApply_SharedPublicIpBlockReleasedOnce() throws Exception {
+      final Server server1 = server("server1", "172.0.0.1");
+      final Server server2 = server("server2", "172.0.0.2");
+      expect(serverApi.getServer(server1.id())).andReturn(server1);
+      expect(serverApi.getServer(server2.id())).andReturn(server2);
+
+      final NatRule natRule1 = natRule("natRule1", "172.0.0.1", "168.128.1.10");
+      final NatRule natRule2 = natRule("natRule2", "172.0.0.2", "168.128.1.11");
+      final PublicIpBlock publicIpBlock = publicIpBlock("publicIpBlockId", "168.128.1.10");
+      final FirewallRule firewallRule1 = firewallRule("firewallRule1", server1.id());
+      final FirewallRule firewallRule2 = firewallRule("firewallRule2", server2.id());
+      snapshotExpectations(ImmutableList.of(natRule1, natRule2), ImmutableList.of(publicIpBlock),
+            ImmutableList.of(firewallRule1, firewallRule2));
+
+      networkApi.deleteNatRule(natRule1.id());
+      expectLastCall();
+      networkApi.deleteNatRule(natRule2.id());
+      expectLastCall();
+      networkApi.deleteFirewallRule(firewallRule1.id());
+      expectLastCall();
+      networkApi.deleteFirewallRule(firewallRule2.id());
+      expectLastCall();
+      networkApi.removePublicIpBlock(publicIpBlock.id());
+      expectLastCall().once();
+      powerOffAndDeleteServerExpectations(server1);
+      powerOffAndDeleteServerExpectations(server2);
+
+      replay(serverApi, networkApi, api);
+      assertEquals(ImmutableMap.of(server1.id(), true, server2.id(), true),
+            cleanupServers().apply(ImmutableList.of(server1.id(), server2.id())));
+      verify(serverApi, networkApi, api);
+   }
+
+   @Test
+   public void testApply_PublicIpBlockStillInUseIsKept() throws Exception {
+      final Server server1 = server("server1", "172.0.0.1");
+      expect(serverApi.getServer(server1.id())).andReturn(server1);
+      expect(serverApi.getServer("missing")).andReturn(null);
+
+      final NatRule natRule1 = natRule("natRule1", "172.0.0.1", "168.128.1.10");
+      final NatRule otherNatRule = natRule("otherNatRule", "172.0.0.3", "168.128.1.11");
+      final PublicIpBlock publicIpBlock = publicIpBlock("publicIpBlockId", "168.128.1.10");
+      snapshotExpectations(ImmutableList.of(natRule1, otherNatRule), ImmutableList.of(publicIpBlock),
+            ImmutableList.<FirewallRule>of());
+
+      networkApi.deleteNatRule(natRule1.id());
+      expectLastCall();
+      powerOffAndDeleteServerExpectations(server1);
+
+      replay(serverApi, networkApi, api);
+      assertEquals(ImmutableMap.of(server1.id(), true, "missing", true),
+            cleanupServers().apply(ImmutableList.of(server1.id(), "missing")));
+      verify(serverApi, networkApi, api);
+   }
+
+   @Test
+   public void testApply_ServerNotInNormalState() throws Exception {
+      final Server server = serverBuilder("server1", "172.0.0.1").state(State.PENDING_CHANGE).build();
+      expect(serverApi.getServer(server.id())).andReturn(server);
+
+      replay(serverApi, networkApi, api);
+      assertEquals(ImmutableMap.of(server.id(), false), cleanupServers().apply(ImmutableList.of(server.id())));
+      verify(serverApi, networkApi, api);
+   }
+
+   @Test
+   public void testApply_ServerInFailedStateAbortsTheBatch() throws Exception {
+      final Server server1 = server("server1", "172.0.0.1");
+      final Server server2 = serverBuilder("server2", "172.0.0.2").state(State.FAILED_ADD).build();
+      expect(serverApi.getServer(server1.id())).andReturn(server1);
+      expect(serverApi.getServer(server2.id())).andReturn(server2);
+
+      replay(serverApi, networkApi, api);
+      try {
+         cleanupServers().apply(ImmutableList.of(server1.id(), server2.id()));
+         fail("Expected an IllegalStateException");
+      } catch (IllegalStateException e) {
+         assertEquals("Server(server2) not deleted as it is in state(FailedAdd).", e.getMessage());
+      }
+      // nothing was deleted
+      verify(serverApi, networkApi, api);
+   }
+
+   private CleanupServers cleanupServers() {
+      Predicate<String> serverStoppedPredicate = contextModule
+            .provideServerStoppedPredicate(api, new ComputeServiceConstants.Timeouts(),
+                  new ComputeServiceConstants.PollPeriod());
+      Predicate<String> serverDeletedPredicate = contextModule
+            .provideServerDeletedPredicate(api, new ComputeServiceConstants.Timeouts(),
+                  new ComputeServiceConstants.PollPeriod());
+      CleanupServer cleanupServer = new CleanupServer(api, new ComputeServiceConstants.Timeouts(),
+            serverStoppedPredicate, serverDeletedPredicate);
+      return new CleanupServers(api, MoreExecutors.newDirectExecutorService(), cleanupServer);
+   }
+
+   private void snapshotExpectations(List<NatRule> natRules, List<PublicIpBlock> publicIpBlocks,
+         List<FirewallRule> firewallRules) {
+      expect(networkApi.listNatRules(jcloudsNetworkDomainId))
+            .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(natRules))).once();
+      expect(networkApi.listPublicIPv4AddressBlocks(jcloudsNetworkDomainId))
+            .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(publicIpBlocks))).once();
+      expect(networkApi.listFirewallRules(jcloudsNetworkDomainId))
+            .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(firewallRules))).once();
+   }
+
+   private void powerOffAndDeleteServerExpectations(Server server) {
+      serverApi.powerOffServer(server.id());
+      expectLastCall();
+      expect(serverApi.getServer(server.id())).andReturn(server.toBuilder().started(false).build());
+      serverApi.deleteServer(server.id());
+      expectLastCall();
+      expect(serverApi.getServer(server.id())).andReturn(null);
+   }
+
+   private Server server(String serverId, String internalIp) {
+      return serverBuilder(serverId, internalIp).state(State.NORMAL).build();
+   }
+
+   private Server.Builder serverBuilder(String serverId, String internalIp) {
+      return Server.builder().id(serverId).name("jclouds server").memoryGb(10)
+            .cpu(CPU.builder().count(1).coresPerSocket(2).speed(CpuSpeed.STANDARD.getDimensionDataSpeed()).build())
+            .datacenterId(datacenterId).deployed(true).started(true).description("jclouds server")
+            .sourceImageId("sourceImageId").createTime(new Date()).guest(Guest.builder().operatingSystem(
+                  OperatingSystem.builder().id("WIN2012DC64").displayName("WIN2012DC/64").family("WINDOWS").build())
+                  .vmTools(VmTools.builder().versionStatus(VmTools.VersionStatus.CURRENT)
+                        .runningStatus(VmTools.RunningStatus.NOT_RUNNING).apiVersion(9354)
+                        .type(VmTools.Type.VMWARE_TOOLS).build()).osCustomization(true).build()).networkInfo(
+                  NetworkInfo.builder().networkDomainId(jcloudsNetworkDomainId)
+                        .primaryNic(NIC.builder().vlanId("vlanId").privateIpv4(internalIp).build())
+                        .additionalNic(Lists.<NIC>newArrayList()).build());
+   }
+
+   private NatRule natRule(String id, String internalIp, String externalIp) {
+      return NatRule.builder().id(id).internalIp(internalIp).externalIp(externalIp)
+            .networkDomainId(jcloudsNetworkDomainId).datacenterId(datacenterId).createTime(new Date())
+            .state(State.NORMAL).build();
+   }
+
+   private PublicIpBlock publicIpBlock(String id, String baseIp) {
+      return PublicIpBlock.builder().id(id).baseIp(baseIp).size(2).networkDomainId(jcloudsNetworkDomainId)
+            .datacenterId(datacenterId).createTime(new Date()).state(State.NORMAL).build();
+   }
+
+   private FirewallRule firewallRule(String id, String serverId) {
+      return FirewallRule.builder().id(id).networkDomainId(jcloudsNetworkDomainId).datacenterId(datacenterId)
+            .ruleType("ruleType").action("action").ipVersion("ipVersion").source(FirewallRuleTarget.builder().build())
+            .destination(FirewallRuleTarget.builder().build()).enabled(false).state(State.NORMAL)
+            .name(DimensionDataCloudControlResponseUtils.generateFirewallRuleName(serverId)).protocol("protocol")
+            .build();
+   }
+
+}
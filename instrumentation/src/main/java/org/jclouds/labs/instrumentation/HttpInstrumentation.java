@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.instrumentation;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Singleton;
+
+import org.jclouds.labs.instrumentation.config.HttpInstrumentationModule;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * Collects latency, status code and payload size metrics for each api operation.
+ * <p>
+ * Calls are recorded by the {@link HttpInstrumentationModule}. The metrics of a context can be read with:
+ *
+ * <pre>
+ * HttpInstrumentation instrumentation = context.utils().injector().getInstance(HttpInstrumentation.class);
+ * for (OperationStats stats : instrumentation.snapshot().values()) {
+ *    ...
+ * }
+ * </pre>
+ */
+@Singleton
+public class HttpInstrumentation {
+
+   private final ConcurrentMap<String, OperationRecorder> recorders = new ConcurrentHashMap<String, OperationRecorder>();
+
+   /**
+    * Records a call.
+    *
+    * @param operation      the name of the operation.
+    * @param statusCode     the response status code, or 0 if the call failed without a response.
+    * @param nanos          the time the call took, retries included.
+    * @param requestLength  the request payload size, or a negative value if it is not known.
+    * @param responseLength the response payload size, or a negative value if it is not known.
+    */
+   public void record(String operation, int statusCode, long nanos, long requestLength, long responseLength) {
+      recorder(operation).record(statusCode, nanos, requestLength, responseLength);
+   }
+
+   /**
+    * Returns the metrics recorded so far, by operation name.
+    */
+   public Map<String, OperationStats> snapshot() {
+      return snapshot(false);
+   }
+
+   /**
+    * Returns the metrics recorded so far, by operation name, and starts recording again from zero. No call
+    * is lost or counted twice between two consecutive snapshots.
+    */
+   public Map<String, OperationStats> snapshotAndReset() {
+      return snapshot(true);
+   }
+
+   public void reset() {
+      snapshot(true);
+   }
+
+   private Map<String, OperationStats> snapshot(boolean reset) {
+      ImmutableSortedMap.Builder<String, OperationStats> stats = ImmutableSortedMap.naturalOrder();
+      for (Map.Entry<String, OperationRecorder> recorder : recorders.entrySet()) {
+         OperationStats operationStats = recorder.getValue().snapshot(reset);
+         if (operationStats.getCalls() > 0) {
+            stats.put(recorder.getKey(), operationStats);
+         }
+      }
+      return stats.build();
+   }
+
+   private OperationRecorder recorder(String operation) {
+      OperationRecorder recorder = recorders.get(checkNotNull(operation, "operation"));
+      if (recorder == null) {
+         OperationRecorder created = new OperationRecorder(operation);
+         recorder = recorders.putIfAbsent(operation, created);
+         if (recorder == null) {
+            recorder = created;
+         }
+      }
+      return recorder;
+   }
+}
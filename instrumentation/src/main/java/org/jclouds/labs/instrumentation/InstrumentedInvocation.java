@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.instrumentation;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpMessage;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+
+import com.google.common.reflect.Invokable;
+
+/**
+ * Times the {@code HttpCommandExecutorService#invoke(HttpCommand)} calls and records them against the
+ * operation of the api method that built the request.
+ */
+public class InstrumentedInvocation implements MethodInterceptor {
+
+   @Inject
+   private HttpInstrumentation instrumentation;
+
+   @Override
+   public Object invoke(MethodInvocation invocation) throws Throwable {
+      HttpCommand command = (HttpCommand) invocation.getArguments()[0];
+      HttpRequest request = command.getCurrentRequest();
+      String operation = operationName(request);
+      long requestLength = payloadLength(request);
+
+      long start = System.nanoTime();
+      try {
+         HttpResponse response = (HttpResponse) invocation.proceed();
+         instrumentation.record(operation, response.getStatusCode(), System.nanoTime() - start, requestLength,
+               payloadLength(response));
+         return response;
+      } catch (HttpResponseException e) {
+         HttpResponse response = e.getResponse();
+         instrumentation.record(operation, response == null ? 0 : response.getStatusCode(),
+               System.nanoTime() - start, requestLength, response == null ? -1 : payloadLength(response));
+         throw e;
+      } catch (Throwable t) {
+         instrumentation.record(operation, 0, System.nanoTime() - start, requestLength, -1);
+         throw t;
+      }
+   }
+
+   /**
+    * Uses the same name jclouds uses for the command: the {@code @Named} value of the api method, or
+    * {@code Api:method} when it has none.
+    */
+   static String operationName(HttpRequest request) {
+      if (request instanceof GeneratedHttpRequest) {
+         Invokable<?, ?> invokable = ((GeneratedHttpRequest) request).getInvocation().getInvokable();
+         if (invokable.isAnnotationPresent(Named.class)) {
+            return invokable.getAnnotation(Named.class).value();
+         }
+         if (invokable.isAnnotationPresent(com.google.inject.name.Named.class)) {
+            return invokable.getAnnotation(com.google.inject.name.Named.class).value();
+         }
+         return invokable.getOwnerType().getRawType().getSimpleName() + ":" + invokable.getName();
+      }
+      return request.getMethod();
+   }
+
+   private static long payloadLength(HttpMessage message) {
+      if (message.getPayload() == null) {
+         return -1;
+      }
+      Long length = message.getPayload().getContentMetadata().getContentLength();
+      return length == null ? -1 : length;
+   }
+}
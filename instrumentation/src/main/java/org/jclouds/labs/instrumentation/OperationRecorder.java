@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.instrumentation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Lock-free counters for a single operation.
+ * <p>
+ * Every value is a separate atomic cell, so recording a call never blocks. A snapshot taken while calls are
+ * being recorded may see some cells of a call and not others.
+ */
+final class OperationRecorder {
+
+   static final int LATENCY_BUCKETS = 40;
+   private static final int STATUS_CODES = 600;
+
+   private final String operation;
+   private final AtomicLong calls = new AtomicLong();
+   private final AtomicLong errors = new AtomicLong();
+   private final AtomicLong requestBytes = new AtomicLong();
+   private final AtomicLong responseBytes = new AtomicLong();
+   private final AtomicLong totalNanos = new AtomicLong();
+   private final AtomicLong maxNanos = new AtomicLong();
+   private final AtomicLongArray statusCodes = new AtomicLongArray(STATUS_CODES);
+   private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS);
+
+   OperationRecorder(String operation) {
+      this.operation = operation;
+   }
+
+   void record(int statusCode, long nanos, long requestLength, long responseLength) {
+      calls.incrementAndGet();
+      if (statusCode <= 0 || statusCode >= 400) {
+         errors.incrementAndGet();
+      }
+      statusCodes.incrementAndGet(statusCode > 0 && statusCode < STATUS_CODES ? statusCode : 0);
+      if (requestLength > 0) {
+         requestBytes.addAndGet(requestLength);
+      }
+      if (responseLength > 0) {
+         responseBytes.addAndGet(responseLength);
+      }
+      totalNanos.addAndGet(nanos);
+      latencyBuckets.incrementAndGet(bucket(nanos));
+      long max = maxNanos.get();
+      while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+         max = maxNanos.get();
+      }
+   }
+
+   OperationStats snapshot(boolean reset) {
+      ImmutableMap.Builder<Integer, Long> codes = ImmutableMap.builder();
+      for (int i = 0; i < STATUS_CODES; i++) {
+         long count = reset ? statusCodes.getAndSet(i, 0) : statusCodes.get(i);
+         if (count > 0) {
+            codes.put(i, count);
+         }
+      }
+      long[] buckets = new long[LATENCY_BUCKETS];
+      for (int i = 0; i < LATENCY_BUCKETS; i++) {
+         buckets[i] = reset ? latencyBuckets.getAndSet(i, 0) : latencyBuckets.get(i);
+      }
+      return new OperationStats(operation, read(calls, reset), read(errors, reset), codes.build(),
+            read(requestBytes, reset), read(responseBytes, reset), read(totalNanos, reset), read(maxNanos, reset),
+            buckets);
+   }
+
+   private static long read(AtomicLong cell, boolean reset) {
+      return reset ? cell.getAndSet(0) : cell.get();
+   }
+
+   /**
+    * Bucket 0 holds calls under a microsecond and bucket {@code i} the ones between {@code 2^(i-1)} and
+    * {@code 2^i} microseconds.
+    */
+   static int bucket(long nanos) {
+      long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+      return Math.min(64 - Long.numberOfLeadingZeros(micros), LATENCY_BUCKETS - 1);
+   }
+
+   static long bucketUpperBoundNanos(int bucket) {
+      return TimeUnit.MICROSECONDS.toNanos(1L << bucket);
+   }
+}
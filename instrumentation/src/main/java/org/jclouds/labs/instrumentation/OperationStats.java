@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.instrumentation;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Map;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Point in time view of the calls made for one operation.
+ * <p>
+ * Latencies are kept in a histogram of power of two microsecond buckets, so percentiles are reported as the
+ * upper bound of the bucket they fall in.
+ */
+public final class OperationStats {
+
+   private final String operation;
+   private final long calls;
+   private final long errors;
+   private final Map<Integer, Long> statusCodes;
+   private final long requestBytes;
+   private final long responseBytes;
+   private final long totalNanos;
+   private final long maxNanos;
+   private final long[] latencyBuckets;
+
+   OperationStats(String operation, long calls, long errors, Map<Integer, Long> statusCodes, long requestBytes,
+         long responseBytes, long totalNanos, long maxNanos, long[] latencyBuckets) {
+      this.operation = operation;
+      this.calls = calls;
+      this.errors = errors;
+      this.statusCodes = ImmutableMap.copyOf(statusCodes);
+      this.requestBytes = requestBytes;
+      this.responseBytes = responseBytes;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+      this.latencyBuckets = latencyBuckets;
+   }
+
+   /**
+    * The value of the {@code @Named} annotation of the api method, or {@code Api:method} when there is none.
+    */
+   public String getOperation() {
+      return operation;
+   }
+
+   public long getCalls() {
+      return calls;
+   }
+
+   /**
+    * Calls that failed without a response or got a status code of 400 or above.
+    */
+   public long getErrors() {
+      return errors;
+   }
+
+   public double getErrorRate() {
+      return calls == 0 ? 0 : (double) errors / calls;
+   }
+
+   /**
+    * Number of calls per response status code. Calls that failed without a response are counted under 0.
+    */
+   public Map<Integer, Long> getStatusCodes() {
+      return statusCodes;
+   }
+
+   /**
+    * Total size of the request payloads with a known content length.
+    */
+   public long getRequestBytes() {
+      return requestBytes;
+   }
+
+   /**
+    * Total size of the response payloads with a known content length.
+    */
+   public long getResponseBytes() {
+      return responseBytes;
+   }
+
+   public long getTotalNanos() {
+      return totalNanos;
+   }
+
+   public long getMeanNanos() {
+      return calls == 0 ? 0 : totalNanos / calls;
+   }
+
+   public long getMaxNanos() {
+      return maxNanos;
+   }
+
+   /**
+    * Returns the latency below which the given fraction of the calls completed.
+    *
+    * @param quantile a value between 0 and 1, such as 0.99 for the 99th percentile.
+    */
+   public long getPercentileNanos(double quantile) {
+      checkArgument(quantile >= 0 && quantile <= 1, "quantile must be between 0 and 1");
+      long total = 0;
+      for (long count : latencyBuckets) {
+         total += count;
+      }
+      if (total == 0) {
+         return 0;
+      }
+      long rank = (long) Math.ceil(quantile * total);
+      long seen = 0;
+      for (int i = 0; i < latencyBuckets.length; i++) {
+         seen += latencyBuckets[i];
+         if (seen >= rank && latencyBuckets[i] > 0) {
+            return Math.min(OperationRecorder.bucketUpperBoundNanos(i), maxNanos);
+         }
+      }
+      return maxNanos;
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper(this)
+            .add("operation", operation)
+            .add("calls", calls)
+            .add("errors", errors)
+            .add("statusCodes", statusCodes)
+            .add("requestBytes", requestBytes)
+            .add("responseBytes", responseBytes)
+            .add("meanNanos", getMeanNanos())
+            .add("p99Nanos", getPercentileNanos(0.99))
+            .add("maxNanos", maxNanos)
+            .toString();
+   }
+}
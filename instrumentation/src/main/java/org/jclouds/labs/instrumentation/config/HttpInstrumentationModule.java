@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.instrumentation.config;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.labs.instrumentation.HttpInstrumentation;
+import org.jclouds.labs.instrumentation.InstrumentedInvocation;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.matcher.Matchers;
+
+/**
+ * Records the latency, status code and payload sizes of every http command in the {@link HttpInstrumentation}
+ * of the context.
+ * <p>
+ * The executor service is intercepted rather than replaced, so this works with whichever http driver the
+ * context is configured with and no wire logging is needed.
+ * <p>
+ * Instrumentation is opt-in: pass the module when building the context and read the metrics from its injector.
+ *
+ * <pre>
+ * ComputeServiceContext context = ContextBuilder.newBuilder("cloudsigma2-zrh")
+ *       .credentials(identity, credential)
+ *       .modules(ImmutableSet.of(new HttpInstrumentationModule()))
+ *       .buildView(ComputeServiceContext.class);
+ * HttpInstrumentation metrics = context.utils().injector().getInstance(HttpInstrumentation.class);
+ * </pre>
+ */
+public class HttpInstrumentationModule extends AbstractModule {
+
+   @Override
+   protected void configure() {
+      InstrumentedInvocation interceptor = new InstrumentedInvocation();
+      requestInjection(interceptor);
+      bindInterceptor(Matchers.subclassesOf(HttpCommandExecutorService.class), new InvokeCommand(), interceptor);
+   }
+
+   /**
+    * Matches {@code invoke(HttpCommand)}, leaving out the driver specific {@code invoke} methods that send a
+    * single native request.
+    */
+   private static class InvokeCommand extends AbstractMatcher<Method> {
+      @Override
+      public boolean matches(Method method) {
+         return !method.isSynthetic() && method.getName().equals("invoke")
+               && Arrays.equals(method.getParameterTypes(), new Class<?>[] { HttpCommand.class });
+      }
+   }
+
+   /**
+    * All the instances install the same interceptor, so Guice only needs to install one of them.
+    */
+   @Override
+   public boolean equals(Object obj) {
+      return obj instanceof HttpInstrumentationModule;
+   }
+
+   @Override
+   public int hashCode() {
+      return HttpInstrumentationModule.class.hashCode();
+   }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.instrumentation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+@Test(groups = "unit", testName = "HttpInstrumentationTest")
+public class HttpInstrumentationTest {
+
+   public void testRecordsCallsByOperation() {
+      HttpInstrumentation instrumentation = new HttpInstrumentation();
+      instrumentation.record("servers:list", 200, millis(10), -1, 2048);
+      instrumentation.record("servers:list", 200, millis(30), -1, 1024);
+      instrumentation.record("servers:create", 500, millis(5), 512, 64);
+      instrumentation.record("servers:create", 0, millis(1), 512, -1);
+
+      Map<String, OperationStats> snapshot = instrumentation.snapshot();
+      assertEquals(snapshot.keySet().toString(), "[servers:create, servers:list]");
+
+      OperationStats list = snapshot.get("servers:list");
+      assertEquals(list.getCalls(), 2);
+      assertEquals(list.getErrors(), 0);
+      assertEquals(list.getStatusCodes(), ImmutableMap.of(200, 2L));
+      assertEquals(list.getRequestBytes(), 0);
+      assertEquals(list.getResponseBytes(), 3072);
+      assertEquals(list.getMeanNanos(), millis(20));
+      assertEquals(list.getMaxNanos(), millis(30));
+
+      OperationStats create = snapshot.get("servers:create");
+      assertEquals(create.getErrors(), 2);
+      assertEquals(create.getErrorRate(), 1.0);
+      assertEquals(create.getStatusCodes(), ImmutableMap.of(0, 1L, 500, 1L));
+      assertEquals(create.getRequestBytes(), 1024);
+   }
+
+   public void testPercentilesAreBucketUpperBounds() {
+      HttpInstrumentation instrumentation = new HttpInstrumentation();
+      for (int i = 0; i < 99; i++) {
+         instrumentation.record("op", 200, millis(1), -1, -1);
+      }
+      instrumentation.record("op", 200, millis(100), -1, -1);
+
+      OperationStats stats = instrumentation.snapshot().get("op");
+      long p50 = stats.getPercentileNanos(0.5);
+      assertTrue(p50 >= millis(1) && p50 < millis(2), "p50 " + p50);
+      assertEquals(stats.getPercentileNanos(0.99), p50);
+      assertEquals(stats.getPercentileNanos(1), millis(100));
+   }
+
+   public void testSnapshotAndReset() {
+      HttpInstrumentation instrumentation = new HttpInstrumentation();
+      instrumentation.record("op", 204, millis(1), -1, -1);
+
+      assertEquals(instrumentation.snapshotAndReset().get("op").getCalls(), 1);
+      assertTrue(instrumentation.snapshot().isEmpty());
+
+      instrumentation.record("op", 204, millis(1), -1, -1);
+      assertEquals(instrumentation.snapshot().get("op").getCalls(), 1);
+      instrumentation.reset();
+      assertTrue(instrumentation.snapshot().isEmpty());
+   }
+
+   private static long millis(long millis) {
+      return TimeUnit.MILLISECONDS.toNanos(millis);
+   }
+}
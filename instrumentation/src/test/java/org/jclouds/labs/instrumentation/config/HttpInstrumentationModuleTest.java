@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.instrumentation.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.labs.instrumentation.HttpInstrumentation;
+import org.jclouds.labs.instrumentation.OperationStats;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+@Test(groups = "unit", testName = "HttpInstrumentationModuleTest")
+public class HttpInstrumentationModuleTest {
+
+   public void testRecordsCommandsOfAnyExecutor() {
+      Injector injector = Guice.createInjector(new HttpInstrumentationModule(), new HttpInstrumentationModule(),
+            new AbstractModule() {
+               @Override
+               protected void configure() {
+                  bind(HttpCommandExecutorService.class).to(StatusFromPathExecutor.class);
+               }
+            });
+      HttpCommandExecutorService executor = injector.getInstance(HttpCommandExecutorService.class);
+
+      executor.invoke(new HttpCommand(request("POST", "201")));
+      try {
+         executor.invoke(new HttpCommand(request("POST", "404")));
+      } catch (HttpResponseException expected) {
+      }
+
+      OperationStats stats = injector.getInstance(HttpInstrumentation.class).snapshot().get("POST");
+      assertEquals(stats.getCalls(), 2);
+      assertEquals(stats.getErrors(), 1);
+      assertEquals(stats.getStatusCodes(), ImmutableMap.of(201, 1L, 404, 1L));
+      assertEquals(stats.getRequestBytes(), "payload".length() * 2);
+      assertEquals(stats.getResponseBytes(), "created".length());
+      assertTrue(stats.getMaxNanos() > 0);
+   }
+
+   private static HttpRequest request(String method, String status) {
+      return HttpRequest.builder().method(method).endpoint("http://localhost/" + status).payload("payload").build();
+   }
+
+   static class StatusFromPathExecutor implements HttpCommandExecutorService {
+      @Override
+      public HttpResponse invoke(HttpCommand command) {
+         int status = Integer.parseInt(command.getCurrentRequest().getEndpoint().getPath().substring(1));
+         if (status >= 400) {
+            throw new HttpResponseException(command, HttpResponse.builder().statusCode(status).build());
+         }
+         return HttpResponse.builder().statusCode(status).payload("created").build();
+      }
+   }
+}
@@ -56,6 +56,9 @@ public class JoyentCloudApiMetadata extends BaseHttpApiMetadata {
       properties.setProperty("jclouds.ssh.max-retries", "7");
       properties.setProperty("jclouds.ssh.retry-auth", "true");
       properties.setProperty(JoyentCloudProperties.AUTOGENERATE_KEYS, "true");
+      properties.setProperty(JoyentCloudProperties.KEY_CACHE_MAX_SIZE, "1000");
+      properties.setProperty(JoyentCloudProperties.KEY_CACHE_EXPIRY, "3600");
+      properties.setProperty(JoyentCloudProperties.KEY_POOL_SIZE, "2");
       return properties;
    }
 
@@ -38,6 +38,7 @@ import org.jclouds.compute.reference.ComputeServiceConstants.Timeouts;
 import org.jclouds.domain.Location;
 import org.jclouds.domain.LoginCredentials;
 import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
+import org.jclouds.joyent.cloudapi.v6_5.compute.internal.MachineInventory;
 import org.jclouds.joyent.cloudapi.v6_5.domain.Dataset;
 import org.jclouds.joyent.cloudapi.v6_5.domain.Machine;
 import org.jclouds.joyent.cloudapi.v6_5.domain.Machine.State;
@@ -70,13 +71,15 @@ public class JoyentCloudComputeServiceAdapter implements
    private final JoyentCloudApi cloudApiApi;
    private final Supplier<Set<String>> datacenterIds;
    private final Timeouts timeouts;
+   private final MachineInventory inventory;
 
    @Inject
    public JoyentCloudComputeServiceAdapter(JoyentCloudApi cloudApiApi, @Zone Supplier<Set<String>> datacenterIds,
-         Timeouts timeouts) {
+         Timeouts timeouts, MachineInventory inventory) {
       this.cloudApiApi = checkNotNull(cloudApiApi, "cloudApiApi");
       this.datacenterIds = checkNotNull(datacenterIds, "datacenterIds");
       this.timeouts = checkNotNull(timeouts, "timeouts");
+      this.inventory = checkNotNull(inventory, "inventory");
    }
 
    @Override
@@ -140,13 +143,8 @@ public class JoyentCloudComputeServiceAdapter implements
    @Override
    public Iterable<MachineInDatacenter> listNodes() {
       Builder<MachineInDatacenter> builder = ImmutableSet.builder();
-      for (final String datacenterId : datacenterIds.get()) {
-         builder.addAll(transform(cloudApiApi.getMachineApiForDatacenter(datacenterId).list(),
-               new Function<Machine, MachineInDatacenter>() {
-                  public MachineInDatacenter apply(Machine arg0) {
-                     return new MachineInDatacenter(arg0, datacenterId);
-                  }
-               }));
+      for (String datacenterId : datacenterIds.get()) {
+         builder.addAll(inventory.update(datacenterId, cloudApiApi.getMachineApiForDatacenter(datacenterId).list()));
       }
       return builder.build();
    }
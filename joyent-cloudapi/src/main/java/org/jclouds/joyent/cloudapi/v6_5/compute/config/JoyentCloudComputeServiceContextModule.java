@@ -17,10 +17,14 @@
 package org.jclouds.joyent.cloudapi.v6_5.compute.config;
 
 import static org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties.AUTOGENERATE_KEYS;
+import static org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties.KEY_CACHE_EXPIRY;
+import static org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties.KEY_CACHE_MAX_SIZE;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.jclouds.collect.Memoized;
@@ -37,9 +41,9 @@ import org.jclouds.domain.Location;
 import org.jclouds.functions.IdentityFunction;
 import org.jclouds.joyent.cloudapi.v6_5.compute.JoyentCloudComputeService;
 import org.jclouds.joyent.cloudapi.v6_5.compute.JoyentCloudComputeServiceAdapter;
+import org.jclouds.joyent.cloudapi.v6_5.compute.functions.CachingMachineInDatacenterToNodeMetadata;
 import org.jclouds.joyent.cloudapi.v6_5.compute.functions.DatasetInDatacenterToImage;
 import org.jclouds.joyent.cloudapi.v6_5.compute.functions.DatasetToOperatingSystem;
-import org.jclouds.joyent.cloudapi.v6_5.compute.functions.MachineInDatacenterToNodeMetadata;
 import org.jclouds.joyent.cloudapi.v6_5.compute.functions.OrphanedGroupsByDatacenterId;
 import org.jclouds.joyent.cloudapi.v6_5.compute.functions.PackageInDatacenterToHardware;
 import org.jclouds.joyent.cloudapi.v6_5.compute.internal.KeyAndPrivateKey;
@@ -84,7 +88,7 @@ public class JoyentCloudComputeServiceContextModule extends
             }).to(JoyentCloudComputeServiceAdapter.class);
 
       bind(new TypeLiteral<Function<MachineInDatacenter, NodeMetadata>>() {
-      }).to(MachineInDatacenterToNodeMetadata.class);
+      }).to(CachingMachineInDatacenterToNodeMetadata.class);
 
       bind(new TypeLiteral<Function<DatasetInDatacenter, Image>>() {
       }).to(DatasetInDatacenterToImage.class);
@@ -122,8 +126,11 @@ public class JoyentCloudComputeServiceContextModule extends
    @Provides
    @Singleton
    protected LoadingCache<DatacenterAndName, KeyAndPrivateKey> keyMap(
-         CacheLoader<DatacenterAndName, KeyAndPrivateKey> in) {
-      return CacheBuilder.newBuilder().build(in);
+         CacheLoader<DatacenterAndName, KeyAndPrivateKey> in, @Named(KEY_CACHE_MAX_SIZE) long maxSize,
+         @Named(KEY_CACHE_EXPIRY) long expirySeconds) {
+      // private keys can not be fetched from Joyent, so an evicted group gets a new key for its next node
+      return CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterAccess(expirySeconds, TimeUnit.SECONDS)
+            .build(in);
    }
    
    @Provides
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.functions;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.joyent.cloudapi.v6_5.compute.internal.MachineInventory;
+import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.MachineInDatacenter;
+
+import com.google.common.base.Function;
+
+/**
+ * Converts machines with {@link MachineInDatacenterToNodeMetadata}, skipping the machines that did not change since
+ * they were last listed.
+ */
+@Singleton
+public class CachingMachineInDatacenterToNodeMetadata implements Function<MachineInDatacenter, NodeMetadata> {
+
+   private final MachineInDatacenterToNodeMetadata converter;
+   private final MachineInventory inventory;
+
+   @Inject
+   public CachingMachineInDatacenterToNodeMetadata(MachineInDatacenterToNodeMetadata converter,
+         MachineInventory inventory) {
+      this.converter = checkNotNull(converter, "converter");
+      this.inventory = checkNotNull(inventory, "inventory");
+   }
+
+   @Override
+   public NodeMetadata apply(MachineInDatacenter machine) {
+      return inventory.toNodeMetadata(machine, converter);
+   }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import static org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties.KEY_POOL_SIZE;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+import org.jclouds.ssh.SshKeyPairGenerator;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Hands out ssh key pairs that were generated ahead of time, so that creating a group key does not wait for RSA key
+ * generation.
+ * <p>
+ * Up to {@code jclouds.joyent-cloudapi.key-pool.size} key pairs are kept ready. Each time one is taken, a new one is
+ * generated on the user executor. When the pool is empty the key pair is generated by the caller.
+ */
+@Singleton
+public class KeyPairPool implements SshKeyPairGenerator {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final SshKeyPairGenerator generator;
+   private final ListeningExecutorService executor;
+   private final int size;
+   private final BlockingQueue<Map<String, String>> keyPairs = new LinkedBlockingQueue<Map<String, String>>();
+   private final AtomicInteger generating = new AtomicInteger();
+
+   @Inject
+   public KeyPairPool(SshKeyPairGenerator generator, @Named(PROPERTY_USER_THREADS) ListeningExecutorService executor,
+         @Named(KEY_POOL_SIZE) int size) {
+      checkArgument(size >= 0, "size must not be negative");
+      this.generator = checkNotNull(generator, "generator");
+      this.executor = checkNotNull(executor, "executor");
+      this.size = size;
+      refill();
+   }
+
+   @Override
+   public Map<String, String> get() {
+      Map<String, String> keyPair = keyPairs.poll();
+      refill();
+      if (keyPair == null) {
+         logger.debug(">> no pregenerated key pair available, generating one");
+         keyPair = generator.get();
+      }
+      return keyPair;
+   }
+
+   /**
+    * The number of key pairs ready to be handed out.
+    */
+   public int available() {
+      return keyPairs.size();
+   }
+
+   private void refill() {
+      int missing = size - keyPairs.size() - generating.get();
+      for (int i = 0; i < missing; i++) {
+         generating.incrementAndGet();
+         try {
+            executor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     keyPairs.offer(generator.get());
+                  } catch (RuntimeException e) {
+                     logger.warn(e, "error pregenerating key pair");
+                  } finally {
+                     generating.decrementAndGet();
+                  }
+               }
+            });
+         } catch (RejectedExecutionException e) {
+            generating.decrementAndGet();
+            return;
+         }
+      }
+   }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Machine;
+import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.MachineInDatacenter;
+import org.jclouds.logging.Logger;
+
+import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * Keeps the last machines listed in each datacenter.
+ * <p>
+ * Listed machines whose {@code updated} timestamp and state did not change since the previous listing are handed
+ * out as the same {@link MachineInDatacenter} instances, and their converted {@link NodeMetadata} is reused. Every
+ * machine added, changed or removed between two listings is published to the registered {@link Listener}s.
+ */
+@Singleton
+public class MachineInventory {
+
+   /**
+    * Receives the changes of the inventory, on the thread that listed the machines.
+    */
+   public interface Listener {
+      void onChange(Change change);
+   }
+
+   public static final class Change {
+
+      public static enum Type {
+         ADDED, CHANGED, REMOVED;
+      }
+
+      private final Type type;
+      private final MachineInDatacenter machine;
+
+      private Change(Type type, MachineInDatacenter machine) {
+         this.type = type;
+         this.machine = machine;
+      }
+
+      public Type getType() {
+         return type;
+      }
+
+      /**
+       * The machine as listed, or as last listed for removed machines.
+       */
+      public MachineInDatacenter getMachine() {
+         return machine;
+      }
+
+      @Override
+      public String toString() {
+         return MoreObjects.toStringHelper(this).add("type", type).add("machine", machine.slashEncode()).toString();
+      }
+   }
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final ConcurrentMap<String, Map<String, Entry>> datacenters = new ConcurrentHashMap<String, Map<String, Entry>>();
+   private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+   public void addListener(Listener listener) {
+      listeners.add(checkNotNull(listener, "listener"));
+   }
+
+   public void removeListener(Listener listener) {
+      listeners.remove(listener);
+   }
+
+   /**
+    * Replaces the machines known in the datacenter with the ones just listed.
+    *
+    * @return the listed machines, reusing the instances of the machines that did not change
+    */
+   public Set<MachineInDatacenter> update(String datacenterId, Set<Machine> machines) {
+      checkNotNull(datacenterId, "datacenterId");
+      ImmutableList.Builder<Change> changes = ImmutableList.builder();
+      ImmutableSet.Builder<MachineInDatacenter> listed = ImmutableSet.builder();
+
+      synchronized (this) {
+         Map<String, Entry> previous = datacenters.get(datacenterId);
+         if (previous == null) {
+            previous = ImmutableMap.of();
+         }
+         Map<String, Entry> current = Maps.newHashMapWithExpectedSize(machines.size());
+         for (Machine machine : machines) {
+            Entry entry = previous.get(machine.getId());
+            if (entry == null) {
+               entry = new Entry(new MachineInDatacenter(machine, datacenterId));
+               changes.add(new Change(Change.Type.ADDED, entry.machine));
+            } else if (!entry.isCurrent(machine)) {
+               entry = new Entry(new MachineInDatacenter(machine, datacenterId));
+               changes.add(new Change(Change.Type.CHANGED, entry.machine));
+            }
+            current.put(machine.getId(), entry);
+            listed.add(entry.machine);
+         }
+         for (Map.Entry<String, Entry> entry : previous.entrySet()) {
+            if (!current.containsKey(entry.getKey())) {
+               changes.add(new Change(Change.Type.REMOVED, entry.getValue().machine));
+            }
+         }
+         datacenters.put(datacenterId, current);
+      }
+
+      publish(changes.build());
+      return listed.build();
+   }
+
+   /**
+    * Converts the machine, reusing the node converted from the last listing if the machine did not change since.
+    */
+   public NodeMetadata toNodeMetadata(MachineInDatacenter machine,
+         Function<? super MachineInDatacenter, NodeMetadata> converter) {
+      Map<String, Entry> machines = datacenters.get(machine.getDatacenter());
+      Entry entry = machines == null ? null : machines.get(machine.getId());
+      if (entry == null || !entry.isCurrent(machine.get())) {
+         return converter.apply(machine);
+      }
+      NodeMetadata node = entry.node;
+      if (node == null) {
+         node = converter.apply(entry.machine);
+         entry.node = node;
+      }
+      return node;
+   }
+
+   private void publish(List<Change> changes) {
+      if (changes.isEmpty()) {
+         return;
+      }
+      logger.debug("<< inventory changes: %s", changes);
+      for (Listener listener : listeners) {
+         for (Change change : changes) {
+            try {
+               listener.onChange(change);
+            } catch (RuntimeException e) {
+               logger.warn(e, "error notifying inventory change %s", change);
+            }
+         }
+      }
+   }
+
+   private static final class Entry {
+      private final MachineInDatacenter machine;
+      private final Date updated;
+      private final Machine.State state;
+      private volatile NodeMetadata node;
+
+      private Entry(MachineInDatacenter machine) {
+         this.machine = machine;
+         this.updated = machine.get().getUpdated();
+         this.state = machine.get().getState();
+      }
+
+      private boolean isCurrent(Machine machine) {
+         return updated.equals(machine.getUpdated()) && state == machine.getState();
+      }
+   }
+}
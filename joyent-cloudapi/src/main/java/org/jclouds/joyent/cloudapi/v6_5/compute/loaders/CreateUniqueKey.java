@@ -28,6 +28,7 @@ import org.jclouds.compute.functions.GroupNamingConvention;
 import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
 import org.jclouds.joyent.cloudapi.v6_5.compute.internal.KeyAndPrivateKey;
+import org.jclouds.joyent.cloudapi.v6_5.compute.internal.KeyPairPool;
 import org.jclouds.joyent.cloudapi.v6_5.domain.Key;
 import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.DatacenterAndName;
 import org.jclouds.logging.Logger;
@@ -46,6 +47,11 @@ public class CreateUniqueKey extends CacheLoader<DatacenterAndName, KeyAndPrivat
    protected final SshKeyPairGenerator sshKeyPairGenerator;
 
    @Inject
+   public CreateUniqueKey(JoyentCloudApi cloudApiApi, GroupNamingConvention.Factory namingConvention,
+            KeyPairPool keyPairPool) {
+      this(cloudApiApi, namingConvention, (SshKeyPairGenerator) keyPairPool);
+   }
+
    public CreateUniqueKey(JoyentCloudApi cloudApiApi, GroupNamingConvention.Factory namingConvention,
             SshKeyPairGenerator sshKeyPairGenerator) {
       this.cloudApiApi = checkNotNull(cloudApiApi, "cloudApiApi");
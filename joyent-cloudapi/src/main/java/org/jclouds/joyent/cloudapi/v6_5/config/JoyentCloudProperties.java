@@ -27,4 +27,25 @@ public class JoyentCloudProperties {
     */
    public static final String AUTOGENERATE_KEYS = "jclouds.joyent-cloudapi.autogenerate-keys";
 
+   /**
+    * Maximum number of generated group keys kept in memory.
+    * <p>
+    * Only the public part of a group key is stored in Joyent, so a key that is evicted or expires can not be loaded
+    * back: the next node of its group gets a newly created key, and nodes of the same group may then be reachable
+    * with different keys. All the keys of a group are still deleted once the group has no nodes left.
+    */
+   public static final String KEY_CACHE_MAX_SIZE = "jclouds.joyent-cloudapi.key-cache.max-size";
+
+   /**
+    * Seconds a generated group key is kept in memory after it was last used. When it expires the next node of the
+    * group gets a new key, see {@link #KEY_CACHE_MAX_SIZE}.
+    */
+   public static final String KEY_CACHE_EXPIRY = "jclouds.joyent-cloudapi.key-cache.expiry";
+
+   /**
+    * Number of ssh key pairs generated ahead of time, in the background, for new group keys. Zero generates them
+    * when the key is created.
+    */
+   public static final String KEY_POOL_SIZE = "jclouds.joyent-cloudapi.key-pool.size";
+
 }
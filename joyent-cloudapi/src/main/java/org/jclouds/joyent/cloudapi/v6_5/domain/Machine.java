@@ -253,7 +253,7 @@ public class Machine implements Comparable<Machine> {
       this.diskSizeGb = diskSizeGb;
       this.ips = ImmutableSet.<String> copyOf(checkNotNull(ips, "ips of machine(%s)", id));
       this.created = checkNotNull(created, "created date of machine(%s)", id);
-      this.updated = checkNotNull(created, "updated date of machine(%s)", id);
+      this.updated = checkNotNull(updated, "updated date of machine(%s)", id);
       this.metadata = ImmutableMap.<String, JsonBall> copyOf(checkNotNull(metadata, "metadata of machine(%s)", id));
    }
 
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.internal;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ssh.SshKeyPairGenerator;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+@Test(groups = "unit", testName = "KeyPairPoolTest")
+public class KeyPairPoolTest {
+
+   public void testPrefillsThePool() {
+      CountingGenerator generator = new CountingGenerator();
+      KeyPairPool pool = new KeyPairPool(generator, newDirectExecutorService(), 2);
+
+      assertEquals(pool.available(), 2);
+      assertEquals(generator.generated.get(), 2);
+   }
+
+   public void testRefillsAfterEachKeyPair() {
+      CountingGenerator generator = new CountingGenerator();
+      KeyPairPool pool = new KeyPairPool(generator, newDirectExecutorService(), 2);
+
+      assertEquals(pool.get().get("public"), "public-1");
+      assertEquals(pool.get().get("public"), "public-2");
+      assertEquals(pool.available(), 2);
+      assertEquals(generator.generated.get(), 4);
+   }
+
+   public void testEmptyPoolGeneratesInline() {
+      CountingGenerator generator = new CountingGenerator();
+      KeyPairPool pool = new KeyPairPool(generator, newDirectExecutorService(), 0);
+
+      assertEquals(pool.available(), 0);
+      assertEquals(pool.get().get("public"), "public-1");
+      assertEquals(pool.available(), 0);
+      assertEquals(generator.generated.get(), 1);
+   }
+
+   public void testGenerationErrorsDoNotFailTheCaller() {
+      final AtomicInteger calls = new AtomicInteger();
+      SshKeyPairGenerator flaky = new SshKeyPairGenerator() {
+         @Override
+         public Map<String, String> get() {
+            if (calls.incrementAndGet() == 1) {
+               throw new IllegalStateException("no entropy");
+            }
+            return ImmutableMap.of("public", "public", "private", "private");
+         }
+      };
+      KeyPairPool pool = new KeyPairPool(flaky, newDirectExecutorService(), 1);
+
+      assertEquals(pool.available(), 0);
+      assertEquals(pool.get().get("public"), "public");
+   }
+
+   private static class CountingGenerator implements SshKeyPairGenerator {
+      private final AtomicInteger generated = new AtomicInteger();
+
+      @Override
+      public Map<String, String> get() {
+         int id = generated.incrementAndGet();
+         return ImmutableMap.of("public", "public-" + id, "private", "private-" + id);
+      }
+   }
+}
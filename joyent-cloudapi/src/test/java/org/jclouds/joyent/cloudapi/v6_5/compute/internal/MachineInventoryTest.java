@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.joyent.cloudapi.v6_5.compute.internal.MachineInventory.Change;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Machine;
+import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.MachineInDatacenter;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+@Test(groups = "unit", testName = "MachineInventoryTest")
+public class MachineInventoryTest {
+
+   public void testReusesUnchangedMachines() {
+      MachineInventory inventory = new MachineInventory();
+      Machine machine = machine("a", Machine.State.RUNNING, 1000);
+
+      MachineInDatacenter first = getOnlyElement(inventory.update("us-sw-1", ImmutableSet.of(machine)));
+      MachineInDatacenter second = getOnlyElement(inventory.update("us-sw-1",
+            ImmutableSet.of(machine("a", Machine.State.RUNNING, 1000))));
+
+      assertSame(second, first);
+   }
+
+   public void testReconvertsOnlyChangedMachines() {
+      MachineInventory inventory = new MachineInventory();
+      CountingConverter converter = new CountingConverter();
+
+      MachineInDatacenter machine = getOnlyElement(inventory.update("us-sw-1",
+            ImmutableSet.of(machine("a", Machine.State.RUNNING, 1000))));
+      NodeMetadata node = inventory.toNodeMetadata(machine, converter);
+      assertSame(inventory.toNodeMetadata(machine, converter), node);
+      assertEquals(converter.conversions.get(), 1);
+
+      machine = getOnlyElement(inventory.update("us-sw-1", ImmutableSet.of(machine("a", Machine.State.STOPPED, 2000))));
+      assertNotSame(inventory.toNodeMetadata(machine, converter), node);
+      assertEquals(converter.conversions.get(), 2);
+   }
+
+   public void testPublishesChanges() {
+      MachineInventory inventory = new MachineInventory();
+      final List<Change> changes = Lists.newArrayList();
+      inventory.addListener(new MachineInventory.Listener() {
+         @Override
+         public void onChange(Change change) {
+            changes.add(change);
+         }
+      });
+
+      inventory.update("us-sw-1", ImmutableSet.of(machine("a", Machine.State.RUNNING, 1000),
+            machine("b", Machine.State.RUNNING, 1000)));
+      assertEquals(changes.size(), 2);
+      assertEquals(changes.get(0).getType(), Change.Type.ADDED);
+      assertEquals(changes.get(1).getType(), Change.Type.ADDED);
+      changes.clear();
+
+      inventory.update("us-sw-1", ImmutableSet.of(machine("a", Machine.State.RUNNING, 1000),
+            machine("b", Machine.State.STOPPED, 2000), machine("c", Machine.State.PROVISIONING, 2000)));
+      inventory.update("us-sw-1", ImmutableSet.of(machine("b", Machine.State.STOPPED, 2000),
+            machine("c", Machine.State.PROVISIONING, 2000)));
+
+      assertEquals(changes.size(), 3);
+      assertChange(changes.get(0), Change.Type.CHANGED, "b");
+      assertChange(changes.get(1), Change.Type.ADDED, "c");
+      assertChange(changes.get(2), Change.Type.REMOVED, "a");
+   }
+
+   public void testDatacentersAreIndependent() {
+      MachineInventory inventory = new MachineInventory();
+      final List<Change> changes = Lists.newArrayList();
+      inventory.addListener(new MachineInventory.Listener() {
+         @Override
+         public void onChange(Change change) {
+            changes.add(change);
+         }
+      });
+
+      inventory.update("us-sw-1", ImmutableSet.of(machine("a", Machine.State.RUNNING, 1000)));
+      inventory.update("us-east-1", ImmutableSet.<Machine> of());
+
+      assertEquals(changes.size(), 1);
+      assertChange(changes.get(0), Change.Type.ADDED, "a");
+   }
+
+   private static void assertChange(Change change, Change.Type type, String id) {
+      assertEquals(change.getType(), type);
+      assertEquals(change.getMachine().getId(), id);
+   }
+
+   private static MachineInDatacenter getOnlyElement(Set<MachineInDatacenter> machines) {
+      return Iterables.getOnlyElement(machines);
+   }
+
+   private static Machine machine(String id, Machine.State state, long updated) {
+      return Machine.builder().id(id).name(id).type(Machine.Type.VIRTUALMACHINE).state(state).dataset("sdc:sdc:centos-5.7:1.2.1")
+            .created(new Date(0)).updated(new Date(updated)).build();
+   }
+
+   private static class CountingConverter implements Function<MachineInDatacenter, NodeMetadata> {
+      private final AtomicInteger conversions = new AtomicInteger();
+
+      @Override
+      public NodeMetadata apply(MachineInDatacenter input) {
+         conversions.incrementAndGet();
+         return new NodeMetadataBuilder().id(input.slashEncode()).status(NodeMetadata.Status.RUNNING).build();
+      }
+   }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.load;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+
+/**
+ * Drives a provider {@link ComputeService} against a {@link MockWebServer} from several threads and reports the
+ * throughput, latency and number of requests of each operation.
+ * <p>
+ * The provider specific part is the context factory, which builds the context for the endpoint of the mock
+ * server, and the {@link Routes} that answer its requests:
+ *
+ * <pre>
+ * ScriptedDispatcher dispatcher = ScriptedDispatcher.builder(routes).latency(5, 20, MILLISECONDS).build();
+ * List&lt;LoadResult&gt; results = LoadHarness.builder()
+ *       .context(new Function&lt;String, ComputeServiceContext&gt;() {
+ *          public ComputeServiceContext apply(String endpoint) {
+ *             return ContextBuilder.newBuilder("provider").endpoint(endpoint)...buildView(ComputeServiceContext.class);
+ *          }
+ *       })
+ *       .dispatcher(dispatcher)
+ *       .concurrency(1, 8, 32)
+ *       .build()
+ *       .run(LoadOperation.listNodes(), LoadOperation.destroyNodesMatching("group"));
+ * </pre>
+ */
+public class LoadHarness {
+
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   public static class Builder {
+      private Function<String, ComputeServiceContext> contextFactory;
+      private ScriptedDispatcher dispatcher;
+      private List<Integer> concurrencyLevels = ImmutableList.of(1);
+      private int iterations = 20;
+      private int warmup = 0;
+
+      /**
+       * Builds the context under test for the given endpoint of the mock server.
+       */
+      public Builder context(Function<String, ComputeServiceContext> contextFactory) {
+         this.contextFactory = checkNotNull(contextFactory, "contextFactory");
+         return this;
+      }
+
+      public Builder dispatcher(ScriptedDispatcher dispatcher) {
+         this.dispatcher = checkNotNull(dispatcher, "dispatcher");
+         return this;
+      }
+
+      /**
+       * The numbers of threads to run each operation with, one run per level.
+       */
+      public Builder concurrency(int... levels) {
+         checkArgument(levels.length > 0, "at least one concurrency level is required");
+         for (int level : levels) {
+            checkArgument(level > 0, "concurrency levels must be positive");
+         }
+         this.concurrencyLevels = Ints.asList(levels);
+         return this;
+      }
+
+      /**
+       * The number of calls measured in each run, shared by all its threads.
+       */
+      public Builder iterations(int iterations) {
+         checkArgument(iterations > 0, "iterations must be positive");
+         this.iterations = iterations;
+         return this;
+      }
+
+      /**
+       * The number of calls made, one at a time, before each run and left out of its results.
+       */
+      public Builder warmup(int warmup) {
+         checkArgument(warmup >= 0, "warmup must not be negative");
+         this.warmup = warmup;
+         return this;
+      }
+
+      public LoadHarness build() {
+         checkState(contextFactory != null, "context factory is required");
+         checkState(dispatcher != null, "dispatcher is required");
+         return new LoadHarness(this);
+      }
+   }
+
+   private final Function<String, ComputeServiceContext> contextFactory;
+   private final ScriptedDispatcher dispatcher;
+   private final List<Integer> concurrencyLevels;
+   private final int iterations;
+   private final int warmup;
+
+   private LoadHarness(Builder builder) {
+      this.contextFactory = builder.contextFactory;
+      this.dispatcher = builder.dispatcher;
+      this.concurrencyLevels = ImmutableList.copyOf(builder.concurrencyLevels);
+      this.iterations = builder.iterations;
+      this.warmup = builder.warmup;
+   }
+
+   /**
+    * Runs each operation at each concurrency level, in order, against a single server and context.
+    */
+   public List<LoadResult> run(LoadOperation... operations) throws IOException {
+      MockWebServer server = new MockWebServer();
+      server.setDispatcher(dispatcher);
+      server.play();
+      ComputeServiceContext context = null;
+      try {
+         context = contextFactory.apply(server.getUrl("").toString());
+         ComputeService computeService = context.getComputeService();
+         ImmutableList.Builder<LoadResult> results = ImmutableList.builder();
+         for (LoadOperation operation : operations) {
+            for (int concurrency : concurrencyLevels) {
+               results.add(run(computeService, operation, concurrency));
+            }
+         }
+         return results.build();
+      } finally {
+         if (context != null) {
+            context.close();
+         }
+         server.shutdown();
+      }
+   }
+
+   private LoadResult run(final ComputeService computeService, final LoadOperation operation, int concurrency) {
+      for (int i = 0; i < warmup; i++) {
+         try {
+            operation.execute(computeService);
+         } catch (Exception ignored) {
+            // Only the measured calls count errors
+         }
+      }
+
+      final long[] latencies = new long[iterations];
+      final AtomicInteger next = new AtomicInteger();
+      final AtomicInteger errors = new AtomicInteger();
+      ExecutorService threads = Executors.newFixedThreadPool(concurrency);
+      long requestsBefore = dispatcher.getRequestCount();
+      long start = System.nanoTime();
+      try {
+         ImmutableList.Builder<Future<Void>> workers = ImmutableList.builder();
+         for (int i = 0; i < concurrency; i++) {
+            workers.add(threads.submit(new Callable<Void>() {
+               @Override
+               public Void call() {
+                  for (int call = next.getAndIncrement(); call < iterations; call = next.getAndIncrement()) {
+                     long callStart = System.nanoTime();
+                     try {
+                        operation.execute(computeService);
+                     } catch (Exception e) {
+                        errors.incrementAndGet();
+                     }
+                     latencies[call] = System.nanoTime() - callStart;
+                  }
+                  return null;
+               }
+            }));
+         }
+         // Waiting on the workers also makes their latencies visible to this thread
+         for (Future<Void> worker : workers.build()) {
+            worker.get();
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      } catch (ExecutionException e) {
+         throw Throwables.propagate(e.getCause());
+      } finally {
+         threads.shutdownNow();
+      }
+      long elapsed = System.nanoTime() - start;
+
+      return new LoadResult(operation.getName(), concurrency, errors.get(), elapsed,
+            dispatcher.getRequestCount() - requestsBefore, latencies);
+   }
+}
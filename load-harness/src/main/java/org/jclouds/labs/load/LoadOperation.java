@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.load;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.compute.predicates.NodePredicates.inGroup;
+
+import org.jclouds.compute.ComputeService;
+
+/**
+ * A {@link ComputeService} call the {@link LoadHarness} measures.
+ */
+public abstract class LoadOperation {
+
+   /**
+    * Lists all the nodes.
+    */
+   public static LoadOperation listNodes() {
+      return new LoadOperation("listNodes") {
+         @Override
+         public void execute(ComputeService computeService) {
+            computeService.listNodes();
+         }
+      };
+   }
+
+   /**
+    * Creates the given number of nodes in the group, with the default template.
+    */
+   public static LoadOperation createNodesInGroup(final String group, final int count) {
+      checkNotNull(group, "group");
+      return new LoadOperation("createNodesInGroup") {
+         @Override
+         public void execute(ComputeService computeService) throws Exception {
+            computeService.createNodesInGroup(group, count);
+         }
+      };
+   }
+
+   /**
+    * Destroys the nodes of the group.
+    */
+   public static LoadOperation destroyNodesMatching(final String group) {
+      checkNotNull(group, "group");
+      return new LoadOperation("destroyNodesMatching") {
+         @Override
+         public void execute(ComputeService computeService) {
+            computeService.destroyNodesMatching(inGroup(group));
+         }
+      };
+   }
+
+   private final String name;
+
+   protected LoadOperation(String name) {
+      this.name = checkNotNull(name, "name");
+   }
+
+   public String getName() {
+      return name;
+   }
+
+   /**
+    * Makes one call. Any exception thrown counts as an error.
+    */
+   public abstract void execute(ComputeService computeService) throws Exception;
+
+   @Override
+   public String toString() {
+      return name;
+   }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.load;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * What one operation did at one concurrency level.
+ */
+public final class LoadResult {
+
+   private final String operation;
+   private final int concurrency;
+   private final int errors;
+   private final long elapsedNanos;
+   private final long requests;
+   private final long[] sortedLatencies;
+
+   LoadResult(String operation, int concurrency, int errors, long elapsedNanos, long requests, long[] latencies) {
+      this.operation = operation;
+      this.concurrency = concurrency;
+      this.errors = errors;
+      this.elapsedNanos = elapsedNanos;
+      this.requests = requests;
+      this.sortedLatencies = latencies.clone();
+      Arrays.sort(this.sortedLatencies);
+   }
+
+   public String getOperation() {
+      return operation;
+   }
+
+   public int getConcurrency() {
+      return concurrency;
+   }
+
+   public int getCalls() {
+      return sortedLatencies.length;
+   }
+
+   public int getErrors() {
+      return errors;
+   }
+
+   /**
+    * The number of http requests the server received during the run.
+    */
+   public long getRequests() {
+      return requests;
+   }
+
+   /**
+    * The number of http requests each call made, on average. This is the number to watch for request
+    * amplification.
+    */
+   public double getRequestsPerCall() {
+      return getCalls() == 0 ? 0 : (double) requests / getCalls();
+   }
+
+   /**
+    * Completed calls per second, errors included.
+    */
+   public double getThroughput() {
+      return elapsedNanos == 0 ? 0 : getCalls() * 1e9 / elapsedNanos;
+   }
+
+   public long getPercentile(double quantile, TimeUnit unit) {
+      checkArgument(quantile >= 0 && quantile <= 1, "quantile must be between 0 and 1");
+      if (sortedLatencies.length == 0) {
+         return 0;
+      }
+      int rank = (int) Math.ceil(quantile * sortedLatencies.length);
+      return unit.convert(sortedLatencies[Math.max(rank, 1) - 1], TimeUnit.NANOSECONDS);
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper(this)
+            .add("operation", operation)
+            .add("concurrency", concurrency)
+            .add("calls", getCalls())
+            .add("errors", errors)
+            .add("throughput", String.format("%.1f/s", getThroughput()))
+            .add("p50", getPercentile(0.5, TimeUnit.MILLISECONDS) + "ms")
+            .add("p99", getPercentile(0.99, TimeUnit.MILLISECONDS) + "ms")
+            .add("requests", requests)
+            .add("requestsPerCall", String.format("%.1f", getRequestsPerCall()))
+            .toString();
+   }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.load;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableList;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+/**
+ * Answers every request with the response of the first route that matches its method and path.
+ * <p>
+ * Unlike the response queue of the mock tests, the same responses are served for as long as the load runs, in
+ * any order. Requests that match no route get a 404.
+ */
+public class Routes extends Dispatcher {
+
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   public static class Builder {
+      private final ImmutableList.Builder<Route> routes = ImmutableList.builder();
+
+      /**
+       * @param method    the http method of the request.
+       * @param pathRegex a regular expression the whole path, query string included, has to match.
+       * @param response  the response to serve. A copy is served for each request.
+       */
+      public Builder on(String method, String pathRegex, MockResponse response) {
+         routes.add(new Route(checkNotNull(method, "method"), Pattern.compile(pathRegex),
+               checkNotNull(response, "response")));
+         return this;
+      }
+
+      public Routes build() {
+         return new Routes(routes.build());
+      }
+   }
+
+   private final List<Route> routes;
+
+   private Routes(List<Route> routes) {
+      this.routes = routes;
+   }
+
+   @Override
+   public MockResponse dispatch(RecordedRequest request) {
+      for (Route route : routes) {
+         if (route.method.equals(request.getMethod()) && route.path.matcher(request.getPath()).matches()) {
+            return route.response.clone();
+         }
+      }
+      return new MockResponse().setResponseCode(404);
+   }
+
+   private static class Route {
+      private final String method;
+      private final Pattern path;
+      private final MockResponse response;
+
+      private Route(String method, Pattern path, MockResponse response) {
+         this.method = method;
+         this.path = path;
+         this.response = response;
+      }
+   }
+}
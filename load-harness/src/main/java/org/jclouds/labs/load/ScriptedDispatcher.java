@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.load;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+import com.squareup.okhttp.mockwebserver.SocketPolicy;
+
+/**
+ * Wraps the dispatcher that knows the provider endpoints with the behaviour of a loaded server: response
+ * latency, rate limiting and random failures.
+ * <p>
+ * Each request is checked in this order: it is delayed, rejected with a 429 if the rate limit is exceeded,
+ * dropped or failed with a 500 at random, and otherwise answered by the delegate.
+ */
+public class ScriptedDispatcher extends Dispatcher {
+
+   public static Builder builder(Dispatcher delegate) {
+      return new Builder(delegate);
+   }
+
+   public static class Builder {
+      private final Dispatcher delegate;
+      private long minLatencyNanos;
+      private long maxLatencyNanos;
+      private int requestsPerSecond;
+      private double failureRate;
+      private double disconnectRate;
+
+      private Builder(Dispatcher delegate) {
+         this.delegate = checkNotNull(delegate, "delegate");
+      }
+
+      /**
+       * Delays every response by a random time between the given bounds.
+       */
+      public Builder latency(long min, long max, TimeUnit unit) {
+         checkArgument(min >= 0 && min <= max, "latency bounds must be positive and ordered");
+         this.minLatencyNanos = unit.toNanos(min);
+         this.maxLatencyNanos = unit.toNanos(max);
+         return this;
+      }
+
+      /**
+       * Rejects the requests above the given rate with a {@code 429 Too Many Requests}.
+       */
+      public Builder throttleAbove(int requestsPerSecond) {
+         checkArgument(requestsPerSecond > 0, "requestsPerSecond must be positive");
+         this.requestsPerSecond = requestsPerSecond;
+         return this;
+      }
+
+      /**
+       * Answers the given fraction of the requests with a {@code 500 Internal Server Error}.
+       */
+      public Builder failureRate(double failureRate) {
+         checkArgument(failureRate >= 0 && failureRate <= 1, "failureRate must be between 0 and 1");
+         this.failureRate = failureRate;
+         return this;
+      }
+
+      /**
+       * Closes the connection without a response for the given fraction of the requests.
+       */
+      public Builder disconnectRate(double disconnectRate) {
+         checkArgument(disconnectRate >= 0 && disconnectRate <= 1, "disconnectRate must be between 0 and 1");
+         this.disconnectRate = disconnectRate;
+         return this;
+      }
+
+      public ScriptedDispatcher build() {
+         return new ScriptedDispatcher(this);
+      }
+   }
+
+   private final Dispatcher delegate;
+   private final long minLatencyNanos;
+   private final long maxLatencyNanos;
+   private final int requestsPerSecond;
+   private final double failureRate;
+   private final double disconnectRate;
+
+   private final AtomicLong requests = new AtomicLong();
+   private final AtomicLong throttled = new AtomicLong();
+   private final AtomicLong failed = new AtomicLong();
+   private final AtomicLong window = new AtomicLong();
+   private final AtomicLong requestsInWindow = new AtomicLong();
+
+   private ScriptedDispatcher(Builder builder) {
+      this.delegate = builder.delegate;
+      this.minLatencyNanos = builder.minLatencyNanos;
+      this.maxLatencyNanos = builder.maxLatencyNanos;
+      this.requestsPerSecond = builder.requestsPerSecond;
+      this.failureRate = builder.failureRate;
+      this.disconnectRate = builder.disconnectRate;
+   }
+
+   @Override
+   public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+      requests.incrementAndGet();
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+
+      if (maxLatencyNanos > 0) {
+         long latency = minLatencyNanos == maxLatencyNanos ? minLatencyNanos
+               : minLatencyNanos + random.nextLong(maxLatencyNanos - minLatencyNanos);
+         TimeUnit.NANOSECONDS.sleep(latency);
+      }
+
+      if (requestsPerSecond > 0 && !acquire()) {
+         throttled.incrementAndGet();
+         return new MockResponse().setResponseCode(429).addHeader("Retry-After", "1");
+      }
+
+      if (disconnectRate > 0 && random.nextDouble() < disconnectRate) {
+         failed.incrementAndGet();
+         return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START);
+      }
+
+      if (failureRate > 0 && random.nextDouble() < failureRate) {
+         failed.incrementAndGet();
+         return new MockResponse().setResponseCode(500);
+      }
+
+      return delegate.dispatch(request);
+   }
+
+   /**
+    * Counts the request in the current one second window and tells whether it is within the rate limit.
+    */
+   private boolean acquire() {
+      long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+      long current = window.get();
+      if (second != current && window.compareAndSet(current, second)) {
+         requestsInWindow.set(0);
+      }
+      return requestsInWindow.incrementAndGet() <= requestsPerSecond;
+   }
+
+   /**
+    * The number of requests received so far, including the throttled and failed ones.
+    */
+   public long getRequestCount() {
+      return requests.get();
+   }
+
+   public long getThrottledCount() {
+      return throttled.get();
+   }
+
+   /**
+    * The number of requests that were dropped or failed on purpose.
+    */
+   public long getFailedCount() {
+      return failed.get();
+   }
+}
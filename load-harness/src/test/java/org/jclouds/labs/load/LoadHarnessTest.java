@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.load;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+
+@Test(groups = "unit", testName = "LoadHarnessTest")
+public class LoadHarnessTest {
+
+   public void testRunsEachOperationAtEachConcurrencyLevel() throws IOException {
+      ScriptedDispatcher dispatcher = ScriptedDispatcher.builder(Routes.builder().build()).build();
+      List<LoadResult> results = LoadHarness.builder()
+            .context(new Function<String, ComputeServiceContext>() {
+               @Override
+               public ComputeServiceContext apply(String endpoint) {
+                  return ContextBuilder.newBuilder("stub").buildView(ComputeServiceContext.class);
+               }
+            })
+            .dispatcher(dispatcher)
+            .concurrency(1, 4)
+            .iterations(8)
+            .warmup(1)
+            .build()
+            .run(LoadOperation.createNodesInGroup("load", 1), LoadOperation.listNodes(),
+                  LoadOperation.destroyNodesMatching("load"));
+
+      assertEquals(results.size(), 6);
+      assertEquals(results.get(0).getOperation(), "createNodesInGroup");
+      assertEquals(results.get(1).getConcurrency(), 4);
+      assertEquals(results.get(5).getOperation(), "destroyNodesMatching");
+      for (LoadResult result : results) {
+         assertEquals(result.getCalls(), 8);
+         assertEquals(result.getErrors(), 0);
+         // The stub provider does not make any http request
+         assertEquals(result.getRequests(), 0);
+         assertTrue(result.getThroughput() > 0);
+      }
+   }
+
+   public void testFailedCallsAreCountedAsErrors() throws IOException {
+      ScriptedDispatcher dispatcher = ScriptedDispatcher.builder(
+            Routes.builder().on("GET", "/", new MockResponse()).build()).build();
+      List<LoadResult> results = LoadHarness.builder()
+            .context(new Function<String, ComputeServiceContext>() {
+               @Override
+               public ComputeServiceContext apply(String endpoint) {
+                  return ContextBuilder.newBuilder("stub").buildView(ComputeServiceContext.class);
+               }
+            })
+            .dispatcher(dispatcher)
+            .iterations(4)
+            .build()
+            .run(new LoadOperation("fails") {
+               @Override
+               public void execute(ComputeService computeService) {
+                  throw new IllegalStateException("expected");
+               }
+            });
+
+      assertEquals(results.get(0).getErrors(), 4);
+      assertEquals(results.get(0).getCalls(), 4);
+   }
+
+   public void testPercentiles() {
+      long[] latencies = new long[100];
+      for (int i = 0; i < latencies.length; i++) {
+         latencies[i] = TimeUnit.MILLISECONDS.toNanos(100 - i);
+      }
+      LoadResult result = new LoadResult("op", 1, 0, TimeUnit.SECONDS.toNanos(2), 300, latencies);
+
+      assertEquals(result.getPercentile(0.5, TimeUnit.MILLISECONDS), 50);
+      assertEquals(result.getPercentile(0.99, TimeUnit.MILLISECONDS), 99);
+      assertEquals(result.getPercentile(0, TimeUnit.MILLISECONDS), 1);
+      assertEquals(result.getThroughput(), 50.0);
+      assertEquals(result.getRequestsPerCall(), 3.0);
+   }
+}
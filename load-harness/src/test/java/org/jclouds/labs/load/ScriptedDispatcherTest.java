@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.labs.load;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+
+@Test(groups = "unit", testName = "ScriptedDispatcherTest", singleThreaded = true)
+public class ScriptedDispatcherTest {
+
+   private final Routes routes = Routes.builder()
+         .on("GET", "/servers/.*", new MockResponse().setBody("servers"))
+         .on("DELETE", "/servers/", new MockResponse().setResponseCode(204))
+         .build();
+
+   private MockWebServer server;
+
+   @BeforeMethod
+   public void start() {
+      server = new MockWebServer();
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void stop() throws IOException {
+      server.shutdown();
+   }
+
+   public void testRoutes() throws IOException {
+      ScriptedDispatcher dispatcher = ScriptedDispatcher.builder(routes).build();
+      play(dispatcher);
+
+      assertEquals(status("GET", "/servers/detail/?limit=0"), 200);
+      assertEquals(status("GET", "/servers/detail/?limit=0"), 200);
+      assertEquals(status("DELETE", "/servers/"), 204);
+      assertEquals(status("GET", "/drives/"), 404);
+      assertEquals(dispatcher.getRequestCount(), 4);
+   }
+
+   public void testLatency() throws IOException {
+      ScriptedDispatcher dispatcher = ScriptedDispatcher.builder(routes).latency(50, 50, TimeUnit.MILLISECONDS).build();
+      play(dispatcher);
+
+      long start = System.nanoTime();
+      assertEquals(status("GET", "/servers/"), 200);
+      assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+   }
+
+   public void testThrottling() throws IOException {
+      ScriptedDispatcher dispatcher = ScriptedDispatcher.builder(routes).throttleAbove(2).build();
+      play(dispatcher);
+
+      for (int i = 0; i < 5; i++) {
+         status("GET", "/servers/");
+      }
+
+      // Even if the requests span two one second windows, at most four of them are let through
+      assertTrue(dispatcher.getThrottledCount() >= 1, "throttled " + dispatcher.getThrottledCount());
+      assertEquals(dispatcher.getRequestCount(), 5);
+   }
+
+   public void testFailures() throws IOException {
+      ScriptedDispatcher dispatcher = ScriptedDispatcher.builder(routes).failureRate(1).build();
+      play(dispatcher);
+
+      assertEquals(status("GET", "/servers/"), 500);
+      assertEquals(dispatcher.getFailedCount(), 1);
+   }
+
+   private void play(ScriptedDispatcher dispatcher) throws IOException {
+      server.setDispatcher(dispatcher);
+      server.play();
+   }
+
+   private int status(String method, String path) throws IOException {
+      HttpURLConnection connection = (HttpURLConnection) server.getUrl(path).openConnection();
+      try {
+         connection.setRequestMethod(method);
+         return connection.getResponseCode();
+      } finally {
+         connection.disconnect();
+      }
+   }
+}
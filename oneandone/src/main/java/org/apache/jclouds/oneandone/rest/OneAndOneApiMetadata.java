@@ -22,6 +22,9 @@ import java.net.URI;
 import java.util.Properties;
 import org.apache.jclouds.oneandone.rest.compute.config.OneAndOneComputeServiceContextModule;
 import org.apache.jclouds.oneandone.rest.config.OneAndOneHttpApiModule;
+import static org.apache.jclouds.oneandone.rest.config.OneAndOneProperties.IMAGE_CATALOG_TTL;
+import static org.apache.jclouds.oneandone.rest.config.OneAndOneProperties.LIST_CONCURRENCY;
+import static org.apache.jclouds.oneandone.rest.config.OneAndOneProperties.LIST_PAGE_SIZE;
 import org.jclouds.compute.ComputeServiceContext;
 import org.jclouds.http.okhttp.config.OkHttpCommandExecutorServiceModule;
 import org.jclouds.rest.internal.BaseHttpApiMetadata;
@@ -43,6 +46,9 @@ public class OneAndOneApiMetadata extends BaseHttpApiMetadata<OneAndOneApi> {
 
    public static Properties defaultProperties() {
       Properties properties = BaseHttpApiMetadata.defaultProperties();
+      properties.put(LIST_PAGE_SIZE, "100");
+      properties.put(LIST_CONCURRENCY, "4");
+      properties.put(IMAGE_CATALOG_TTL, "3600");
       return properties;
    }
 
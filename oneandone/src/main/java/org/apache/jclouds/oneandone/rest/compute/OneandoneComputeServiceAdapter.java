@@ -16,6 +16,7 @@
  */
 package org.apache.jclouds.oneandone.rest.compute;
 
+import com.google.common.base.Function;
 import static com.google.common.base.Preconditions.checkState;
 import com.google.common.base.Predicate;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -37,10 +38,11 @@ import org.apache.jclouds.oneandone.rest.domain.FirewallPolicy;
 import org.apache.jclouds.oneandone.rest.domain.HardwareFlavour;
 import org.apache.jclouds.oneandone.rest.domain.Hdd;
 import org.apache.jclouds.oneandone.rest.domain.Server;
-import org.apache.jclouds.oneandone.rest.domain.ServerAppliance;
 import org.apache.jclouds.oneandone.rest.domain.SingleServerAppliance;
 import org.apache.jclouds.oneandone.rest.domain.Types;
 import org.apache.jclouds.oneandone.rest.domain.options.GenericQueryOptions;
+import org.apache.jclouds.oneandone.rest.util.ApplianceCatalog;
+import org.apache.jclouds.oneandone.rest.util.PagedLister;
 import org.jclouds.compute.ComputeServiceAdapter;
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.Template;
@@ -57,6 +59,9 @@ import org.jclouds.util.PasswordGenerator;
 @Singleton
 public class OneandoneComputeServiceAdapter implements ComputeServiceAdapter<Server, HardwareFlavour, SingleServerAppliance, DataCenter> {
 
+   // Only the fields read by ServerToNodeMetadata are requested when listing
+   private static final String NODE_FIELDS = "id,name,status,hardware,image,datacenter,ips";
+
    @Resource
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
@@ -65,12 +70,16 @@ public class OneandoneComputeServiceAdapter implements ComputeServiceAdapter<Ser
    private final OneAndOneApi api;
    private final Predicate<Server> waitServerUntilAvailable;
    private final PasswordGenerator.Config passwordGenerator;
+   private final PagedLister pagedLister;
+   private final ApplianceCatalog applianceCatalog;
 
    @Inject
    OneandoneComputeServiceAdapter(OneAndOneApi api, CleanupResources cleanupResources,
            @Named(POLL_PREDICATE_SERVER) Predicate<Server> waitServerUntilAvailable,
-           PasswordGenerator.Config passwordGenerator) {
+           PasswordGenerator.Config passwordGenerator, PagedLister pagedLister, ApplianceCatalog applianceCatalog) {
       this.api = api;
+      this.pagedLister = pagedLister;
+      this.applianceCatalog = applianceCatalog;
       this.cleanupResources = cleanupResources;
       this.waitServerUntilAvailable = waitServerUntilAvailable;
       this.passwordGenerator = passwordGenerator;
@@ -99,8 +108,8 @@ public class OneandoneComputeServiceAdapter implements ComputeServiceAdapter<Ser
             //check if the bootable device has enough size to run the appliance(image).
             float minHddSize = volume.getSize();
             if (volume.isBootDevice()) {
-               SingleServerAppliance appliance = api.serverApplianceApi().get(image.getId());
-               if (appliance.minHddSize() > volume.getSize()) {
+               SingleServerAppliance appliance = applianceCatalog.get(image.getId());
+               if (appliance != null && appliance.minHddSize() > volume.getSize()) {
                   minHddSize = appliance.minHddSize();
                }
             }
@@ -186,60 +195,21 @@ public class OneandoneComputeServiceAdapter implements ComputeServiceAdapter<Ser
 
    @Override
    public Iterable<SingleServerAppliance> listImages() {
-      GenericQueryOptions options = new GenericQueryOptions();
-      options.options(0, 0, null, null, null);
-      List<ServerAppliance> list = api.serverApplianceApi().list(options);
-      List<SingleServerAppliance> results = new ArrayList<SingleServerAppliance>();
-      for (ServerAppliance appliance : list) {
-         List<SingleServerAppliance.AvailableDataCenters> availableDatacenters = new ArrayList<SingleServerAppliance.AvailableDataCenters>();
-         for (String dcId : appliance.availableDataCenters()) {
-            availableDatacenters.add(SingleServerAppliance.AvailableDataCenters.create(dcId, ""));
-         }
-         results.add(SingleServerAppliance.builder()
-                 .id(appliance.id())
-                 .name(appliance.name())
-                 .availableDataCenters(availableDatacenters)
-                 .osInstallationBase(appliance.osInstallationBase())
-                 .osFamily(appliance.osFamily())
-                 .os(appliance.os())
-                 .osVersion(appliance.osVersion())
-                 .osArchitecture(appliance.osArchitecture())
-                 .osImageType(appliance.osImageType())
-                 .minHddSize(appliance.minHddSize())
-                 .type(appliance.type())
-                 .state(appliance.state())
-                 .version(appliance.version())
-                 .categories(appliance.categories())
-                 .eulaUrl(appliance.eulaUrl())
-                 .build());
-      }
-      return results;
+      return applianceCatalog.list();
    }
 
    @Override
    public SingleServerAppliance getImage(String id) {
-      // try search images
-      logger.trace("<< searching for image with id=%s", id);
-      GenericQueryOptions options = new GenericQueryOptions();
-      options.options(0, 0, null, id, null);
+      SingleServerAppliance image;
       try {
-         List<ServerAppliance> list = api.serverApplianceApi().list(options);
-         if (list.size() > 0) {
-            ServerAppliance appliance = list.get(0);
-            List<SingleServerAppliance.AvailableDataCenters> availableDatacenters = new ArrayList<SingleServerAppliance.AvailableDataCenters>();
-            for (String dcId : appliance.availableDataCenters()) {
-               availableDatacenters.add(SingleServerAppliance.AvailableDataCenters.create(dcId, ""));
-            }
-            SingleServerAppliance image = SingleServerAppliance.create(appliance.id(), appliance.name(), availableDatacenters, appliance.osInstallationBase(),
-                    appliance.osFamily(), appliance.os(), appliance.osVersion(), appliance.osArchitecture(), appliance.osImageType(), appliance.minHddSize(),
-                    appliance.type(), appliance.state(), appliance.version(), appliance.categories(), appliance.eulaUrl());
-            logger.trace(">> found image [%s].", image.name());
-            return image;
-         }
+         image = applianceCatalog.get(id);
       } catch (Exception ex) {
+         throw new ResourceNotFoundException("No image with id '" + id + "' was found", ex);
+      }
+      if (image == null) {
          throw new ResourceNotFoundException("No image with id '" + id + "' was found");
       }
-      throw new ResourceNotFoundException("No image with id '" + id + "' was found");
+      return image;
    }
 
    @Override
@@ -276,7 +246,12 @@ public class OneandoneComputeServiceAdapter implements ComputeServiceAdapter<Ser
 
    @Override
    public Iterable<Server> listNodes() {
-      return api.serverApi().list();
+      return pagedLister.list(new Function<GenericQueryOptions, List<Server>>() {
+         @Override
+         public List<Server> apply(GenericQueryOptions options) {
+            return api.serverApi().list(options);
+         }
+      }, null, NODE_FIELDS).toList();
    }
 
    @Override
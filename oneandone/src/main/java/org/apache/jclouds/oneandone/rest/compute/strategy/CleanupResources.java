@@ -16,6 +16,7 @@
  */
 package org.apache.jclouds.oneandone.rest.compute.strategy;
 
+import com.google.common.base.Function;
 import java.util.List;
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -25,6 +26,7 @@ import org.apache.jclouds.oneandone.rest.OneAndOneApi;
 import org.apache.jclouds.oneandone.rest.domain.FirewallPolicy;
 import org.apache.jclouds.oneandone.rest.domain.Server;
 import org.apache.jclouds.oneandone.rest.domain.options.GenericQueryOptions;
+import org.apache.jclouds.oneandone.rest.util.PagedLister;
 import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.logging.Logger;
 
@@ -36,10 +38,12 @@ public class CleanupResources {
    protected Logger logger = Logger.NULL;
 
    private final OneAndOneApi api;
+   private final PagedLister pagedLister;
 
    @Inject
-   CleanupResources(OneAndOneApi oneandoneapi) {
+   CleanupResources(OneAndOneApi oneandoneapi, PagedLister pagedLister) {
       this.api = oneandoneapi;
+      this.pagedLister = pagedLister;
    }
 
    public boolean cleanupNode(final String id) {
@@ -57,8 +61,12 @@ public class CleanupResources {
 
    private void deleteFirewallPolicy(Server server) {
       try {
-         GenericQueryOptions options = new GenericQueryOptions().options(0, 0, null, server.name() + " firewall policy", null);
-         List<FirewallPolicy> firewallRules = api.firewallPolicyApi().list(options);
+         Iterable<FirewallPolicy> firewallRules = pagedLister.list(new Function<GenericQueryOptions, List<FirewallPolicy>>() {
+            @Override
+            public List<FirewallPolicy> apply(GenericQueryOptions options) {
+               return api.firewallPolicyApi().list(options);
+            }
+         }, server.name() + " firewall policy", "id,name").toList();
          for (FirewallPolicy firewallRule : firewallRules) {
             api.firewallPolicyApi().delete(firewallRule.id());
          }
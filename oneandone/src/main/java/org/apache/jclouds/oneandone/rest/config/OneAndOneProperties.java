@@ -23,4 +23,7 @@ public final class OneAndOneProperties {
    public static final String POLL_PREDICATE_PRIVATE_NETWORK = "jclouds.oneandone.rest.predicate.privatenetwork";
    public static final String POLL_PREDICATE_SNAPSHOT = "jclouds.oneandone.rest.predicate.snapshot";
    public static final String POLL_TIMEOUT = "jclouds.oneandone.rest.poll.timeout";
+   public static final String LIST_PAGE_SIZE = "jclouds.oneandone.rest.list.pagesize";
+   public static final String LIST_CONCURRENCY = "jclouds.oneandone.rest.list.concurrency";
+   public static final String IMAGE_CATALOG_TTL = "jclouds.oneandone.rest.images.ttl";
 }
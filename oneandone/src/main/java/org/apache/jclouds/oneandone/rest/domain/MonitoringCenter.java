@@ -17,6 +17,8 @@
 package org.apache.jclouds.oneandone.rest.domain;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
 import org.apache.jclouds.oneandone.rest.domain.Types.ServerState;
 import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.json.SerializedNames;
@@ -40,9 +42,101 @@ public abstract class MonitoringCenter {
     @Nullable
     public abstract Agent agent();
 
-    @SerializedNames({"id", "name", "description", "status", "alerts", "agent"})
-    public static MonitoringCenter create(String id, String name, String description, Status status, Alerts alerts, Agent agent) {
-        return new AutoValue_MonitoringCenter(id, name, description, status, alerts, agent);
+    @Nullable
+    public abstract UsageSeries cpu();
+
+    @Nullable
+    public abstract UsageSeries ram();
+
+    @Nullable
+    public abstract UsageSeries disk();
+
+    @Nullable
+    public abstract TransferSeries transfer();
+
+    @Nullable
+    public abstract PingSeries internalPing();
+
+    @SerializedNames({"id", "name", "description", "status", "alerts", "agent", "cpu", "ram", "disk", "transfer", "internal_ping"})
+    public static MonitoringCenter create(String id, String name, String description, Status status, Alerts alerts, Agent agent,
+            UsageSeries cpu, UsageSeries ram, UsageSeries disk, TransferSeries transfer, PingSeries internalPing) {
+        return new AutoValue_MonitoringCenter(id, name, description, status, alerts, agent, cpu, ram, disk, transfer, internalPing);
+    }
+
+    @AutoValue
+    public abstract static class UsageSeries {
+
+        public abstract List<UsageSample> data();
+
+        @SerializedNames({"data"})
+        public static UsageSeries create(List<UsageSample> data) {
+            return new AutoValue_MonitoringCenter_UsageSeries(data == null ? ImmutableList.<UsageSample>of() : ImmutableList.copyOf(data));
+        }
+
+        @AutoValue
+        public abstract static class UsageSample {
+
+            public abstract String date();
+
+            public abstract double usedPercent();
+
+            @SerializedNames({"date", "used_percent"})
+            public static UsageSample create(String date, double usedPercent) {
+                return new AutoValue_MonitoringCenter_UsageSeries_UsageSample(date, usedPercent);
+            }
+        }
+    }
+
+    @AutoValue
+    public abstract static class TransferSeries {
+
+        public abstract List<TransferSample> data();
+
+        @SerializedNames({"data"})
+        public static TransferSeries create(List<TransferSample> data) {
+            return new AutoValue_MonitoringCenter_TransferSeries(data == null ? ImmutableList.<TransferSample>of() : ImmutableList.copyOf(data));
+        }
+
+        @AutoValue
+        public abstract static class TransferSample {
+
+            public abstract String date();
+
+            public abstract double downstream();
+
+            public abstract double upstream();
+
+            @SerializedNames({"date", "downstream", "upstream"})
+            public static TransferSample create(String date, double downstream, double upstream) {
+                return new AutoValue_MonitoringCenter_TransferSeries_TransferSample(date, downstream, upstream);
+            }
+        }
+    }
+
+    @AutoValue
+    public abstract static class PingSeries {
+
+        public abstract List<PingSample> data();
+
+        @SerializedNames({"data"})
+        public static PingSeries create(List<PingSample> data) {
+            return new AutoValue_MonitoringCenter_PingSeries(data == null ? ImmutableList.<PingSample>of() : ImmutableList.copyOf(data));
+        }
+
+        @AutoValue
+        public abstract static class PingSample {
+
+            public abstract String date();
+
+            public abstract double packetLoss();
+
+            public abstract double responseTime();
+
+            @SerializedNames({"date", "pl", "rta"})
+            public static PingSample create(String date, double packetLoss, double responseTime) {
+                return new AutoValue_MonitoringCenter_PingSeries_PingSample(date, packetLoss, responseTime);
+            }
+        }
     }
 
     @AutoValue
@@ -16,11 +16,14 @@
  */
 package org.apache.jclouds.oneandone.rest.features;
 
+import static com.google.common.base.Charsets.UTF_8;
+import com.google.gson.stream.JsonReader;
 import com.google.inject.Inject;
 import com.google.inject.TypeLiteral;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.util.List;
 import javax.inject.Named;
@@ -32,14 +35,13 @@ import org.apache.jclouds.oneandone.rest.domain.ServerAppliance;
 import org.apache.jclouds.oneandone.rest.domain.SingleServerAppliance;
 import org.apache.jclouds.oneandone.rest.domain.options.GenericQueryOptions;
 import org.apache.jclouds.oneandone.rest.filters.AuthenticateRequest;
-import org.apache.jclouds.oneandone.rest.util.ServerApplianceParser;
+import org.apache.jclouds.oneandone.rest.util.ServerApplianceStreamParser;
 import org.jclouds.Fallbacks;
 import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.RequestFilters;
 import org.jclouds.rest.annotations.ResponseParser;
-import org.jclouds.util.Strings2;
 
 @Path("/server_appliances")
 @Consumes("application/json")
@@ -63,27 +65,60 @@ public interface ServerApplianceApi extends Closeable {
    @Fallback(Fallbacks.NullOnNotFoundOr404.class)
    SingleServerAppliance get(@PathParam("serverApplianceId") String serverApplianceId);
 
+   /**
+    * Lists appliances as {@link SingleServerAppliance} instances, so callers that need the single appliance
+    * representation do not have to convert each {@link ServerAppliance}.
+    */
+   @Named("serverappliance:list")
+   @GET
+   @ResponseParser(ServerApplianceApi.SingleServerApplianceListParser.class)
+   @Fallback(Fallbacks.EmptyListOnNotFoundOr404.class)
+   List<SingleServerAppliance> listSingleServerAppliances(GenericQueryOptions options);
+
    static final class SingleServerApplianceParser extends ParseJson<SingleServerAppliance> {
 
       static final TypeLiteral<SingleServerAppliance> single = new TypeLiteral<SingleServerAppliance>() {
       };
-      final ServerApplianceParser parseService;
+      final ServerApplianceStreamParser parseService;
 
       @Inject
-      SingleServerApplianceParser(Json json, ServerApplianceParser parseId) {
+      SingleServerApplianceParser(Json json, ServerApplianceStreamParser parseService) {
          super(json, single);
-         this.parseService = parseId;
+         this.parseService = parseService;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public <V> V apply(InputStream stream, Type type) throws IOException {
+         JsonReader reader = new JsonReader(new InputStreamReader(stream, UTF_8));
+         try {
+            return (V) parseService.read(reader);
+         } finally {
+            reader.close();
+         }
+      }
+   }
+
+   static final class SingleServerApplianceListParser extends ParseJson<List<SingleServerAppliance>> {
+
+      static final TypeLiteral<List<SingleServerAppliance>> list = new TypeLiteral<List<SingleServerAppliance>>() {
+      };
+      final ServerApplianceStreamParser parseService;
+
+      @Inject
+      SingleServerApplianceListParser(Json json, ServerApplianceStreamParser parseService) {
+         super(json, list);
+         this.parseService = parseService;
       }
 
       @SuppressWarnings("unchecked")
       @Override
       public <V> V apply(InputStream stream, Type type) throws IOException {
+         JsonReader reader = new JsonReader(new InputStreamReader(stream, UTF_8));
          try {
-            return (V) json.fromJson(this.parseService.parse(Strings2.toStringAndClose(stream), "datacenters", "dataCenterId"), type);
+            return (V) parseService.readList(reader);
          } finally {
-            if (stream != null) {
-               stream.close();
-            }
+            reader.close();
          }
       }
    }
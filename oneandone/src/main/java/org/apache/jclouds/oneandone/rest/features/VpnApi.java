@@ -30,14 +30,13 @@ import javax.ws.rs.Produces;
 import org.apache.jclouds.oneandone.rest.domain.Vpn;
 import org.apache.jclouds.oneandone.rest.domain.options.GenericQueryOptions;
 import org.apache.jclouds.oneandone.rest.filters.AuthenticateRequest;
-import org.apache.jclouds.oneandone.rest.util.VPNConfigParser;
+import org.apache.jclouds.oneandone.rest.util.VPNConfigStreamParser;
 import org.jclouds.Fallbacks;
 import org.jclouds.rest.annotations.BinderParam;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.MapBinder;
 import org.jclouds.rest.annotations.RequestFilters;
 import org.jclouds.rest.annotations.ResponseParser;
-import org.jclouds.rest.annotations.Transform;
 import org.jclouds.rest.binders.BindToJsonPayload;
 
 @Path("/vpns")
@@ -65,9 +64,8 @@ public interface VpnApi {
    @Named("vpn:configurations:get")
    @GET
    @Path("/{vpnId}/configuration_file")
-   @ResponseParser(VPNConfigParser.class)
+   @ResponseParser(VPNConfigStreamParser.class)
    @Fallback(Fallbacks.NullOnNotFoundOr404.class)
-   @Transform(VPNConfigParser.ToZipStream.class)
    ZipInputStream getConfiguration(@PathParam("vpnId") String vpnId);
 
    @Named("vpn:create")
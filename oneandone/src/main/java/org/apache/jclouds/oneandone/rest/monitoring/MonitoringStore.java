@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.monitoring;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.jclouds.oneandone.rest.OneAndOneApi;
+import org.apache.jclouds.oneandone.rest.domain.MonitoringCenter;
+import org.apache.jclouds.oneandone.rest.domain.MonitoringCenter.PingSeries.PingSample;
+import org.apache.jclouds.oneandone.rest.domain.MonitoringCenter.TransferSeries.TransferSample;
+import org.apache.jclouds.oneandone.rest.domain.MonitoringCenter.UsageSeries;
+import org.apache.jclouds.oneandone.rest.domain.MonitoringCenter.UsageSeries.UsageSample;
+import org.apache.jclouds.oneandone.rest.domain.Types.PeriodType;
+import org.apache.jclouds.oneandone.rest.domain.options.GenericDateQueryOptions;
+import org.jclouds.date.DateService;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+
+/**
+ * Local copy of the monitoring center series of a set of servers.
+ * <p>
+ * Each metric keeps its own watermark, the timestamp of its newest stored sample, and only keeps the
+ * samples newer than it. A {@link #refresh(String)} asks the API for the window between the oldest
+ * watermark of the metrics reported by the previous refresh and now, so a metric the API stops reporting
+ * no longer holds the window back. Range and rollup queries are then answered from the in-memory
+ * {@link TimeSeries} without any API call. The whole store can be saved to and restored from a file so
+ * that the history survives restarts.
+ */
+@Singleton
+public class MonitoringStore {
+
+   public enum Metric {
+      CPU, RAM, DISK, TRANSFER_DOWNSTREAM, TRANSFER_UPSTREAM, PING_PACKET_LOSS, PING_RESPONSE_TIME
+   }
+
+   private static final int FILE_MAGIC = 0x314d4f4e;
+   private static final int FILE_VERSION = 2;
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final OneAndOneApi api;
+   private final DateService dateService;
+   private final ConcurrentMap<String, Map<Metric, TimeSeries>> servers
+           = new ConcurrentHashMap<String, Map<Metric, TimeSeries>>();
+   private final ConcurrentMap<String, Map<Metric, Long>> watermarks
+           = new ConcurrentHashMap<String, Map<Metric, Long>>();
+
+   @Inject
+   MonitoringStore(OneAndOneApi api, DateService dateService) {
+      this.api = api;
+      this.dateService = dateService;
+   }
+
+   /**
+    * Fetches the samples of the given server that are newer than the ones already stored.
+    *
+    * @return the number of samples added to the store
+    */
+   public int refresh(String serverId) {
+      return refresh(serverId, new Date());
+   }
+
+   int refresh(String serverId, Date now) {
+      checkNotNull(serverId, "serverId");
+      Map<Metric, TimeSeries> metrics = metrics(serverId);
+      long watermark = watermark(watermarks.get(serverId));
+
+      GenericDateQueryOptions options = new GenericDateQueryOptions();
+      if (watermark == Long.MIN_VALUE) {
+         options.fixedPeriods(PeriodType.LAST_24H);
+      } else {
+         options.customPeriod(new Date(watermark * 1000L), now);
+      }
+
+      MonitoringCenter center = api.monitoringCenterApi().get(serverId, options);
+      if (center == null) {
+         return 0;
+      }
+      int added = 0;
+      Set<Metric> reported = EnumSet.noneOf(Metric.class);
+      added += appendUsage(metrics, reported, Metric.CPU, center.cpu());
+      added += appendUsage(metrics, reported, Metric.RAM, center.ram());
+      added += appendUsage(metrics, reported, Metric.DISK, center.disk());
+      if (center.transfer() != null) {
+         for (TransferSample sample : center.transfer().data()) {
+            added += append(metrics, reported, Metric.TRANSFER_DOWNSTREAM, sample.date(), sample.downstream());
+            added += append(metrics, reported, Metric.TRANSFER_UPSTREAM, sample.date(), sample.upstream());
+         }
+      }
+      if (center.internalPing() != null) {
+         for (PingSample sample : center.internalPing().data()) {
+            added += append(metrics, reported, Metric.PING_PACKET_LOSS, sample.date(), sample.packetLoss());
+            added += append(metrics, reported, Metric.PING_RESPONSE_TIME, sample.date(), sample.responseTime());
+         }
+      }
+      if (!reported.isEmpty()) {
+         watermarks.put(serverId, newestSamples(metrics, reported));
+      }
+      logger.trace("<< stored %d new monitoring samples for server %s", added, serverId);
+      return added;
+   }
+
+   /**
+    * @return the newest sample timestamp of each metric reported by the last refresh of the server
+    */
+   public Map<Metric, Long> watermarks(String serverId) {
+      Map<Metric, Long> serverWatermarks = watermarks.get(serverId);
+      return serverWatermarks == null ? Collections.<Metric, Long>emptyMap() : serverWatermarks;
+   }
+
+   /**
+    * @return the series of the given server metric, or null if no sample has been stored for it yet
+    */
+   @Nullable
+   public TimeSeries series(String serverId, Metric metric) {
+      Map<Metric, TimeSeries> metrics = servers.get(serverId);
+      if (metrics == null) {
+         return null;
+      }
+      synchronized (metrics) {
+         return metrics.get(metric);
+      }
+   }
+
+   /**
+    * Writes the store to the given file. The data is written to a temporary file first and then
+    * renamed over the target, so a crash never leaves a truncated store behind.
+    */
+   public void writeTo(File file) throws IOException {
+      File tmp = new File(file.getPath() + ".tmp");
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+         out.writeInt(FILE_MAGIC);
+         out.writeInt(FILE_VERSION);
+         Map<String, Map<Metric, TimeSeries>> snapshot = new HashMap<String, Map<Metric, TimeSeries>>(servers);
+         out.writeInt(snapshot.size());
+         for (Map.Entry<String, Map<Metric, TimeSeries>> server : snapshot.entrySet()) {
+            Map<Metric, TimeSeries> metrics;
+            synchronized (server.getValue()) {
+               metrics = new EnumMap<Metric, TimeSeries>(server.getValue());
+            }
+            out.writeUTF(server.getKey());
+            out.writeInt(metrics.size());
+            for (Map.Entry<Metric, TimeSeries> metric : metrics.entrySet()) {
+               out.writeUTF(metric.getKey().name());
+               metric.getValue().writeTo(out);
+            }
+         }
+      } finally {
+         out.close();
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   /**
+    * Replaces the contents of the store with the ones saved by {@link #writeTo(File)}.
+    */
+   public void readFrom(File file) throws IOException {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+         if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+            throw new IOException("not a monitoring store file: " + file);
+         }
+         Map<String, Map<Metric, TimeSeries>> loaded = new HashMap<String, Map<Metric, TimeSeries>>();
+         int serverCount = in.readInt();
+         for (int i = 0; i < serverCount; i++) {
+            String serverId = in.readUTF();
+            Map<Metric, TimeSeries> metrics = new EnumMap<Metric, TimeSeries>(Metric.class);
+            int metricCount = in.readInt();
+            for (int j = 0; j < metricCount; j++) {
+               metrics.put(Metric.valueOf(in.readUTF()), TimeSeries.readFrom(in));
+            }
+            loaded.put(serverId, metrics);
+         }
+         Map<String, Map<Metric, Long>> loadedWatermarks = new HashMap<String, Map<Metric, Long>>();
+         for (Map.Entry<String, Map<Metric, TimeSeries>> server : loaded.entrySet()) {
+            loadedWatermarks.put(server.getKey(), newestSamples(server.getValue(), server.getValue().keySet()));
+         }
+         servers.clear();
+         servers.putAll(loaded);
+         watermarks.clear();
+         watermarks.putAll(loadedWatermarks);
+      } finally {
+         in.close();
+      }
+   }
+
+   private Map<Metric, TimeSeries> metrics(String serverId) {
+      Map<Metric, TimeSeries> metrics = servers.get(serverId);
+      if (metrics == null) {
+         Map<Metric, TimeSeries> created = new EnumMap<Metric, TimeSeries>(Metric.class);
+         metrics = servers.putIfAbsent(serverId, created);
+         if (metrics == null) {
+            metrics = created;
+         }
+      }
+      return metrics;
+   }
+
+   private static Map<Metric, Long> newestSamples(Map<Metric, TimeSeries> metrics, Set<Metric> reported) {
+      Map<Metric, Long> result = new EnumMap<Metric, Long>(Metric.class);
+      synchronized (metrics) {
+         for (Metric metric : reported) {
+            TimeSeries series = metrics.get(metric);
+            if (series != null && series.size() > 0) {
+               result.put(metric, series.lastTimestamp());
+            }
+         }
+      }
+      return Collections.unmodifiableMap(result);
+   }
+
+   private static long watermark(@Nullable Map<Metric, Long> serverWatermarks) {
+      if (serverWatermarks == null || serverWatermarks.isEmpty()) {
+         return Long.MIN_VALUE;
+      }
+      return Collections.min(serverWatermarks.values());
+   }
+
+   private int appendUsage(Map<Metric, TimeSeries> metrics, Set<Metric> reported, Metric metric,
+           @Nullable UsageSeries usage) {
+      int added = 0;
+      if (usage != null) {
+         for (UsageSample sample : usage.data()) {
+            added += append(metrics, reported, metric, sample.date(), sample.usedPercent());
+         }
+      }
+      return added;
+   }
+
+   private int append(Map<Metric, TimeSeries> metrics, Set<Metric> reported, Metric metric, String date,
+           double value) {
+      long timestamp;
+      try {
+         timestamp = dateService.iso8601SecondsDateParse(date).getTime() / 1000L;
+      } catch (IllegalArgumentException e) {
+         logger.debug("ignoring %s sample with unparseable date %s", metric, date);
+         return 0;
+      }
+      reported.add(metric);
+      TimeSeries series;
+      synchronized (metrics) {
+         series = metrics.get(metric);
+         if (series == null) {
+            series = new TimeSeries();
+            metrics.put(metric, series);
+         }
+      }
+      return series.append(timestamp, value) ? 1 : 0;
+   }
+}
@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.monitoring;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Append-only series of samples for a single server metric.
+ * <p>
+ * Samples are kept in parallel primitive arrays ordered by timestamp (in seconds since the epoch).
+ * Every appended sample also updates a min/avg/max rollup per {@link Resolution}, so range queries
+ * over long windows never have to scan the raw samples.
+ * <p>
+ * Retention is bounded: once the raw samples or the buckets of a rollup reach their limit, the oldest
+ * quarter of them is discarded. By default 30 days of five minute samples and a year of hourly buckets
+ * are kept.
+ */
+public final class TimeSeries {
+
+   public enum Resolution {
+      HOUR(60L * 60L), DAY(24L * 60L * 60L);
+
+      private final long seconds;
+
+      Resolution(long seconds) {
+         this.seconds = seconds;
+      }
+
+      public long seconds() {
+         return seconds;
+      }
+   }
+
+   public static final int DEFAULT_MAX_SAMPLES = 30 * 24 * 12;
+   public static final int DEFAULT_MAX_BUCKETS = 365 * 24;
+
+   private static final int INITIAL_CAPACITY = 32;
+
+   private long[] timestamps = new long[INITIAL_CAPACITY];
+   private double[] values = new double[INITIAL_CAPACITY];
+   private int size;
+   private final int maxSamples;
+   private final int maxBuckets;
+   private final Tier[] tiers;
+
+   public TimeSeries() {
+      this(DEFAULT_MAX_SAMPLES, DEFAULT_MAX_BUCKETS);
+   }
+
+   /**
+    * @param maxSamples the number of raw samples to keep
+    * @param maxBuckets the number of buckets to keep in each rollup
+    */
+   public TimeSeries(int maxSamples, int maxBuckets) {
+      checkArgument(maxSamples > 0, "maxSamples must be positive");
+      checkArgument(maxBuckets > 0, "maxBuckets must be positive");
+      this.maxSamples = maxSamples;
+      this.maxBuckets = maxBuckets;
+      Resolution[] resolutions = Resolution.values();
+      tiers = new Tier[resolutions.length];
+      for (int i = 0; i < resolutions.length; i++) {
+         tiers[i] = new Tier(resolutions[i].seconds(), maxBuckets);
+      }
+   }
+
+   /**
+    * Appends a sample. Samples that are not newer than the last one are ignored, which makes it safe
+    * to feed overlapping API responses.
+    *
+    * @return true if the sample was stored
+    */
+   public synchronized boolean append(long timestamp, double value) {
+      if (size > 0 && timestamp <= timestamps[size - 1]) {
+         return false;
+      }
+      if (size == maxSamples) {
+         int dropped = evicted(size);
+         System.arraycopy(timestamps, dropped, timestamps, 0, size - dropped);
+         System.arraycopy(values, dropped, values, 0, size - dropped);
+         size -= dropped;
+      } else if (size == timestamps.length) {
+         int capacity = Math.min(size * 2, maxSamples);
+         timestamps = Arrays.copyOf(timestamps, capacity);
+         values = Arrays.copyOf(values, capacity);
+      }
+      timestamps[size] = timestamp;
+      values[size] = value;
+      size++;
+      for (Tier tier : tiers) {
+         tier.add(timestamp, value);
+      }
+      return true;
+   }
+
+   public synchronized int size() {
+      return size;
+   }
+
+   /**
+    * @return the timestamp of the newest sample, or {@link Long#MIN_VALUE} if the series is empty
+    */
+   public synchronized long lastTimestamp() {
+      return size == 0 ? Long.MIN_VALUE : timestamps[size - 1];
+   }
+
+   /**
+    * Returns the raw samples with {@code from <= timestamp <= to}.
+    */
+   public synchronized Samples range(long from, long to) {
+      checkArgument(from <= to, "from must not be after to");
+      int start = lowerBound(timestamps, size, from);
+      int end = upperBound(timestamps, size, to);
+      return new Samples(Arrays.copyOfRange(timestamps, start, end), Arrays.copyOfRange(values, start, end));
+   }
+
+   /**
+    * Returns the min/avg/max rollups of the buckets that start within {@code from <= start <= to}.
+    */
+   public synchronized Rollups rollup(Resolution resolution, long from, long to) {
+      checkArgument(from <= to, "from must not be after to");
+      return tiers[resolution.ordinal()].range(from, to);
+   }
+
+   /**
+    * Writes the limits, the raw samples and every rollup, so the rollups keep the history that is older than
+    * the raw samples.
+    */
+   synchronized void writeTo(DataOutput out) throws IOException {
+      out.writeInt(maxSamples);
+      out.writeInt(maxBuckets);
+      out.writeInt(size);
+      for (int i = 0; i < size; i++) {
+         out.writeLong(timestamps[i]);
+      }
+      for (int i = 0; i < size; i++) {
+         out.writeDouble(values[i]);
+      }
+      for (Tier tier : tiers) {
+         tier.writeTo(out);
+      }
+   }
+
+   static TimeSeries readFrom(DataInput in) throws IOException {
+      int maxSamples = in.readInt();
+      int maxBuckets = in.readInt();
+      if (maxSamples <= 0 || maxBuckets <= 0) {
+         throw new IOException("invalid series limits: " + maxSamples + " samples, " + maxBuckets + " buckets");
+      }
+      TimeSeries series = new TimeSeries(maxSamples, maxBuckets);
+      int count = readSize(in, maxSamples);
+      series.timestamps = new long[Math.max(count, INITIAL_CAPACITY)];
+      series.values = new double[series.timestamps.length];
+      for (int i = 0; i < count; i++) {
+         series.timestamps[i] = in.readLong();
+      }
+      for (int i = 0; i < count; i++) {
+         series.values[i] = in.readDouble();
+      }
+      series.size = count;
+      for (Tier tier : series.tiers) {
+         tier.readFrom(in);
+      }
+      return series;
+   }
+
+   private static int readSize(DataInput in, int max) throws IOException {
+      int size = in.readInt();
+      if (size < 0 || size > max) {
+         throw new IOException("invalid series size: " + size + " (limit " + max + ")");
+      }
+      return size;
+   }
+
+   /**
+    * Number of the oldest entries to discard from a full array, so the copy is amortized over many appends.
+    */
+   private static int evicted(int size) {
+      return Math.max(1, size / 4);
+   }
+
+   /**
+    * Index of the first element in {@code array[0..length)} that is {@code >= key}.
+    */
+   private static int lowerBound(long[] array, int length, long key) {
+      int low = 0;
+      int high = length;
+      while (low < high) {
+         int mid = (low + high) >>> 1;
+         if (array[mid] < key) {
+            low = mid + 1;
+         } else {
+            high = mid;
+         }
+      }
+      return low;
+   }
+
+   /**
+    * Index of the first element in {@code array[0..length)} that is {@code > key}.
+    */
+   private static int upperBound(long[] array, int length, long key) {
+      int low = 0;
+      int high = length;
+      while (low < high) {
+         int mid = (low + high) >>> 1;
+         if (array[mid] <= key) {
+            low = mid + 1;
+         } else {
+            high = mid;
+         }
+      }
+      return low;
+   }
+
+   private static final class Tier {
+
+      private final long width;
+      private final int maxBuckets;
+      private long[] starts = new long[INITIAL_CAPACITY];
+      private double[] min = new double[INITIAL_CAPACITY];
+      private double[] max = new double[INITIAL_CAPACITY];
+      private double[] sum = new double[INITIAL_CAPACITY];
+      private int[] count = new int[INITIAL_CAPACITY];
+      private int size;
+
+      Tier(long width, int maxBuckets) {
+         this.width = width;
+         this.maxBuckets = maxBuckets;
+      }
+
+      void add(long timestamp, double value) {
+         long start = timestamp - floorMod(timestamp, width);
+         int last = size - 1;
+         if (size > 0 && starts[last] == start) {
+            min[last] = Math.min(min[last], value);
+            max[last] = Math.max(max[last], value);
+            sum[last] += value;
+            count[last]++;
+            return;
+         }
+         if (size == maxBuckets) {
+            int dropped = evicted(size);
+            System.arraycopy(starts, dropped, starts, 0, size - dropped);
+            System.arraycopy(min, dropped, min, 0, size - dropped);
+            System.arraycopy(max, dropped, max, 0, size - dropped);
+            System.arraycopy(sum, dropped, sum, 0, size - dropped);
+            System.arraycopy(count, dropped, count, 0, size - dropped);
+            size -= dropped;
+         } else if (size == starts.length) {
+            int capacity = Math.min(size * 2, maxBuckets);
+            starts = Arrays.copyOf(starts, capacity);
+            min = Arrays.copyOf(min, capacity);
+            max = Arrays.copyOf(max, capacity);
+            sum = Arrays.copyOf(sum, capacity);
+            count = Arrays.copyOf(count, capacity);
+         }
+         starts[size] = start;
+         min[size] = value;
+         max[size] = value;
+         sum[size] = value;
+         count[size] = 1;
+         size++;
+      }
+
+      void writeTo(DataOutput out) throws IOException {
+         out.writeInt(size);
+         for (int i = 0; i < size; i++) {
+            out.writeLong(starts[i]);
+            out.writeDouble(min[i]);
+            out.writeDouble(max[i]);
+            out.writeDouble(sum[i]);
+            out.writeInt(count[i]);
+         }
+      }
+
+      void readFrom(DataInput in) throws IOException {
+         int stored = readSize(in, maxBuckets);
+         int capacity = Math.max(stored, INITIAL_CAPACITY);
+         starts = new long[capacity];
+         min = new double[capacity];
+         max = new double[capacity];
+         sum = new double[capacity];
+         count = new int[capacity];
+         for (int i = 0; i < stored; i++) {
+            starts[i] = in.readLong();
+            min[i] = in.readDouble();
+            max[i] = in.readDouble();
+            sum[i] = in.readDouble();
+            count[i] = in.readInt();
+         }
+         size = stored;
+      }
+
+      Rollups range(long from, long to) {
+         int start = lowerBound(starts, size, from);
+         int end = upperBound(starts, size, to);
+         double[] avg = new double[end - start];
+         for (int i = start; i < end; i++) {
+            avg[i - start] = sum[i] / count[i];
+         }
+         return new Rollups(Arrays.copyOfRange(starts, start, end), Arrays.copyOfRange(min, start, end), avg,
+                 Arrays.copyOfRange(max, start, end));
+      }
+
+      private static long floorMod(long x, long y) {
+         long mod = x % y;
+         return mod < 0 ? mod + y : mod;
+      }
+   }
+
+   /**
+    * Raw samples returned by {@link TimeSeries#range(long, long)}.
+    */
+   public static final class Samples {
+
+      private final long[] timestamps;
+      private final double[] values;
+
+      Samples(long[] timestamps, double[] values) {
+         this.timestamps = timestamps;
+         this.values = values;
+      }
+
+      public int size() {
+         return timestamps.length;
+      }
+
+      public long timestamp(int index) {
+         return timestamps[index];
+      }
+
+      public double value(int index) {
+         return values[index];
+      }
+   }
+
+   /**
+    * Downsampled buckets returned by {@link TimeSeries#rollup(Resolution, long, long)}.
+    */
+   public static final class Rollups {
+
+      private final long[] starts;
+      private final double[] min;
+      private final double[] avg;
+      private final double[] max;
+
+      Rollups(long[] starts, double[] min, double[] avg, double[] max) {
+         this.starts = starts;
+         this.min = min;
+         this.avg = avg;
+         this.max = max;
+      }
+
+      public int size() {
+         return starts.length;
+      }
+
+      public long start(int index) {
+         return starts[index];
+      }
+
+      public double min(int index) {
+         return min[index];
+      }
+
+      public double avg(int index) {
+         return avg[index];
+      }
+
+      public double max(int index) {
+         return max[index];
+      }
+   }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.util;
+
+import com.google.common.base.Function;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.apache.jclouds.oneandone.rest.OneAndOneApi;
+import static org.apache.jclouds.oneandone.rest.config.OneAndOneProperties.IMAGE_CATALOG_TTL;
+import org.apache.jclouds.oneandone.rest.domain.SingleServerAppliance;
+import org.apache.jclouds.oneandone.rest.domain.Types;
+import org.apache.jclouds.oneandone.rest.domain.options.GenericQueryOptions;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+
+/**
+ * In-memory catalog of the server appliances, indexed by id and by operating system family and architecture.
+ * <p>
+ * The catalog is listed once through the {@link PagedLister} and then reloaded in the background every
+ * {@code IMAGE_CATALOG_TTL} seconds, while lookups keep being answered from the previous listing. An id the
+ * catalog does not know yet, such as a freshly created image, is looked up with a single query.
+ */
+@Singleton
+public class ApplianceCatalog {
+
+   // Only the fields read by SingleServerApplianceToImage and node creation are requested
+   static final String FIELDS = "id,name,available_datacenters,os_family,os,os_version,os_architecture,"
+           + "os_image_type,type,min_hdd_size";
+   private static final String CATALOG = "catalog";
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final OneAndOneApi api;
+   private final PagedLister pagedLister;
+   private final ListeningExecutorService userExecutor;
+   private final LoadingCache<String, Index> catalog;
+   private final Function<GenericQueryOptions, List<SingleServerAppliance>> listAppliances
+           = new Function<GenericQueryOptions, List<SingleServerAppliance>>() {
+              @Override
+              public List<SingleServerAppliance> apply(GenericQueryOptions options) {
+                 return api.serverApplianceApi().listSingleServerAppliances(options);
+              }
+           };
+
+   @Inject
+   ApplianceCatalog(OneAndOneApi api, PagedLister pagedLister,
+           @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+           @Named(IMAGE_CATALOG_TTL) long ttlSeconds) {
+      this(api, pagedLister, userExecutor, ttlSeconds, Ticker.systemTicker());
+   }
+
+   ApplianceCatalog(OneAndOneApi api, PagedLister pagedLister, ListeningExecutorService userExecutor,
+           long ttlSeconds, Ticker ticker) {
+      checkArgument(ttlSeconds > 0, "ttl must be positive");
+      this.api = checkNotNull(api, "api");
+      this.pagedLister = checkNotNull(pagedLister, "pagedLister");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.catalog = CacheBuilder.newBuilder().refreshAfterWrite(ttlSeconds, SECONDS).ticker(ticker)
+              .build(new CacheLoader<String, Index>() {
+                 @Override
+                 public Index load(String key) {
+                    return loadIndex();
+                 }
+
+                 @Override
+                 public ListenableFuture<Index> reload(String key, Index oldValue) {
+                    // Keep answering from the old listing while the new one is loaded
+                    return ApplianceCatalog.this.userExecutor.submit(new Callable<Index>() {
+                       @Override
+                       public Index call() {
+                          return loadIndex();
+                       }
+                    });
+                 }
+              });
+   }
+
+   /**
+    * @return every appliance in the catalog, in listing order
+    */
+   public List<SingleServerAppliance> list() {
+      return index().all;
+   }
+
+   /**
+    * @return the appliance with the given id, or null if it does not exist
+    */
+   @Nullable
+   public SingleServerAppliance get(String id) {
+      checkNotNull(id, "id");
+      SingleServerAppliance appliance = index().byId.get(id);
+      if (appliance != null) {
+         return appliance;
+      }
+      logger.trace("<< appliance %s not in the catalog, searching for it", id);
+      GenericQueryOptions options = new GenericQueryOptions();
+      options.options(0, 0, null, id, null);
+      // The q parameter searches more than the id, so only an exact match is taken
+      for (SingleServerAppliance candidate : api.serverApplianceApi().listSingleServerAppliances(options)) {
+         if (id.equals(candidate.id())) {
+            return candidate;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * @return the appliances of the given operating system family and architecture, in listing order
+    */
+   public List<SingleServerAppliance> find(Types.OSFamliyType osFamily, int osArchitecture) {
+      return index().byOs.get(osKey(checkNotNull(osFamily, "osFamily"), osArchitecture));
+   }
+
+   /**
+    * Reloads the catalog in the background.
+    */
+   public void refresh() {
+      catalog.refresh(CATALOG);
+   }
+
+   private Index index() {
+      try {
+         return catalog.getUnchecked(CATALOG);
+      } catch (UncheckedExecutionException e) {
+         throw propagate(e.getCause());
+      }
+   }
+
+   private Index loadIndex() {
+      logger.trace("<< loading appliance catalog");
+      Index index = new Index(pagedLister.list(listAppliances, null, FIELDS).toList());
+      logger.trace(">> loaded %d appliances", index.byId.size());
+      return index;
+   }
+
+   private static String osKey(@Nullable Types.OSFamliyType osFamily, int osArchitecture) {
+      return osFamily + "/" + osArchitecture;
+   }
+
+   private static final class Index {
+
+      private final List<SingleServerAppliance> all;
+      private final Map<String, SingleServerAppliance> byId;
+      private final ImmutableListMultimap<String, SingleServerAppliance> byOs;
+
+      Index(List<SingleServerAppliance> appliances) {
+         // An appliance moving between pages while listing may be returned twice
+         Map<String, SingleServerAppliance> byId = new LinkedHashMap<String, SingleServerAppliance>();
+         for (SingleServerAppliance appliance : appliances) {
+            byId.put(appliance.id(), appliance);
+         }
+         ImmutableListMultimap.Builder<String, SingleServerAppliance> byOs = ImmutableListMultimap.builder();
+         for (SingleServerAppliance appliance : byId.values()) {
+            byOs.put(osKey(appliance.osFamily(), appliance.osArchitecture()), appliance);
+         }
+         this.all = ImmutableList.copyOf(byId.values());
+         this.byId = ImmutableMap.copyOf(byId);
+         this.byOs = byOs.build();
+      }
+   }
+}
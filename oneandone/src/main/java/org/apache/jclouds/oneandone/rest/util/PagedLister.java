@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.util;
+
+import com.google.common.base.Function;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.FluentIterable;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import static org.apache.jclouds.oneandone.rest.config.OneAndOneProperties.LIST_CONCURRENCY;
+import static org.apache.jclouds.oneandone.rest.config.OneAndOneProperties.LIST_PAGE_SIZE;
+import org.apache.jclouds.oneandone.rest.domain.options.GenericQueryOptions;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import org.jclouds.javax.annotation.Nullable;
+
+/**
+ * Lists a OneAndOne collection page by page using the {@code page} and {@code per_page} query
+ * parameters.
+ * <p>
+ * The API does not report the size of a collection, so the first page is fetched alone. If it comes
+ * back full, up to {@code LIST_CONCURRENCY} further pages are kept in flight
+ * until a short page marks the end of the collection. Results are handed out in page order as soon as
+ * each page arrives, and every use site can restrict the response to the {@code fields} it reads.
+ */
+@Singleton
+public class PagedLister {
+
+   private final ListeningExecutorService userExecutor;
+   private final int pageSize;
+   private final int concurrency;
+
+   @Inject
+   PagedLister(@Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+           @Named(LIST_PAGE_SIZE) int pageSize, @Named(LIST_CONCURRENCY) int concurrency) {
+      checkArgument(pageSize > 0, "page size must be positive");
+      checkArgument(concurrency > 0, "concurrency must be positive");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.pageSize = pageSize;
+      this.concurrency = concurrency;
+   }
+
+   /**
+    * @param listFn the list call to page through
+    * @param query  the {@code q} filter, or null to list everything
+    * @param fields the comma separated {@code fields} projection, or null for the full objects
+    */
+   public <T> FluentIterable<T> list(final Function<GenericQueryOptions, List<T>> listFn,
+           @Nullable final String query, @Nullable final String fields) {
+      checkNotNull(listFn, "listFn");
+      return new FluentIterable<T>() {
+         @Override
+         public Iterator<T> iterator() {
+            return new PageIterator<T>(listFn, query, fields);
+         }
+      };
+   }
+
+   private final class PageIterator<T> extends AbstractIterator<T> {
+
+      private final Function<GenericQueryOptions, List<T>> listFn;
+      private final String query;
+      private final String fields;
+      private final Deque<ListenableFuture<List<T>>> inFlight = new ArrayDeque<ListenableFuture<List<T>>>();
+      private Iterator<T> current = Collections.<T>emptyIterator();
+      private int nextPage = 1;
+
+      PageIterator(Function<GenericQueryOptions, List<T>> listFn, String query, String fields) {
+         this.listFn = listFn;
+         this.query = query;
+         this.fields = fields;
+         // Nothing is known about the collection yet, so only the first page is requested
+         submitNextPage();
+      }
+
+      @Override
+      protected T computeNext() {
+         while (!current.hasNext()) {
+            ListenableFuture<List<T>> future = inFlight.poll();
+            if (future == null) {
+               return endOfData();
+            }
+            List<T> page = await(future);
+            if (page.size() < pageSize) {
+               cancelInFlight();
+            } else {
+               while (inFlight.size() < concurrency) {
+                  submitNextPage();
+               }
+            }
+            current = page.iterator();
+         }
+         return current.next();
+      }
+
+      private void submitNextPage() {
+         final GenericQueryOptions options = new GenericQueryOptions().options(nextPage++, pageSize, null, query, fields);
+         inFlight.add(userExecutor.submit(new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+               return listFn.apply(options);
+            }
+         }));
+      }
+
+      private void cancelInFlight() {
+         for (ListenableFuture<List<T>> future : inFlight) {
+            future.cancel(true);
+         }
+         inFlight.clear();
+      }
+
+      private List<T> await(ListenableFuture<List<T>> future) {
+         try {
+            List<T> page = future.get();
+            return page == null ? Collections.<T>emptyList() : page;
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelInFlight();
+            throw Throwables.propagate(e);
+         } catch (ExecutionException e) {
+            cancelInFlight();
+            throw Throwables.propagate(e.getCause());
+         }
+      }
+   }
+}
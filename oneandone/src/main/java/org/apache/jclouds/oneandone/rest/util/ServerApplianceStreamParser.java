@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.util.List;
+import javax.inject.Singleton;
+import org.apache.jclouds.oneandone.rest.domain.SingleServerAppliance;
+import org.apache.jclouds.oneandone.rest.domain.Types;
+
+/**
+ * Reads server appliances straight into {@link SingleServerAppliance} instances with a single pass over a
+ * {@link JsonReader}.
+ * <p>
+ * {@code available_datacenters} may come as a list of ids (listing) or as a list of {@code id}/{@code name}
+ * objects (single appliance), and both are accepted. Members the domain object does not define, such as
+ * {@code licenses}, are skipped without being materialized.
+ */
+@Singleton
+public class ServerApplianceStreamParser {
+
+   public List<SingleServerAppliance> readList(JsonReader reader) throws IOException {
+      ImmutableList.Builder<SingleServerAppliance> appliances = ImmutableList.builder();
+      if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+         appliances.add(read(reader));
+      } else if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+         reader.beginArray();
+         while (reader.hasNext()) {
+            appliances.add(read(reader));
+         }
+         reader.endArray();
+      } else {
+         reader.skipValue();
+      }
+      return appliances.build();
+   }
+
+   public SingleServerAppliance read(JsonReader reader) throws IOException {
+      SingleServerAppliance.Builder builder = SingleServerAppliance.builder()
+              .availableDataCenters(ImmutableList.<SingleServerAppliance.AvailableDataCenters>of())
+              .categories(ImmutableList.<String>of())
+              .osArchitecture(0)
+              .minHddSize(0);
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+         if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            continue;
+         }
+         if ("id".equals(name)) {
+            builder.id(reader.nextString());
+         } else if ("name".equals(name)) {
+            builder.name(reader.nextString());
+         } else if ("available_datacenters".equals(name)) {
+            builder.availableDataCenters(readDataCenters(reader));
+         } else if ("os_installation_base".equals(name)) {
+            builder.osInstallationBase(reader.nextString());
+         } else if ("os_family".equals(name)) {
+            builder.osFamily(Types.OSFamliyType.fromValue(reader.nextString()));
+         } else if ("os".equals(name)) {
+            builder.os(reader.nextString());
+         } else if ("os_version".equals(name)) {
+            builder.osVersion(reader.nextString());
+         } else if ("os_architecture".equals(name)) {
+            builder.osArchitecture((int) reader.nextDouble());
+         } else if ("os_image_type".equals(name)) {
+            builder.osImageType(Types.OSImageType.fromValue(reader.nextString()));
+         } else if ("min_hdd_size".equals(name)) {
+            builder.minHddSize((int) reader.nextDouble());
+         } else if ("type".equals(name)) {
+            builder.type(Types.ApplianceType.fromValue(reader.nextString()));
+         } else if ("state".equals(name)) {
+            builder.state(reader.nextString());
+         } else if ("version".equals(name)) {
+            builder.version(reader.nextString());
+         } else if ("categories".equals(name)) {
+            builder.categories(readStrings(reader));
+         } else if ("eula_url".equals(name)) {
+            builder.eulaUrl(reader.nextString());
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+      return builder.build();
+   }
+
+   private static List<SingleServerAppliance.AvailableDataCenters> readDataCenters(JsonReader reader)
+           throws IOException {
+      ImmutableList.Builder<SingleServerAppliance.AvailableDataCenters> dataCenters = ImmutableList.builder();
+      reader.beginArray();
+      while (reader.hasNext()) {
+         if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            dataCenters.add(SingleServerAppliance.AvailableDataCenters.create(reader.nextString(), ""));
+            continue;
+         }
+         String id = null;
+         String name = "";
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String member = reader.nextName();
+            if ("id".equals(member) && reader.peek() != JsonToken.NULL) {
+               id = reader.nextString();
+            } else if ("name".equals(member) && reader.peek() != JsonToken.NULL) {
+               name = reader.nextString();
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+         dataCenters.add(SingleServerAppliance.AvailableDataCenters.create(id, name));
+      }
+      reader.endArray();
+      return dataCenters.build();
+   }
+
+   private static List<String> readStrings(JsonReader reader) throws IOException {
+      ImmutableList.Builder<String> values = ImmutableList.builder();
+      reader.beginArray();
+      while (reader.hasNext()) {
+         values.add(reader.nextString());
+      }
+      reader.endArray();
+      return values.build();
+   }
+}
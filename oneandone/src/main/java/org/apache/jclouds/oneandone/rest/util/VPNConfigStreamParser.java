@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.util;
+
+import com.google.common.base.Function;
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.io.BaseEncoding.base64;
+import com.google.common.io.Closeables;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.zip.ZipInputStream;
+import javax.inject.Singleton;
+import org.jclouds.http.HttpResponse;
+
+/**
+ * Exposes the {@code config_zip_file} of a VPN configuration response as a zip stream without
+ * buffering the whole document.
+ * <p>
+ * The response is scanned as a character stream up to the start of the field, and its value is
+ * unescaped and base64 decoded as the caller reads entries. Only the HTTP payload stays open, so the
+ * returned stream must be closed by the caller.
+ */
+@Singleton
+public class VPNConfigStreamParser implements Function<HttpResponse, ZipInputStream> {
+
+   static final String CONFIG_FIELD = "config_zip_file";
+
+   @Override
+   public ZipInputStream apply(HttpResponse response) {
+      checkNotNull(response.getPayload(), "payload of VPN configuration response");
+      InputStream in = null;
+      try {
+         in = response.getPayload().openStream();
+         PushbackReader json = new PushbackReader(new BufferedReader(new InputStreamReader(in, UTF_8)));
+         if (!seekField(json, CONFIG_FIELD)) {
+            throw new IllegalStateException("VPN configuration response has no " + CONFIG_FIELD);
+         }
+         return new ZipInputStream(base64().decodingStream(new Base64ValueReader(json)));
+      } catch (IOException e) {
+         Closeables.closeQuietly(in);
+         throw propagate(e);
+      } catch (RuntimeException e) {
+         Closeables.closeQuietly(in);
+         throw e;
+      }
+   }
+
+   /**
+    * Positions the reader just after the opening quote of the string value of the given top-level
+    * field, skipping every other member.
+    */
+   static boolean seekField(PushbackReader json, String field) throws IOException {
+      expect(json, '{');
+      while (true) {
+         int c = nextToken(json);
+         if (c == '}' || c == -1) {
+            return false;
+         }
+         if (c == ',') {
+            continue;
+         }
+         if (c != '"') {
+            throw new IllegalStateException("expected a member name but found '" + (char) c + "'");
+         }
+         String name = readString(json);
+         expect(json, ':');
+         if (field.equals(name)) {
+            expect(json, '"');
+            return true;
+         }
+         skipValue(json);
+      }
+   }
+
+   private static void skipValue(PushbackReader json) throws IOException {
+      int c = nextToken(json);
+      if (c == '"') {
+         skipString(json);
+      } else if (c == '{' || c == '[') {
+         int depth = 1;
+         while (depth > 0) {
+            c = json.read();
+            if (c == -1) {
+               throw new IllegalStateException("unterminated JSON value");
+            } else if (c == '"') {
+               skipString(json);
+            } else if (c == '{' || c == '[') {
+               depth++;
+            } else if (c == '}' || c == ']') {
+               depth--;
+            }
+         }
+      } else {
+         // literal: number, true, false or null
+         while (c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+            c = json.read();
+         }
+         if (c != -1) {
+            json.unread(c);
+         }
+      }
+   }
+
+   private static String readString(Reader json) throws IOException {
+      StringBuilder sb = new StringBuilder();
+      for (int c = json.read(); c != '"'; c = json.read()) {
+         if (c == -1) {
+            throw new IllegalStateException("unterminated JSON string");
+         }
+         sb.append((char) (c == '\\' ? unescape(json) : c));
+      }
+      return sb.toString();
+   }
+
+   private static void skipString(Reader json) throws IOException {
+      for (int c = json.read(); c != '"'; c = json.read()) {
+         if (c == -1) {
+            throw new IllegalStateException("unterminated JSON string");
+         }
+         if (c == '\\') {
+            unescape(json);
+         }
+      }
+   }
+
+   private static int unescape(Reader json) throws IOException {
+      int c = json.read();
+      switch (c) {
+         case 'b':
+            return '\b';
+         case 'f':
+            return '\f';
+         case 'n':
+            return '\n';
+         case 'r':
+            return '\r';
+         case 't':
+            return '\t';
+         case 'u':
+            int code = 0;
+            for (int i = 0; i < 4; i++) {
+               int digit = Character.digit(json.read(), 16);
+               if (digit < 0) {
+                  throw new IllegalStateException("malformed unicode escape in JSON string");
+               }
+               code = (code << 4) | digit;
+            }
+            return code;
+         case -1:
+            throw new IllegalStateException("unterminated JSON string");
+         default:
+            // '"', '\\' and '/'
+            return c;
+      }
+   }
+
+   private static int nextToken(Reader json) throws IOException {
+      int c = json.read();
+      while (c != -1 && Character.isWhitespace(c)) {
+         c = json.read();
+      }
+      return c;
+   }
+
+   private static void expect(Reader json, char expected) throws IOException {
+      int c = nextToken(json);
+      if (c != expected) {
+         throw new IllegalStateException("expected '" + expected + "' in VPN configuration response but found "
+                 + (c == -1 ? "end of stream" : "'" + (char) c + "'"));
+      }
+   }
+
+   /**
+    * Reads the remainder of a JSON string as base64 text: escapes are resolved, line breaks are dropped
+    * and the closing quote ends the stream.
+    */
+   static class Base64ValueReader extends Reader {
+
+      private final Reader json;
+      private boolean done;
+
+      Base64ValueReader(Reader json) {
+         this.json = json;
+      }
+
+      @Override
+      public int read(char[] buf, int off, int len) throws IOException {
+         if (len == 0) {
+            return 0;
+         }
+         int n = 0;
+         while (n < len && !done) {
+            int c = json.read();
+            if (c == -1) {
+               throw new IllegalStateException("unterminated " + CONFIG_FIELD + " value");
+            }
+            if (c == '"') {
+               done = true;
+               break;
+            }
+            if (c == '\\') {
+               c = unescape(json);
+            }
+            if (!Character.isWhitespace(c)) {
+               buf[off + n++] = (char) c;
+            }
+         }
+         return n == 0 && done ? -1 : n;
+      }
+
+      @Override
+      public void close() throws IOException {
+         json.close();
+      }
+   }
+}
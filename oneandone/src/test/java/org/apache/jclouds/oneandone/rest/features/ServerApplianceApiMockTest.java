@@ -91,6 +91,38 @@ public class ServerApplianceApiMockTest extends BaseOneAndOneApiMockTest {
       assertSent(server, "GET", "/server_appliances?q=New");
    }
 
+   @Test
+   public void testListSingleServerAppliances() throws InterruptedException {
+      server.enqueue(
+              new MockResponse().setBody(stringFromResource("/serverappliance/list.json"))
+      );
+      GenericQueryOptions options = new GenericQueryOptions();
+      options.options(0, 0, null, "Windows", null);
+      List<SingleServerAppliance> appliances = serverApplianceApi().listSingleServerAppliances(options);
+
+      assertEquals(appliances.size(), 2);
+      assertEquals(appliances.get(1).id(), "6E1F2C70CCD3EE44ED194F4FFC47C4C9");
+      assertEquals(appliances.get(1).minHddSize(), 20);
+      assertEquals(appliances.get(1).availableDataCenters().get(0).id(), "81DEF28500FBC2A973FC0C620DF5B721");
+
+      assertEquals(server.getRequestCount(), 1);
+      assertSent(server, "GET", "/server_appliances?q=Windows");
+   }
+
+   @Test
+   public void testListSingleServerAppliances404() throws InterruptedException {
+      server.enqueue(
+              new MockResponse().setResponseCode(404));
+      GenericQueryOptions options = new GenericQueryOptions();
+      options.options(0, 0, null, "Windows", null);
+      List<SingleServerAppliance> appliances = serverApplianceApi().listSingleServerAppliances(options);
+
+      assertEquals(appliances.size(), 0);
+
+      assertEquals(server.getRequestCount(), 1);
+      assertSent(server, "GET", "/server_appliances?q=Windows");
+   }
+
    @Test
    public void testGet() throws InterruptedException {
       server.enqueue(
@@ -99,6 +131,8 @@ public class ServerApplianceApiMockTest extends BaseOneAndOneApiMockTest {
       SingleServerAppliance result = serverApplianceApi().get("serverApplianceId");
 
       assertNotNull(result);
+      assertEquals(result.availableDataCenters().get(1).name(), "Lenexa (US)");
+      assertEquals(result.minHddSize(), 40);
       assertEquals(server.getRequestCount(), 1);
       assertSent(server, "GET", "/server_appliances/serverApplianceId");
    }
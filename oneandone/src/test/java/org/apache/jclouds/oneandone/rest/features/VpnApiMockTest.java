@@ -17,6 +17,7 @@
 package org.apache.jclouds.oneandone.rest.features;
 
 import com.squareup.okhttp.mockwebserver.MockResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.zip.ZipInputStream;
 import org.apache.jclouds.oneandone.rest.domain.Vpn;
@@ -112,13 +113,18 @@ public class VpnApiMockTest extends BaseOneAndOneApiMockTest {
       assertSent(server, "GET", "/vpns/vpnId");
    }
 
-   public void testGetConfiguration() throws InterruptedException {
+   public void testGetConfiguration() throws InterruptedException, IOException {
       server.enqueue(
               new MockResponse().setBody(stringFromResource("/vpn/configuration.json"))
       );
       ZipInputStream result = vpnApi().getConfiguration("vpnId");
 
       assertNotNull(result);
+      try {
+         assertEquals(result.getNextEntry().getName(), "readme.txt");
+      } finally {
+         result.close();
+      }
       assertEquals(server.getRequestCount(), 1);
       assertSent(server, "GET", "/vpns/vpnId/configuration_file");
    }
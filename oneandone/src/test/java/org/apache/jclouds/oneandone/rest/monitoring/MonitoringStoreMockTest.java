@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.monitoring;
+
+import com.google.common.collect.ImmutableMap;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import java.io.File;
+import java.io.IOException;
+import org.apache.jclouds.oneandone.rest.internal.BaseOneAndOneApiMockTest;
+import org.apache.jclouds.oneandone.rest.monitoring.MonitoringStore.Metric;
+import org.jclouds.date.DateService;
+import org.jclouds.date.internal.SimpleDateFormatDateService;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "MonitoringStoreMockTest", singleThreaded = true)
+public class MonitoringStoreMockTest extends BaseOneAndOneApiMockTest {
+
+   private final DateService dateService = new SimpleDateFormatDateService();
+
+   private long seconds(String date) {
+      return dateService.iso8601SecondsDateParse(date).getTime() / 1000L;
+   }
+
+   @Test
+   public void testRefreshFetchesOnlyTheDelta() throws InterruptedException {
+      server.enqueue(new MockResponse().setBody(stringFromResource("/monitoringcenters/get.series.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/monitoringcenters/get.series.delta.json")));
+
+      MonitoringStore store = new MonitoringStore(api, dateService);
+
+      assertEquals(store.refresh("serverId", dateService.iso8601SecondsDateParse("2017-05-19T00:30:00Z")), 18);
+      assertEquals(store.refresh("serverId", dateService.iso8601SecondsDateParse("2017-05-19T01:00:00Z")), 6);
+
+      assertEquals(server.getRequestCount(), 2);
+      assertSent(server, "GET", "/monitoring_center/serverId?period=LAST_24H");
+      assertSent(server, "GET", "/monitoring_center/serverId?period=CUSTOM&start_date=2017-05-19T00%3A15%3A00Z&end_date=2017-05-19T01%3A00%3A00Z");
+
+      TimeSeries cpu = store.series("serverId", Metric.CPU);
+      assertEquals(cpu.size(), 4);
+      assertEquals(cpu.lastTimestamp(), seconds("2017-05-19T00:20:00Z"));
+      assertEquals(store.series("serverId", Metric.TRANSFER_UPSTREAM).size(), 4);
+      assertNull(store.series("serverId", Metric.DISK));
+
+      TimeSeries.Samples samples = cpu.range(seconds("2017-05-19T00:10:00Z"), seconds("2017-05-19T00:15:00Z"));
+      assertEquals(samples.size(), 2);
+      assertEquals(samples.value(0), 2d);
+      assertEquals(samples.value(1), 3d);
+
+      TimeSeries.Rollups hourly = cpu.rollup(TimeSeries.Resolution.HOUR, 0, Long.MAX_VALUE);
+      assertEquals(hourly.size(), 1);
+      assertEquals(hourly.start(0), seconds("2017-05-19T00:00:00Z"));
+      assertEquals(hourly.min(0), 1d);
+      assertEquals(hourly.avg(0), 2.5d);
+      assertEquals(hourly.max(0), 4d);
+   }
+
+   @Test
+   public void testWatermarkIsTrackedPerMetric() throws InterruptedException {
+      server.enqueue(new MockResponse().setBody(stringFromResource("/monitoringcenters/get.series.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/monitoringcenters/get.series.delta.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/monitoringcenters/get.series.cpu.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/monitoringcenters/get.series.cpu.json")));
+
+      MonitoringStore store = new MonitoringStore(api, dateService);
+      store.refresh("serverId", dateService.iso8601SecondsDateParse("2017-05-19T00:30:00Z"));
+      store.refresh("serverId", dateService.iso8601SecondsDateParse("2017-05-19T01:00:00Z"));
+      assertEquals(store.refresh("serverId", dateService.iso8601SecondsDateParse("2017-05-19T01:30:00Z")), 1);
+
+      // only the cpu was reported, so the metrics that went silent no longer hold the window back
+      assertEquals(store.watermarks("serverId"), ImmutableMap.of(Metric.CPU, seconds("2017-05-19T00:25:00Z")));
+      assertEquals(store.series("serverId", Metric.RAM).lastTimestamp(), seconds("2017-05-19T00:20:00Z"));
+
+      assertEquals(store.refresh("serverId", dateService.iso8601SecondsDateParse("2017-05-19T02:00:00Z")), 0);
+
+      assertEquals(server.getRequestCount(), 4);
+      assertSent(server, "GET", "/monitoring_center/serverId?period=LAST_24H");
+      assertSent(server, "GET", "/monitoring_center/serverId?period=CUSTOM&start_date=2017-05-19T00%3A15%3A00Z&end_date=2017-05-19T01%3A00%3A00Z");
+      assertSent(server, "GET", "/monitoring_center/serverId?period=CUSTOM&start_date=2017-05-19T00%3A20%3A00Z&end_date=2017-05-19T01%3A30%3A00Z");
+      assertSent(server, "GET", "/monitoring_center/serverId?period=CUSTOM&start_date=2017-05-19T00%3A25%3A00Z&end_date=2017-05-19T02%3A00%3A00Z");
+   }
+
+   @Test
+   public void testRefresh404() throws InterruptedException {
+      server.enqueue(new MockResponse().setResponseCode(404));
+
+      MonitoringStore store = new MonitoringStore(api, dateService);
+
+      assertEquals(store.refresh("serverId"), 0);
+      assertNull(store.series("serverId", Metric.CPU));
+      assertEquals(server.getRequestCount(), 1);
+      assertSent(server, "GET", "/monitoring_center/serverId?period=LAST_24H");
+   }
+
+   @Test
+   public void testWriteAndRead() throws IOException {
+      server.enqueue(new MockResponse().setBody(stringFromResource("/monitoringcenters/get.series.json")));
+
+      MonitoringStore store = new MonitoringStore(api, dateService);
+      store.refresh("serverId");
+
+      File file = File.createTempFile("monitoring", ".store");
+      try {
+         store.writeTo(file);
+
+         MonitoringStore restored = new MonitoringStore(api, dateService);
+         restored.readFrom(file);
+
+         for (Metric metric : new Metric[] { Metric.CPU, Metric.RAM, Metric.PING_RESPONSE_TIME }) {
+            TimeSeries expected = store.series("serverId", metric);
+            TimeSeries actual = restored.series("serverId", metric);
+            assertEquals(actual.size(), expected.size());
+            assertEquals(actual.lastTimestamp(), expected.lastTimestamp());
+            assertEquals(actual.rollup(TimeSeries.Resolution.DAY, 0, Long.MAX_VALUE).avg(0),
+                    expected.rollup(TimeSeries.Resolution.DAY, 0, Long.MAX_VALUE).avg(0));
+         }
+      } finally {
+         file.delete();
+      }
+   }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.monitoring;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.apache.jclouds.oneandone.rest.monitoring.TimeSeries.Resolution;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "TimeSeriesTest")
+public class TimeSeriesTest {
+
+   private static final long FIVE_MINUTES = 5 * 60;
+
+   public void testAppendIgnoresOldSamples() {
+      TimeSeries series = new TimeSeries();
+      assertEquals(series.lastTimestamp(), Long.MIN_VALUE);
+      assertTrue(series.append(100, 1));
+      assertFalse(series.append(100, 2));
+      assertFalse(series.append(50, 3));
+      assertTrue(series.append(200, 4));
+      assertEquals(series.size(), 2);
+      assertEquals(series.lastTimestamp(), 200);
+   }
+
+   public void testRangeIsInclusive() {
+      TimeSeries series = newSeries(100);
+      TimeSeries.Samples samples = series.range(FIVE_MINUTES * 10, FIVE_MINUTES * 20);
+      assertEquals(samples.size(), 11);
+      assertEquals(samples.timestamp(0), FIVE_MINUTES * 10);
+      assertEquals(samples.value(10), 20d);
+      assertEquals(series.range(FIVE_MINUTES * 1000, FIVE_MINUTES * 2000).size(), 0);
+   }
+
+   public void testRollups() {
+      // 12 five minute samples per hour, 288 per day
+      TimeSeries series = newSeries(288 * 2);
+
+      TimeSeries.Rollups hourly = series.rollup(Resolution.HOUR, 0, Long.MAX_VALUE);
+      assertEquals(hourly.size(), 48);
+      assertEquals(hourly.start(1), 3600);
+      assertEquals(hourly.min(1), 12d);
+      assertEquals(hourly.max(1), 23d);
+      assertEquals(hourly.avg(1), 17.5d);
+
+      TimeSeries.Rollups daily = series.rollup(Resolution.DAY, 86400, 86400);
+      assertEquals(daily.size(), 1);
+      assertEquals(daily.min(0), 288d);
+      assertEquals(daily.max(0), 575d);
+   }
+
+   public void testRetentionDropsOldestEntries() {
+      TimeSeries series = new TimeSeries(8, 2);
+      for (int i = 0; i < 20; i++) {
+         series.append(i * 3600L, i);
+      }
+      assertTrue(series.size() <= 8);
+      assertEquals(series.lastTimestamp(), 19 * 3600L);
+      TimeSeries.Samples samples = series.range(0, Long.MAX_VALUE);
+      assertEquals(samples.timestamp(samples.size() - 1), 19 * 3600L);
+      assertEquals(series.range(0, 10 * 3600L).size(), 0);
+
+      TimeSeries.Rollups hourly = series.rollup(Resolution.HOUR, 0, Long.MAX_VALUE);
+      assertTrue(hourly.size() <= 2);
+      assertEquals(hourly.start(hourly.size() - 1), 19 * 3600L);
+      assertEquals(hourly.max(hourly.size() - 1), 19d);
+   }
+
+   public void testRoundTripKeepsRollupsOlderThanTheSamples() throws IOException {
+      TimeSeries series = new TimeSeries(8, 100);
+      for (int i = 0; i < 50; i++) {
+         series.append(i * 3600L, i);
+      }
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      series.writeTo(new DataOutputStream(bytes));
+      TimeSeries reloaded = TimeSeries.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+      TimeSeries.Rollups hourly = reloaded.rollup(Resolution.HOUR, 0, Long.MAX_VALUE);
+      assertEquals(hourly.size(), 50);
+      assertEquals(hourly.start(0), 0);
+      assertEquals(hourly.max(0), 0d);
+      assertEquals(hourly.avg(49), 49d);
+      assertTrue(reloaded.range(0, Long.MAX_VALUE).size() <= 8);
+      assertEquals(reloaded.size(), series.size());
+      assertEquals(reloaded.lastTimestamp(), 49 * 3600L);
+
+      // the custom limits are restored too
+      for (int i = 50; i < 100; i++) {
+         reloaded.append(i * 3600L, i);
+      }
+      assertTrue(reloaded.size() <= 8);
+      assertEquals(reloaded.rollup(Resolution.HOUR, 0, Long.MAX_VALUE).size(), 100);
+      assertEquals(reloaded.rollup(Resolution.HOUR, 0, Long.MAX_VALUE).avg(99), 99d);
+   }
+
+   private static TimeSeries newSeries(int samples) {
+      TimeSeries series = new TimeSeries();
+      for (int i = 0; i < samples; i++) {
+         series.append(i * FIVE_MINUTES, i);
+      }
+      return series;
+   }
+}
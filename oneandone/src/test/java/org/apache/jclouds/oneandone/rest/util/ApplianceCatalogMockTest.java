@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.util;
+
+import com.google.common.base.Ticker;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.jclouds.oneandone.rest.domain.Types;
+import org.apache.jclouds.oneandone.rest.internal.BaseOneAndOneApiMockTest;
+import org.jclouds.rest.AuthorizationException;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "ApplianceCatalogMockTest", singleThreaded = true)
+public class ApplianceCatalogMockTest extends BaseOneAndOneApiMockTest {
+
+   private static final long TTL_SECONDS = 60;
+
+   private final AtomicLong nanos = new AtomicLong();
+   private final Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+   };
+
+   private ApplianceCatalog catalog() {
+      return new ApplianceCatalog(api, new PagedLister(newDirectExecutorService(), 100, 1), newDirectExecutorService(),
+              TTL_SECONDS, ticker);
+   }
+
+   @Test
+   public void testLoadsCatalogOnce() throws InterruptedException {
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.json")));
+
+      ApplianceCatalog catalog = catalog();
+
+      assertEquals(catalog.list().size(), 2);
+      assertEquals(catalog.get("6E1F2C70CCD3EE44ED194F4FFC47C4C9").name(), "w2012r2datacenter64min");
+      assertEquals(catalog.get("6E1F2C70CCD3EE44ED194F4FFC47C4C9").minHddSize(), 20);
+      assertEquals(catalog.find(Types.OSFamliyType.Windows, 64).size(), 2);
+      assertTrue(catalog.find(Types.OSFamliyType.Linux, 64).isEmpty());
+      assertTrue(catalog.find(Types.OSFamliyType.Windows, 32).isEmpty());
+
+      assertEquals(server.getRequestCount(), 1);
+      assertTrue(server.takeRequest().getPath().startsWith("/server_appliances?page=1&per_page=100&fields="));
+   }
+
+   @Test
+   public void testLooksUpUnknownId() throws InterruptedException {
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.options.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.options.json")));
+
+      ApplianceCatalog catalog = catalog();
+
+      assertEquals(catalog.get("3CE474D95AF5B0777A3DCE3FE0999F50").id(), "3CE474D95AF5B0777A3DCE3FE0999F50");
+      // a search hit that is not the requested id is not a match
+      assertNull(catalog.get("3CE474D95AF5"));
+
+      assertEquals(server.getRequestCount(), 3);
+      server.takeRequest();
+      assertSent(server, "GET", "/server_appliances?q=3CE474D95AF5B0777A3DCE3FE0999F50");
+      assertSent(server, "GET", "/server_appliances?q=3CE474D95AF5");
+   }
+
+   @Test
+   public void testFailedListingThrowsItsCause() {
+      server.enqueue(new MockResponse().setResponseCode(401));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.json")));
+
+      ApplianceCatalog catalog = catalog();
+      try {
+         catalog.list();
+         fail("expected an AuthorizationException");
+      } catch (AuthorizationException expected) {
+      }
+
+      // the failure is not cached
+      assertEquals(catalog.list().size(), 2);
+   }
+
+   @Test
+   public void testReloadsAfterTtl() throws InterruptedException {
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.page.json")));
+
+      ApplianceCatalog catalog = catalog();
+      assertEquals(catalog.list().size(), 2);
+
+      nanos.addAndGet(TimeUnit.SECONDS.toNanos(TTL_SECONDS - 1));
+      assertEquals(catalog.list().size(), 2);
+      assertEquals(server.getRequestCount(), 1);
+
+      nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+      catalog.list();
+      assertEquals(catalog.list().size(), 1);
+      assertEquals(server.getRequestCount(), 2);
+   }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.util;
+
+import com.google.common.base.Function;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import java.util.List;
+import org.apache.jclouds.oneandone.rest.domain.ServerAppliance;
+import org.apache.jclouds.oneandone.rest.domain.options.GenericQueryOptions;
+import org.apache.jclouds.oneandone.rest.internal.BaseOneAndOneApiMockTest;
+import static org.testng.Assert.assertEquals;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "PagedListerMockTest", singleThreaded = true)
+public class PagedListerMockTest extends BaseOneAndOneApiMockTest {
+
+   private final Function<GenericQueryOptions, List<ServerAppliance>> listAppliances
+           = new Function<GenericQueryOptions, List<ServerAppliance>>() {
+              @Override
+              public List<ServerAppliance> apply(GenericQueryOptions options) {
+                 return api.serverApplianceApi().list(options);
+              }
+           };
+
+   @Test
+   public void testListStopsOnShortPage() throws InterruptedException {
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.page.json")));
+      server.enqueue(new MockResponse().setBody("[]"));
+
+      PagedLister lister = new PagedLister(newDirectExecutorService(), 2, 2);
+      List<ServerAppliance> appliances = lister.list(listAppliances, null, "name").toList();
+
+      assertEquals(appliances.size(), 5);
+      assertEquals(appliances.get(4).name(), "Windows 2012");
+
+      // the fourth page was requested ahead of time and is discarded
+      assertEquals(server.getRequestCount(), 4);
+      assertSent(server, "GET", "/server_appliances?page=1&per_page=2&fields=name");
+      assertSent(server, "GET", "/server_appliances?page=2&per_page=2&fields=name");
+      assertSent(server, "GET", "/server_appliances?page=3&per_page=2&fields=name");
+      assertSent(server, "GET", "/server_appliances?page=4&per_page=2&fields=name");
+   }
+
+   @Test
+   public void testListSinglePage() throws InterruptedException {
+      server.enqueue(new MockResponse().setBody(stringFromResource("/serverappliance/list.options.json")));
+
+      PagedLister lister = new PagedLister(newDirectExecutorService(), 100, 4);
+      List<ServerAppliance> appliances = lister.list(listAppliances, "New", null).toList();
+
+      assertEquals(appliances.size(), 4);
+      assertEquals(server.getRequestCount(), 1);
+      assertSent(server, "GET", "/server_appliances?page=1&per_page=100&q=New");
+   }
+
+   @Test
+   public void testListEmpty() throws InterruptedException {
+      server.enqueue(new MockResponse().setResponseCode(404));
+
+      PagedLister lister = new PagedLister(newDirectExecutorService(), 2, 2);
+
+      assertEquals(lister.list(listAppliances, null, null).size(), 0);
+      assertEquals(server.getRequestCount(), 1);
+      assertSent(server, "GET", "/server_appliances?page=1&per_page=2");
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.util;
+
+import static com.google.common.base.Charsets.UTF_8;
+import com.google.common.io.Resources;
+import com.google.gson.stream.JsonReader;
+import com.google.inject.Guice;
+import com.google.inject.TypeLiteral;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.jclouds.oneandone.rest.domain.ServerAppliance;
+import org.apache.jclouds.oneandone.rest.domain.SingleServerAppliance;
+import org.apache.jclouds.oneandone.rest.domain.Types;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "ServerApplianceStreamParserTest")
+public class ServerApplianceStreamParserTest {
+
+   private final Json json = Guice.createInjector(new GsonModule()).getInstance(Json.class);
+   private final ServerApplianceStreamParser parser = new ServerApplianceStreamParser();
+
+   public void testReadsSingleAppliance() throws IOException {
+      SingleServerAppliance appliance = parser.read(reader(resource("/serverappliance/get.json")));
+
+      assertEquals(appliance.id(), "81504C620D98BCEBAA5202D145203B4C");
+      assertEquals(appliance.availableDataCenters().size(), 4);
+      assertEquals(appliance.availableDataCenters().get(0),
+              SingleServerAppliance.AvailableDataCenters.create("81DEF28500FBC2A973FC0C620DF5B721", "La Portalada"));
+      assertEquals(appliance.osFamily(), Types.OSFamliyType.Windows);
+      assertEquals(appliance.osImageType(), Types.OSImageType.Standard);
+      assertEquals(appliance.type(), Types.ApplianceType.IMAGE);
+      assertEquals(appliance.minHddSize(), 40);
+      assertEquals(appliance.osArchitecture(), 64);
+      assertNull(appliance.version());
+   }
+
+   public void testReadsListingWithNulls() throws IOException {
+      List<SingleServerAppliance> appliances = parser.readList(reader(resource("/serverappliance/list.json")));
+
+      assertEquals(appliances.size(), 2);
+      assertEquals(appliances.get(0).minHddSize(), 0);
+      assertEquals(appliances.get(0).availableDataCenters().get(1),
+              SingleServerAppliance.AvailableDataCenters.create("908DC2072407C94C8054610AD5A53B8C", ""));
+      assertTrue(appliances.get(0).categories().isEmpty());
+   }
+
+   public void testMatchesListingCopy() throws IOException {
+      String catalog = catalog(50);
+
+      assertEquals(parser.readList(reader(catalog)), copy(json.<List<ServerAppliance>>fromJson(catalog, listType())));
+   }
+
+   // The conversion OneandoneComputeServiceAdapter used to apply to every listed appliance
+   private static List<SingleServerAppliance> copy(List<ServerAppliance> list) {
+      List<SingleServerAppliance> results = new ArrayList<SingleServerAppliance>();
+      for (ServerAppliance appliance : list) {
+         List<SingleServerAppliance.AvailableDataCenters> availableDatacenters
+                 = new ArrayList<SingleServerAppliance.AvailableDataCenters>();
+         for (String dcId : appliance.availableDataCenters()) {
+            availableDatacenters.add(SingleServerAppliance.AvailableDataCenters.create(dcId, ""));
+         }
+         results.add(SingleServerAppliance.create(appliance.id(), appliance.name(), availableDatacenters,
+                 appliance.osInstallationBase(), appliance.osFamily(), appliance.os(), appliance.osVersion(),
+                 appliance.osArchitecture(), appliance.osImageType(), appliance.minHddSize(), appliance.type(),
+                 appliance.state(), appliance.version(), appliance.categories(), appliance.eulaUrl()));
+      }
+      return results;
+   }
+
+   private static String catalog(int size) {
+      StringBuilder sb = new StringBuilder("[");
+      for (int i = 0; i < size; i++) {
+         if (i > 0) {
+            sb.append(',');
+         }
+         sb.append("{\"id\": \"").append(String.format("%032X", i)).append("\", ")
+                 .append("\"name\": \"Appliance ").append(i).append("\", ")
+                 .append("\"available_datacenters\": [\"81DEF28500FBC2A973FC0C620DF5B721\", ")
+                 .append("\"908DC2072407C94C8054610AD5A53B8C\", \"4EFAD5836CE43ACA502FD5B99BEE44EF\"], ")
+                 .append("\"os_installation_base\": \"Standard\", \"os_family\": \"Linux\", \"os\": \"Ubuntu\", ")
+                 .append("\"os_version\": \"Ubuntu16.04\", \"os_architecture\": 64, \"os_image_type\": \"Standard\", ")
+                 .append("\"min_hdd_size\": ").append(20 + i % 5 * 10).append(", \"type\": \"IMAGE\", ")
+                 .append("\"state\": \"ACTIVE\", \"version\": \"1.").append(i).append("\", ")
+                 .append("\"categories\": [\"os\", \"linux\"], \"eula_url\": null, ")
+                 .append("\"licenses\": [{\"name\": \"Ubuntu\"}], \"automatic_installation\": true}");
+      }
+      return sb.append(']').toString();
+   }
+
+   private static Type listType() {
+      return new TypeLiteral<List<ServerAppliance>>() {
+      }.getType();
+   }
+
+   private static JsonReader reader(String json) {
+      return new JsonReader(new StringReader(json));
+   }
+
+   private static String resource(String name) throws IOException {
+      return Resources.toString(Resources.getResource(ServerApplianceStreamParserTest.class, name), UTF_8);
+   }
+}
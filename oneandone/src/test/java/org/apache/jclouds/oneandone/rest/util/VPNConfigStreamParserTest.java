@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.oneandone.rest.util;
+
+import static com.google.common.base.Charsets.UTF_8;
+import com.google.common.collect.ImmutableList;
+import static com.google.common.io.BaseEncoding.base64;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.jclouds.http.HttpResponse;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "VPNConfigStreamParserTest")
+public class VPNConfigStreamParserTest {
+
+   private final VPNConfigStreamParser parser = new VPNConfigStreamParser();
+
+   public void testStreamsConfigurationEntries() throws IOException {
+      String json = resource("/vpn/configuration.json");
+
+      assertEquals(entries(parser.apply(response(json))), entries(decoded(json)));
+   }
+
+   public void testSkipsOtherMembersAndResolvesEscapes() throws IOException {
+      String json = resource("/vpn/configuration.json");
+      String content = new JsonParser().parse(json).getAsJsonObject().get("config_zip_file").getAsString();
+      StringBuilder escaped = new StringBuilder();
+      for (int i = 0; i < content.length(); i++) {
+         if (i > 0 && i % 76 == 0) {
+            escaped.append("\\r\\n");
+         }
+         char c = content.charAt(i);
+         escaped.append(c == '/' ? "\\/" : c == 'A' ? "\\u0041" : String.valueOf(c));
+      }
+      String wrapped = "{\"name\": \"a \\\"quoted\\\" {name}\", \"sizes\": [1, {\"x\": \"]\"}], "
+              + "\"ready\": true, \"parent\": null, \"count\": -1.5e3,"
+              + "\"config_zip_file\": \"" + escaped + "\", \"trailing\": {}}";
+
+      ImmutableList<String> expected = entries(decoded(json));
+      assertEquals(entries(parser.apply(response(wrapped))), expected);
+      assertEquals(expected.size(), 5);
+   }
+
+   public void testMissingConfigurationFails() {
+      try {
+         parser.apply(response("{\"id\": \"vpnId\", \"nested\": {\"config_zip_file\": \"\"}}"));
+         fail("expected IllegalStateException");
+      } catch (IllegalStateException expected) {
+      }
+   }
+
+   private static HttpResponse response(String body) {
+      return HttpResponse.builder().statusCode(200).payload(body).build();
+   }
+
+   private static ZipInputStream decoded(String json) {
+      String content = new JsonParser().parse(json).getAsJsonObject().get("config_zip_file").getAsString();
+      return new ZipInputStream(new ByteArrayInputStream(base64().decode(content)));
+   }
+
+   private static ImmutableList<String> entries(ZipInputStream zip) throws IOException {
+      ImmutableList.Builder<String> entries = ImmutableList.builder();
+      try {
+         for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            entries.add(entry.getName() + ":" + ByteStreams.toByteArray(zip).length);
+         }
+      } finally {
+         zip.close();
+      }
+      return entries.build();
+   }
+
+   private static String resource(String name) throws IOException {
+      return Resources.toString(Resources.getResource(VPNConfigStreamParserTest.class, name), UTF_8);
+   }
+}
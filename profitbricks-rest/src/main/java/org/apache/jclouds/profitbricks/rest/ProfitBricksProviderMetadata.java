@@ -22,6 +22,7 @@ import java.util.Properties;
 import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_MAX_PERIOD;
 import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_PERIOD;
 import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_TIMEOUT;
+import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.REQUEST_TRACKER_CONCURRENCY;
 import static org.jclouds.Constants.PROPERTY_CONNECTION_TIMEOUT;
 import static org.jclouds.Constants.PROPERTY_ISO3166_CODES;
 import static org.jclouds.Constants.PROPERTY_SO_TIMEOUT;
@@ -78,6 +79,7 @@ public class ProfitBricksProviderMetadata extends BaseProviderMetadata {
       properties.put(POLL_TIMEOUT, defaultTimeout);
       properties.put(POLL_PERIOD, 2L);
       properties.put(POLL_MAX_PERIOD, 2L * 10L);
+      properties.put(REQUEST_TRACKER_CONCURRENCY, 4);
 
       properties.put(PROPERTY_SO_TIMEOUT, 60000 * 5);
       properties.put(PROPERTY_CONNECTION_TIMEOUT, 60000 * 5);
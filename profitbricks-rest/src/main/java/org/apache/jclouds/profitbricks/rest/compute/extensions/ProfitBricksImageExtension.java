@@ -16,26 +16,35 @@
  */
 package org.apache.jclouds.profitbricks.rest.compute.extensions;
 
-import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
-import com.google.common.collect.Iterables;
 import static com.google.common.collect.Iterables.find;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import com.google.common.util.concurrent.FutureCallback;
+import static com.google.common.util.concurrent.Futures.addCallback;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.UncheckedTimeoutException;
 import java.net.URI;
-import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.inject.Named;
 import org.apache.jclouds.profitbricks.rest.ProfitBricksApi;
-import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_PREDICATE_SNAPSHOT;
+import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_PERIOD;
+import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_TIMEOUT;
+import org.apache.jclouds.profitbricks.rest.domain.ProvisioningState;
+import org.apache.jclouds.profitbricks.rest.domain.RequestStatus;
 import org.apache.jclouds.profitbricks.rest.domain.Server;
 import org.apache.jclouds.profitbricks.rest.domain.Snapshot;
 import org.apache.jclouds.profitbricks.rest.domain.Volume;
+import org.apache.jclouds.profitbricks.rest.domain.options.DepthOptions;
 import org.apache.jclouds.profitbricks.rest.domain.zonescoped.DataCenterAndId;
+import org.apache.jclouds.profitbricks.rest.util.RequestTracker;
 import org.apache.jclouds.profitbricks.rest.util.Trackables;
 import org.jclouds.Constants;
 import org.jclouds.collect.Memoized;
@@ -51,6 +60,13 @@ import org.jclouds.domain.Location;
 import static org.jclouds.location.predicates.LocationPredicates.idEquals;
 import org.jclouds.logging.Logger;
 
+/**
+ * Creates images by snapshotting the boot volume of a server.
+ * <p>
+ * Every wait is chained as a callback: request statuses are followed by the {@link RequestTracker} and the snapshot
+ * state is polled from the scheduler, so no thread is held while the snapshot is being created. A snapshot that fails
+ * or does not become available in time is deleted.
+ */
 public class ProfitBricksImageExtension implements ImageExtension {
 
    @Resource
@@ -59,21 +75,37 @@ public class ProfitBricksImageExtension implements ImageExtension {
 
    private final ProfitBricksApi client;
    private final ListeningExecutorService userExecutor;
+   private final ScheduledExecutorService scheduler;
    private final Supplier<Set<? extends Location>> locations;
-   private final Predicate<String> snapshotAvailablePredicate;
+   private final RequestTracker requestTracker;
    private final Trackables trackables;
+   private final long pollPeriodMillis;
+   private final long timeoutMillis;
 
    @Inject
    ProfitBricksImageExtension(ProfitBricksApi client,
            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+           @Named(Constants.PROPERTY_SCHEDULER_THREADS) ScheduledExecutorService scheduler,
            @Memoized Supplier<Set<? extends Location>> locations,
-           @Named(POLL_PREDICATE_SNAPSHOT) Predicate<String> snapshotAvailablePredicate,
-           Trackables trackables) {
+           RequestTracker requestTracker,
+           Trackables trackables,
+           @Named(POLL_PERIOD) long pollPeriodSeconds,
+           @Named(POLL_TIMEOUT) long timeoutSeconds) {
+      this(client, userExecutor, scheduler, locations, requestTracker, trackables, pollPeriodSeconds, timeoutSeconds,
+              TimeUnit.SECONDS);
+   }
+
+   ProfitBricksImageExtension(ProfitBricksApi client, ListeningExecutorService userExecutor,
+           ScheduledExecutorService scheduler, Supplier<Set<? extends Location>> locations,
+           RequestTracker requestTracker, Trackables trackables, long pollPeriod, long timeout, TimeUnit unit) {
       this.client = client;
       this.userExecutor = userExecutor;
+      this.scheduler = scheduler;
       this.locations = locations;
-      this.snapshotAvailablePredicate = snapshotAvailablePredicate;
+      this.requestTracker = requestTracker;
       this.trackables = trackables;
+      this.pollPeriodMillis = unit.toMillis(pollPeriod);
+      this.timeoutMillis = unit.toMillis(timeout);
    }
 
    @Override
@@ -91,40 +123,42 @@ public class ProfitBricksImageExtension implements ImageExtension {
    public ListenableFuture<Image> createImage(ImageTemplate template) {
       final CloneImageTemplate cloneTemplate = (CloneImageTemplate) template;
       final DataCenterAndId datacenterAndId = DataCenterAndId.fromSlashEncoded(cloneTemplate.getSourceNodeId());
+      final SettableFuture<Image> image = SettableFuture.create();
 
-      final Server server = client.serverApi().getServer(datacenterAndId.getDataCenter(), datacenterAndId.getId());
-      List<Volume> volumes = client.volumeApi().getList(server.dataCenterId());
-
-      final Volume volume = Iterables.getOnlyElement(volumes);
-
-      return userExecutor.submit(new Callable<Image>() {
+      ListenableFuture<Server> server = userExecutor.submit(new Callable<Server>() {
          @Override
-         public Image call() throws Exception {
-            Snapshot snapshot = client.volumeApi().createSnapshot(Volume.Request.createSnapshotBuilder()
-                    .dataCenterId(datacenterAndId.getDataCenter())
-                    .volumeId(volume.id())
-                    .name(cloneTemplate.getName())
-                    .description(cloneTemplate.getName())
-                    .build());
-
-            trackables.waitUntilRequestCompleted(snapshot);
-            logger.info(">> Registered new snapshot %s, waiting for it to become available.", snapshot.id());
-
-            final Image image = new ImageBuilder()
-                    .location(find(locations.get(), idEquals(snapshot.properties().location().getId())))
-                    .id(snapshot.id())
-                    .providerId(snapshot.id())
-                    .name(cloneTemplate.getName())
-                    .description(cloneTemplate.getName())
-                    .operatingSystem(OperatingSystem.builder().description(cloneTemplate.getName()).build())
-                    .status(Image.Status.PENDING).build();
+         public Server call() {
+            return client.serverApi().getServer(datacenterAndId.getDataCenter(), datacenterAndId.getId(),
+                    new DepthOptions().depth(2));
+         }
+      });
 
-            if (snapshotAvailablePredicate.apply(image.getId())) {
-               return image;
+      addCallback(server, new Step<Server, Image>(image) {
+         @Override
+         public void onSuccess(Server server) {
+            if (server == null) {
+               image.setException(new IllegalArgumentException("Cannot find server with id: "
+                       + cloneTemplate.getSourceNodeId()));
+               return;
             }
-            throw new UncheckedTimeoutException("Image was not created within the time limit: " + image);
+            Volume bootVolume = bootVolume(server);
+            if (bootVolume == null) {
+               image.setException(new IllegalStateException("Server " + cloneTemplate.getSourceNodeId()
+                       + " has no boot volume to snapshot"));
+               return;
+            }
+
+            addCallback(snapshot(datacenterAndId.getDataCenter(), bootVolume, cloneTemplate.getName()),
+                    new Step<Snapshot, Image>(image) {
+               @Override
+               public void onSuccess(Snapshot snapshot) {
+                  image.set(toImage(snapshot, cloneTemplate));
+               }
+            }, directExecutor());
          }
-      });
+      }, directExecutor());
+
+      return image;
    }
 
    @Override
@@ -138,4 +172,149 @@ public class ProfitBricksImageExtension implements ImageExtension {
       }
    }
 
+   private ListenableFuture<Snapshot> snapshot(final String dataCenterId, final Volume volume, final String name) {
+      final SettableFuture<Snapshot> available = SettableFuture.create();
+
+      ListenableFuture<Snapshot> snapshot = userExecutor.submit(new Callable<Snapshot>() {
+         @Override
+         public Snapshot call() {
+            return client.volumeApi().createSnapshot(Volume.Request.createSnapshotBuilder()
+                    .dataCenterId(dataCenterId)
+                    .volumeId(volume.id())
+                    .name(name)
+                    .description(name)
+                    .build());
+         }
+      });
+
+      addCallback(snapshot, new Step<Snapshot, Snapshot>(available) {
+         @Override
+         public void onSuccess(final Snapshot snapshot) {
+            final SettableFuture<Snapshot> created = SettableFuture.create();
+            // Once the snapshot exists it has to be removed if it never becomes usable
+            addCallback(created, new FutureCallback<Snapshot>() {
+               @Override
+               public void onSuccess(Snapshot result) {
+                  available.set(result);
+               }
+
+               @Override
+               public void onFailure(Throwable t) {
+                  deleteQuietly(snapshot.id());
+                  available.setException(t);
+               }
+            }, directExecutor());
+
+            if (!snapshot.requestStatusUri().isPresent()) {
+               waitUntilAvailable(snapshot.id(), System.currentTimeMillis() + timeoutMillis, created);
+               return;
+            }
+            addCallback(requestTracker.track(snapshot.requestStatusUri().get()),
+                    new Step<RequestStatus, Snapshot>(created) {
+               @Override
+               public void onSuccess(RequestStatus status) {
+                  if (status.metadata().status() != RequestStatus.Status.DONE) {
+                     created.setException(new IllegalStateException("Snapshot creation failed: "
+                             + status.metadata().message()));
+                     return;
+                  }
+                  logger.info(">> Registered new snapshot %s, waiting for it to become available.", snapshot.id());
+                  waitUntilAvailable(snapshot.id(), System.currentTimeMillis() + timeoutMillis, created);
+               }
+            }, directExecutor());
+         }
+      }, directExecutor());
+
+      return available;
+   }
+
+   private void waitUntilAvailable(final String snapshotId, final long deadline, final SettableFuture<Snapshot> available) {
+      ListenableFuture<Snapshot> snapshot = userExecutor.submit(new Callable<Snapshot>() {
+         @Override
+         public Snapshot call() {
+            return client.snapshotApi().get(snapshotId);
+         }
+      });
+
+      addCallback(snapshot, new Step<Snapshot, Snapshot>(available) {
+         @Override
+         public void onSuccess(Snapshot snapshot) {
+            if (snapshot != null && snapshot.metadata().state() == ProvisioningState.AVAILABLE) {
+               available.set(snapshot);
+            } else if (System.currentTimeMillis() > deadline) {
+               available.setException(new UncheckedTimeoutException("Snapshot " + snapshotId
+                       + " was not available within the time limit"));
+            } else {
+               scheduler.schedule(new Runnable() {
+                  @Override
+                  public void run() {
+                     waitUntilAvailable(snapshotId, deadline, available);
+                  }
+               }, pollPeriodMillis, TimeUnit.MILLISECONDS);
+            }
+         }
+      }, directExecutor());
+   }
+
+   private void deleteQuietly(final String snapshotId) {
+      logger.warn(">> Snapshot %s did not become available, deleting it", snapshotId);
+      ListenableFuture<URI> deleted = userExecutor.submit(new Callable<URI>() {
+         @Override
+         public URI call() {
+            return client.snapshotApi().delete(snapshotId);
+         }
+      });
+      addCallback(deleted, new FutureCallback<URI>() {
+         @Override
+         public void onSuccess(URI requestStatusUri) {
+         }
+
+         @Override
+         public void onFailure(Throwable t) {
+            logger.warn(t, ">> Could not delete snapshot %s", snapshotId);
+         }
+      }, directExecutor());
+   }
+
+   private Image toImage(Snapshot snapshot, CloneImageTemplate cloneTemplate) {
+      return new ImageBuilder()
+              .location(find(locations.get(), idEquals(snapshot.properties().location().getId())))
+              .id(snapshot.id())
+              .providerId(snapshot.id())
+              .name(cloneTemplate.getName())
+              .description(cloneTemplate.getName())
+              .operatingSystem(OperatingSystem.builder().description(cloneTemplate.getName()).build())
+              .status(Image.Status.AVAILABLE).build();
+   }
+
+   /**
+    * Returns the boot volume of the server, or its only volume when the boot volume is not set.
+    */
+   private static Volume bootVolume(Server server) {
+      if (server.properties().bootVolume() != null) {
+         return server.properties().bootVolume();
+      }
+      if (server.entities() == null || server.entities().volumes() == null
+              || server.entities().volumes().items() == null || server.entities().volumes().items().size() != 1) {
+         return null;
+      }
+      return getOnlyElement(server.entities().volumes().items());
+   }
+
+   /**
+    * A step of the pipeline that fails the final result if the step it follows fails.
+    */
+   private abstract static class Step<T, R> implements FutureCallback<T> {
+      private final SettableFuture<R> result;
+
+      Step(SettableFuture<R> result) {
+         this.result = result;
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+         result.setException(t);
+      }
+   }
+
 }
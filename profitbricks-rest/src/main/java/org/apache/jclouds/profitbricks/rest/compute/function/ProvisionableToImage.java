@@ -16,13 +16,14 @@
  */
 package org.apache.jclouds.profitbricks.rest.compute.function;
 
-import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Iterables.find;
-import static org.jclouds.location.predicates.LocationPredicates.idEquals;
 
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Singleton;
 
 import org.apache.jclouds.profitbricks.rest.domain.LicenceType;
 import org.apache.jclouds.profitbricks.rest.domain.Provisionable;
@@ -37,34 +38,145 @@ import org.jclouds.domain.Location;
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
 import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 
+/**
+ * Converts ProfitBricks images and snapshots to jclouds images.
+ * <p>
+ * Converted images are cached by id, and reused for as long as the ETag (or the last modification date) of the
+ * provisionable does not change, so listing the same images again does not parse their names or look up their
+ * locations.
+ */
+@Singleton
 public class ProvisionableToImage implements Function<Provisionable, Image> {
 
    public static final String KEY_PROVISIONABLE_TYPE = "provisionableType";
 
+   private static final long MAX_CACHED_IMAGES = 4096;
+
+   private static final Map<String, OsFamily> OS_FAMILIES;
+
+   static {
+      ImmutableMap.Builder<String, OsFamily> families = ImmutableMap.builder();
+      for (OsFamily family : OsFamily.values()) {
+         families.put(family.name(), family);
+      }
+      OS_FAMILIES = families.build();
+   }
+
    private final ImageToImage fnImageToImage;
    private final SnapshotToImage fnSnapshotToImage;
+   private final Cache<String, ConvertedImage> images = CacheBuilder.newBuilder()
+           .maximumSize(MAX_CACHED_IMAGES)
+           .expireAfterAccess(1, TimeUnit.HOURS)
+           .build();
 
    @Inject
    ProvisionableToImage(@Memoized Supplier<Set<? extends Location>> locations) {
-      this.fnImageToImage = new ImageToImage(locations);
-      this.fnSnapshotToImage = new SnapshotToImage(locations);
+      LocationIndex locationIndex = new LocationIndex(locations);
+      this.fnImageToImage = new ImageToImage(locationIndex);
+      this.fnSnapshotToImage = new SnapshotToImage(locationIndex);
    }
 
    @Override
    public Image apply(Provisionable input) {
       checkNotNull(input, "Cannot convert null input");
 
+      String id;
+      Object version;
       if (input instanceof org.apache.jclouds.profitbricks.rest.domain.Image) {
-         return fnImageToImage.apply((org.apache.jclouds.profitbricks.rest.domain.Image) input);
+         org.apache.jclouds.profitbricks.rest.domain.Image image = (org.apache.jclouds.profitbricks.rest.domain.Image) input;
+         id = image.id();
+         version = image.metadata() == null ? null
+                 : version(image.metadata().etag(), image.metadata().lastModifiedDate());
       } else if (input instanceof Snapshot) {
-         return fnSnapshotToImage.apply((Snapshot) input);
+         Snapshot snapshot = (Snapshot) input;
+         id = snapshot.id();
+         version = snapshot.metadata() == null ? null
+                 : version(snapshot.metadata().etag(), snapshot.metadata().lastModifiedDate());
       } else {
          throw new UnsupportedOperationException("No implementation found for provisionable of concrete type '"
                  + input.getClass().getCanonicalName() + "'");
       }
+
+      if (id == null || version == null) {
+         return convert(input);
+      }
+      ConvertedImage cached = images.getIfPresent(id);
+      if (cached != null && cached.version.equals(version)) {
+         return cached.image;
+      }
+      Image image = convert(input);
+      images.put(id, new ConvertedImage(version, image));
+      return image;
+   }
+
+   private Image convert(Provisionable input) {
+      if (input instanceof Snapshot) {
+         return fnSnapshotToImage.apply((Snapshot) input);
+      }
+      return fnImageToImage.apply((org.apache.jclouds.profitbricks.rest.domain.Image) input);
+   }
+
+   private static Object version(String etag, Object lastModified) {
+      return etag != null ? etag : lastModified;
+   }
+
+   private static class ConvertedImage {
+      private final Object version;
+      private final Image image;
+
+      ConvertedImage(Object version, Image image) {
+         this.version = version;
+         this.image = image;
+      }
+   }
+
+   /**
+    * Looks up locations by id, indexing them again only when the memoized supplier returns a new set.
+    */
+   private static class LocationIndex {
+
+      private final Supplier<Set<? extends Location>> locations;
+      private volatile Indexed indexed = new Indexed(null, ImmutableMap.<String, Location>of());
+
+      LocationIndex(Supplier<Set<? extends Location>> locations) {
+         this.locations = locations;
+      }
+
+      Location get(String id) {
+         Set<? extends Location> current = locations.get();
+         Indexed index = indexed;
+         if (index.locations != current) {
+            Map<String, Location> byId = Maps.newHashMapWithExpectedSize(current.size());
+            for (Location location : current) {
+               if (!byId.containsKey(location.getId())) {
+                  byId.put(location.getId(), location);
+               }
+            }
+            index = new Indexed(current, byId);
+            indexed = index;
+         }
+         Location location = index.byId.get(id);
+         if (location == null) {
+            throw new NoSuchElementException("Location " + id + " not found in " + current);
+         }
+         return location;
+      }
+
+      private static class Indexed {
+         private final Set<? extends Location> locations;
+         private final Map<String, Location> byId;
+
+         Indexed(Set<? extends Location> locations, Map<String, Location> byId) {
+            this.locations = locations;
+            this.byId = byId;
+         }
+      }
    }
 
    private static OsFamily mapOsFamily(LicenceType osType) {
@@ -85,24 +197,23 @@ public class ProvisionableToImage implements Function<Provisionable, Image> {
 
    private static class ImageToImage implements ImageFunction<org.apache.jclouds.profitbricks.rest.domain.Image> {
 
-      private static final Pattern HAS_NUMBERS = Pattern.compile(".*\\d+.*");
-
-      private final Supplier<Set<? extends Location>> locations;
+      private final LocationIndex locations;
 
-      ImageToImage(Supplier<Set<? extends Location>> locations) {
+      ImageToImage(LocationIndex locations) {
          this.locations = locations;
       }
 
       @Override
       public Image apply(org.apache.jclouds.profitbricks.rest.domain.Image from) {
          String desc = from.properties().name();
-         OsFamily osFamily = parseOsFamily(desc, from.properties().licenceType());
-         Location location = find(locations.get(), idEquals(from.properties().location().getId()));
+         ImageName name = ImageName.parse(desc);
+         OsFamily osFamily = name.osFamily != null ? name.osFamily : mapOsFamily(from.properties().licenceType());
+         Location location = locations.get(from.properties().location().getId());
 
          OperatingSystem os = OperatingSystem.builder()
                  .description(osFamily.value())
                  .family(osFamily)
-                 .version(parseVersion(desc))
+                 .version(name.version)
                  .is64Bit(is64Bit(desc, from.properties().imageType()))
                  .build();
 
@@ -115,38 +226,6 @@ public class ProvisionableToImage implements Function<Provisionable, Image> {
                  .build();
       }
 
-      private OsFamily parseOsFamily(String from, LicenceType fallbackValue) {
-         if (from != null) {
-            try {
-               // ProfitBricks images names are usually in format:
-               // [osType]-[version]-[subversion]-..-[date-created]
-               String desc = from.toUpperCase().split("-")[0];
-               OsFamily osFamily = OsFamily.fromValue(desc);
-               checkArgument(osFamily != OsFamily.UNRECOGNIZED);
-
-               return osFamily;
-            } catch (Exception ex) {
-               // do nothing
-            }
-         }
-         return mapOsFamily(fallbackValue);
-      }
-
-      private String parseVersion(String from) {
-         if (from != null) {
-            String[] split = from.toLowerCase().split("-");
-            if (split.length >= 2) {
-               int i = 1; // usually on second token
-               String version = split[i];
-               while (!HAS_NUMBERS.matcher(version).matches()) {
-                  version = split[++i];
-               }
-               return version;
-            }
-         }
-         return "";
-      }
-
       private boolean is64Bit(String from, org.apache.jclouds.profitbricks.rest.domain.Image.Type type) {
          switch (type) {
             case CDROM:
@@ -167,9 +246,9 @@ public class ProvisionableToImage implements Function<Provisionable, Image> {
 
    private static class SnapshotToImage implements ImageFunction<Snapshot> {
 
-      private final Supplier<Set<? extends Location>> locations;
+      private final LocationIndex locations;
 
-      SnapshotToImage(Supplier<Set<? extends Location>> locations) {
+      SnapshotToImage(LocationIndex locations) {
          this.locations = locations;
       }
 
@@ -177,7 +256,7 @@ public class ProvisionableToImage implements Function<Provisionable, Image> {
       public Image apply(Snapshot from) {
          String textToParse = from.properties().name() + from.properties().description();
          OsFamily osFamily = parseOsFamily(textToParse, from.properties().licenceType());
-         Location location = find(locations.get(), idEquals(from.properties().location().getId()));
+         Location location = locations.get(from.properties().location().getId());
 
          OperatingSystem os = OperatingSystem.builder()
                  .description(osFamily.value())
@@ -198,17 +277,12 @@ public class ProvisionableToImage implements Function<Provisionable, Image> {
 
       private OsFamily parseOsFamily(String text, LicenceType fallbackValue) {
          if (text != null) {
-            try {
-               // Attempt parsing OsFamily by scanning name and description
-               // @see ProfitBricksComputeServiceAdapter#L190
-               OsFamily[] families = OsFamily.values();
-               for (OsFamily family : families) {
-                  if (text.contains(family.value())) {
-                     return family;
-                  }
+            // Attempt parsing OsFamily by scanning name and description
+            // @see ProfitBricksComputeServiceAdapter#L190
+            for (OsFamily family : OS_FAMILIES.values()) {
+               if (text.contains(family.value())) {
+                  return family;
                }
-            } catch (Exception ex) {
-               // do nothing
             }
          }
          return mapOsFamily(fallbackValue);
@@ -239,6 +313,54 @@ public class ProvisionableToImage implements Function<Provisionable, Image> {
       }
    }
 
+   /**
+    * The OS family and version found in a ProfitBricks image name.
+    * <p>
+    * ProfitBricks images names are usually in format: [osType]-[version]-[subversion]-..-[date-created]. The name is
+    * read in a single pass: the first token is the OS family, and the first of the following tokens that contains a
+    * digit is the version.
+    */
+   static final class ImageName {
+
+      final OsFamily osFamily;
+      final String version;
+
+      private ImageName(OsFamily osFamily, String version) {
+         this.osFamily = osFamily;
+         this.version = version;
+      }
+
+      static ImageName parse(String name) {
+         if (name == null) {
+            return new ImageName(null, "");
+         }
+         OsFamily osFamily = null;
+         String version = "";
+         int token = 0;
+         int start = 0;
+         boolean hasDigit = false;
+         for (int i = 0; i <= name.length(); i++) {
+            if (i == name.length() || name.charAt(i) == '-') {
+               if (token == 0) {
+                  osFamily = OS_FAMILIES.get(name.substring(start, i).toUpperCase());
+                  if (osFamily == OsFamily.UNRECOGNIZED) {
+                     osFamily = null;
+                  }
+               } else if (hasDigit) {
+                  version = name.substring(start, i).toLowerCase();
+                  break;
+               }
+               token++;
+               start = i + 1;
+               hasDigit = false;
+            } else if (Character.isDigit(name.charAt(i))) {
+               hasDigit = true;
+            }
+         }
+         return new ImageName(osFamily, version);
+      }
+   }
+
    private interface ImageFunction<T extends Provisionable> extends Function<T, Image> {
 
       ImageBuilder addTypeMetadata(ImageBuilder builder);
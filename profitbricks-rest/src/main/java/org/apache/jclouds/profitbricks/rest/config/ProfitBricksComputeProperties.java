@@ -27,6 +27,11 @@ public class ProfitBricksComputeProperties {
    public static final String POLL_PERIOD = "jclouds.profitbricks.rest.operation.poll.initial-period";
    public static final String POLL_MAX_PERIOD = "jclouds.profitbricks.rest.operation.poll.max-period";
 
+   /**
+    * The maximum number of request status calls the request tracker makes at the same time.
+    */
+   public static final String REQUEST_TRACKER_CONCURRENCY = "jclouds.profitbricks.rest.request-tracker.concurrency";
+
    private ProfitBricksComputeProperties() {
       throw new AssertionError("Intentionally unimplemented");
    }
@@ -16,17 +16,7 @@
  */
 package org.apache.jclouds.profitbricks.rest.config;
 
-import static com.google.common.base.Preconditions.checkNotNull;
-import static org.jclouds.util.Predicates2.retry;
-
-import java.net.URI;
-import java.util.concurrent.TimeUnit;
-
-import javax.inject.Singleton;
-
 import org.apache.jclouds.profitbricks.rest.ProfitBricksApi;
-import org.apache.jclouds.profitbricks.rest.compute.config.ProfitBricksComputeServiceContextModule.ComputeConstants;
-import org.apache.jclouds.profitbricks.rest.domain.RequestStatus;
 import org.apache.jclouds.profitbricks.rest.handlers.ProfitBricksHttpErrorHandler;
 import org.jclouds.http.HttpErrorHandler;
 import org.jclouds.http.annotation.ClientError;
@@ -37,9 +27,6 @@ import org.jclouds.json.config.GsonModule.Iso8601DateAdapter;
 import org.jclouds.rest.ConfiguresHttpApi;
 import org.jclouds.rest.config.HttpApiModule;
 
-import com.google.common.base.Predicate;
-import com.google.inject.Provides;
-
 @ConfiguresHttpApi
 public class ProfitBricksHttpApiModule extends HttpApiModule<ProfitBricksApi> {
 
@@ -55,32 +42,4 @@ public class ProfitBricksHttpApiModule extends HttpApiModule<ProfitBricksApi> {
       super.configure();
       bind(DateAdapter.class).to(Iso8601DateAdapter.class);
    }
-
-   @Provides
-   @Singleton
-   Predicate<URI> provideRequestCompletedPredicate(final ProfitBricksApi api, ComputeConstants constants) {
-      return retry(new RequestCompletedPredicate(api), constants.pollTimeout(), constants.pollPeriod(),
-            constants.pollMaxPeriod(), TimeUnit.SECONDS);
-   }
-
-   private static class RequestCompletedPredicate implements Predicate<URI> {
-      private final ProfitBricksApi api;
-
-      private RequestCompletedPredicate(ProfitBricksApi api) {
-         this.api = checkNotNull(api, "api must not be null");
-      }
-
-      @Override
-      public boolean apply(URI uri) {
-         RequestStatus status = api.getRequestStatus(checkNotNull(uri, "uri"));
-         switch (status.metadata().status()) {
-            case DONE:
-            case FAILED:
-               return true;
-            default:
-               return false;
-         }
-      }
-
-   }
 }
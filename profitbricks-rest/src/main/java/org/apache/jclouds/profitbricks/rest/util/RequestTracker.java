@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.profitbricks.rest.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_MAX_PERIOD;
+import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_PERIOD;
+import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_TIMEOUT;
+import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.REQUEST_TRACKER_CONCURRENCY;
+import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.jclouds.profitbricks.rest.ProfitBricksApi;
+import org.apache.jclouds.profitbricks.rest.domain.RequestStatus;
+import org.jclouds.logging.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+/**
+ * Waits for ProfitBricks requests to finish.
+ * <p>
+ * All the request status URIs being waited for are polled together by rounds run from the scheduler, at most
+ * {@code jclouds.profitbricks.rest.request-tracker.concurrency} at a time. Tracking a URI that is already being
+ * tracked returns the same future, so the status calls and the polling threads do not grow with the number of
+ * operations in flight.
+ * <p>
+ * The status calls run on the user executor and the next batch of a round is started from the callbacks of the
+ * previous one, so the scheduler thread never waits for a response. Each request is polled with a back-off from
+ * the initial poll period up to the max poll period, as the retry predicates do.
+ */
+@Singleton
+public class RequestTracker {
+
+   @Resource
+   private Logger logger = Logger.NULL;
+
+   private final ProfitBricksApi api;
+   private final ListeningExecutorService userExecutor;
+   private final ScheduledExecutorService scheduler;
+   private final long pollPeriodMillis;
+   private final long pollMaxPeriodMillis;
+   private final long timeoutMillis;
+   private final int concurrency;
+
+   private final ConcurrentMap<URI, TrackedRequest> requests = new ConcurrentHashMap<URI, TrackedRequest>();
+
+   // Guarded by this
+   private boolean roundRunning;
+   private ScheduledFuture<?> nextRound;
+   private long nextRoundAt;
+
+   @Inject
+   RequestTracker(ProfitBricksApi api, @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named(PROPERTY_SCHEDULER_THREADS) ScheduledExecutorService scheduler,
+         @Named(POLL_PERIOD) long pollPeriodSeconds, @Named(POLL_MAX_PERIOD) long pollMaxPeriodSeconds,
+         @Named(POLL_TIMEOUT) long timeoutSeconds, @Named(REQUEST_TRACKER_CONCURRENCY) int concurrency) {
+      this(api, userExecutor, scheduler, pollPeriodSeconds, pollMaxPeriodSeconds, timeoutSeconds, TimeUnit.SECONDS,
+            concurrency);
+   }
+
+   RequestTracker(ProfitBricksApi api, ListeningExecutorService userExecutor, ScheduledExecutorService scheduler,
+         long pollPeriod, long pollMaxPeriod, long timeout, TimeUnit unit, int concurrency) {
+      checkArgument(concurrency > 0, "concurrency must be positive");
+      checkArgument(pollMaxPeriod >= pollPeriod, "the max poll period must not be shorter than the poll period");
+      this.api = api;
+      this.userExecutor = userExecutor;
+      this.scheduler = scheduler;
+      this.pollPeriodMillis = unit.toMillis(pollPeriod);
+      this.pollMaxPeriodMillis = unit.toMillis(pollMaxPeriod);
+      this.timeoutMillis = unit.toMillis(timeout);
+      this.concurrency = concurrency;
+   }
+
+   /**
+    * Returns a future that completes with the status of the request once it is {@code DONE} or {@code FAILED}.
+    * It fails with an {@link UncheckedTimeoutException} if the request does not finish within the poll timeout,
+    * and with an {@link IllegalStateException} if the status can not be found.
+    */
+   public ListenableFuture<RequestStatus> track(URI requestStatusUri) {
+      checkNotNull(requestStatusUri, "requestStatusUri");
+      long now = System.currentTimeMillis();
+      TrackedRequest request = new TrackedRequest(now + timeoutMillis, now);
+      TrackedRequest tracked = requests.putIfAbsent(requestStatusUri, request);
+      if (tracked != null) {
+         return tracked.status;
+      }
+      scheduleRound(now);
+      return request.status;
+   }
+
+   /**
+    * The number of requests that have not finished yet.
+    */
+   public int pending() {
+      return requests.size();
+   }
+
+   /**
+    * Makes sure a round starts no later than {@code at}. A running round schedules the next one when it ends.
+    */
+   private synchronized void scheduleRound(long at) {
+      if (roundRunning || (nextRound != null && nextRoundAt <= at)) {
+         return;
+      }
+      if (nextRound != null) {
+         nextRound.cancel(false);
+      }
+      nextRoundAt = at;
+      nextRound = scheduler.schedule(new Runnable() {
+         @Override
+         public void run() {
+            startRound();
+         }
+      }, Math.max(0, at - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+   }
+
+   private void startRound() {
+      synchronized (this) {
+         if (roundRunning) {
+            return;
+         }
+         roundRunning = true;
+         nextRound = null;
+      }
+      try {
+         long now = System.currentTimeMillis();
+         List<URI> due = Lists.newArrayList();
+         for (Map.Entry<URI, TrackedRequest> entry : requests.entrySet()) {
+            TrackedRequest request = entry.getValue();
+            if (now > request.deadline) {
+               timeOut(entry.getKey(), request);
+            } else if (request.nextPollAt <= now) {
+               due.add(entry.getKey());
+            }
+         }
+         pollBatch(ImmutableList.copyOf(due), 0);
+      } catch (RuntimeException e) {
+         logger.warn(e, "error polling request statuses");
+         endRound();
+      }
+   }
+
+   private void pollBatch(final List<URI> due, final int from) {
+      if (from >= due.size()) {
+         endRound();
+         return;
+      }
+      List<URI> batch = due.subList(from, Math.min(from + concurrency, due.size()));
+      List<ListenableFuture<?>> updates = Lists.newArrayListWithCapacity(batch.size());
+      for (final URI uri : batch) {
+         ListenableFuture<RequestStatus> response = userExecutor.submit(new Callable<RequestStatus>() {
+            @Override
+            public RequestStatus call() {
+               return api.getRequestStatus(uri);
+            }
+         });
+         Futures.addCallback(response, new FutureCallback<RequestStatus>() {
+            @Override
+            public void onSuccess(RequestStatus status) {
+               update(uri, status);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+               retryOrFail(uri, t);
+            }
+         }, directExecutor());
+         updates.add(response);
+      }
+      Futures.successfulAsList(updates).addListener(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               pollBatch(due, from + concurrency);
+            } catch (RuntimeException e) {
+               logger.warn(e, "error polling request statuses");
+               endRound();
+            }
+         }
+      }, directExecutor());
+   }
+
+   private void endRound() {
+      synchronized (this) {
+         roundRunning = false;
+      }
+      long next = Long.MAX_VALUE;
+      for (TrackedRequest request : requests.values()) {
+         next = Math.min(next, Math.min(request.nextPollAt, request.deadline + 1));
+      }
+      if (next != Long.MAX_VALUE) {
+         scheduleRound(next);
+      }
+   }
+
+   private void update(URI uri, RequestStatus status) {
+      TrackedRequest request = requests.get(uri);
+      if (request == null) {
+         return;
+      }
+      if (status == null) {
+         complete(uri, request, null, new IllegalStateException("Request " + uri + " not found"));
+      } else if (status.metadata().status() == RequestStatus.Status.DONE
+            || status.metadata().status() == RequestStatus.Status.FAILED) {
+         complete(uri, request, status, null);
+      } else if (System.currentTimeMillis() > request.deadline) {
+         timeOut(uri, request);
+      } else {
+         request.backOff();
+      }
+   }
+
+   private void retryOrFail(URI uri, Throwable error) {
+      TrackedRequest request = requests.get(uri);
+      if (request == null) {
+         return;
+      }
+      // Keep polling on transient errors, as long as the request has not timed out
+      logger.debug("error getting the status of request %s: %s", uri, error.getMessage());
+      if (System.currentTimeMillis() > request.deadline) {
+         complete(uri, request, null, error);
+      } else {
+         request.backOff();
+      }
+   }
+
+   private void timeOut(URI uri, TrackedRequest request) {
+      complete(uri, request, null, new UncheckedTimeoutException("Request " + uri + " did not finish within "
+            + timeoutMillis + " ms"));
+   }
+
+   private void complete(URI uri, TrackedRequest request, RequestStatus status, Throwable error) {
+      requests.remove(uri, request);
+      if (error != null) {
+         request.status.setException(error);
+      } else {
+         request.status.set(status);
+      }
+   }
+
+   private class TrackedRequest {
+      private final long deadline;
+      private final SettableFuture<RequestStatus> status = SettableFuture.create();
+      private volatile long nextPollAt;
+      private volatile long interval = pollPeriodMillis;
+
+      private TrackedRequest(long deadline, long nextPollAt) {
+         this.deadline = deadline;
+         this.nextPollAt = nextPollAt;
+      }
+
+      /**
+       * Schedules the next poll of a request that is still running, growing the interval by half every time.
+       */
+      private void backOff() {
+         nextPollAt = System.currentTimeMillis() + interval;
+         interval = Math.min(pollMaxPeriodMillis, interval + Math.max(1, interval / 2));
+      }
+   }
+}
@@ -19,32 +19,29 @@ package org.apache.jclouds.profitbricks.rest.util;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.net.URI;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import org.apache.jclouds.profitbricks.rest.ProfitBricksApi;
 import org.apache.jclouds.profitbricks.rest.domain.RequestStatus;
 import org.apache.jclouds.profitbricks.rest.domain.Trackable;
 import org.jclouds.javax.annotation.Nullable;
 
-import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
 
 @Singleton
 public class Trackables {
-   private final ProfitBricksApi api;
-   private final Predicate<URI> requestCompletedPredicate;
+   private final RequestTracker requestTracker;
 
    @Inject
-   Trackables(ProfitBricksApi api, Predicate<URI> requestCompletedPredicate) {
-      this.api = api;
-      this.requestCompletedPredicate = requestCompletedPredicate;
+   Trackables(RequestTracker requestTracker) {
+      this.requestTracker = requestTracker;
    }
 
    public void waitUntilRequestCompleted(Trackable trackable) {
       if (trackable.requestStatusUri().isPresent()) {
-         requestCompletedPredicate.apply(trackable.requestStatusUri().get());
-         RequestStatus status = api.getRequestStatus(trackable.requestStatusUri().get());
+         RequestStatus status = await(trackable.requestStatusUri().get());
 
          String entityName = trackable.getClass().getSimpleName();
          if (entityName.contains("AutoValue")) {
@@ -58,10 +55,20 @@ public class Trackables {
 
    public void waitUntilRequestCompleted(@Nullable URI uri) {
       if (uri != null) {
-         requestCompletedPredicate.apply(uri);
-         RequestStatus status = api.getRequestStatus(uri);
+         RequestStatus status = await(uri);
          checkState(RequestStatus.Status.DONE == status.metadata().status(), "Request %s failed: %s", uri, status
                .metadata().message());
       }
    }
+
+   private RequestStatus await(URI uri) {
+      try {
+         return requestTracker.track(uri).get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      } catch (ExecutionException e) {
+         throw Throwables.propagate(e.getCause());
+      }
+   }
 }
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.profitbricks.rest.compute.extensions;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_MAX_PERIOD;
+import static org.apache.jclouds.profitbricks.rest.config.ProfitBricksComputeProperties.POLL_PERIOD;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jclouds.profitbricks.rest.internal.BaseProfitBricksApiMockTest;
+import org.apache.jclouds.profitbricks.rest.util.RequestTracker;
+import org.apache.jclouds.profitbricks.rest.util.Trackables;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageTemplate;
+import org.jclouds.compute.domain.ImageTemplateBuilder;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+@Test(groups = "unit", testName = "ProfitBricksImageExtensionMockTest", singleThreaded = true)
+public class ProfitBricksImageExtensionMockTest extends BaseProfitBricksApiMockTest {
+
+   private static final String BOOT_VOLUME_ID = "18fec1fc-3b09-4b5c-8abe-062901e10082";
+   private static final String SNAPSHOT_ID = "9b5379bb-81f3-4d51-90a9-ca8a3d3a716c";
+
+   private ScheduledExecutorService scheduler;
+
+   @BeforeMethod
+   public void startScheduler() {
+      scheduler = Executors.newSingleThreadScheduledExecutor();
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void stopScheduler() {
+      scheduler.shutdownNow();
+   }
+
+   @Override
+   protected Properties overrides() {
+      Properties overrides = super.overrides();
+      // Poll the request statuses without waiting
+      overrides.setProperty(POLL_PERIOD, "0");
+      overrides.setProperty(POLL_MAX_PERIOD, "0");
+      return overrides;
+   }
+
+   public void testCreateImageSnapshotsTheBootVolume() throws Exception {
+      server.enqueue(new MockResponse().setBody(stringFromResource("/server/get-depth-5.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/volume/snapshot.json"))
+            .addHeader("Location", url("/requests/1/status")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/requeststatus/done.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/volume/snapshot.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/snapshot/get.json")));
+
+      Image image = imageExtension(60000).createImage(template()).get(10, TimeUnit.SECONDS);
+
+      assertEquals(image.getId(), "615458b6-55cc-4907-a700-24b6bc1bf8ae");
+      assertEquals(image.getName(), "image");
+      assertEquals(image.getLocation().getId(), "us/lasdev");
+      assertEquals(server.getRequestCount(), 5);
+      assertSent(server, "GET", "/datacenters/datacenter-id/servers/server-id?depth=2");
+      assertSent(server, "POST", "/datacenters/datacenter-id/volumes/" + BOOT_VOLUME_ID + "/create-snapshot");
+      assertSent(server, "GET", "/requests/1/status");
+      assertSent(server, "GET", "/snapshots/" + SNAPSHOT_ID);
+      assertSent(server, "GET", "/snapshots/" + SNAPSHOT_ID);
+   }
+
+   public void testFailedSnapshotIsDeleted() throws Exception {
+      server.enqueue(new MockResponse().setBody(stringFromResource("/server/get-depth-5.json")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/volume/snapshot.json"))
+            .addHeader("Location", url("/requests/1/status")));
+      server.enqueue(new MockResponse().setBody(stringFromResource("/requeststatus/failed.json")));
+      server.enqueue(new MockResponse().setResponseCode(202));
+
+      ListenableFuture<Image> image = imageExtension(60000).createImage(template());
+
+      try {
+         image.get(10, TimeUnit.SECONDS);
+         fail("the snapshot should have failed");
+      } catch (ExecutionException expected) {
+         assertTrue(expected.getCause() instanceof IllegalStateException, expected.getCause().toString());
+      }
+      assertEquals(server.getRequestCount(), 4);
+      assertSent(server, "GET", "/datacenters/datacenter-id/servers/server-id?depth=2");
+      assertSent(server, "POST", "/datacenters/datacenter-id/volumes/" + BOOT_VOLUME_ID + "/create-snapshot");
+      assertSent(server, "GET", "/requests/1/status");
+      assertSent(server, "DELETE", "/snapshots/" + SNAPSHOT_ID);
+   }
+
+   public void testSnapshotThatIsNotAvailableInTimeIsDeleted() throws Exception {
+      final List<RecordedRequest> requests = new CopyOnWriteArrayList<RecordedRequest>();
+      server.setDispatcher(new Dispatcher() {
+         @Override
+         public MockResponse dispatch(RecordedRequest request) {
+            requests.add(request);
+            if (request.getMethod().equals("DELETE")) {
+               return new MockResponse().setResponseCode(202);
+            } else if (request.getPath().startsWith("/datacenters/datacenter-id/servers/")) {
+               return new MockResponse().setBody(stringFromResource("/server/get-depth-5.json"));
+            }
+            // The created snapshot, and then the snapshot that never leaves the BUSY state
+            return new MockResponse().setBody(stringFromResource("/volume/snapshot.json"));
+         }
+      });
+
+      ListenableFuture<Image> image = imageExtension(100).createImage(template());
+
+      try {
+         image.get(10, TimeUnit.SECONDS);
+         fail("the snapshot should have timed out");
+      } catch (ExecutionException expected) {
+         assertTrue(expected.getCause() instanceof UncheckedTimeoutException, expected.getCause().toString());
+      }
+      RecordedRequest last = requests.get(requests.size() - 1);
+      assertEquals(last.getMethod(), "DELETE");
+      assertEquals(last.getPath(), "/snapshots/" + SNAPSHOT_ID);
+      // Polled every 10 ms for 100 ms, plus the server, create and delete calls
+      assertTrue(requests.size() > 3, "the snapshot was not polled: " + requests.size());
+   }
+
+   private ProfitBricksImageExtension imageExtension(long timeoutMillis) {
+      Location location = new LocationBuilder().id("us/lasdev").description("us/lasdev").scope(LocationScope.REGION)
+            .build();
+      Supplier<Set<? extends Location>> locations = Suppliers.<Set<? extends Location>> ofInstance(
+            ImmutableSet.of(location));
+      return new ProfitBricksImageExtension(api, newDirectExecutorService(), scheduler, locations,
+            context.utils().injector().getInstance(RequestTracker.class),
+            context.utils().injector().getInstance(Trackables.class), 10, timeoutMillis, TimeUnit.MILLISECONDS);
+   }
+
+   private static ImageTemplate template() {
+      return new ImageTemplateBuilder.CloneImageTemplateBuilder().nodeId("datacenter-id/server-id").name("image")
+            .build();
+   }
+}
@@ -29,6 +29,8 @@ import org.jclouds.domain.Location;
 import org.jclouds.domain.LocationBuilder;
 import org.jclouds.domain.LocationScope;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
@@ -195,4 +197,37 @@ public class ProvisionableToImageTest extends BaseProfitBricksApiMockTest {
       assertEquals(actual2.getOperatingSystem(), expected2.getOperatingSystem());
 
    }
+
+   @Test
+   public void testConvertedImagesAreCached() {
+
+      server.enqueue(
+              new MockResponse().setBody(stringFromResource("/compute/image.json"))
+      );
+      server.enqueue(
+              new MockResponse().setBody(stringFromResource("/compute/image.json"))
+      );
+
+      org.apache.jclouds.profitbricks.rest.domain.Image first = api.imageApi().getImage("some-id");
+      org.apache.jclouds.profitbricks.rest.domain.Image second = api.imageApi().getImage("some-id");
+
+      assertSame(fnImage.apply(second), fnImage.apply(first));
+   }
+
+   @Test
+   public void testImageNameParsing() {
+      ProvisionableToImage.ImageName ubuntu = ProvisionableToImage.ImageName.parse("Ubuntu-14.04-LTS-server-2015-01-01");
+      assertEquals(ubuntu.osFamily, OsFamily.UBUNTU);
+      assertEquals(ubuntu.version, "14.04");
+
+      ProvisionableToImage.ImageName clearos = ProvisionableToImage.ImageName.parse("clearos-community-6.5.0-x86_64.iso");
+      assertNull(clearos.osFamily);
+      assertEquals(clearos.version, "6.5.0");
+
+      ProvisionableToImage.ImageName noVersion = ProvisionableToImage.ImageName.parse("debian-testing");
+      assertEquals(noVersion.osFamily, OsFamily.DEBIAN);
+      assertEquals(noVersion.version, "");
+
+      assertNull(ProvisionableToImage.ImageName.parse(null).osFamily);
+   }
 }
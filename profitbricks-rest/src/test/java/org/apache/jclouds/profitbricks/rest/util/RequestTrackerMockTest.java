@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jclouds.profitbricks.rest.util;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jclouds.profitbricks.rest.domain.RequestStatus;
+import org.apache.jclouds.profitbricks.rest.internal.BaseProfitBricksApiMockTest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+
+@Test(groups = "unit", testName = "RequestTrackerMockTest", singleThreaded = true)
+public class RequestTrackerMockTest extends BaseProfitBricksApiMockTest {
+
+   private ScheduledExecutorService scheduler;
+   private CountDownLatch schedulerStarted;
+
+   @BeforeMethod
+   public void startScheduler() {
+      scheduler = Executors.newSingleThreadScheduledExecutor();
+      schedulerStarted = new CountDownLatch(1);
+      // Hold the scheduler until all the requests of the test are tracked
+      scheduler.submit(new Callable<Void>() {
+         @Override
+         public Void call() throws InterruptedException {
+            schedulerStarted.await();
+            return null;
+         }
+      });
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void stopScheduler() {
+      scheduler.shutdownNow();
+   }
+
+   public void testDuplicateUrisArePolledOnce() throws Exception {
+      server.enqueue(status("running"));
+      server.enqueue(status("done"));
+      RequestTracker tracker = tracker(4);
+
+      ListenableFuture<RequestStatus> first = tracker.track(uri("/requests/1/status"));
+      ListenableFuture<RequestStatus> second = tracker.track(uri("/requests/1/status"));
+      schedulerStarted.countDown();
+
+      assertSame(first, second);
+      assertEquals(first.get().metadata().status(), RequestStatus.Status.DONE);
+      assertEquals(server.getRequestCount(), 2);
+      assertSent(server, "GET", "/requests/1/status");
+      assertSent(server, "GET", "/requests/1/status");
+      assertEquals(tracker.pending(), 0);
+   }
+
+   public void testPollsAllRequestsInBatches() throws Exception {
+      for (int i = 0; i < 5; i++) {
+         server.enqueue(status("done"));
+      }
+      RequestTracker tracker = tracker(2);
+
+      ImmutableList.Builder<ListenableFuture<RequestStatus>> futures = ImmutableList.builder();
+      for (int i = 0; i < 5; i++) {
+         futures.add(tracker.track(uri("/requests/" + i + "/status")));
+      }
+      schedulerStarted.countDown();
+
+      List<RequestStatus> statuses = Futures.allAsList(futures.build()).get();
+      assertEquals(statuses.size(), 5);
+      for (RequestStatus status : statuses) {
+         assertEquals(status.metadata().status(), RequestStatus.Status.DONE);
+      }
+      assertEquals(server.getRequestCount(), 5);
+   }
+
+   public void testFailedRequestCompletesWithItsStatus() throws Exception {
+      server.enqueue(status("failed"));
+      RequestTracker tracker = tracker(4);
+
+      ListenableFuture<RequestStatus> future = tracker.track(uri("/requests/1/status"));
+      schedulerStarted.countDown();
+
+      RequestStatus status = future.get();
+      assertEquals(status.metadata().status(), RequestStatus.Status.FAILED);
+      assertEquals(status.metadata().message(), "Volume creation failed");
+   }
+
+   public void testUnknownRequestFails() throws Exception {
+      server.enqueue(response404());
+      RequestTracker tracker = tracker(4);
+
+      ListenableFuture<RequestStatus> future = tracker.track(uri("/requests/1/status"));
+      schedulerStarted.countDown();
+
+      try {
+         future.get();
+         fail("the request should not have been found");
+      } catch (ExecutionException expected) {
+         assertTrue(expected.getCause() instanceof IllegalStateException);
+      }
+   }
+
+   public void testRequestThatDoesNotFinishTimesOut() throws Exception {
+      for (int i = 0; i < 50; i++) {
+         server.enqueue(status("running"));
+      }
+      RequestTracker tracker = new RequestTracker(api, newDirectExecutorService(), scheduler, 10, 10, 200,
+            TimeUnit.MILLISECONDS, 4);
+
+      ListenableFuture<RequestStatus> future = tracker.track(uri("/requests/1/status"));
+      schedulerStarted.countDown();
+
+      try {
+         future.get(10, TimeUnit.SECONDS);
+         fail("the request should have timed out");
+      } catch (ExecutionException expected) {
+         assertTrue(expected.getCause() instanceof UncheckedTimeoutException, expected.getCause().toString());
+      }
+      assertEquals(tracker.pending(), 0);
+   }
+
+   public void testPollingBacksOff() throws Exception {
+      for (int i = 0; i < 50; i++) {
+         server.enqueue(status("running"));
+      }
+      RequestTracker tracker = new RequestTracker(api, newDirectExecutorService(), scheduler, 20, 1000, 600,
+            TimeUnit.MILLISECONDS, 4);
+
+      ListenableFuture<RequestStatus> future = tracker.track(uri("/requests/1/status"));
+      schedulerStarted.countDown();
+
+      try {
+         future.get(10, TimeUnit.SECONDS);
+         fail("the request should have timed out");
+      } catch (ExecutionException expected) {
+         assertTrue(expected.getCause() instanceof UncheckedTimeoutException, expected.getCause().toString());
+      }
+      // Polling every 20 ms would take 30 calls, the growing interval takes less than 10
+      assertTrue(server.getRequestCount() < 10, "too many polls: " + server.getRequestCount());
+   }
+
+   private RequestTracker tracker(int concurrency) {
+      return new RequestTracker(api, newDirectExecutorService(), scheduler, 0, 0, 60, TimeUnit.SECONDS, concurrency);
+   }
+
+   private URI uri(String path) {
+      return URI.create(url(path));
+   }
+
+   private MockResponse status(String name) {
+      return new MockResponse().setBody(stringFromResource("/requeststatus/" + name + ".json"));
+   }
+}
@@ -20,9 +20,16 @@ import java.io.File;
 
 import org.jclouds.domain.LoginCredentials;
 
+import vagrant.api.CommandIOListener;
+
 public interface VagrantApiFacade {
    interface Factory {
       VagrantApiFacade create(File path);
+
+      /**
+       * Creates a facade which also reports all the CLI input and output to {@code ioListener}
+       */
+      VagrantApiFacade create(File path, CommandIOListener ioListener);
    }
 
    /**
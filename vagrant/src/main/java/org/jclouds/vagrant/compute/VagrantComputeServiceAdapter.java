@@ -18,6 +18,8 @@ package org.jclouds.vagrant.compute;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -48,6 +50,7 @@ import org.jclouds.logging.Logger;
 import org.jclouds.vagrant.api.VagrantApiFacade;
 import org.jclouds.vagrant.domain.VagrantNode;
 import org.jclouds.vagrant.internal.MachineConfig;
+import org.jclouds.vagrant.internal.VagrantCommandExecutor;
 import org.jclouds.vagrant.internal.VagrantNodeRegistry;
 import org.jclouds.vagrant.reference.VagrantConstants;
 import org.jclouds.vagrant.util.VagrantUtils;
@@ -71,7 +74,7 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
    private final JustProvider locationSupplier;
    private final VagrantNodeRegistry nodeRegistry;
    private final MachineConfig.Factory machineConfigFactory;
-   private final VagrantApiFacade.Factory cliFactory;
+   private final VagrantCommandExecutor commandExecutor;
    private final Supplier<? extends Map<String, Hardware>> hardwareSupplier;
    private final Supplier<Collection<Image>> imageListSupplier;
    private final Function<String, Image> imageIdToImage;
@@ -81,7 +84,7 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
          JustProvider locationSupplier,
          VagrantNodeRegistry nodeRegistry,
          MachineConfig.Factory machineConfigFactory,
-         VagrantApiFacade.Factory cliFactory,
+         VagrantCommandExecutor commandExecutor,
          Supplier<? extends Map<String, Hardware>> hardwareSupplier,
          Supplier<Collection<Image>> imageListSupplier,
          Function<String, Image> imageIdToImage) {
@@ -89,7 +92,7 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       this.locationSupplier = locationSupplier;
       this.nodeRegistry = nodeRegistry;
       this.machineConfigFactory = machineConfigFactory;
-      this.cliFactory = cliFactory;
+      this.commandExecutor = commandExecutor;
       this.hardwareSupplier = hardwareSupplier;
       this.imageListSupplier = imageListSupplier;
       this.imageIdToImage = imageIdToImage;
@@ -109,11 +112,15 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       return node;
    }
 
-   private NodeAndInitialCredentials<VagrantNode> startMachine(File path, String group, String name, Image image, Hardware hardware) {
-      String provider = image.getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
+   private NodeAndInitialCredentials<VagrantNode> startMachine(File path, String group, final String name, Image image, Hardware hardware) {
+      final String provider = image.getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
 
-      VagrantApiFacade vagrant = cliFactory.create(path);
-      String rawOutput = vagrant.up(name, provider);
+      String rawOutput = commandExecutor.execute(path, name, new Function<VagrantApiFacade, String>() {
+         @Override
+         public String apply(VagrantApiFacade vagrant) {
+            return vagrant.up(name, provider);
+         }
+      });
       String output = normalizeOutput(name, rawOutput);
 
       OsFamily osFamily = image.getOperatingSystem().getFamily();
@@ -132,7 +139,12 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
 
       LoginCredentials loginCredentials = null;
       if (osFamily != OsFamily.WINDOWS) {
-         loginCredentials = vagrant.sshConfig(name);
+         loginCredentials = commandExecutor.execute(path, name, new Function<VagrantApiFacade, LoginCredentials>() {
+            @Override
+            public LoginCredentials apply(VagrantApiFacade vagrant) {
+               return vagrant.sshConfig(name);
+            }
+         });
       }
 
       // PrioritizeCredentialsFromTemplate will overwrite loginCredentials with image credentials
@@ -201,9 +213,12 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
 
    private void writeVagrantfile(File path) throws IOException {
       path.mkdirs();
-      VagrantUtils.write(
-            new File(path, VagrantConstants.VAGRANTFILE),
-            getClass().getClassLoader().getResourceAsStream(VagrantConstants.VAGRANTFILE));
+      // Nodes of the same group are created in parallel and share the Vagrantfile,
+      // so replace it atomically instead of overwriting it while it's being read.
+      File tmp = File.createTempFile(VagrantConstants.VAGRANTFILE, ".tmp", path);
+      VagrantUtils.write(tmp, getClass().getClassLoader().getResourceAsStream(VagrantConstants.VAGRANTFILE));
+      Files.move(tmp.toPath(), new File(path, VagrantConstants.VAGRANTFILE).toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
    }
 
    private void initMachineConfig(File path, String name, Template template) {
@@ -284,7 +299,14 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
    public void destroyNode(String id) {
       VagrantNode node = nodeRegistry.get(id);
       node.setMachineState(Status.TERMINATED);
-      getMachine(node).destroy(node.name());
+      final String name = node.name();
+      execute(node, new Function<VagrantApiFacade, Void>() {
+         @Override
+         public Void apply(VagrantApiFacade vagrant) {
+            vagrant.destroy(name);
+            return null;
+         }
+      });
       nodeRegistry.onTerminated(node);
       deleteMachine(node);
    }
@@ -294,7 +316,9 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       File machinesFolder = new File(nodeFolder, VagrantConstants.MACHINES_CONFIG_SUBFOLDER);
       String filePattern = node.name() + ".";
       logger.debug("Deleting machine %s", node.id());
+      // Delete the config first, so listing the machines doesn't import it again
       VagrantUtils.deleteFiles(machinesFolder, filePattern);
+      machineConfigFactory.newInstance(node).delete();
       // No more machines in this group, remove everything
       if (machinesFolder.list().length == 0) {
          logger.debug("Machine %s is last in group, deleting Vagrant folder %s", node.id(), nodeFolder.getAbsolutePath());
@@ -305,37 +329,44 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
    @Override
    public void rebootNode(String id) {
       halt(id);
+      up(id);
+   }
 
-      VagrantNode node = nodeRegistry.get(id);
-      String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
-      String name = node.name();
-      VagrantApiFacade vagrant = getMachine(node);
-      vagrant.up(name, provider);
-      node.setMachineState(Status.RUNNING);
+   private void halt(final String id) {
+      final VagrantNode node = nodeRegistry.get(id);
+      final String name = node.name();
+      execute(node, new Function<VagrantApiFacade, Void>() {
+         @Override
+         public Void apply(VagrantApiFacade vagrant) {
+            try {
+               vagrant.halt(name);
+               node.setMachineState(Status.SUSPENDED);
+            } catch (IllegalStateException e) {
+               logger.warn(e, "Failed graceful shutdown of machine " + id + ". Will try to halt it forcefully instead.");
+               vagrant.haltForced(name);
+            }
+            return null;
+         }
+      });
    }
 
-   private void halt(String id) {
+   private void up(String id) {
       VagrantNode node = nodeRegistry.get(id);
-      String name = node.name();
-      VagrantApiFacade vagrant = getMachine(node);
-
-      try {
-         vagrant.halt(name);
-         node.setMachineState(Status.SUSPENDED);
-      } catch (IllegalStateException e) {
-         logger.warn(e, "Failed graceful shutdown of machine " + id + ". Will try to halt it forcefully instead.");
-         vagrant.haltForced(name);
-      }
+      final String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
+      final String name = node.name();
+      execute(node, new Function<VagrantApiFacade, Void>() {
+         @Override
+         public Void apply(VagrantApiFacade vagrant) {
+            vagrant.up(name, provider);
+            return null;
+         }
+      });
+      node.setMachineState(Status.RUNNING);
    }
 
    @Override
    public void resumeNode(String id) {
-      VagrantNode node = nodeRegistry.get(id);
-      String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
-      String name = node.name();
-      VagrantApiFacade vagrant = getMachine(node);
-      vagrant.up(name, provider);
-      node.setMachineState(Status.RUNNING);
+      up(id);
    }
 
    @Override
@@ -360,9 +391,8 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       });
    }
 
-   private VagrantApiFacade getMachine(VagrantNode node) {
-      File nodePath = node.path();
-      return cliFactory.create(nodePath);
+   private <T> T execute(VagrantNode node, Function<VagrantApiFacade, T> command) {
+      return commandExecutor.execute(node.path(), node.name(), command);
    }
 
    private String removeFromStart(String name, String group) {
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+import org.jclouds.vagrant.api.VagrantBoxApiFacade;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
+
+import vagrant.api.domain.Box;
+
+/**
+ * Box listing backed by the {@code boxes} folder of the Vagrant home instead of {@code vagrant box list}.
+ * <p>
+ * Vagrant keeps each box in {@code boxes/<name>/<version>/<provider>}, so the catalog is built by
+ * walking those three levels. The folders are watched for created and deleted entries and the catalog
+ * is rebuilt on the next lookup after a change. The CLI is only called when a box can't be found in
+ * the catalog, in case it's stored somewhere the scan doesn't know about.
+ */
+@Singleton
+public class BoxCatalog implements VagrantBoxApiFacade<Box>, Closeable {
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final File boxesFolder;
+   private final Function<Collection<Box>, Collection<Box>> outdatedBoxesFilter;
+   private final VagrantBoxApiFacade.Factory<Box> cliFactory;
+   private final WatchService watcher;
+   private volatile Index index;
+   private volatile boolean stale = true;
+
+   @Inject
+   BoxCatalog(Function<Collection<Box>, Collection<Box>> outdatedBoxesFilter, VagrantBoxApiFacade.Factory<Box> cliFactory) {
+      this(BoxConfig.Factory.getVagrantHome(), outdatedBoxesFilter, cliFactory);
+   }
+
+   BoxCatalog(File vagrantHome, Function<Collection<Box>, Collection<Box>> outdatedBoxesFilter,
+         VagrantBoxApiFacade.Factory<Box> cliFactory) {
+      this.boxesFolder = new File(vagrantHome, VagrantConstants.VAGRANT_BOXES_SUBFOLDER);
+      this.outdatedBoxesFilter = outdatedBoxesFilter;
+      this.cliFactory = cliFactory;
+      this.watcher = newWatchService();
+   }
+
+   /**
+    * @return all the versions of all the installed boxes
+    */
+   @Override
+   public Collection<Box> listBoxes() {
+      return index().all;
+   }
+
+   /**
+    * @return the latest version of the named box, or null if it isn't installed
+    */
+   @Override
+   @Nullable
+   public Box getBox(String boxName) {
+      Box box = index().latest.get(boxName);
+      if (box == null) {
+         box = cliFactory.create().getBox(boxName);
+         if (box != null) {
+            logger.debug("Box %s found by the CLI but not in %s", boxName, boxesFolder);
+            stale = true;
+         }
+      }
+      return box;
+   }
+
+   /**
+    * @return the box with the exact name, version and provider, or null if it isn't installed
+    */
+   @Nullable
+   public Box getBox(String boxName, String version, String provider) {
+      Table<String, String, Box> versions = index().byName.get(boxName);
+      Box box = versions != null ? versions.get(version, provider) : null;
+      if (box == null) {
+         for (Box candidate : cliFactory.create().listBoxes()) {
+            if (boxName.equals(candidate.getName()) && version.equals(candidate.getVersion())
+                  && provider.equals(candidate.getProvider())) {
+               stale = true;
+               return candidate;
+            }
+         }
+      }
+      return box;
+   }
+
+   @PreDestroy
+   @Override
+   public void close() throws IOException {
+      if (watcher != null) {
+         watcher.close();
+      }
+   }
+
+   private Index index() {
+      if (watcher == null || changed()) {
+         stale = true;
+      }
+      if (stale) {
+         synchronized (this) {
+            if (stale) {
+               // Clear the flag before scanning so changes made during the scan trigger another one
+               stale = false;
+               index = scan();
+            }
+         }
+      }
+      return index;
+   }
+
+   private boolean changed() {
+      boolean changed = false;
+      WatchKey key;
+      while ((key = watcher.poll()) != null) {
+         key.pollEvents();
+         key.reset();
+         changed = true;
+      }
+      return changed;
+   }
+
+   private Index scan() {
+      List<Box> boxes = Lists.newArrayList();
+      for (File nameFolder : listFolders(boxesFolder)) {
+         String name = nameFolder.getName().replace(VagrantConstants.ESCAPE_SLASH, "/");
+         for (File versionFolder : listFolders(nameFolder)) {
+            for (File providerFolder : listFolders(versionFolder)) {
+               boxes.add(new Box(name, versionFolder.getName(), providerFolder.getName()));
+            }
+         }
+      }
+      logger.trace("Indexed %d boxes in %s", boxes.size(), boxesFolder);
+      return new Index(boxes, outdatedBoxesFilter.apply(boxes));
+   }
+
+   private File[] listFolders(File folder) {
+      // Register before listing, so entries created in between aren't missed
+      watch(folder);
+      File[] files = folder.listFiles();
+      if (files == null) {
+         return new File[0];
+      }
+      List<File> folders = Lists.newArrayListWithCapacity(files.length);
+      for (File file : files) {
+         if (file.isDirectory()) {
+            folders.add(file);
+         }
+      }
+      return folders.toArray(new File[folders.size()]);
+   }
+
+   private void watch(File folder) {
+      if (watcher == null) {
+         return;
+      }
+      try {
+         folder.toPath().register(watcher, ENTRY_CREATE, ENTRY_DELETE);
+      } catch (IOException e) {
+         // Typically the boxes folder doesn't exist yet, so look again on the next lookup
+         stale = true;
+      }
+   }
+
+   private WatchService newWatchService() {
+      try {
+         return FileSystems.getDefault().newWatchService();
+      } catch (IOException e) {
+         logger.warn(e, "Unable to watch %s for changes, it will be scanned on each lookup", boxesFolder);
+         return null;
+      } catch (UnsupportedOperationException e) {
+         logger.warn(e, "Unable to watch %s for changes, it will be scanned on each lookup", boxesFolder);
+         return null;
+      }
+   }
+
+   private static final class Index {
+      private final Collection<Box> all;
+      private final Map<String, Box> latest;
+      private final Map<String, Table<String, String, Box>> byName;
+
+      Index(Collection<Box> all, Collection<Box> latest) {
+         this.all = ImmutableList.copyOf(all);
+         ImmutableMap.Builder<String, Box> latestByName = ImmutableMap.builder();
+         for (Box box : latest) {
+            latestByName.put(box.getName(), box);
+         }
+         this.latest = latestByName.build();
+         Map<String, ImmutableTable.Builder<String, String, Box>> builders = Maps.newHashMap();
+         for (Box box : all) {
+            ImmutableTable.Builder<String, String, Box> versions = builders.get(box.getName());
+            if (versions == null) {
+               versions = ImmutableTable.builder();
+               builders.put(box.getName(), versions);
+            }
+            versions.put(box.getVersion(), box.getProvider(), box);
+         }
+         ImmutableMap.Builder<String, Table<String, String, Box>> byName = ImmutableMap.builder();
+         for (Map.Entry<String, ImmutableTable.Builder<String, String, Box>> entry : builders.entrySet()) {
+            byName.put(entry.getKey(), entry.getValue().build());
+         }
+         this.byName = byName.build();
+      }
+   }
+
+}
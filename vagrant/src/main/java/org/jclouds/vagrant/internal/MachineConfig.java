@@ -25,11 +25,16 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 
+import javax.inject.Inject;
+
 import org.jclouds.JcloudsVersion;
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.util.Closeables2;
 import org.jclouds.vagrant.domain.VagrantNode;
 import org.jclouds.vagrant.reference.VagrantConstants;
@@ -41,8 +46,22 @@ import com.google.common.collect.Maps;
 
 public class MachineConfig {
    public static class Factory {
+      private final MachineStateStore stateStore;
+
+      /**
+       * Creates configs that are only kept in the yaml files.
+       */
+      public Factory() {
+         this(null);
+      }
+
+      @Inject
+      Factory(MachineStateStore stateStore) {
+         this.stateStore = stateStore;
+      }
+
       public MachineConfig newInstance(File group, String machineName) {
-         return new MachineConfig(group, machineName);
+         return new MachineConfig(group, machineName, stateStore);
       }
 
       public MachineConfig newInstance(VagrantNode node) {
@@ -50,14 +69,32 @@ public class MachineConfig {
       }
    }
 
-   private File configPath;
+   private final File configPath;
+   private final String id;
+   private final MachineStateStore stateStore;
 
    protected MachineConfig(File group, String machineName) {
+      this(group, machineName, null);
+   }
+
+   protected MachineConfig(File group, String machineName, @Nullable MachineStateStore stateStore) {
       this.configPath = new File(new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER),
             machineName + VagrantConstants.MACHINES_CONFIG_EXTENSION);
+      this.id = group.getName() + "/" + machineName;
+      this.stateStore = stateStore;
    }
 
    public Map<String, Object> load() {
+      if (stateStore != null) {
+         Map<String, String> stored = stateStore.get(id);
+         if (stored != null) {
+            return new LinkedHashMap<String, Object>(stored);
+         }
+      }
+      return read(configPath);
+   }
+
+   static Map<String, Object> read(File configPath) {
       Map<String, Object> config = new LinkedHashMap<String, Object>();
       Properties yaml = new Properties();
       FileInputStream fileIn;
@@ -99,13 +136,18 @@ public class MachineConfig {
 
       FileOutputStream fileOut = null;
       BufferedWriter out = null;
+      // Write next to the config and rename, so Vagrant and a crash never see it half-written.
+      // The temporary name must not match the *.yaml files the Vagrantfile loads.
+      File tmp = new File(parent, configPath.getName() + ".tmp");
 
       try {
-         fileOut = new FileOutputStream(configPath);
+         fileOut = new FileOutputStream(tmp);
          out = new BufferedWriter(new OutputStreamWriter(fileOut, Charsets.UTF_8));
          out.write(output);
+         out.flush();
+         fileOut.getFD().sync();
       } catch (IOException e) {
-         throw new IllegalStateException("Failed writing to machine config file " + configPath.getAbsolutePath(), e);
+         throw new IllegalStateException("Failed writing to machine config file " + tmp.getAbsolutePath(), e);
       } finally {
          if (out != null) {
             Closeables2.closeQuietly(out);
@@ -113,5 +155,28 @@ public class MachineConfig {
             Closeables2.closeQuietly(fileOut);
          }
       }
+
+      try {
+         Files.move(tmp.toPath(), configPath.toPath(),
+               StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+         throw new IllegalStateException("Failed replacing machine config file " + configPath.getAbsolutePath(), e);
+      }
+
+      if (stateStore != null) {
+         Map<String, Object> stored = new LinkedHashMap<String, Object>();
+         stored.put(VagrantConstants.CONFIG_JCLOUDS_VERSION, JcloudsVersion.get().toString());
+         stored.putAll(configWithoutVersion);
+         stateStore.put(id, stored);
+      }
+   }
+
+   /**
+    * Forgets the machine. The files in the machines folder are left to the caller.
+    */
+   public void delete() {
+      if (stateStore != null) {
+         stateStore.remove(id);
+      }
    }
 }
@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+
+import org.jclouds.logging.Logger;
+import org.jclouds.util.Closeables2;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Functions;
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Keeps the config of every machine in memory, backed by an append-only journal in the vagrant home.
+ * <p>
+ * Each change is appended as a single checksummed line and synced to disk before returning. The journal is
+ * replayed up to the first record that is incomplete or doesn't match its checksum, which is what a crash in
+ * the middle of an append leaves behind. Once it holds more than twice as many records as there are machines,
+ * the journal is compacted by writing the live configs to a temporary file and renaming it over the journal,
+ * so it's never seen half-written.
+ * <p>
+ * Several processes can share a vagrant home. Every operation holds a lock on
+ * {@code machines.journal.lock} and first replays the records other processes appended since the last one.
+ * Each compaction starts the journal with a new generation record, so a journal replaced by another process
+ * is replayed from the start.
+ * <p>
+ * The yaml files next to each Vagrantfile are still written, since that's what Vagrant reads. Listing the
+ * machines imports the yaml files that aren't in the journal yet, such as the ones of an existing vagrant
+ * home or written by hand.
+ */
+@Singleton
+public class MachineStateStore {
+   private static final int COMPACTION_MIN_RECORDS = 64;
+   private static final String OP_GENERATION = "generation";
+   private static final String OP_PUT = "put";
+   private static final String OP_REMOVE = "remove";
+
+   // FileLock is held per JVM, the stores of the same vagrant home in a JVM take turns on this lock first
+   private static final LoadingCache<File, Lock> JOURNAL_LOCKS = CacheBuilder.newBuilder()
+         .weakValues()
+         .build(new CacheLoader<File, Lock>() {
+            @Override
+            public Lock load(File journal) {
+               return new ReentrantLock();
+            }
+         });
+
+   private static class Record {
+      String op;
+      String id;
+      Map<String, String> config;
+
+      Record(String op, String id, Map<String, String> config) {
+         this.op = op;
+         this.id = id;
+         this.config = config;
+      }
+   }
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final File home;
+   private final File journal;
+   private final File lockFile;
+   private final Lock lock;
+   private final Gson gson = new Gson();
+   private final Map<String, Map<String, String>> machines = new LinkedHashMap<String, Map<String, String>>();
+   private String generation;
+   private long offset;
+   private int records;
+
+   @Inject
+   MachineStateStore(@Named(VagrantConstants.JCLOUDS_VAGRANT_HOME) String home) {
+      this.home = new File(home);
+      this.journal = new File(this.home, VagrantConstants.MACHINES_JOURNAL);
+      this.lockFile = new File(this.home, VagrantConstants.MACHINES_JOURNAL + VagrantConstants.MACHINES_LOCK_EXTENSION);
+      this.lock = JOURNAL_LOCKS.getUnchecked(journal.getAbsoluteFile());
+   }
+
+   /**
+    * @return the configs of all machines, keyed by machine id ({@code group/name})
+    */
+   public Map<String, Map<String, String>> machines() {
+      RandomAccessFile locked = lock();
+      try {
+         sync();
+         List<String> imported = importMachineConfigs();
+         for (String id : imported) {
+            append(new Record(OP_PUT, id, machines.get(id)));
+         }
+         compactIfNeeded();
+         return ImmutableMap.copyOf(machines);
+      } finally {
+         unlock(locked);
+      }
+   }
+
+   /**
+    * @return the config of the machine or null if not known
+    */
+   public Map<String, String> get(String id) {
+      RandomAccessFile locked = lock();
+      try {
+         sync();
+         return machines.get(id);
+      } finally {
+         unlock(locked);
+      }
+   }
+
+   public void put(String id, Map<String, ?> config) {
+      Map<String, String> values = ImmutableMap.copyOf(Maps.transformValues(config, Functions.toStringFunction()));
+      RandomAccessFile locked = lock();
+      try {
+         sync();
+         append(new Record(OP_PUT, id, values));
+         machines.put(id, values);
+         compactIfNeeded();
+      } finally {
+         unlock(locked);
+      }
+   }
+
+   public void remove(String id) {
+      RandomAccessFile locked = lock();
+      try {
+         sync();
+         if (machines.containsKey(id)) {
+            append(new Record(OP_REMOVE, id, null));
+            machines.remove(id);
+            compactIfNeeded();
+         }
+      } finally {
+         unlock(locked);
+      }
+   }
+
+   private RandomAccessFile lock() {
+      if (!home.exists() && !home.mkdirs() && !home.exists()) {
+         throw new IllegalStateException("Failure creating folder " + home.getAbsolutePath());
+      }
+      lock.lock();
+      RandomAccessFile lockChannel = null;
+      try {
+         lockChannel = new RandomAccessFile(lockFile, "rw");
+         lockChannel.getChannel().lock();
+         return lockChannel;
+      } catch (IOException e) {
+         Closeables2.closeQuietly(lockChannel);
+         lock.unlock();
+         throw new IllegalStateException("Unable to lock machine journal " + journal.getAbsolutePath(), e);
+      } catch (RuntimeException e) {
+         Closeables2.closeQuietly(lockChannel);
+         lock.unlock();
+         throw e;
+      }
+   }
+
+   private void unlock(RandomAccessFile lockChannel) {
+      // Closing the channel releases the file lock
+      Closeables2.closeQuietly(lockChannel);
+      lock.unlock();
+   }
+
+   /**
+    * Brings the index up to date with the journal, which other processes may have appended to or replaced.
+    */
+   private void sync() {
+      if (!journal.exists()) {
+         reset();
+         importMachineConfigs();
+         compact();
+         return;
+      }
+      if (journal.length() < offset || !Objects.equal(generation, readGeneration())) {
+         reset();
+      }
+      boolean complete = journal.length() == offset || replay();
+      if (!complete || generation == null) {
+         // Drop the torn tail so later appends don't follow it, and start a generation the other
+         // processes can check
+         compact();
+      }
+   }
+
+   private void reset() {
+      machines.clear();
+      generation = null;
+      offset = 0;
+      records = 0;
+   }
+
+   private String readGeneration() {
+      BufferedReader in;
+      try {
+         in = new BufferedReader(new InputStreamReader(new FileInputStream(journal), Charsets.UTF_8));
+      } catch (FileNotFoundException e) {
+         throw new IllegalStateException("Machine journal not found: " + journal.getAbsolutePath(), e);
+      }
+      try {
+         String line = in.readLine();
+         Record record = line == null ? null : parse(line);
+         return record != null && OP_GENERATION.equals(record.op) ? record.id : null;
+      } catch (IOException e) {
+         throw new IllegalStateException("Failed reading machine journal " + journal.getAbsolutePath(), e);
+      } finally {
+         Closeables2.closeQuietly(in);
+      }
+   }
+
+   /**
+    * Applies the records after the current offset.
+    *
+    * @return false if the journal ends with an incomplete record
+    */
+   private boolean replay() {
+      byte[] tail;
+      RandomAccessFile in = null;
+      try {
+         in = new RandomAccessFile(journal, "r");
+         in.seek(offset);
+         tail = new byte[(int) (in.length() - offset)];
+         in.readFully(tail);
+      } catch (IOException e) {
+         throw new IllegalStateException("Failed reading machine journal " + journal.getAbsolutePath(), e);
+      } finally {
+         Closeables2.closeQuietly(in);
+      }
+
+      int start = 0;
+      for (int end = indexOf(tail, (byte) '\n', start); end != -1; end = indexOf(tail, (byte) '\n', start)) {
+         Record record = parse(new String(tail, start, end - start, Charsets.UTF_8));
+         if (record == null) {
+            logger.warn("Ignoring incomplete records at the end of machine journal %s", journal.getAbsolutePath());
+            return false;
+         }
+         if (OP_GENERATION.equals(record.op)) {
+            generation = record.id;
+         } else if (OP_PUT.equals(record.op)) {
+            machines.put(record.id, ImmutableMap.copyOf(record.config));
+            records++;
+         } else {
+            machines.remove(record.id);
+            records++;
+         }
+         offset += end + 1 - start;
+         start = end + 1;
+      }
+      if (start < tail.length) {
+         logger.warn("Ignoring incomplete records at the end of machine journal %s", journal.getAbsolutePath());
+         return false;
+      }
+      return true;
+   }
+
+   /**
+    * Adds the machines that have a config file but aren't in the index yet.
+    *
+    * @return the ids of the added machines
+    */
+   private List<String> importMachineConfigs() {
+      List<String> imported = Lists.newArrayList();
+      File[] groups = home.listFiles();
+      if (groups == null) return imported;
+      for (File group : groups) {
+         File[] files = new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).listFiles();
+         if (files == null) continue;
+         for (File file : files) {
+            if (file.getName().endsWith(VagrantConstants.MACHINES_CONFIG_EXTENSION)) {
+               String machineName = file.getName().replace(VagrantConstants.MACHINES_CONFIG_EXTENSION, "");
+               String id = group.getName() + "/" + machineName;
+               if (machines.containsKey(id)) continue;
+               try {
+                  Map<String, Object> config = MachineConfig.read(file);
+                  machines.put(id, ImmutableMap.copyOf(Maps.transformValues(config, Functions.toStringFunction())));
+                  imported.add(id);
+               } catch (RuntimeException e) {
+                  logger.debug("Failed importing machine config " + file.getAbsolutePath() + ". Skipping.", e);
+               }
+            }
+         }
+      }
+      return imported;
+   }
+
+   private void compactIfNeeded() {
+      if (records > COMPACTION_MIN_RECORDS && records > 2 * machines.size()) {
+         compact();
+      }
+   }
+
+   private void compact() {
+      String newGeneration = UUID.randomUUID().toString();
+      StringBuilder sb = new StringBuilder(format(new Record(OP_GENERATION, newGeneration, null)));
+      for (Map.Entry<String, Map<String, String>> machine : machines.entrySet()) {
+         sb.append(format(new Record(OP_PUT, machine.getKey(), machine.getValue())));
+      }
+      byte[] content = sb.toString().getBytes(Charsets.UTF_8);
+      File tmp = new File(home, VagrantConstants.MACHINES_JOURNAL + ".tmp");
+      try {
+         write(tmp, content, false);
+         Files.move(tmp.toPath(), journal.toPath(),
+               StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+         throw new IllegalStateException("Failed compacting machine journal " + journal.getAbsolutePath(), e);
+      }
+      generation = newGeneration;
+      offset = content.length;
+      records = machines.size();
+   }
+
+   private void append(Record record) {
+      byte[] content = format(record).getBytes(Charsets.UTF_8);
+      try {
+         write(journal, content, true);
+      } catch (IOException e) {
+         throw new IllegalStateException("Failed writing to machine journal " + journal.getAbsolutePath(), e);
+      }
+      offset += content.length;
+      records++;
+   }
+
+   private String format(Record record) {
+      String json = gson.toJson(record);
+      return checksum(json) + " " + json + "\n";
+   }
+
+   private Record parse(String line) {
+      int separator = line.indexOf(' ');
+      if (separator == -1) return null;
+      String json = line.substring(separator + 1);
+      if (!line.substring(0, separator).equals(checksum(json))) return null;
+      try {
+         Record record = gson.fromJson(json, Record.class);
+         if (record == null || record.id == null) return null;
+         if (OP_PUT.equals(record.op) && record.config != null || OP_REMOVE.equals(record.op)
+               || OP_GENERATION.equals(record.op)) {
+            return record;
+         }
+         return null;
+      } catch (JsonParseException e) {
+         return null;
+      }
+   }
+
+   private static int indexOf(byte[] bytes, byte value, int from) {
+      for (int i = from; i < bytes.length; i++) {
+         if (bytes[i] == value) return i;
+      }
+      return -1;
+   }
+
+   private static String checksum(String json) {
+      CRC32 crc = new CRC32();
+      crc.update(json.getBytes(Charsets.UTF_8));
+      return Long.toHexString(crc.getValue());
+   }
+
+   private static void write(File file, byte[] value, boolean append) throws IOException {
+      FileOutputStream out = new FileOutputStream(file, append);
+      try {
+         out.write(value);
+         out.getFD().sync();
+      } finally {
+         Closeables2.closeQuietly(out);
+      }
+   }
+}
@@ -47,6 +47,12 @@ public class VagrantCliFacade implements VagrantApiFacade, VagrantBoxApiFacade<B
       this.vagrant = Vagrant.forPath(path, outputRecorder);
    }
 
+   @AssistedInject
+   VagrantCliFacade(CommandIOListener wireLogger, @Assisted File path, @Assisted CommandIOListener ioListener) {
+      this.outputRecorder = new VagrantOutputRecorder(wireLogger);
+      this.vagrant = Vagrant.forPath(path, new TeeIOListener(outputRecorder, ioListener));
+   }
+
    @AssistedInject
    VagrantCliFacade(CommandIOListener wireLogger) {
       this.outputRecorder = new VagrantOutputRecorder(wireLogger);
@@ -110,4 +116,26 @@ public class VagrantCliFacade implements VagrantApiFacade, VagrantBoxApiFacade<B
       return vagrant.exists();
    }
 
+   private static class TeeIOListener implements CommandIOListener {
+      private final CommandIOListener first;
+      private final CommandIOListener second;
+
+      TeeIOListener(CommandIOListener first, CommandIOListener second) {
+         this.first = first;
+         this.second = second;
+      }
+
+      @Override
+      public void onInput(String input) {
+         first.onInput(input);
+         second.onInput(input);
+      }
+
+      @Override
+      public void onOutput(String output) {
+         first.onOutput(output);
+         second.onOutput(output);
+      }
+   }
+
 }
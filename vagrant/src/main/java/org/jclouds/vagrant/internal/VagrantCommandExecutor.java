@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.logging.Logger;
+import org.jclouds.util.Closeables2;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import vagrant.api.CommandIOListener;
+
+/**
+ * Runs vagrant commands in the background.
+ * <p>
+ * Commands against different machines run in parallel, up to {@code vagrant.cli.concurrency} at a
+ * time. Commands against the same machine are serialised, both inside the JVM and across processes
+ * sharing the same {@code vagrant.home}, by locking a {@code <machine>.lock} file next to the machine
+ * config. A command which runs longer than {@code vagrant.cli.timeout} milliseconds is interrupted
+ * and its future fails. The clock starts once the command holds its locks, so time spent waiting for
+ * another command on the same machine doesn't count.
+ * <p>
+ * Commands run on threads owned by this executor rather than on the user executor: a command waits
+ * for its locks and then for the CLI, and callers often wait for commands from user threads
+ * themselves, so sharing a bounded pool with them could starve it.
+ */
+@Singleton
+public class VagrantCommandExecutor {
+
+   // File locks are held on behalf of the whole JVM, so commands from all the contexts
+   // have to be serialised in-process before trying to acquire the file lock.
+   private static final LoadingCache<File, Lock> MACHINE_LOCKS = CacheBuilder.newBuilder()
+         .weakValues()
+         .build(new CacheLoader<File, Lock>() {
+            @Override
+            public Lock load(File lockFile) {
+               return new ReentrantLock();
+            }
+         });
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final ListeningExecutorService commandExecutor;
+   private final VagrantApiFacade.Factory cliFactory;
+   private final Semaphore permits;
+   private final long timeoutMillis;
+
+   @Inject
+   VagrantCommandExecutor(VagrantApiFacade.Factory cliFactory,
+         @Named(VagrantConstants.JCLOUDS_VAGRANT_CLI_CONCURRENCY) int concurrency,
+         @Named(VagrantConstants.JCLOUDS_VAGRANT_CLI_TIMEOUT) long timeoutMillis) {
+      checkArgument(concurrency > 0, "concurrency must be positive");
+      checkArgument(timeoutMillis > 0, "timeout must be positive");
+      this.commandExecutor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("vagrant-command-%d").setDaemon(true).build()));
+      this.cliFactory = checkNotNull(cliFactory, "cliFactory");
+      this.permits = new Semaphore(concurrency, true);
+      this.timeoutMillis = timeoutMillis;
+   }
+
+   /**
+    * Schedules {@code command} against the machine {@code machineName} of the Vagrant environment
+    * at {@code path}.
+    */
+   public <T> Command<T> submit(File path, String machineName, final Function<? super VagrantApiFacade, T> command) {
+      checkNotNull(path, "path");
+      checkNotNull(machineName, "machineName");
+      checkNotNull(command, "command");
+      final Command<T> handle = new Command<T>(path, machineName, timeoutMillis);
+      handle.task = commandExecutor.submit(new Runnable() {
+         @Override
+         public void run() {
+            runLocked(handle, command);
+         }
+      });
+      handle.result.addListener(new Runnable() {
+         @Override
+         public void run() {
+            if (handle.result.isCancelled()) {
+               handle.task.cancel(true);
+            }
+         }
+      }, MoreExecutors.directExecutor());
+      return handle;
+   }
+
+   /**
+    * Runs {@code command} and waits for its result.
+    *
+    * @see Command#get()
+    */
+   public <T> T execute(File path, String machineName, Function<? super VagrantApiFacade, T> command) {
+      return submit(path, machineName, command).get();
+   }
+
+   /**
+    * Interrupts the running commands and stops accepting new ones.
+    */
+   @PreDestroy
+   public void close() {
+      commandExecutor.shutdownNow();
+   }
+
+   private <T> void runLocked(final Command<T> handle, Function<? super VagrantApiFacade, T> command) {
+      File machinesFolder = new File(handle.path(), VagrantConstants.MACHINES_CONFIG_SUBFOLDER);
+      File lockFile = new File(machinesFolder, handle.machineName() + VagrantConstants.MACHINES_LOCK_EXTENSION);
+      Lock lock = MACHINE_LOCKS.getUnchecked(lockFile.getAbsoluteFile());
+      try {
+         lock.lockInterruptibly();
+         try {
+            machinesFolder.mkdirs();
+            RandomAccessFile lockChannel = new RandomAccessFile(lockFile, "rw");
+            try {
+               FileLock fileLock = lockChannel.getChannel().lock();
+               try {
+                  permits.acquire();
+                  try {
+                     logger.debug(">> running vagrant command on machine %s in %s", handle.machineName(),
+                           handle.path());
+                     runWithTimeout(handle, command);
+                  } finally {
+                     permits.release();
+                  }
+               } finally {
+                  fileLock.release();
+               }
+            } finally {
+               Closeables2.closeQuietly(lockChannel);
+            }
+         } finally {
+            lock.unlock();
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         handle.result.setException(e);
+      } catch (IOException e) {
+         handle.result.setException(new IllegalStateException("Unable to lock machine " + handle.machineName()
+               + " at " + lockFile, e));
+      } catch (Throwable t) {
+         handle.result.setException(t);
+      }
+   }
+
+   /**
+    * Runs the command on a separate thread so it can be interrupted once it times out. The machine
+    * stays locked until the command actually returns, even if it ignores the interrupt.
+    */
+   private <T> void runWithTimeout(final Command<T> handle, final Function<? super VagrantApiFacade, T> command)
+         throws InterruptedException {
+      final AtomicBoolean claimed = new AtomicBoolean();
+      final CountDownLatch done = new CountDownLatch(1);
+      Future<?> body = commandExecutor.submit(new Runnable() {
+         @Override
+         public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+               return;
+            }
+            try {
+               handle.result.set(command.apply(cliFactory.create(handle.path(), handle.output)));
+            } catch (Throwable t) {
+               handle.result.setException(t);
+            } finally {
+               done.countDown();
+            }
+         }
+      });
+      try {
+         if (!done.await(handle.timeoutMillis(), TimeUnit.MILLISECONDS)) {
+            handle.timedOut();
+            stop(body, claimed, done);
+         }
+      } catch (InterruptedException e) {
+         stop(body, claimed, done);
+         throw e;
+      }
+   }
+
+   private static void stop(Future<?> body, AtomicBoolean claimed, CountDownLatch done) {
+      body.cancel(true);
+      // Unless the command is prevented from starting here, wait for it to return
+      if (!claimed.compareAndSet(false, true)) {
+         Uninterruptibles.awaitUninterruptibly(done);
+      }
+   }
+
+   /**
+    * A vagrant command submitted to the executor.
+    */
+   public static final class Command<T> {
+      private final File path;
+      private final String machineName;
+      private final long timeoutMillis;
+      private final SettableFuture<T> result = SettableFuture.create();
+      private final OutputCapture output = new OutputCapture();
+      private volatile Future<?> task;
+
+      Command(File path, String machineName, long timeoutMillis) {
+         this.path = path;
+         this.machineName = machineName;
+         this.timeoutMillis = timeoutMillis;
+      }
+
+      public File path() {
+         return path;
+      }
+
+      public String machineName() {
+         return machineName;
+      }
+
+      /**
+       * @return the longest the command is allowed to run, in milliseconds
+       */
+      public long timeoutMillis() {
+         return timeoutMillis;
+      }
+
+      public ListenableFuture<T> future() {
+         return result;
+      }
+
+      /**
+       * @return the CLI output captured so far
+       */
+      public String output() {
+         return output.toString();
+      }
+
+      /**
+       * Waits for the command to complete, rethrowing any failure unwrapped.
+       */
+      public T get() {
+         try {
+            return result.get();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw Throwables.propagate(e);
+         } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+         }
+      }
+
+      private void timedOut() {
+         result.setException(new IllegalStateException("Vagrant command on machine " + machineName + " in "
+               + path + " timed out after " + timeoutMillis + " ms. Output:\n" + output));
+      }
+   }
+
+   private static class OutputCapture implements CommandIOListener {
+      private final StringBuffer output = new StringBuffer();
+
+      @Override
+      public void onInput(String input) {
+      }
+
+      @Override
+      public void onOutput(String output) {
+         if (output != null) {
+            this.output.append(output);
+         }
+      }
+
+      @Override
+      public String toString() {
+         return output.toString();
+      }
+   }
+
+}
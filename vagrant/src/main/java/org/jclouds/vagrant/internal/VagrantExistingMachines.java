@@ -19,6 +19,7 @@ package org.jclouds.vagrant.internal;
 import java.io.File;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -46,42 +47,50 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
 
    private final File home;
    private final MachineConfig.Factory machineConfigFactory;
+   private final MachineStateStore stateStore;
    private final Supplier<Collection<Image>> imageLister;
    private final Supplier<? extends Map<String, Hardware>> hardwareSupplier;
 
    @Inject
    VagrantExistingMachines(@Named(VagrantConstants.JCLOUDS_VAGRANT_HOME) String home,
          MachineConfig.Factory machineConfigFactory,
+         MachineStateStore stateStore,
          Supplier<Collection<Image>> imageLister,
          Supplier<? extends Map<String, Hardware>> hardwareSupplier) {
       this.home = new File(home);
       this.machineConfigFactory = machineConfigFactory;
+      this.stateStore = stateStore;
       this.imageLister = imageLister;
       this.hardwareSupplier = hardwareSupplier;
    }
 
    @Override
    public Collection<VagrantNode> get() {
-      File[] groups = home.listFiles();
-      if (groups == null) return ImmutableList.of();
+      // The machines are listed from the state store journal instead of parsing every config file
+      Set<String> ids = stateStore.machines().keySet();
+      if (ids.isEmpty()) return ImmutableList.of();
       Map<String, Image> images = getImages();
       Collection<VagrantNode> nodes = Lists.newArrayList();
-      for (File group : groups) {
-         File[] machines = new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).listFiles();
-         if (machines == null) continue;
-         for (File machine : machines) {
-            if (machine.getName().endsWith(VagrantConstants.MACHINES_CONFIG_EXTENSION)) {
-               try {
-                  VagrantNode node = createMachine(group, machine, images);
-                  if (node != null) {
-                     nodes.add(node);
-                  }
-               } catch (RuntimeException e) {
-                  // Skip image, something is broken about it.
-                  // Most probable cause is that another process just deleted it.
-                  logger.debug("Failed loading machine " + machine.getAbsolutePath() + ". Skipping.", e);
-               }
+      for (String id : ids) {
+         int separator = id.lastIndexOf('/');
+         File group = new File(home, id.substring(0, separator));
+         File machine = new File(new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER),
+               id.substring(separator + 1) + VagrantConstants.MACHINES_CONFIG_EXTENSION);
+         if (!machine.isFile()) {
+            // Deleted outside of jclouds, Vagrant won't find it either
+            logger.debug("Machine " + machine.getAbsolutePath() + " no longer exists. Forgetting it.");
+            stateStore.remove(id);
+            continue;
+         }
+         try {
+            VagrantNode node = createMachine(group, machine, images);
+            if (node != null) {
+               nodes.add(node);
             }
+         } catch (RuntimeException e) {
+            // Skip image, something is broken about it.
+            // Most probable cause is that another process just deleted it.
+            logger.debug("Failed loading machine " + machine.getAbsolutePath() + ". Skipping.", e);
          }
       }
       return nodes;
@@ -17,12 +17,17 @@
 package org.jclouds.vagrant.reference;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 public final class VagrantConstants {
    private VagrantConstants() {}
 
    public static final String JCLOUDS_VAGRANT_HOME = "vagrant.home";
    public static final String JCLOUDS_VAGRANT_HOME_DEFAULT = new File(System.getProperty("user.home"), ".jclouds/vagrant").getAbsolutePath();
+   public static final String JCLOUDS_VAGRANT_CLI_CONCURRENCY = "vagrant.cli.concurrency";
+   public static final String JCLOUDS_VAGRANT_CLI_CONCURRENCY_DEFAULT = "10";
+   public static final String JCLOUDS_VAGRANT_CLI_TIMEOUT = "vagrant.cli.timeout";
+   public static final String JCLOUDS_VAGRANT_CLI_TIMEOUT_DEFAULT = Long.toString(TimeUnit.MINUTES.toMillis(30));
    public static final String VAGRANTFILE = "Vagrantfile";
    public static final String DEFAULT_USERNAME = "vagrant";
    public static final String DEFAULT_PASSWORD = "vagrant";
@@ -52,7 +57,9 @@ public final class VagrantConstants {
 
    public static final String MACHINES_CONFIG_SUBFOLDER = "machines";
    public static final String MACHINES_CONFIG_EXTENSION = ".yaml";
+   public static final String MACHINES_LOCK_EXTENSION = ".lock";
    public static final String MACHINES_AUTO_HARDWARE = "automatic";
+   public static final String MACHINES_JOURNAL = "machines.journal";
 
    // Config file keys
    public static final String CONFIG_JCLOUDS_VERSION = "jcloudsVersion";
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.vagrant.api.VagrantBoxApiFacade;
+import org.jclouds.vagrant.functions.OutdatedBoxesFilter;
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+import vagrant.api.domain.Box;
+
+@Test(groups = "unit", singleThreaded = true)
+public class BoxCatalogTest {
+
+   private static final Box CLI_BOX = new Box("remote/box", "1.0", "virtualbox");
+
+   private File vagrantHome;
+   private BoxCatalog catalog;
+   private final AtomicInteger cliCalls = new AtomicInteger();
+
+   private final VagrantBoxApiFacade.Factory<Box> cliFactory = new VagrantBoxApiFacade.Factory<Box>() {
+      @Override
+      public VagrantBoxApiFacade<Box> create() {
+         cliCalls.incrementAndGet();
+         return new VagrantBoxApiFacade<Box>() {
+            @Override
+            public Collection<Box> listBoxes() {
+               return ImmutableList.of(CLI_BOX);
+            }
+
+            @Override
+            public Box getBox(String boxName) {
+               return boxName.equals(CLI_BOX.getName()) ? CLI_BOX : null;
+            }
+         };
+      }
+   };
+
+   @BeforeMethod
+   public void setUp() {
+      vagrantHome = Files.createTempDir();
+      cliCalls.set(0);
+      addBox("ubuntu-VAGRANTSLASH-xenial64", "20170101.0.0", "virtualbox");
+      addBox("ubuntu-VAGRANTSLASH-xenial64", "20170311.0.0", "virtualbox");
+      addBox("ubuntu-VAGRANTSLASH-xenial64", "20170311.0.0", "vmware_desktop");
+      addBox("centos-VAGRANTSLASH-7", "1702.01", "virtualbox");
+      catalog = new BoxCatalog(vagrantHome, new OutdatedBoxesFilter(), cliFactory);
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() throws IOException {
+      catalog.close();
+      VagrantUtils.deleteFolder(vagrantHome);
+   }
+
+   @Test
+   public void testListBoxes() {
+      assertEquals(ImmutableSet.copyOf(catalog.listBoxes()), ImmutableSet.of(
+            new Box("ubuntu/xenial64", "20170101.0.0", "virtualbox"),
+            new Box("ubuntu/xenial64", "20170311.0.0", "virtualbox"),
+            new Box("ubuntu/xenial64", "20170311.0.0", "vmware_desktop"),
+            new Box("centos/7", "1702.01", "virtualbox")));
+      assertEquals(cliCalls.get(), 0);
+   }
+
+   @Test
+   public void testGetBox() {
+      assertEquals(catalog.getBox("centos/7"), new Box("centos/7", "1702.01", "virtualbox"));
+      assertEquals(catalog.getBox("ubuntu/xenial64").getVersion(), "20170311.0.0");
+      assertEquals(catalog.getBox("ubuntu/xenial64", "20170101.0.0", "virtualbox"),
+            new Box("ubuntu/xenial64", "20170101.0.0", "virtualbox"));
+      assertEquals(catalog.getBox("ubuntu/xenial64", "20170311.0.0", "vmware_desktop"),
+            new Box("ubuntu/xenial64", "20170311.0.0", "vmware_desktop"));
+      assertEquals(cliCalls.get(), 0);
+   }
+
+   @Test
+   public void testMissFallsBackToCli() {
+      assertEquals(catalog.getBox(CLI_BOX.getName()), CLI_BOX);
+      assertNull(catalog.getBox("missing/box"));
+      assertNull(catalog.getBox("centos/7", "1702.01", "libvirt"));
+      assertEquals(cliCalls.get(), 3);
+   }
+
+   @Test
+   public void testRefreshOnChange() throws InterruptedException {
+      assertEquals(catalog.getBox("centos/7").getVersion(), "1702.01");
+
+      addBox("centos-VAGRANTSLASH-7", "1703.01", "virtualbox");
+      awaitVersion("centos/7", "1703.01");
+
+      VagrantUtils.deleteFolder(new File(vagrantHome, "boxes/centos-VAGRANTSLASH-7/1703.01"));
+      awaitVersion("centos/7", "1702.01");
+
+      assertEquals(cliCalls.get(), 0);
+   }
+
+   @Test
+   public void testMissingBoxesFolder() throws IOException {
+      VagrantUtils.deleteFolder(new File(vagrantHome, "boxes"));
+      BoxCatalog empty = new BoxCatalog(vagrantHome, new OutdatedBoxesFilter(), cliFactory);
+      try {
+         assertEquals(empty.listBoxes().size(), 0);
+         addBox("centos-VAGRANTSLASH-7", "1702.01", "virtualbox");
+         assertEquals(empty.listBoxes().size(), 1);
+      } finally {
+         empty.close();
+      }
+   }
+
+   private void awaitVersion(String name, String version) throws InterruptedException {
+      // File system notifications are asynchronous and on some platforms polled
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+      while (!version.equals(catalog.getBox(name).getVersion()) && System.currentTimeMillis() < deadline) {
+         Thread.sleep(50);
+      }
+      assertEquals(catalog.getBox(name).getVersion(), version);
+   }
+
+   private void addBox(String folder, String version, String provider) {
+      new File(vagrantHome, "boxes/" + folder + "/" + version + "/" + provider).mkdirs();
+   }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+public class MachineStateStoreTest {
+   private static final Map<String, Object> CONFIG = ImmutableMap.<String, Object>of(
+         "box", "jclouds/vagrant",
+         "hardwareId", "micro",
+         "password", "with: \"quotes\"\nand new lines");
+
+   private File home;
+
+   @BeforeMethod
+   public void createHome() {
+      home = Files.createTempDir();
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void deleteHome() {
+      VagrantUtils.deleteFolder(home);
+   }
+
+   @Test
+   public void testReplaysJournal() {
+      MachineStateStore store = newStore();
+      store.put("group/one", CONFIG);
+      store.put("group/two", CONFIG);
+      store.put("group/one", ImmutableMap.of("box", "jclouds/other"));
+      store.remove("group/two");
+
+      MachineStateStore reloaded = newStore();
+      assertEquals(reloaded.machines().keySet(), ImmutableSet.of("group/one"));
+      assertEquals(reloaded.get("group/one"), ImmutableMap.of("box", "jclouds/other"));
+      assertNull(reloaded.get("group/two"));
+   }
+
+   @Test
+   public void testIgnoresTornRecord() throws IOException {
+      MachineStateStore store = newStore();
+      store.put("group/one", CONFIG);
+      File journal = new File(home, VagrantConstants.MACHINES_JOURNAL);
+      Files.append("1cafe {\"op\":\"put\",\"id\":\"group/two\",\"con", journal, Charsets.UTF_8);
+
+      MachineStateStore reloaded = newStore();
+      assertEquals(reloaded.get("group/one"), CONFIG);
+      assertNull(reloaded.get("group/two"));
+
+      // the torn record is dropped, so new records are not appended after it
+      reloaded.put("group/three", CONFIG);
+      assertEquals(newStore().machines().size(), 2);
+      // the generation record and one record per machine
+      assertEquals(Files.readLines(journal, Charsets.UTF_8).size(), 3);
+   }
+
+   @Test
+   public void testCompactsJournal() throws IOException {
+      MachineStateStore store = newStore();
+      for (int i = 0; i < 1000; i++) {
+         store.put("group/one", ImmutableMap.of("box", "jclouds/vagrant", "revision", i));
+      }
+
+      File journal = new File(home, VagrantConstants.MACHINES_JOURNAL);
+      assertTrue(Files.readLines(journal, Charsets.UTF_8).size() < 100);
+      assertFalse(new File(home, VagrantConstants.MACHINES_JOURNAL + ".tmp").exists());
+      assertEquals(newStore().get("group/one"), ImmutableMap.of("box", "jclouds/vagrant", "revision", "999"));
+   }
+
+   @Test
+   public void testImportsMachineConfigs() {
+      new MachineConfig.Factory().newInstance(new File(home, "group"), "machine").save(CONFIG);
+
+      MachineStateStore store = newStore();
+      assertEquals(store.get("group/machine").get("box"), "jclouds/vagrant");
+      assertTrue(new File(home, VagrantConstants.MACHINES_JOURNAL).exists());
+   }
+
+   @Test
+   public void testImportsMachineConfigsAddedLater() {
+      MachineStateStore store = newStore();
+      store.put("group/one", CONFIG);
+
+      new MachineConfig.Factory().newInstance(new File(home, "group"), "machine").save(CONFIG);
+
+      assertEquals(store.machines().keySet(), ImmutableSet.of("group/one", "group/machine"));
+      assertEquals(newStore().get("group/machine").get("box"), "jclouds/vagrant");
+   }
+
+   @Test
+   public void testSeesChangesOfOtherStores() {
+      MachineStateStore first = newStore();
+      MachineStateStore second = newStore();
+      first.machines();
+      second.machines();
+
+      first.put("group/one", CONFIG);
+      second.put("group/two", CONFIG);
+      first.remove("group/one");
+
+      assertEquals(first.machines().keySet(), ImmutableSet.of("group/two"));
+      assertEquals(second.machines().keySet(), ImmutableSet.of("group/two"));
+      assertEquals(second.get("group/two"), CONFIG);
+   }
+
+   @Test
+   public void testCompactionKeepsRecordsOfOtherStores() {
+      MachineStateStore first = newStore();
+      MachineStateStore second = newStore();
+      first.machines();
+      second.machines();
+
+      first.put("group/one", CONFIG);
+      for (int i = 0; i < 1000; i++) {
+         second.put("group/two", ImmutableMap.of("box", "jclouds/vagrant", "revision", i));
+      }
+      first.put("group/three", CONFIG);
+
+      Map<String, Map<String, String>> machines = newStore().machines();
+      assertEquals(machines.keySet(), ImmutableSet.of("group/one", "group/two", "group/three"));
+      assertEquals(machines.get("group/two"), ImmutableMap.of("box", "jclouds/vagrant", "revision", "999"));
+      assertEquals(second.machines(), machines);
+   }
+
+   @Test
+   public void testMachineConfigUsesStore() {
+      MachineStateStore store = newStore();
+      MachineConfig.Factory factory = new MachineConfig.Factory(store);
+      factory.newInstance(new File(home, "group"), "machine").save(CONFIG);
+
+      assertEquals(newStore().get("group/machine").get("hardwareId"), "micro");
+      assertEquals(factory.newInstance(new File(home, "group"), "machine").load().get("password"),
+            CONFIG.get("password"));
+
+      factory.newInstance(new File(home, "group"), "machine").delete();
+      assertNull(newStore().get("group/machine"));
+   }
+
+   private MachineStateStore newStore() {
+      return new MachineStateStore(home.getAbsolutePath());
+   }
+}
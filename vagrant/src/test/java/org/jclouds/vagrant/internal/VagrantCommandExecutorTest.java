@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.internal.VagrantCommandExecutor.Command;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import vagrant.api.CommandIOListener;
+
+@Test(groups = "unit", singleThreaded = true)
+public class VagrantCommandExecutorTest {
+
+   private File path;
+   private final List<VagrantCommandExecutor> executors = Lists.newArrayList();
+   private final AtomicInteger running = new AtomicInteger();
+   private final AtomicInteger maxRunning = new AtomicInteger();
+
+   private final VagrantApiFacade.Factory cliFactory = new VagrantApiFacade.Factory() {
+      @Override
+      public VagrantApiFacade create(File path) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public VagrantApiFacade create(File path, CommandIOListener ioListener) {
+         return new SleepingFacade(ioListener);
+      }
+   };
+
+   @BeforeMethod
+   public void setUp() {
+      path = Files.createTempDir();
+      running.set(0);
+      maxRunning.set(0);
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() {
+      for (VagrantCommandExecutor executor : executors) {
+         executor.close();
+      }
+      executors.clear();
+      VagrantUtils.deleteFolder(path);
+   }
+
+   @Test
+   public void testDifferentMachinesRunInParallelUpToTheLimit() {
+      VagrantCommandExecutor executor = newExecutor(3, 10000);
+      List<Command<String>> commands = Lists.newArrayList();
+      for (int i = 0; i < 6; i++) {
+         commands.add(executor.submit(path, "machine" + i, up("machine" + i, 200)));
+      }
+      for (int i = 0; i < commands.size(); i++) {
+         assertEquals(commands.get(i).get(), "machine" + i + " up");
+      }
+      assertEquals(maxRunning.get(), 3);
+   }
+
+   @Test
+   public void testSameMachineIsSerialised() {
+      VagrantCommandExecutor executor = newExecutor(5, 10000);
+      List<Command<String>> commands = Lists.newArrayList();
+      for (int i = 0; i < 4; i++) {
+         commands.add(executor.submit(path, "machine", up("machine", 50)));
+      }
+      for (Command<String> command : commands) {
+         command.get();
+      }
+      assertEquals(maxRunning.get(), 1);
+      assertTrue(new File(new File(path, VagrantConstants.MACHINES_CONFIG_SUBFOLDER), "machine.lock").exists());
+   }
+
+   @Test
+   public void testOutputIsCaptured() {
+      VagrantCommandExecutor executor = newExecutor(1, 10000);
+      Command<String> command = executor.submit(path, "machine", up("machine", 0));
+      command.get();
+      assertEquals(command.output(), "Bringing machine 'machine' up...\n");
+      assertEquals(command.timeoutMillis(), 10000);
+      assertEquals(command.machineName(), "machine");
+   }
+
+   @Test
+   public void testTimeout() throws InterruptedException {
+      VagrantCommandExecutor executor = newExecutor(1, 100);
+      final CountDownLatch interrupted = new CountDownLatch(1);
+      Command<String> command = executor.submit(path, "machine", new Function<VagrantApiFacade, String>() {
+         @Override
+         public String apply(VagrantApiFacade vagrant) {
+            try {
+               Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+               interrupted.countDown();
+            }
+            return "done";
+         }
+      });
+      try {
+         command.get();
+         fail("Expected the command to time out");
+      } catch (IllegalStateException e) {
+         assertTrue(e.getMessage().contains("timed out after 100 ms"), e.getMessage());
+      }
+      assertTrue(interrupted.await(10, TimeUnit.SECONDS), "Command not interrupted");
+
+      // The machine lock is released once the timed out command stops
+      assertEquals(executor.submit(path, "machine", up("machine", 0)).get(), "machine up");
+   }
+
+   @Test
+   public void testCommandsDoNotNeedAFreeUserThread() throws Exception {
+      final VagrantCommandExecutor executor = newExecutor(1, 10000);
+      // a caller blocked on a command while holding the only user thread
+      ListeningExecutorService userExecutor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+      try {
+         Future<String> result = userExecutor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+               return executor.execute(path, "machine", up("machine", 0));
+            }
+         });
+         assertEquals(result.get(10, TimeUnit.SECONDS), "machine up");
+      } finally {
+         userExecutor.shutdownNow();
+      }
+   }
+
+   private VagrantCommandExecutor newExecutor(int concurrency, long timeoutMillis) {
+      VagrantCommandExecutor executor = new VagrantCommandExecutor(cliFactory, concurrency, timeoutMillis);
+      executors.add(executor);
+      return executor;
+   }
+
+   private Function<VagrantApiFacade, String> up(final String machineName, final long sleepMillis) {
+      return new Function<VagrantApiFacade, String>() {
+         @Override
+         public String apply(VagrantApiFacade vagrant) {
+            ((SleepingFacade) vagrant).sleepMillis = sleepMillis;
+            return vagrant.up(machineName, "virtualbox");
+         }
+      };
+   }
+
+   private class SleepingFacade implements VagrantApiFacade {
+      private final CommandIOListener ioListener;
+      private long sleepMillis;
+
+      SleepingFacade(CommandIOListener ioListener) {
+         this.ioListener = ioListener;
+      }
+
+      @Override
+      public String up(String machineName, String provider) {
+         int now = running.incrementAndGet();
+         int max;
+         while (now > (max = maxRunning.get()) && !maxRunning.compareAndSet(max, now)) {
+            // retry
+         }
+         try {
+            Thread.sleep(sleepMillis);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+         } finally {
+            running.decrementAndGet();
+         }
+         ioListener.onOutput("Bringing machine '" + machineName + "' up...\n");
+         return machineName + " up";
+      }
+
+      @Override
+      public void halt(String machineName) {
+      }
+
+      @Override
+      public void destroy(String machineName) {
+      }
+
+      @Override
+      public LoginCredentials sshConfig(String machineName) {
+         return null;
+      }
+
+      @Override
+      public void haltForced(String name) {
+      }
+
+      @Override
+      public boolean exists() {
+         return true;
+      }
+   }
+}
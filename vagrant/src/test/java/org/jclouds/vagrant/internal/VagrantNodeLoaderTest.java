@@ -95,7 +95,8 @@ public class VagrantNodeLoaderTest {
 
         EasyMock.replay(config, factory, imageSupplier, image, hardwareSupplier);
 
-        VagrantExistingMachines nodeLoader = new VagrantExistingMachines(home.getAbsolutePath(), factory, imageSupplier, hardwareSupplier);
+        VagrantExistingMachines nodeLoader = new VagrantExistingMachines(home.getAbsolutePath(), factory,
+                new MachineStateStore(home.getAbsolutePath()), imageSupplier, hardwareSupplier);
         Collection<VagrantNode> nodes = nodeLoader.get();
 
         VagrantNode actualNode = Iterables.getOnlyElement(nodes);